@@ -0,0 +1,78 @@
+// AnalyticsBenchmark.java
+package budgetapp.bench;
+
+import budgetapp.ColumnarTransactionStore;
+import budgetapp.SpendingAnalytics;
+import budgetapp.SpendingReport;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Time to build a SpendingAnalytics report over a columnar store of up to 50
+ * million transactions, on a ForkJoinPool of 1 to 8 threads. Run with the GC
+ * profiler (-prof gc) to check that the scan allocates only its accumulators.
+ * Scaling needs at least as many cores as the pool has threads.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx3g"})
+@State(Scope.Benchmark)
+public class AnalyticsBenchmark {
+    private static final int CATEGORIES = 64;
+
+    @Param({"1000000", "50000000"})
+    public int rows;
+
+    @Param({"1", "2", "4", "8"})
+    public int parallelism;
+
+    private ForkJoinPool pool;
+    private SpendingAnalytics analytics;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        BudgetDataset dataset = new BudgetDataset(CATEGORIES, 42);
+        ColumnarTransactionStore store = new ColumnarTransactionStore(rows);
+        for (int i = 0; i < rows; i++) {
+            store.append(i % 10 == 0 ? dataset.nextIncome() : dataset.nextExpense(dataset.nextCategory()));
+        }
+        pool = new ForkJoinPool(parallelism);
+        analytics = new SpendingAnalytics(store, pool);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    @Benchmark
+    public SpendingReport byCategory() {
+        return analytics.report(SpendingAnalytics.GroupBy.CATEGORY);
+    }
+
+    @Benchmark
+    public SpendingReport byMonth() {
+        return analytics.report(SpendingAnalytics.GroupBy.MONTH);
+    }
+
+    @Benchmark
+    public SpendingReport byPaymentMethodOneQuarter() {
+        return analytics.report(SpendingAnalytics.GroupBy.PAYMENT_METHOD, BudgetDataset.START,
+                BudgetDataset.START.plusMonths(3).minusDays(1));
+    }
+}
\ No newline at end of file
@@ -0,0 +1,116 @@
+// BudgetDataset.java
+package budgetapp.bench;
+
+import budgetapp.BudgetCategory;
+import budgetapp.BudgetManager;
+import budgetapp.Expense;
+import budgetapp.Income;
+import budgetapp.MonthlyLimitException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Deterministic synthetic data for benchmarks: one income for every nine
+ * expenses, amounts uniform between $0.01 and $1000.00, spread over two years
+ * with second resolution, and expenses spread evenly over the categories.
+ * Category limits are never reached.
+ */
+final class BudgetDataset {
+    /** First day covered by the data. */
+    static final LocalDate START = LocalDate.of(2024, 1, 1);
+    /** Number of days covered by the data. */
+    static final int DAYS = 730;
+    /** Largest amount in cents. */
+    static final int MAX_AMOUNT_CENTS = 100_000;
+    private static final int BATCH = 100_000;
+
+    private final SplittableRandom random;
+    private final BudgetCategory[] categories;
+
+    /**
+     * Creates a dataset generator.
+     * @param categoryCount the number of categories
+     * @param seed the random seed
+     */
+    BudgetDataset(int categoryCount, long seed) {
+        random = new SplittableRandom(seed);
+        categories = new BudgetCategory[categoryCount];
+        for (int c = 0; c < categoryCount; c++) {
+            categories[c] = BudgetCategory.ofCents("Category" + c, Long.MAX_VALUE / 2);
+        }
+    }
+
+    BudgetCategory[] categories() {
+        return categories;
+    }
+
+    /**
+     * Creates a manager holding the categories and a number of transactions.
+     * @param transactions the number of transactions to add
+     * @return the populated manager
+     */
+    BudgetManager populate(int transactions) {
+        BudgetManager manager = new BudgetManager();
+        for (BudgetCategory category : categories) {
+            manager.addCategory(category);
+        }
+        List<Income> incomes = new ArrayList<>();
+        List<List<Expense>> expenses = new ArrayList<>();
+        for (int c = 0; c < categories.length; c++) {
+            expenses.add(new ArrayList<>());
+        }
+        for (int i = 0; i < transactions; i++) {
+            if (i % 10 == 0) {
+                incomes.add(nextIncome());
+            } else {
+                int c = random.nextInt(categories.length);
+                expenses.get(c).add(nextExpense(categories[c]));
+            }
+            if ((i + 1) % BATCH == 0 || i + 1 == transactions) {
+                flush(manager, incomes, expenses);
+            }
+        }
+        return manager;
+    }
+
+    Income nextIncome() {
+        return Income.ofCents(nextAmount(), nextDateTime(), "Salary");
+    }
+
+    Expense nextExpense(BudgetCategory category) {
+        Expense.PaymentMethod[] methods = Expense.PaymentMethod.values();
+        return Expense.ofCents(nextAmount(), nextDateTime(), category.getName(), methods[random.nextInt(methods.length)]);
+    }
+
+    BudgetCategory nextCategory() {
+        return categories[random.nextInt(categories.length)];
+    }
+
+    LocalDate nextDay() {
+        return START.plusDays(random.nextInt(DAYS));
+    }
+
+    private long nextAmount() {
+        return 1 + random.nextInt(MAX_AMOUNT_CENTS);
+    }
+
+    private LocalDateTime nextDateTime() {
+        return START.atStartOfDay().plusSeconds(random.nextLong(DAYS * 86_400L));
+    }
+
+    private void flush(BudgetManager manager, List<Income> incomes, List<List<Expense>> expenses) {
+        manager.addIncomes(incomes);
+        incomes.clear();
+        for (int c = 0; c < categories.length; c++) {
+            try {
+                manager.addExpenses(expenses.get(c), categories[c]);
+            } catch (MonthlyLimitException e) {
+                throw new IllegalStateException("Benchmark limits are never reached", e);
+            }
+            expenses.get(c).clear();
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,93 @@
+// ColumnarFootprint.java
+package budgetapp.bench;
+
+import budgetapp.BudgetCategory;
+import budgetapp.BudgetManager;
+import budgetapp.ColumnarTransactionStore;
+import budgetapp.Expense;
+import budgetapp.MonthlyLimitException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Measures the heap retained per expense row by the three layouts in the
+ * README's "Columnar storage" table: expenses in a
+ * {@code HashMap<BudgetCategory, List<Expense>>}, a {@link BudgetManager}
+ * with its indexes, and a {@link ColumnarTransactionStore}. Each figure is the
+ * growth of the used heap, after full collections, while the layout is held.
+ * <p>
+ * Usage: {@code java -Xmx4g -cp benchmarks.jar budgetapp.bench.ColumnarFootprint [rows] [categories]}
+ */
+public class ColumnarFootprint {
+    private static final LocalDateTime START = LocalDateTime.of(2024, 1, 1, 0, 0);
+    private static final int SECONDS = 730 * 86_400;
+
+    public static void main(String[] args) throws MonthlyLimitException, InterruptedException {
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int categoryCount = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        BudgetCategory[] categories = new BudgetCategory[categoryCount];
+        for (int c = 0; c < categoryCount; c++) {
+            categories[c] = BudgetCategory.ofCents("Category" + c, Long.MAX_VALUE / 4);
+        }
+        System.out.printf("%,d expenses over %d categories%n", rows, categoryCount);
+
+        long before = usedHeap();
+        Map<BudgetCategory, List<Expense>> map = new HashMap<>();
+        Random random = new Random(1);
+        for (int i = 0; i < rows; i++) {
+            BudgetCategory category = categories[random.nextInt(categoryCount)];
+            map.computeIfAbsent(category, k -> new ArrayList<>()).add(expense(random, category));
+        }
+        report("HashMap<BudgetCategory, List<Expense>>", usedHeap() - before, rows, map);
+        map = null;
+
+        before = usedHeap();
+        BudgetManager manager = new BudgetManager();
+        for (BudgetCategory category : categories) {
+            manager.addCategory(category);
+        }
+        random = new Random(1);
+        for (int i = 0; i < rows; i++) {
+            BudgetCategory category = categories[random.nextInt(categoryCount)];
+            manager.addExpense(expense(random, category), category);
+        }
+        report("BudgetManager", usedHeap() - before, rows, manager);
+
+        before = usedHeap();
+        ColumnarTransactionStore store = manager.toColumnarStore();
+        long storeBytes = usedHeap() - before;
+        report("ColumnarTransactionStore", storeBytes, rows, store);
+        System.out.printf("  estimateHeapBytes: %.1f bytes per row%n", store.estimateHeapBytes() / (double) rows);
+    }
+
+    private static Expense expense(Random random, BudgetCategory category) {
+        LocalDateTime at = START.plusSeconds(random.nextInt(SECONDS)).plusNanos(random.nextInt(1_000_000_000));
+        Expense.PaymentMethod method = Expense.PaymentMethod.values()[random.nextInt(Expense.PaymentMethod.values().length)];
+        return Expense.ofCents(1 + random.nextInt(BudgetDataset.MAX_AMOUNT_CENTS), at, category.getName(), method);
+    }
+
+    // The layout is passed in so it is still reachable while the heap is measured.
+    private static void report(String layout, long bytes, int rows, Object held) {
+        System.out.printf("%-40s %6.1f bytes per row%n", layout, bytes / (double) rows);
+        if (held == null) {
+            throw new IllegalStateException();
+        }
+    }
+
+    private static long usedHeap() throws InterruptedException {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        long used = Long.MAX_VALUE;
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+            Thread.sleep(50);
+            used = Math.min(used, memory.getHeapMemoryUsage().getUsed());
+        }
+        return used;
+    }
+}
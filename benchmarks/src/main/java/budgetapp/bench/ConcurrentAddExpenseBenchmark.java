@@ -0,0 +1,85 @@
+// ConcurrentAddExpenseBenchmark.java
+package budgetapp.bench;
+
+import budgetapp.BudgetCategory;
+import budgetapp.BudgetManager;
+import budgetapp.Expense;
+import budgetapp.MonthlyLimitException;
+import java.time.LocalDateTime;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Throughput of BudgetManager.addExpense with 1 to 8 threads sharing one manager.
+ * Categories have a limit that is never reached, so every call takes the full path.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ConcurrentAddExpenseBenchmark {
+    @Param({"1", "16"})
+    public int categoryCount;
+
+    private BudgetManager manager;
+    private BudgetCategory[] categories;
+    private final LocalDateTime start = LocalDateTime.of(2025, 1, 1, 0, 0);
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        manager = new BudgetManager();
+        categories = new BudgetCategory[categoryCount];
+        for (int c = 0; c < categoryCount; c++) {
+            categories[c] = BudgetCategory.ofCents("Category" + c, Long.MAX_VALUE / 2);
+            manager.addCategory(categories[c]);
+        }
+    }
+
+    private Expense addOne() throws MonthlyLimitException {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        BudgetCategory category = categories[random.nextInt(categories.length)];
+        Expense expense = Expense.ofCents(1 + random.nextInt(100_000), start.plusMinutes(random.nextInt(500_000)),
+                category.getName(), Expense.PaymentMethod.CARD);
+        manager.addExpense(expense, category);
+        return expense;
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Expense threads1() throws MonthlyLimitException {
+        return addOne();
+    }
+
+    @Benchmark
+    @Threads(2)
+    public Expense threads2() throws MonthlyLimitException {
+        return addOne();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Expense threads4() throws MonthlyLimitException {
+        return addOne();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public Expense threads8() throws MonthlyLimitException {
+        return addOne();
+    }
+}
\ No newline at end of file
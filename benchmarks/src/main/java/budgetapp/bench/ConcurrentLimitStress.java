@@ -0,0 +1,102 @@
+// ConcurrentLimitStress.java
+package budgetapp.bench;
+
+import budgetapp.BudgetCategory;
+import budgetapp.BudgetManager;
+import budgetapp.Expense;
+import budgetapp.MonthlyLimitException;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Stress test for concurrent limit enforcement. Many threads add expenses to
+ * a few small categories at once; afterwards every category must be within its
+ * limit and its spend must equal the sum of the expenses that were accepted.
+ * <p>
+ * Usage: {@code java -cp benchmarks.jar budgetapp.bench.ConcurrentLimitStress [threads] [rounds]}
+ * Exits with status 1 if any check fails.
+ */
+public class ConcurrentLimitStress {
+    private static final int CATEGORIES = 4;
+    private static final long LIMIT_CENTS = 1_000_000;
+    private static final int ATTEMPTS_PER_THREAD = 50_000;
+    // Every expense is dated in this month, so all of them share one limit.
+    private static final YearMonth MONTH = YearMonth.of(2025, 1);
+
+    public static void main(String[] args) throws InterruptedException {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors() * 2;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        boolean failed = false;
+        for (int round = 1; round <= rounds; round++) {
+            failed |= !runRound(threads, round);
+        }
+        System.out.println(failed ? "FAILED" : "OK: no limit exceeded in " + rounds + " rounds with " + threads + " threads");
+        if (failed) {
+            System.exit(1);
+        }
+    }
+
+    private static boolean runRound(int threads, int round) throws InterruptedException {
+        BudgetManager manager = new BudgetManager();
+        BudgetCategory[] categories = new BudgetCategory[CATEGORIES];
+        AtomicLong[] accepted = new AtomicLong[CATEGORIES];
+        for (int c = 0; c < CATEGORIES; c++) {
+            categories[c] = BudgetCategory.ofCents("Category" + c, LIMIT_CENTS);
+            accepted[c] = new AtomicLong();
+            manager.addCategory(categories[c]);
+        }
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> workers = new ArrayList<>();
+        LocalDateTime now = MONTH.atDay(1).atTime(12, 0);
+        for (int t = 0; t < threads; t++) {
+            Thread worker = new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                Expense.PaymentMethod[] methods = Expense.PaymentMethod.values();
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                for (int i = 0; i < ATTEMPTS_PER_THREAD; i++) {
+                    int c = random.nextInt(CATEGORIES);
+                    Expense expense = Expense.ofCents(1 + random.nextInt(5_000), now.plusSeconds(i),
+                            categories[c].getName(), methods[random.nextInt(methods.length)]);
+                    try {
+                        manager.addExpense(expense, categories[c]);
+                        accepted[c].addAndGet(-expense.getEffectiveAmountCents());
+                    } catch (MonthlyLimitException e) {
+                        // Expected once the category is nearly full.
+                    }
+                }
+            });
+            workers.add(worker);
+            worker.start();
+        }
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+
+        boolean ok = true;
+        for (int c = 0; c < CATEGORIES; c++) {
+            BudgetCategory category = categories[c];
+            long listed = 0;
+            for (Expense e : manager.getExpensesByCategory(category)) {
+                listed -= e.getEffectiveAmountCents();
+            }
+            if (category.getSpentCents(MONTH) > category.getLimitCents()
+                    || category.getSpentCents(MONTH) != accepted[c].get()
+                    || listed != accepted[c].get()) {
+                System.out.println("Round " + round + ": " + category + " accepted=" + accepted[c].get() + " listed=" + listed);
+                ok = false;
+            }
+        }
+        return ok;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,93 @@
+// EngineScalingBenchmark.java
+package budgetapp.bench;
+
+import budgetapp.BudgetCategory;
+import budgetapp.BudgetEngine;
+import budgetapp.Expense;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Throughput of BudgetEngine with 1 to 8 partitions (one thread each) over
+ * 10,000 tenants holding ten expenses each. Four producer threads submit
+ * batches of expenses to random tenants and wait for each batch; the
+ * cross-tenant aggregate sums a month of spending over every tenant. Run on a
+ * machine with at least as many cores as partitions to see the scaling.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx2g"})
+@State(Scope.Benchmark)
+public class EngineScalingBenchmark {
+    private static final int TENANTS = 10_000;
+    private static final int BATCH = 256;
+    private static final int PRELOADED_PER_TENANT = 10;
+    private static final YearMonth MONTH = YearMonth.of(2025, 1);
+
+    @Param({"1", "2", "4", "8"})
+    public int partitions;
+
+    private BudgetEngine engine;
+    private final LocalDateTime start = MONTH.atDay(1).atStartOfDay();
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        engine = new BudgetEngine(partitions);
+        for (int t = 0; t < TENANTS; t++) {
+            engine.addCategory("tenant" + t, BudgetCategory.ofCents("Groceries", Long.MAX_VALUE / 2));
+        }
+        for (int i = 0; i < PRELOADED_PER_TENANT * TENANTS; i++) {
+            engine.addExpense("tenant" + (i % TENANTS), nextExpense());
+        }
+        engine.getTenantCount().join();
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() {
+        engine.close();
+    }
+
+    @Benchmark
+    @Threads(4)
+    @OperationsPerInvocation(BATCH)
+    public void addExpense() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        CompletableFuture<?>[] batch = new CompletableFuture<?>[BATCH];
+        for (int i = 0; i < BATCH; i++) {
+            batch[i] = engine.addExpense("tenant" + random.nextInt(TENANTS), nextExpense());
+        }
+        CompletableFuture.allOf(batch).join();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public long totalSpending() {
+        return engine.getTotalSpendingCents(MONTH).join();
+    }
+
+    private Expense nextExpense() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return Expense.ofCents(1 + random.nextInt(100_000), start.plusMinutes(random.nextInt(40_000)),
+                "Groceries", Expense.PaymentMethod.CARD);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,95 @@
+// EventBusBenchmark.java
+package budgetapp.bench;
+
+import budgetapp.BudgetCategory;
+import budgetapp.BudgetEventBus;
+import budgetapp.BudgetManager;
+import budgetapp.Expense;
+import budgetapp.MonthlyLimitException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * addExpense throughput with an event bus attached and 0, 1 or 8
+ * subscriptions, under each backpressure policy. Each subscription does a
+ * little work per event. The delivered, missed and dropped counts are printed
+ * after every iteration.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EventBusBenchmark {
+    private static final int CATEGORIES = 16;
+
+    @Param({"0", "1", "8"})
+    public int subscribers;
+
+    @Param({"DROP_NEWEST", "BLOCK", "OVERWRITE_OLDEST"})
+    public BudgetEventBus.Backpressure backpressure;
+
+    private BudgetManager manager;
+    private BudgetCategory[] categories;
+    private BudgetEventBus bus;
+    private List<BudgetEventBus.Subscription> subscriptions;
+    private final LocalDateTime start = LocalDateTime.of(2025, 1, 1, 0, 0);
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        manager = new BudgetManager();
+        categories = new BudgetCategory[CATEGORIES];
+        for (int c = 0; c < CATEGORIES; c++) {
+            categories[c] = BudgetCategory.ofCents("Category" + c, Long.MAX_VALUE / 2);
+            manager.addCategory(categories[c]);
+        }
+        bus = BudgetEventBus.attach(manager, BudgetEventBus.DEFAULT_CAPACITY, backpressure);
+        subscriptions = new ArrayList<>();
+        for (int i = 0; i < subscribers; i++) {
+            long[] total = new long[1];
+            subscriptions.add(bus.subscribe(event -> total[0] += event.getAmountCents()));
+        }
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() {
+        bus.close();
+        long delivered = 0;
+        long missed = 0;
+        for (BudgetEventBus.Subscription subscription : subscriptions) {
+            delivered += subscription.getDeliveredCount();
+            missed += subscription.getMissedCount();
+        }
+        System.out.printf("%npublished %d, delivered %d, missed %d, dropped %d%n",
+                bus.getPublishedCount(), delivered, missed, bus.getDroppedCount());
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Expense addExpense() throws MonthlyLimitException {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        BudgetCategory category = categories[random.nextInt(CATEGORIES)];
+        Expense expense = Expense.ofCents(1 + random.nextInt(100_000), start.plusMinutes(random.nextInt(500_000)),
+                category.getName(), Expense.PaymentMethod.CARD);
+        manager.addExpense(expense, category);
+        return expense;
+    }
+}
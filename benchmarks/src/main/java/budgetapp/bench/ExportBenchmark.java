@@ -0,0 +1,73 @@
+// ExportBenchmark.java
+package budgetapp.bench;
+
+import budgetapp.BudgetCategory;
+import budgetapp.Transaction;
+import budgetapp.TransactionExporter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Exports a stream of generated transactions to CSV and JSON, plain and
+ * gzipped. The rows are generated as they are written and the fork runs in
+ * 64 MB of heap, so a run over 10M rows also checks that memory stays flat.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgs = {"-Xmx64m"})
+@State(Scope.Benchmark)
+public class ExportBenchmark {
+    @Param({"1000000", "10000000"})
+    public int rows;
+
+    @Param({"CSV", "JSON"})
+    public TransactionExporter.Format format;
+
+    @Param({"false", "true"})
+    public boolean gzip;
+
+    private TransactionExporter exporter;
+    private Path file;
+
+    @Setup
+    public void setUp() throws IOException {
+        exporter = new TransactionExporter(format, gzip);
+        file = Files.createTempFile("export", gzip ? ".gz" : "");
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public long export() throws IOException {
+        BudgetDataset dataset = new BudgetDataset(64, 42);
+        Stream<Transaction> transactions = IntStream.range(0, rows).mapToObj(i -> {
+            if (i % 10 == 0) {
+                return dataset.nextIncome();
+            }
+            BudgetCategory category = dataset.nextCategory();
+            return dataset.nextExpense(category);
+        });
+        return exporter.export(transactions, file);
+    }
+}
@@ -0,0 +1,100 @@
+// HotPathBenchmark.java
+package budgetapp.bench;
+
+import budgetapp.BudgetCategory;
+import budgetapp.BudgetManager;
+import budgetapp.Expense;
+import budgetapp.Income;
+import budgetapp.MonthlyLimitException;
+import budgetapp.Transaction;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Single-threaded cost of the BudgetManager hot paths over a pre-populated
+ * manager: adding expenses and incomes, the three query methods and
+ * Expense.getEffectiveAmount. Run it through {@link HotPathSuite} to get
+ * allocation figures from the GC profiler as well.
+ * <p>
+ * The 10M dataset needs about 4 GB of heap; restrict the run with
+ * {@code -p transactions=10000,1000000} on smaller machines.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+@State(Scope.Benchmark)
+public class HotPathBenchmark {
+    @Param({"10000", "1000000", "10000000"})
+    public int transactions;
+
+    @Param({"8", "64"})
+    public int categoryCount;
+
+    private BudgetDataset dataset;
+    private BudgetManager manager;
+    private Expense[] sample;
+    private int next;
+    // Amount above which about 1% of expenses lie.
+    private final double topPercentThreshold = BudgetDataset.MAX_AMOUNT_CENTS * 0.99 / 100;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        dataset = new BudgetDataset(categoryCount, 42);
+        manager = dataset.populate(transactions);
+        sample = new Expense[1024];
+        for (int i = 0; i < sample.length; i++) {
+            sample[i] = dataset.nextExpense(dataset.nextCategory());
+        }
+    }
+
+    @Benchmark
+    public Expense addExpense() throws MonthlyLimitException {
+        BudgetCategory category = dataset.nextCategory();
+        Expense expense = dataset.nextExpense(category);
+        manager.addExpense(expense, category);
+        return expense;
+    }
+
+    @Benchmark
+    public Income addIncome() {
+        Income income = dataset.nextIncome();
+        manager.addIncome(income);
+        return income;
+    }
+
+    @Benchmark
+    public List<Expense> getExpensesByCategory() {
+        return manager.getExpensesByCategory(dataset.nextCategory());
+    }
+
+    @Benchmark
+    public List<Expense> getExpensesAboveAmount() {
+        return manager.getExpensesAboveAmount(topPercentThreshold);
+    }
+
+    @Benchmark
+    public List<Transaction> getTransactionsByDateRange() {
+        LocalDate day = dataset.nextDay();
+        return manager.getTransactionsByDateRange(day, day);
+    }
+
+    @Benchmark
+    public double getEffectiveAmount() {
+        return sample[next++ & (sample.length - 1)].getEffectiveAmount();
+    }
+}
\ No newline at end of file
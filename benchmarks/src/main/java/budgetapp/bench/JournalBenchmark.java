@@ -0,0 +1,80 @@
+// JournalBenchmark.java
+package budgetapp.bench;
+
+import budgetapp.BudgetJournal;
+import budgetapp.BudgetManager;
+import budgetapp.Income;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Journaled addIncome throughput (ops/sec) for each sync mode: fsync per
+ * operation, group commit and asynchronous commit, with 1 and 8 writers.
+ * The journal is written to the default temp directory, so results depend on
+ * the device behind it.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JournalBenchmark {
+    @Param({"EVERY_OPERATION", "GROUP", "ASYNC"})
+    public BudgetJournal.SyncMode mode;
+
+    private Path file;
+    private BudgetManager manager;
+    private BudgetJournal journal;
+    private final LocalDateTime start = LocalDateTime.of(2025, 1, 1, 0, 0);
+
+    @Setup(Level.Iteration)
+    public void setUp() throws IOException {
+        file = Files.createTempFile("budget-bench", ".journal");
+        manager = new BudgetManager();
+        journal = BudgetJournal.open(file, manager, mode, 5);
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() throws IOException {
+        journal.close();
+        Files.deleteIfExists(file);
+    }
+
+    private Income addOne() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        Income income = Income.ofCents(1 + random.nextInt(100_000), start.plusMinutes(random.nextInt(500_000)), "Salary");
+        manager.addIncome(income);
+        return income;
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Income writers1() {
+        return addOne();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public Income writers8() {
+        return addOne();
+    }
+}
\ No newline at end of file
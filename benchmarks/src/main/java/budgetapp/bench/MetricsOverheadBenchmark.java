@@ -0,0 +1,49 @@
+// MetricsOverheadBenchmark.java
+package budgetapp.bench;
+
+import budgetapp.LatencyHistogram;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of the instrumentation BudgetManager adds to every call: recording one
+ * value in a shared LatencyHistogram, and the full start/stop timing around it.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MetricsOverheadBenchmark {
+    private final LatencyHistogram histogram = new LatencyHistogram();
+    private long value = 1;
+
+    @Benchmark
+    @Threads(1)
+    public void record() {
+        histogram.record(value += 997);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void recordShared() {
+        histogram.record(value += 997);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void timeAndRecord() {
+        long start = System.nanoTime();
+        histogram.record(System.nanoTime() - start);
+    }
+}
\ No newline at end of file
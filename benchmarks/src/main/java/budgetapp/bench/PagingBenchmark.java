@@ -0,0 +1,76 @@
+// PagingBenchmark.java
+package budgetapp.bench;
+
+import budgetapp.BudgetManager;
+import budgetapp.Expense;
+import budgetapp.Transaction;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of showing one page of a large result: the first 50 rows (and rows
+ * 1000 to 1049) of a wide query, taken from the materialized list methods
+ * versus the lazy stream methods.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx2g"})
+@State(Scope.Benchmark)
+public class PagingBenchmark {
+    private static final int PAGE = 50;
+
+    @Param({"100000", "1000000"})
+    public int transactions;
+
+    private BudgetManager manager;
+    private LocalDate first;
+    private LocalDate last;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        manager = new BudgetDataset(8, 42).populate(transactions);
+        first = BudgetDataset.START;
+        last = BudgetDataset.START.plusDays(BudgetDataset.DAYS);
+    }
+
+    @Benchmark
+    public List<Transaction> rangeListFirstPage() {
+        return manager.getTransactionsByDateRange(first, last).subList(0, PAGE);
+    }
+
+    @Benchmark
+    public List<Transaction> rangeStreamFirstPage() {
+        return manager.streamTransactionsByDateRange(first, last).limit(PAGE).collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public List<Transaction> rangeStreamPage20() {
+        return manager.streamTransactionsByDateRange(first, last).skip(20 * PAGE).limit(PAGE).collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public List<Expense> aboveAmountListFirstPage() {
+        return manager.getExpensesAboveAmount(10).subList(0, PAGE);
+    }
+
+    @Benchmark
+    public List<Expense> aboveAmountStreamFirstPage() {
+        return manager.streamExpensesAboveAmount(10).limit(PAGE).collect(Collectors.toList());
+    }
+}
\ No newline at end of file
@@ -0,0 +1,79 @@
+// QueryCacheBenchmark.java
+package budgetapp.bench;
+
+import budgetapp.BudgetCategory;
+import budgetapp.BudgetManager;
+import budgetapp.Expense;
+import budgetapp.MonthlyLimitException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Dashboard-style polling of the category and threshold queries over 1M
+ * transactions, with the query result cache on and off. The polls repeat the
+ * same few queries with no writes in between, except in pollAfterWrite, which
+ * adds an expense to the polled category first and so always recomputes.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx2g"})
+@State(Scope.Benchmark)
+public class QueryCacheBenchmark {
+    private static final int TRANSACTIONS = 1_000_000;
+    private static final int CATEGORIES = 64;
+
+    @Param({"true", "false"})
+    public boolean cached;
+
+    private BudgetDataset dataset;
+    private BudgetManager manager;
+    // Amount above which about 1% of expenses lie.
+    private final double topPercentThreshold = BudgetDataset.MAX_AMOUNT_CENTS * 0.99 / 100;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        dataset = new BudgetDataset(CATEGORIES, 42);
+        manager = dataset.populate(TRANSACTIONS);
+        if (!cached) {
+            manager.setQueryCacheLimits(0, 0);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        System.out.println();
+        System.out.println(manager.getQueryCacheStats());
+    }
+
+    @Benchmark
+    public List<Expense> pollCategory() {
+        return manager.getExpensesByCategory(dataset.nextCategory());
+    }
+
+    @Benchmark
+    public List<Expense> pollAboveAmount() {
+        return manager.getExpensesAboveAmount(topPercentThreshold);
+    }
+
+    @Benchmark
+    public List<Expense> pollAfterWrite() throws MonthlyLimitException {
+        BudgetCategory category = dataset.nextCategory();
+        manager.addExpense(dataset.nextExpense(category), category);
+        return manager.getExpensesByCategory(category);
+    }
+}
\ No newline at end of file
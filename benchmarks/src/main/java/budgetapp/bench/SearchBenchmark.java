@@ -0,0 +1,86 @@
+// SearchBenchmark.java
+package budgetapp.bench;
+
+import budgetapp.BudgetManager;
+import budgetapp.Expense;
+import budgetapp.SearchQuery;
+import budgetapp.Transaction;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Expense search by category prefix ("Category1" matches 11 of 64
+ * categories) alone, within one week, and within one week and an amount
+ * range, against filtering every transaction for the same prefix.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = {"-Xmx4g"})
+@State(Scope.Benchmark)
+public class SearchBenchmark {
+    private static final LocalDate WEEK_START = BudgetDataset.START.plusDays(200);
+
+    @Param({"100000", "1000000"})
+    public int transactions;
+
+    private BudgetManager manager;
+    private SearchQuery prefix;
+    private SearchQuery week;
+    private SearchQuery weekAndAmount;
+
+    @Setup
+    public void setUp() {
+        manager = new BudgetDataset(64, 42).populate(transactions);
+        prefix = SearchQuery.prefix("Category1");
+        week = prefix.between(WEEK_START, WEEK_START.plusDays(6));
+        weekAndAmount = week.amountBetween(100, 200);
+        // Build the index outside the measurement.
+        manager.searchExpenses(prefix);
+    }
+
+    @Benchmark
+    public List<Expense> prefix() {
+        return manager.searchExpenses(prefix);
+    }
+
+    @Benchmark
+    public List<Expense> prefixInWeek() {
+        return manager.searchExpenses(week);
+    }
+
+    @Benchmark
+    public List<Expense> prefixInWeekAndAmount() {
+        return manager.searchExpenses(weekAndAmount);
+    }
+
+    @Benchmark
+    public List<Expense> scanInWeekAndAmount() {
+        List<Expense> result = new ArrayList<>();
+        LocalDate end = BudgetDataset.START.plusDays(BudgetDataset.DAYS);
+        for (Transaction t : manager.getTransactionsByDateRange(BudgetDataset.START, end)) {
+            if (t instanceof Expense && ((Expense) t).getCategory().toLowerCase().startsWith("category1")
+                    && weekAndAmount.getStartDate().compareTo(t.getDateTime().toLocalDate()) <= 0
+                    && weekAndAmount.getEndDate().compareTo(t.getDateTime().toLocalDate()) >= 0
+                    && -t.getEffectiveAmountCents() >= weekAndAmount.getMinCents()
+                    && -t.getEffectiveAmountCents() <= weekAndAmount.getMaxCents()) {
+                result.add((Expense) t);
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,136 @@
+// ServerLoadGenerator.java
+package budgetapp.bench;
+
+import budgetapp.BudgetManager;
+import budgetapp.BudgetServer;
+import budgetapp.LatencyHistogram;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Load generator for BudgetServer. Opens many client connections at once,
+ * each on its own virtual thread, and has every client send requests one
+ * after the other: 80% expenses, 10% incomes and 10% queries of the client's
+ * own category. Prints throughput and the p50/p99/p99.9/max request latency.
+ * <p>
+ * Usage: {@code java -cp benchmarks.jar budgetapp.bench.ServerLoadGenerator [clients] [requests] [port]}
+ * <br>
+ * Without a port, an in-process server over an empty manager is started on a
+ * free port.
+ */
+public class ServerLoadGenerator {
+    private static final String HOST = "127.0.0.1";
+
+    public static void main(String[] args) throws Exception {
+        int clients = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        int requests = args.length > 1 ? Integer.parseInt(args[1]) : 100;
+        BudgetServer server = null;
+        int port;
+        if (args.length > 2) {
+            port = Integer.parseInt(args[2]);
+        } else {
+            server = new BudgetServer(new BudgetManager(), 0);
+            server.start();
+            port = server.getPort();
+        }
+
+        LatencyHistogram latencies = new LatencyHistogram();
+        AtomicLong errors = new AtomicLong();
+        CountDownLatch connected = new CountDownLatch(clients);
+        CountDownLatch go = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>(clients);
+        for (int c = 0; c < clients; c++) {
+            int client = c;
+            threads.add(Thread.ofVirtual().start(() -> {
+                try {
+                    runClient(client, port, requests, latencies, errors, connected, go);
+                } catch (IOException | InterruptedException e) {
+                    errors.incrementAndGet();
+                    System.err.println("Client " + client + " failed: " + e.getMessage());
+                }
+            }));
+        }
+        connected.await();
+        long start = System.nanoTime();
+        go.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        System.out.printf("%d clients x %d requests in %.2f s: %.0f requests/s, %d errors%n",
+                clients, requests, seconds, latencies.getCount() / seconds, errors.get());
+        System.out.printf("latency p50 %.1f us, p99 %.1f us, p99.9 %.1f us, max %.1f us%n",
+                latencies.getValueAtPercentile(50) / 1e3, latencies.getValueAtPercentile(99) / 1e3,
+                latencies.getValueAtPercentile(99.9) / 1e3, latencies.getMax() / 1e3);
+        if (server != null) {
+            server.close();
+        }
+    }
+
+    private static void runClient(int client, int port, int requests, LatencyHistogram latencies, AtomicLong errors,
+                                  CountDownLatch connected, CountDownLatch go) throws IOException, InterruptedException {
+        SplittableRandom random = new SplittableRandom(client);
+        String category = "Client" + client;
+        boolean ready = false;
+        try (Socket socket = new Socket(HOST, port);
+             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8))) {
+            socket.setTcpNoDelay(true);
+            OutputStream out = socket.getOutputStream();
+            // Limit far above what the client can spend; already exists when the server is reused.
+            call(out, in, "ADD_CATEGORY," + category + ",100000000.00");
+            ready = true;
+            connected.countDown();
+            go.await();
+            for (int i = 0; i < requests; i++) {
+                int kind = random.nextInt(10);
+                String date = String.format("2025-%02d-%02d %02d:%02d", 1 + random.nextInt(12), 1 + random.nextInt(28),
+                        random.nextInt(24), random.nextInt(60));
+                String amount = (1 + random.nextInt(1000)) + "." + (10 + random.nextInt(90));
+                String request;
+                if (kind == 0) {
+                    request = "INCOME," + date + "," + amount + ",Salary";
+                } else if (kind == 1) {
+                    request = "EXPENSES_BY_CATEGORY," + category;
+                } else {
+                    request = "EXPENSE," + date + "," + amount + "," + category + ",CARD";
+                }
+                long start = System.nanoTime();
+                if (!call(out, in, request)) {
+                    errors.incrementAndGet();
+                }
+                latencies.record(System.nanoTime() - start);
+            }
+            call(out, in, "QUIT");
+        } finally {
+            if (!ready) {
+                connected.countDown();
+            }
+        }
+    }
+
+    // Sends one request and reads the reply up to its final OK or ERR line.
+    private static boolean call(OutputStream out, BufferedReader in, String request) throws IOException {
+        out.write((request + "\n").getBytes(StandardCharsets.UTF_8));
+        out.flush();
+        String line;
+        while ((line = in.readLine()) != null) {
+            if (line.startsWith("OK")) {
+                return true;
+            }
+            if (line.startsWith("ERR")) {
+                return false;
+            }
+        }
+        throw new IOException("Server closed the connection");
+    }
+}
\ No newline at end of file
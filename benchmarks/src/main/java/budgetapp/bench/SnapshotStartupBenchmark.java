@@ -0,0 +1,139 @@
+// SnapshotStartupBenchmark.java
+package budgetapp.bench;
+
+import budgetapp.BudgetCategory;
+import budgetapp.BudgetJournal;
+import budgetapp.BudgetManager;
+import budgetapp.BudgetSnapshot;
+import budgetapp.Expense;
+import budgetapp.Income;
+import budgetapp.MonthlyLimitException;
+import budgetapp.Transaction;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Time to a first answer after startup: loading a memory-mapped snapshot and
+ * running one date-range query, against rebuilding the same state by
+ * replaying a journal. Both files are written once per trial; the snapshot is
+ * built in chunks through repeated checkpoints so the heap never holds every row.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgs = {"-Xmx2g"})
+@State(Scope.Benchmark)
+public class SnapshotStartupBenchmark {
+    private static final int CHUNK = 500_000;
+
+    @Param({"100000", "1000000"})
+    public int rows;
+
+    private Path snapshotFile;
+    private Path journalFile;
+    private final LocalDateTime start = LocalDateTime.of(2020, 1, 1, 0, 0);
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException, MonthlyLimitException {
+        snapshotFile = Files.createTempFile("budget-bench", ".snapshot");
+        journalFile = Files.createTempFile("budget-bench", ".journal");
+
+        BudgetManager manager = new BudgetManager();
+        for (int from = 0; from < rows; from += CHUNK) {
+            fill(manager, from, Math.min(rows, from + CHUNK));
+            manager.checkpoint(snapshotFile);
+            manager = BudgetSnapshot.load(snapshotFile);
+        }
+
+        BudgetManager journaled = new BudgetManager();
+        try (BudgetJournal journal = BudgetJournal.open(journalFile, journaled, BudgetJournal.SyncMode.ASYNC, 100)) {
+            fill(journaled, 0, rows);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(snapshotFile);
+        Files.deleteIfExists(journalFile);
+    }
+
+    // Adds rows [from, to): nine expenses across eight categories for every income, one every ten minutes.
+    private void fill(BudgetManager manager, int from, int to) throws MonthlyLimitException {
+        BudgetCategory[] categories = categories(manager);
+        Random random = new Random(from);
+        List<Income> incomes = new ArrayList<>();
+        List<List<Expense>> expenses = new ArrayList<>();
+        for (int c = 0; c < categories.length; c++) {
+            expenses.add(new ArrayList<>());
+        }
+        for (int i = from; i < to; i++) {
+            LocalDateTime dateTime = start.plusMinutes(i * 10L);
+            long amount = 1 + random.nextInt(100_000);
+            if (i % 10 == 0) {
+                incomes.add(Income.ofCents(amount, dateTime, "Salary"));
+            } else {
+                int c = random.nextInt(categories.length);
+                expenses.get(c).add(Expense.ofCents(amount, dateTime, categories[c].getName(),
+                        Expense.PaymentMethod.values()[random.nextInt(3)]));
+            }
+        }
+        manager.addIncomes(incomes);
+        for (int c = 0; c < categories.length; c++) {
+            manager.addExpenses(expenses.get(c), categories[c]);
+        }
+    }
+
+    private static BudgetCategory[] categories(BudgetManager manager) {
+        BudgetCategory[] categories = new BudgetCategory[8];
+        for (BudgetCategory category : manager.getCategories()) {
+            categories[Integer.parseInt(category.getName().substring("Category".length()))] = category;
+        }
+        for (int c = 0; c < categories.length; c++) {
+            if (categories[c] == null) {
+                categories[c] = BudgetCategory.ofCents("Category" + c, Long.MAX_VALUE / 2);
+                manager.addCategory(categories[c]);
+            }
+        }
+        return categories;
+    }
+
+    // One day in the middle of the data set.
+    private List<Transaction> firstQuery(BudgetManager manager) {
+        LocalDate day = start.plusMinutes(rows * 5L).toLocalDate();
+        return manager.getTransactionsByDateRange(day, day);
+    }
+
+    @Benchmark
+    public List<Transaction> loadSnapshot() throws IOException {
+        return firstQuery(BudgetSnapshot.load(snapshotFile));
+    }
+
+    @Benchmark
+    public List<Transaction> replayJournal() throws IOException {
+        BudgetManager manager = new BudgetManager();
+        try (BudgetJournal journal = BudgetJournal.open(journalFile, manager)) {
+            return firstQuery(manager);
+        }
+    }
+}
\ No newline at end of file
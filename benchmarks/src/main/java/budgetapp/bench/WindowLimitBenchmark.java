@@ -0,0 +1,73 @@
+// WindowLimitBenchmark.java
+package budgetapp.bench;
+
+import budgetapp.BudgetCategory;
+import budgetapp.BudgetManager;
+import budgetapp.Expense;
+import budgetapp.MonthlyLimitException;
+import budgetapp.WindowLimit;
+import java.time.LocalDateTime;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * addExpense latency with no rolling limits and with a 7-day, a 30-day and a
+ * daily card limit on every category. Expenses move forward about an hour at
+ * a time, so the windows keep expiring old days; the limits are high enough
+ * that nothing is rejected.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class WindowLimitBenchmark {
+    private static final int CATEGORIES = 16;
+
+    @Param({"false", "true"})
+    public boolean windows;
+
+    private BudgetManager manager;
+    private BudgetCategory[] categories;
+    private LocalDateTime now;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        manager = new BudgetManager();
+        categories = new BudgetCategory[CATEGORIES];
+        for (int c = 0; c < CATEGORIES; c++) {
+            categories[c] = BudgetCategory.ofCents("Category" + c, Long.MAX_VALUE / 2);
+            manager.addCategory(categories[c]);
+            if (windows) {
+                manager.addWindowLimit(categories[c], WindowLimit.rolling(7, Long.MAX_VALUE / 4));
+                manager.addWindowLimit(categories[c], WindowLimit.rolling(30, Long.MAX_VALUE / 4));
+                manager.addWindowLimit(categories[c], WindowLimit.daily(Expense.PaymentMethod.CARD, Long.MAX_VALUE / 4));
+            }
+        }
+        now = LocalDateTime.of(2025, 1, 1, 0, 0);
+    }
+
+    @Benchmark
+    public Expense addExpense() throws MonthlyLimitException {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        BudgetCategory category = categories[random.nextInt(CATEGORIES)];
+        now = now.plusSeconds(random.nextInt(7_200));
+        Expense expense = Expense.ofCents(1 + random.nextInt(100_000), now, category.getName(),
+                random.nextBoolean() ? Expense.PaymentMethod.CARD : Expense.PaymentMethod.CASH);
+        manager.addExpense(expense, category);
+        return expense;
+    }
+}
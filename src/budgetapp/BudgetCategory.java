@@ -1,13 +1,37 @@
 // BudgetCategory.java
 package budgetapp;
 
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
 /**
- * Represents a budget category with a spending limit.
+ * Represents a budget category with a monthly spending limit. Amounts are held in cents.
+ * <p>
+ * Expenditure is tracked per calendar month, and the limit applies to each
+ * month separately, so a new month starts with nothing spent. Methods without
+ * a month argument refer to the current month. Expenditure is updated
+ * atomically, so a category may be shared between threads.
+ * <p>
+ * A category may also carry rolling {@link WindowLimit}s, such as a cap on any
+ * seven days or on one payment method per day. Their spend is kept in rings
+ * of day buckets, so each expense is checked in O(1).
  */
 public class BudgetCategory {
     private String name;
-    private double limit;
-    private double spentSoFar;
+    // The name's symbol, shared with the category's expenses; keeps its id in use.
+    private SymbolTable.Symbol nameSymbol;
+    private long limit;
+    private final ConcurrentHashMap<YearMonth, AtomicLong> spentByMonth;
+    // Rolling limits, copied on change under windowLock; empty for most categories.
+    private volatile SpendWindow[] windows = new SpendWindow[0];
+    // Guards the spend in the windows, so a check and its add are one step.
+    private final Object windowLock = new Object();
 
     /**
      * Constructs a BudgetCategory with a name and spending limit.
@@ -16,6 +40,10 @@ public class BudgetCategory {
      * @throws IllegalArgumentException if name is null/empty or limit is negative
      */
     public BudgetCategory(String name, double limit) {
+        this(name, Money.ofMajor(limit));
+    }
+
+    private BudgetCategory(String name, long limit) {
         if (name == null || name.trim().isEmpty()) {
             throw new IllegalArgumentException("Category name cannot be null or empty");
         }
@@ -23,27 +51,313 @@ public class BudgetCategory {
             throw new IllegalArgumentException("Limit cannot be negative");
         }
         this.name = name;
+        this.nameSymbol = SymbolTable.symbol(name);
         this.limit = limit;
-        this.spentSoFar = 0;
+        this.spentByMonth = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Creates a BudgetCategory with a limit in cents.
+     * @param name the category name
+     * @param limitCents the monthly spending limit in cents
+     * @return the new category
+     * @throws IllegalArgumentException if name is null/empty or limit is negative
+     */
+    public static BudgetCategory ofCents(String name, long limitCents) {
+        return new BudgetCategory(name, limitCents);
     }
 
     /**
-     * Adds an expense to the category.
+     * Adds an expense to the current month.
      * @param amount the expense amount
      * @throws IllegalArgumentException if amount is negative
      */
     public void addExpense(double amount) {
-        if (amount < 0) {
+        addExpenseCents(Money.ofMajor(amount));
+    }
+
+    /**
+     * Adds an expense in cents to the current month.
+     * @param amountCents the expense amount in cents
+     * @throws IllegalArgumentException if amount is negative
+     */
+    public void addExpenseCents(long amountCents) {
+        addExpenseCents(YearMonth.now(), amountCents);
+    }
+
+    /**
+     * Adds an expense in cents to a month, without checking the limit.
+     * @param month the month of the expense
+     * @param amountCents the expense amount in cents
+     * @throws IllegalArgumentException if month is null or amount is negative
+     */
+    public void addExpenseCents(YearMonth month, long amountCents) {
+        if (amountCents < 0) {
+            throw new IllegalArgumentException("Expense amount cannot be negative");
+        }
+        spent(month).addAndGet(amountCents);
+    }
+
+    /**
+     * Atomically adds an expense to the current month only if it stays within the limit.
+     * @param amountCents the expense amount in cents
+     * @return true if the amount was added, false if it would exceed the limit
+     * @throws IllegalArgumentException if amount is negative
+     */
+    public boolean tryReserve(long amountCents) {
+        return tryReserve(YearMonth.now(), amountCents);
+    }
+
+    /**
+     * Atomically adds an expense to a month only if it keeps that month's
+     * expenditure within the limit. Concurrent callers can never push a month
+     * over the limit together.
+     * @param month the month of the expense
+     * @param amountCents the expense amount in cents
+     * @return true if the amount was added, false if it would exceed the limit
+     * @throws IllegalArgumentException if month is null or amount is negative
+     */
+    public boolean tryReserve(YearMonth month, long amountCents) {
+        return reserve(month, amountCents) >= 0;
+    }
+
+    /**
+     * Like {@link #tryReserve(YearMonth, long)}, but returns the month's
+     * expenditure right after this reservation, so callers can tell which
+     * spending levels it crossed.
+     * @return the new expenditure in cents, or -1 if the amount would exceed the limit
+     */
+    long reserve(YearMonth month, long amountCents) {
+        if (amountCents < 0) {
+            throw new IllegalArgumentException("Expense amount cannot be negative");
+        }
+        AtomicLong spent = spent(month);
+        while (true) {
+            long current = spent.get();
+            long next = current + amountCents;
+            if (next > limit || next < current) {
+                return -1;
+            }
+            if (spent.compareAndSet(current, next)) {
+                return next;
+            }
+        }
+    }
+
+    /**
+     * Gives back an amount previously added to the current month.
+     * @param amountCents the amount in cents to release
+     * @throws IllegalArgumentException if amount is negative
+     */
+    public void release(long amountCents) {
+        release(YearMonth.now(), amountCents);
+    }
+
+    /**
+     * Gives back an amount previously added to a month. The expenditure never
+     * drops below zero, e.g. when the month was reset in between.
+     * @param month the month the amount was added to
+     * @param amountCents the amount in cents to release
+     * @throws IllegalArgumentException if month is null or amount is negative
+     */
+    public void release(YearMonth month, long amountCents) {
+        if (amountCents < 0) {
             throw new IllegalArgumentException("Expense amount cannot be negative");
         }
-        spentSoFar += amount;
+        spent(month).accumulateAndGet(amountCents, (current, amount) -> Math.max(0, current - amount));
     }
 
     /**
-     * Resets the current expenditure to zero.
+     * Resets the current month's expenditure to zero.
      */
     public void resetExpenditure() {
-        spentSoFar = 0;
+        resetExpenditure(YearMonth.now());
+    }
+
+    /**
+     * Resets a month's expenditure to zero. The month keeps its counter, so
+     * a reservation racing the reset lands either before it (and is cleared)
+     * or after it (and is kept), never on a counter that was dropped.
+     * @param month the month to reset
+     * @throws IllegalArgumentException if month is null
+     */
+    public void resetExpenditure(YearMonth month) {
+        if (month == null) throw new IllegalArgumentException("Month cannot be null");
+        AtomicLong spent = spentByMonth.get(month);
+        if (spent != null) {
+            spent.set(0);
+        }
+    }
+
+    /**
+     * Gets the rolling limits of this category.
+     * @return the limits, in the order they were added
+     */
+    public List<WindowLimit> getWindowLimits() {
+        List<WindowLimit> limits = new ArrayList<>();
+        for (SpendWindow window : windows) {
+            limits.add(window.limit);
+        }
+        return limits;
+    }
+
+    /**
+     * Gets the spend counted toward a rolling limit, in the window ending on
+     * the latest day of an expense counted.
+     * @param limit the limit
+     * @return the expenditure in cents, or 0 if the category has no such limit
+     */
+    public long getWindowSpentCents(WindowLimit limit) {
+        synchronized (windowLock) {
+            for (SpendWindow window : windows) {
+                if (window.limit.equals(limit)) {
+                    return window.spent();
+                }
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Adds a rolling limit whose window already holds the recent spend.
+     * @return false if the category already has an equal limit
+     */
+    boolean addWindow(SpendWindow window) {
+        synchronized (windowLock) {
+            for (SpendWindow existing : windows) {
+                if (existing.limit.equals(window.limit)) {
+                    return false;
+                }
+            }
+            SpendWindow[] next = Arrays.copyOf(windows, windows.length + 1);
+            next[windows.length] = window;
+            windows = next;
+            return true;
+        }
+    }
+
+    /**
+     * Removes a rolling limit.
+     * @return false if the category has no such limit
+     */
+    boolean removeWindow(WindowLimit limit) {
+        synchronized (windowLock) {
+            for (int i = 0; i < windows.length; i++) {
+                if (windows[i].limit.equals(limit)) {
+                    SpendWindow[] next = new SpendWindow[windows.length - 1];
+                    System.arraycopy(windows, 0, next, 0, i);
+                    System.arraycopy(windows, i + 1, next, i, next.length - i);
+                    windows = next;
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Adds an expense to every rolling limit it counts toward, only if it
+     * keeps every window containing its day within its limit.
+     * @throws WindowLimitException naming the first limit it would exceed
+     */
+    void reserveWindows(Expense expense) throws WindowLimitException {
+        if (windows.length == 0) {
+            return;
+        }
+        long day = expense.getDateTime().toLocalDate().toEpochDay();
+        long cost = -expense.getEffectiveAmountCents();
+        synchronized (windowLock) {
+            for (SpendWindow window : windows) {
+                if (window.limit.counts(expense.getPaymentMethod()) && !window.fits(day, cost)) {
+                    throw rejection(false, window, day);
+                }
+            }
+            for (SpendWindow window : windows) {
+                if (window.limit.counts(expense.getPaymentMethod())) {
+                    window.add(day, cost);
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds a batch of expenses to the rolling limits, only if every one of
+     * them stays within the limits once the earlier ones are added.
+     * @throws WindowLimitException naming the first limit the batch would exceed
+     */
+    void reserveWindows(List<Expense> batch) throws WindowLimitException {
+        if (windows.length == 0) {
+            return;
+        }
+        synchronized (windowLock) {
+            SpendWindow[] saved = new SpendWindow[windows.length];
+            for (int i = 0; i < windows.length; i++) {
+                saved[i] = windows[i].copy();
+            }
+            for (Expense expense : batch) {
+                long day = expense.getDateTime().toLocalDate().toEpochDay();
+                long cost = -expense.getEffectiveAmountCents();
+                for (SpendWindow window : windows) {
+                    if (window.limit.counts(expense.getPaymentMethod()) && !window.fits(day, cost)) {
+                        WindowLimitException rejection = rejection(true, window, day);
+                        for (int i = 0; i < windows.length; i++) {
+                            windows[i].restore(saved[i]);
+                        }
+                        throw rejection;
+                    }
+                }
+                for (SpendWindow window : windows) {
+                    if (window.limit.counts(expense.getPaymentMethod())) {
+                        window.add(day, cost);
+                    }
+                }
+            }
+        }
+    }
+
+    private WindowLimitException rejection(boolean batch, SpendWindow window, long day) {
+        if (!window.covers(day)) {
+            // Some window containing the day has left the ring, so the expense cannot be checked.
+            return new WindowLimitException((batch ? "Expenses are" : "Expense is") + " dated too far back for limit of "
+                    + window.limit + " for " + name, window.limit, window.spent());
+        }
+        return new WindowLimitException((batch ? "Expenses exceed" : "Expense exceeds") + " limit of "
+                + window.limit + " for " + name, window.limit, window.spentWith(day, 0));
+    }
+
+    /**
+     * Adds an expense to the rolling limits without checking them, e.g. when
+     * replaying a journal.
+     */
+    void addWindows(Expense expense) {
+        if (windows.length == 0) {
+            return;
+        }
+        long day = expense.getDateTime().toLocalDate().toEpochDay();
+        synchronized (windowLock) {
+            for (SpendWindow window : windows) {
+                if (window.limit.counts(expense.getPaymentMethod())) {
+                    window.add(day, -expense.getEffectiveAmountCents());
+                }
+            }
+        }
+    }
+
+    /**
+     * Takes a deleted or replaced expense out of the rolling limits.
+     */
+    void releaseWindows(Expense expense) {
+        if (windows.length == 0) {
+            return;
+        }
+        long day = expense.getDateTime().toLocalDate().toEpochDay();
+        synchronized (windowLock) {
+            for (SpendWindow window : windows) {
+                if (window.limit.counts(expense.getPaymentMethod())) {
+                    window.subtract(day, -expense.getEffectiveAmountCents());
+                }
+            }
+        }
     }
 
     /**
@@ -54,40 +368,104 @@ public class BudgetCategory {
         return name;
     }
 
+    /**
+     * Gets the category name as a {@link SymbolTable} id.
+     * @return the id
+     */
+    public int getNameId() {
+        return nameSymbol.id;
+    }
+
     /**
      * Gets the monthly limit.
      * @return the limit
      */
     public double getLimit() {
+        return Money.toMajor(getLimitCents());
+    }
+
+    /**
+     * Gets the monthly limit in cents.
+     * @return the limit in cents
+     */
+    public long getLimitCents() {
         return limit;
     }
 
     /**
-     * Gets the current expenditure.
-     * @return the amount spent so far
+     * Gets the current month's expenditure.
+     * @return the amount spent so far this month
      */
     public double getSpentSoFar() {
-        return spentSoFar;
+        return Money.toMajor(getSpentCents());
+    }
+
+    /**
+     * Gets the current month's expenditure in cents.
+     * @return the amount spent so far this month in cents
+     */
+    public long getSpentCents() {
+        return getSpentCents(YearMonth.now());
     }
 
     /**
-     * Gets the remaining budget.
+     * Gets a month's expenditure in cents.
+     * @param month the month
+     * @return the amount spent in that month in cents
+     * @throws IllegalArgumentException if month is null
+     */
+    public long getSpentCents(YearMonth month) {
+        if (month == null) throw new IllegalArgumentException("Month cannot be null");
+        AtomicLong spent = spentByMonth.get(month);
+        return spent == null ? 0 : spent.get();
+    }
+
+    /**
+     * Gets the current month's remaining budget.
      * @return the remaining amount
      */
     public double getRemaining() {
-        return limit - spentSoFar;
+        return Money.toMajor(getRemainingCents());
+    }
+
+    /**
+     * Gets the current month's remaining budget in cents.
+     * @return the remaining amount in cents
+     */
+    public long getRemainingCents() {
+        return limit - getSpentCents();
     }
 
     /**
-     * Checks if expenditure exceeds the limit.
+     * Checks if the current month's expenditure exceeds the limit.
      * @return true if over limit
      */
     public boolean isOverLimit() {
-        return spentSoFar > limit;
+        return getSpentCents() > limit;
+    }
+
+    /**
+     * Gets the expenditure of every month with spending, in month order.
+     * @return map of month to amount spent in cents
+     */
+    Map<YearMonth, Long> getSpentByMonth() {
+        Map<YearMonth, Long> result = new TreeMap<>();
+        for (Map.Entry<YearMonth, AtomicLong> entry : spentByMonth.entrySet()) {
+            long spent = entry.getValue().get();
+            if (spent != 0) {
+                result.put(entry.getKey(), spent);
+            }
+        }
+        return result;
+    }
+
+    private AtomicLong spent(YearMonth month) {
+        if (month == null) throw new IllegalArgumentException("Month cannot be null");
+        return spentByMonth.computeIfAbsent(month, m -> new AtomicLong());
     }
 
     @Override
     public String toString() {
-        return String.format("Category: %s, Limit: $%.2f, Spent: $%.2f", name, limit, spentSoFar);
+        return String.format("Category: %s, Limit: $%s, Spent this month: $%s", name, Money.format(limit), Money.format(getSpentCents()));
     }
 }
\ No newline at end of file
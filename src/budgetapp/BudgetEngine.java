@@ -0,0 +1,336 @@
+// BudgetEngine.java
+package budgetapp;
+
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+import java.util.function.BinaryOperator;
+
+/**
+ * Holds the budgets of many tenants (e.g. households), each in its own
+ * BudgetManager, spread over a fixed number of partitions.
+ * <p>
+ * A tenant always maps to the same partition, and every partition runs its
+ * operations one at a time on its own thread. Tenants in different
+ * partitions never contend, and a tenant's operations are applied in the
+ * order they were submitted. Operations return CompletableFutures; an
+ * operation that throws (e.g. MonthlyLimitException) completes its future
+ * exceptionally. Aggregate queries run on every partition in parallel and
+ * combine the partial results.
+ */
+public class BudgetEngine implements AutoCloseable {
+    private final Partition[] partitions;
+
+    /**
+     * Constructs a BudgetEngine with one partition per available core.
+     */
+    public BudgetEngine() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Constructs a BudgetEngine.
+     * @param partitionCount the number of partitions (and threads)
+     * @throws IllegalArgumentException if partitionCount is not positive
+     */
+    public BudgetEngine(int partitionCount) {
+        if (partitionCount <= 0) throw new IllegalArgumentException("Partition count must be positive");
+        partitions = new Partition[partitionCount];
+        for (int i = 0; i < partitionCount; i++) {
+            partitions[i] = new Partition(i);
+        }
+    }
+
+    /**
+     * Gets the number of partitions.
+     * @return the partition count
+     */
+    public int getPartitionCount() {
+        return partitions.length;
+    }
+
+    /**
+     * Gets the metrics of one partition. The tenants of a partition share its
+     * metrics, and getMetrics() on any of their managers returns the same object.
+     * @param partition the partition index
+     * @return the metrics
+     * @throws IllegalArgumentException if partition is out of range
+     */
+    public BudgetMetrics getPartitionMetrics(int partition) {
+        if (partition < 0 || partition >= partitions.length) {
+            throw new IllegalArgumentException("Partition out of range: " + partition);
+        }
+        return partitions[partition].metrics;
+    }
+
+    /**
+     * Runs an operation on a tenant's manager, on the tenant's partition
+     * thread. The tenant is created with an empty manager on first use.
+     * @param tenantId the tenant
+     * @param operation the operation to run
+     * @return the operation's result
+     * @throws IllegalArgumentException if tenantId or operation is null
+     */
+    public <T> CompletableFuture<T> submit(String tenantId, TenantOperation<T> operation) {
+        if (tenantId == null) throw new IllegalArgumentException("Tenant id cannot be null");
+        if (operation == null) throw new IllegalArgumentException("Operation cannot be null");
+        Partition partition = partitionOf(tenantId);
+        CompletableFuture<T> result = new CompletableFuture<>();
+        partition.executor.execute(() -> {
+            try {
+                result.complete(operation.apply(partition.tenant(tenantId)));
+            } catch (Throwable e) {
+                result.completeExceptionally(e);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Adds a budget category to a tenant.
+     * @param tenantId the tenant
+     * @param category the category to add
+     * @return completes when the category is added
+     */
+    public CompletableFuture<Void> addCategory(String tenantId, BudgetCategory category) {
+        return submit(tenantId, tenant -> {
+            tenant.addCategory(category);
+            return null;
+        });
+    }
+
+    /**
+     * Adds an income to a tenant.
+     * @param tenantId the tenant
+     * @param income the income to add
+     * @return completes when the income is added
+     */
+    public CompletableFuture<Void> addIncome(String tenantId, Income income) {
+        return submit(tenantId, tenant -> {
+            tenant.addIncome(income);
+            return null;
+        });
+    }
+
+    /**
+     * Adds an expense to a tenant, in the tenant's category named by the expense.
+     * @param tenantId the tenant
+     * @param expense the expense to add
+     * @return completes when the expense is added; completes exceptionally with
+     *         MonthlyLimitException if it exceeds the limit, or
+     *         IllegalArgumentException if the tenant has no such category
+     */
+    public CompletableFuture<Void> addExpense(String tenantId, Expense expense) {
+        return submit(tenantId, tenant -> {
+            tenant.addExpense(expense, tenant.categoryNamed(expense.getCategory()));
+            return null;
+        });
+    }
+
+    /**
+     * Runs a query on every tenant and combines the results. Each partition
+     * folds its own tenants on its thread, in parallel with the others, and
+     * the partial results are then combined.
+     * @param identity the initial value of each partition's fold
+     * @param accumulator folds one tenant's manager into a partial result
+     * @param combiner combines two partial results
+     * @return the combined result
+     */
+    public <R> CompletableFuture<R> aggregate(R identity, BiFunction<R, BudgetManager, R> accumulator,
+                                              BinaryOperator<R> combiner) {
+        List<CompletableFuture<R>> parts = new ArrayList<>(partitions.length);
+        for (Partition partition : partitions) {
+            parts.add(CompletableFuture.supplyAsync(() -> {
+                R result = identity;
+                for (Tenant tenant : partition.tenants.values()) {
+                    result = accumulator.apply(result, tenant.manager);
+                }
+                return result;
+            }, partition.executor));
+        }
+        CompletableFuture<R> result = CompletableFuture.completedFuture(identity);
+        for (CompletableFuture<R> part : parts) {
+            result = result.thenCombine(part, combiner);
+        }
+        return result;
+    }
+
+    /**
+     * Gets the total spending of all tenants in a month, in cents.
+     * @param month the month
+     * @return the total including fees
+     */
+    public CompletableFuture<Long> getTotalSpendingCents(YearMonth month) {
+        return aggregate(0L, (sum, manager) -> {
+            for (MonthlyTotal total : manager.getMonthlySummary(month).values()) {
+                sum += total.getAmountCents();
+            }
+            return sum;
+        }, Long::sum);
+    }
+
+    /**
+     * Gets the total income of all tenants in a month, in cents.
+     * @param month the month
+     * @return the total
+     */
+    public CompletableFuture<Long> getTotalIncomeCents(YearMonth month) {
+        return aggregate(0L, (sum, manager) -> {
+            for (MonthlyTotal total : manager.getMonthlyIncome(month).values()) {
+                sum += total.getAmountCents();
+            }
+            return sum;
+        }, Long::sum);
+    }
+
+    /**
+     * Gets the number of tenants.
+     * @return the tenant count
+     */
+    public CompletableFuture<Integer> getTenantCount() {
+        List<CompletableFuture<Integer>> parts = new ArrayList<>(partitions.length);
+        for (Partition partition : partitions) {
+            parts.add(CompletableFuture.supplyAsync(partition.tenants::size, partition.executor));
+        }
+        return CompletableFuture.allOf(parts.toArray(new CompletableFuture<?>[0]))
+                .thenApply(done -> parts.stream().mapToInt(CompletableFuture::join).sum());
+    }
+
+    /**
+     * Finishes the operations already submitted and stops the partition threads.
+     */
+    @Override
+    public void close() {
+        for (Partition partition : partitions) {
+            partition.executor.shutdown();
+        }
+        try {
+            for (Partition partition : partitions) {
+                partition.executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private Partition partitionOf(String tenantId) {
+        return partitions[Math.floorMod(tenantId.hashCode(), partitions.length)];
+    }
+
+    /**
+     * An operation on one tenant's budget.
+     * @param <T> the result type
+     */
+    @FunctionalInterface
+    public interface TenantOperation<T> {
+        /**
+         * Runs the operation.
+         * @param tenant the tenant's budget
+         * @return the result
+         * @throws Exception if the operation fails
+         */
+        T apply(Tenant tenant) throws Exception;
+    }
+
+    /**
+     * One tenant's budget. Category names are unique within a tenant.
+     */
+    public static final class Tenant {
+        private final String id;
+        private final BudgetManager manager;
+
+        private Tenant(String id, BudgetMetrics metrics) {
+            this.id = id;
+            this.manager = new BudgetManager(metrics);
+        }
+
+        /**
+         * Gets the tenant id.
+         * @return the id
+         */
+        public String getId() {
+            return id;
+        }
+
+        /**
+         * Gets the tenant's manager. It must only be used from within a
+         * TenantOperation, so that operations stay on the partition thread.
+         * @return the manager
+         */
+        public BudgetManager getManager() {
+            return manager;
+        }
+
+        /**
+         * Adds a budget category.
+         * @param category the category to add
+         * @throws IllegalArgumentException if category is null or the name is taken
+         */
+        public void addCategory(BudgetCategory category) {
+            if (category == null) throw new IllegalArgumentException("Category cannot be null");
+            if (manager.getCategory(category.getName()) != null) {
+                throw new IllegalArgumentException("Category already exists: " + category.getName());
+            }
+            manager.addCategory(category);
+        }
+
+        /**
+         * Gets a category by name.
+         * @param name the category name
+         * @return the category
+         * @throws IllegalArgumentException if there is no such category
+         */
+        public BudgetCategory categoryNamed(String name) {
+            BudgetCategory category = manager.getCategory(name);
+            if (category == null) throw new IllegalArgumentException("Unknown category: " + name);
+            return category;
+        }
+
+        /**
+         * Adds an income.
+         * @param income the income to add
+         */
+        public void addIncome(Income income) {
+            manager.addIncome(income);
+        }
+
+        /**
+         * Adds an expense to a category.
+         * @param expense the expense to add
+         * @param category the budget category
+         * @throws MonthlyLimitException if adding expense exceeds the category limit for its month
+         */
+        public void addExpense(Expense expense, BudgetCategory category) throws MonthlyLimitException {
+            manager.addExpense(expense, category);
+        }
+    }
+
+    /**
+     * A single-threaded executor, the tenants it owns and the metrics they
+     * share. The tenant map is only touched from the executor thread.
+     */
+    private static final class Partition {
+        final ExecutorService executor;
+        final Map<String, Tenant> tenants = new HashMap<>();
+        final BudgetMetrics metrics = new BudgetMetrics();
+
+        Partition(int index) {
+            executor = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "budget-partition-" + index);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+
+        Tenant tenant(String tenantId) {
+            return tenants.computeIfAbsent(tenantId, id -> new Tenant(id, metrics));
+        }
+    }
+}
\ No newline at end of file
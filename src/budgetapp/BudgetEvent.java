@@ -0,0 +1,181 @@
+// BudgetEvent.java
+package budgetapp;
+
+import java.time.YearMonth;
+
+/**
+ * A change to a budget, delivered to {@link BudgetEventListener}s by a
+ * {@link BudgetEventBus}. Amounts are held in cents.
+ * <p>
+ * Events are preallocated and reused: the object passed to a listener is
+ * only valid until the listener returns, and must be copied (e.g. with
+ * {@link #copy()}) to be kept.
+ */
+public final class BudgetEvent {
+    /**
+     * The kinds of event.
+     */
+    public enum Type {
+        /** An income or expense was added. */
+        TRANSACTION_ADDED,
+        /** A transaction was deleted by id. */
+        TRANSACTION_DELETED,
+        /** A transaction was replaced by id; the event holds the replacement. */
+        TRANSACTION_UPDATED,
+        /** A category's spend for a month reached one of the bus's thresholds. */
+        THRESHOLD_CROSSED,
+        /** An expense or batch of expenses was rejected for exceeding a monthly or rolling limit. */
+        LIMIT_REJECTED,
+        /** A category and its expenses were deleted. */
+        CATEGORY_DELETED,
+        /** A category's expenditure for a month was reset to zero. */
+        EXPENDITURE_RESET
+    }
+
+    // Written by the publisher after the other fields; a reader that sees a
+    // different value after copying them knows the slot was overwritten.
+    private volatile long sequence = -1;
+    private Type type;
+    private Transaction transaction;
+    private BudgetCategory category;
+    private YearMonth month;
+    private long amountCents;
+    private long spentCents;
+    private long limitCents;
+    private int thresholdPercent;
+
+    BudgetEvent() {
+    }
+
+    void set(Type type, Transaction transaction, BudgetCategory category, YearMonth month,
+             long amountCents, long spentCents, long limitCents, int thresholdPercent) {
+        this.type = type;
+        this.transaction = transaction;
+        this.category = category;
+        this.month = month;
+        this.amountCents = amountCents;
+        this.spentCents = spentCents;
+        this.limitCents = limitCents;
+        this.thresholdPercent = thresholdPercent;
+    }
+
+    void copyFrom(BudgetEvent other) {
+        set(other.type, other.transaction, other.category, other.month,
+                other.amountCents, other.spentCents, other.limitCents, other.thresholdPercent);
+    }
+
+    long stamp() {
+        return sequence;
+    }
+
+    void stamp(long sequence) {
+        this.sequence = sequence;
+    }
+
+    /**
+     * Gets the event's position in the bus's sequence. Sequence numbers
+     * increase by one per published event, so a gap means events were missed.
+     * @return the sequence number
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * Gets the kind of event.
+     * @return the type
+     */
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * Gets the transaction added, deleted, updated or rejected.
+     * @return the transaction, or null for category events and rejected batches
+     */
+    public Transaction getTransaction() {
+        return transaction;
+    }
+
+    /**
+     * Gets the category concerned.
+     * @return the category, or null for income events
+     */
+    public BudgetCategory getCategory() {
+        return category;
+    }
+
+    /**
+     * Gets the month of a threshold, rejection or reset event.
+     * @return the month, or null for other events
+     */
+    public YearMonth getMonth() {
+        return month;
+    }
+
+    /**
+     * Gets the amount in cents: the transaction's effective amount (negative
+     * for expenses), the cost rejected, or the cost that crossed a threshold.
+     * @return the amount in cents, or 0 for category events
+     */
+    public long getAmountCents() {
+        return amountCents;
+    }
+
+    /**
+     * Gets the month's expenditure in cents after a threshold was crossed,
+     * or before a rejected amount. For a rolling limit's rejection it is the
+     * window's expenditure.
+     * @return the expenditure in cents, or 0 for other events
+     */
+    public long getSpentCents() {
+        return spentCents;
+    }
+
+    /**
+     * Gets the category's monthly limit in cents when the event was published,
+     * or the rolling limit that rejected an expense.
+     * @return the limit in cents, or 0 for income events
+     */
+    public long getLimitCents() {
+        return limitCents;
+    }
+
+    /**
+     * Gets the threshold crossed, as a percentage of the limit.
+     * @return the percentage, or 0 for other events
+     */
+    public int getThresholdPercent() {
+        return thresholdPercent;
+    }
+
+    /**
+     * Copies this event, e.g. to keep it after the listener returns.
+     * @return a new event with the same values
+     */
+    public BudgetEvent copy() {
+        BudgetEvent copy = new BudgetEvent();
+        copy.copyFrom(this);
+        copy.sequence = sequence;
+        return copy;
+    }
+
+    @Override
+    public String toString() {
+        String name = category == null ? null : category.getName();
+        switch (type) {
+            case THRESHOLD_CROSSED:
+                return String.format("#%d %s: %s reached %d%% of $%s in %s ($%s spent)", sequence, type, name,
+                        thresholdPercent, Money.format(limitCents), month, Money.format(spentCents));
+            case LIMIT_REJECTED:
+                return String.format("#%d %s: $%s for %s in %s ($%s of $%s spent)", sequence, type,
+                        Money.format(amountCents), name, month, Money.format(spentCents), Money.format(limitCents));
+            case CATEGORY_DELETED:
+                return String.format("#%d %s: %s", sequence, type, name);
+            case EXPENDITURE_RESET:
+                return String.format("#%d %s: %s in %s", sequence, type, name, month);
+            default:
+                return String.format("#%d %s: %s", sequence, type, transaction);
+        }
+    }
+}
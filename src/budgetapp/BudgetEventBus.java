@@ -0,0 +1,496 @@
+// BudgetEventBus.java
+package budgetapp;
+
+import java.lang.invoke.VarHandle;
+import java.time.YearMonth;
+import java.util.Arrays;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Publishes the changes made to a BudgetManager (transactions added, deleted
+ * or updated, spending thresholds crossed, limit rejections, category
+ * deletions and resets) to any number of subscribers.
+ * <p>
+ * Events go through a ring of preallocated {@link BudgetEvent} slots. The
+ * manager publishes under its write lock, so the ring has one producer at a
+ * time and publishing is a few plain writes and one volatile write, with no
+ * allocation. Each subscription reads the ring on its own thread at its own
+ * pace and never blocks the producer, except under {@link Backpressure#BLOCK}
+ * when it falls a whole ring behind. With no subscriptions nothing is published.
+ * <p>
+ * The producer never wakes subscriptions, since unparking a thread per event
+ * would cost more than the rest of an insert. An idle subscription polls
+ * instead, backing off from {@value #MIN_IDLE_PARK_NANOS} ns to
+ * {@value #MAX_IDLE_PARK_NANOS} ns between polls, so the first event after a
+ * quiet spell is delivered within about 10 ms and later ones much sooner.
+ * <p>
+ * A THRESHOLD_CROSSED event is published when an expense takes a category's
+ * spend for a month from below a threshold (a percentage of the limit) to at
+ * or above it, just before the event of the transaction that crossed it.
+ * Reservations are atomic, so each crossing is reported exactly once even
+ * when expenses are added concurrently.
+ */
+public final class BudgetEventBus implements AutoCloseable {
+    /**
+     * What the producer does when the slowest subscription is a whole ring behind.
+     */
+    public enum Backpressure {
+        /**
+         * Wait for the slowest subscription; no event is lost, but ingest stalls.
+         * Listeners must then not call back into the manager, which is locked meanwhile.
+         */
+        BLOCK,
+        /** Drop the new event; subscriptions keep every event up to the drop. */
+        DROP_NEWEST,
+        /** Overwrite the oldest unread events; lagging subscriptions skip ahead. */
+        OVERWRITE_OLDEST
+    }
+
+    /** Default number of slots in the ring. */
+    public static final int DEFAULT_CAPACITY = 4096;
+    /** Default thresholds, as percentages of a category's limit. */
+    private static final int[] DEFAULT_THRESHOLDS = {80, 100};
+    // Busy-wait iterations before a waiting thread parks; spinning only helps with a core to spare.
+    private static final int SPINS = Runtime.getRuntime().availableProcessors() > 1 ? 200 : 0;
+    // How long a blocked producer parks between checks of the subscriptions.
+    private static final long PRODUCER_PARK_NANOS = 10_000;
+    // Bounds of an idle subscription's polling interval.
+    private static final long MIN_IDLE_PARK_NANOS = 50_000;
+    private static final long MAX_IDLE_PARK_NANOS = 10_000_000;
+
+    private final BudgetEvent[] ring;
+    private final int mask;
+    private final Backpressure backpressure;
+    private volatile int[] thresholds = DEFAULT_THRESHOLDS;
+    // Copied on change; the producer reads it once per event.
+    private volatile Subscription[] subscriptions = new Subscription[0];
+    // Sequence of the last published event. Written only by the producer.
+    private volatile long cursor = -1;
+    // A lower bound on every subscription's sequence, so the producer rarely reads them all.
+    private long gate = -1;
+    // Written only by the producer.
+    private volatile long dropped;
+    private volatile boolean closed;
+    private int nextSubscriptionId;
+    private BudgetManager manager;
+
+    private BudgetEventBus(int capacity, Backpressure backpressure) {
+        ring = new BudgetEvent[capacity];
+        for (int i = 0; i < capacity; i++) {
+            ring[i] = new BudgetEvent();
+        }
+        mask = capacity - 1;
+        this.backpressure = backpressure;
+    }
+
+    /**
+     * Attaches an event bus with the default capacity that drops new events
+     * when a subscription falls a whole ring behind.
+     * @param manager the manager whose changes are published
+     * @return the attached bus
+     * @throws IllegalStateException if the manager already has an event bus
+     */
+    public static BudgetEventBus attach(BudgetManager manager) {
+        return attach(manager, DEFAULT_CAPACITY, Backpressure.DROP_NEWEST);
+    }
+
+    /**
+     * Attaches an event bus to a manager.
+     * @param manager the manager whose changes are published
+     * @param capacity the number of slots in the ring, a power of two
+     * @param backpressure what to do when a subscription falls a whole ring behind
+     * @return the attached bus
+     * @throws IllegalArgumentException if manager or backpressure is null, or capacity is not a power of two
+     * @throws IllegalStateException if the manager already has an event bus
+     */
+    public static BudgetEventBus attach(BudgetManager manager, int capacity, Backpressure backpressure) {
+        if (manager == null) throw new IllegalArgumentException("Manager cannot be null");
+        if (backpressure == null) throw new IllegalArgumentException("Backpressure cannot be null");
+        if (capacity <= 0 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Capacity must be a power of two");
+        }
+        BudgetEventBus bus = new BudgetEventBus(capacity, backpressure);
+        manager.attachEventBus(bus);
+        bus.manager = manager;
+        return bus;
+    }
+
+    /**
+     * Sets the spending thresholds that raise THRESHOLD_CROSSED events.
+     * @param percents percentages of a category's limit, each from 1 to 100
+     * @throws IllegalArgumentException if percents is null or a percentage is out of range
+     */
+    public void setThresholds(int... percents) {
+        if (percents == null) throw new IllegalArgumentException("Thresholds cannot be null");
+        int[] sorted = percents.clone();
+        Arrays.sort(sorted);
+        for (int percent : sorted) {
+            if (percent < 1 || percent > 100) {
+                throw new IllegalArgumentException("Threshold must be between 1 and 100: " + percent);
+            }
+        }
+        thresholds = sorted;
+    }
+
+    /**
+     * Gets the spending thresholds.
+     * @return percentages of a category's limit, in ascending order
+     */
+    public int[] getThresholds() {
+        return thresholds.clone();
+    }
+
+    /**
+     * Gets the backpressure policy.
+     * @return the policy
+     */
+    public Backpressure getBackpressure() {
+        return backpressure;
+    }
+
+    /**
+     * Gets the number of events published.
+     * @return the count
+     */
+    public long getPublishedCount() {
+        return cursor + 1;
+    }
+
+    /**
+     * Gets the number of events dropped under {@link Backpressure#DROP_NEWEST}.
+     * @return the count
+     */
+    public long getDroppedCount() {
+        return dropped;
+    }
+
+    /**
+     * Starts delivering events to a listener on a new daemon thread,
+     * beginning with the next event published.
+     * @param listener the listener
+     * @return the subscription; close it to stop delivery
+     * @throws IllegalArgumentException if listener is null
+     * @throws IllegalStateException if the bus is closed
+     */
+    public synchronized Subscription subscribe(BudgetEventListener listener) {
+        if (listener == null) throw new IllegalArgumentException("Listener cannot be null");
+        if (closed) throw new IllegalStateException("Event bus is closed");
+        Subscription subscription = new Subscription(listener, cursor, nextSubscriptionId++);
+        Subscription[] current = subscriptions;
+        Subscription[] next = Arrays.copyOf(current, current.length + 1);
+        next[current.length] = subscription;
+        subscriptions = next;
+        subscription.thread.start();
+        return subscription;
+    }
+
+    /**
+     * Detaches from the manager, delivers the events already published and
+     * stops every subscription.
+     */
+    @Override
+    public void close() {
+        Subscription[] remaining;
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            if (manager != null) {
+                manager.detachEventBus(this);
+            }
+            closed = true;
+            remaining = subscriptions;
+        }
+        for (Subscription subscription : remaining) {
+            LockSupport.unpark(subscription.thread);
+        }
+        boolean interrupted = false;
+        for (Subscription subscription : remaining) {
+            if (subscription.thread != Thread.currentThread()) {
+                while (true) {
+                    try {
+                        subscription.thread.join();
+                        break;
+                    } catch (InterruptedException e) {
+                        interrupted = true;
+                    }
+                }
+            }
+        }
+        synchronized (this) {
+            subscriptions = new Subscription[0];
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // The methods below are called by the manager with its write lock held.
+
+    void transactionAdded(Transaction transaction, BudgetCategory category) {
+        publish(BudgetEvent.Type.TRANSACTION_ADDED, transaction, category, null,
+                transaction.getEffectiveAmountCents(), 0);
+    }
+
+    void transactionDeleted(Transaction transaction, BudgetCategory category) {
+        publish(BudgetEvent.Type.TRANSACTION_DELETED, transaction, category, null,
+                transaction.getEffectiveAmountCents(), 0);
+    }
+
+    void transactionUpdated(Transaction replacement, BudgetCategory category) {
+        publish(BudgetEvent.Type.TRANSACTION_UPDATED, replacement, category, null,
+                replacement.getEffectiveAmountCents(), 0);
+    }
+
+    /**
+     * Publishes a THRESHOLD_CROSSED event for every threshold between a
+     * month's expenditure before and after a reservation.
+     */
+    void spendReserved(BudgetCategory category, YearMonth month, long before, long after) {
+        if (subscriptions.length == 0) {
+            return;
+        }
+        long limit = category.getLimitCents();
+        for (int percent : thresholds) {
+            // limit * percent / 100 without overflow.
+            long level = limit / 100 * percent + limit % 100 * percent / 100;
+            if (before < level && after >= level) {
+                publish(BudgetEvent.Type.THRESHOLD_CROSSED, null, category, month, after - before, after, limit, percent);
+            }
+        }
+    }
+
+    void limitRejected(Expense expense, BudgetCategory category, YearMonth month, long amountCents) {
+        publish(BudgetEvent.Type.LIMIT_REJECTED, expense, category, month,
+                amountCents, category.getSpentCents(month), category.getLimitCents(), 0);
+    }
+
+    /**
+     * Publishes a LIMIT_REJECTED event for a rolling limit; the event holds
+     * the window's expenditure and limit rather than the month's.
+     */
+    void windowRejected(Expense expense, BudgetCategory category, YearMonth month, long amountCents,
+                        WindowLimitException rejection) {
+        publish(BudgetEvent.Type.LIMIT_REJECTED, expense, category, month,
+                amountCents, rejection.getSpentCents(), rejection.getLimit().getLimitCents(), 0);
+    }
+
+    void categoryDeleted(BudgetCategory category) {
+        publish(BudgetEvent.Type.CATEGORY_DELETED, null, category, null, 0, 0);
+    }
+
+    void expenditureReset(BudgetCategory category, YearMonth month) {
+        publish(BudgetEvent.Type.EXPENDITURE_RESET, null, category, month, 0, 0);
+    }
+
+    private void publish(BudgetEvent.Type type, Transaction transaction, BudgetCategory category,
+                         YearMonth month, long amountCents, long spentCents) {
+        publish(type, transaction, category, month, amountCents, spentCents,
+                category == null ? 0 : category.getLimitCents(), 0);
+    }
+
+    private void publish(BudgetEvent.Type type, Transaction transaction, BudgetCategory category, YearMonth month,
+                         long amountCents, long spentCents, long limitCents, int thresholdPercent) {
+        Subscription[] subs = subscriptions;
+        if (subs.length == 0 || closed) {
+            return;
+        }
+        long seq = cursor + 1;
+        long wrap = seq - ring.length;
+        if (wrap > gate) {
+            gate = Math.min(minSequence(subs), cursor);
+            if (wrap > gate) {
+                if (backpressure == Backpressure.DROP_NEWEST) {
+                    dropped++;
+                    return;
+                }
+                if (backpressure == Backpressure.BLOCK) {
+                    awaitCapacity(wrap);
+                }
+            }
+        }
+        BudgetEvent slot = ring[(int) seq & mask];
+        // Mark the slot as being written before changing it, for readers lapped under OVERWRITE_OLDEST.
+        slot.stamp(-1);
+        VarHandle.storeStoreFence();
+        slot.set(type, transaction, category, month, amountCents, spentCents, limitCents, thresholdPercent);
+        slot.stamp(seq);
+        cursor = seq;
+    }
+
+    // Waits until the slowest subscription has read the event at sequence wrap.
+    private void awaitCapacity(long wrap) {
+        for (int spins = 0; ; spins++) {
+            gate = Math.min(minSequence(subscriptions), cursor);
+            if (wrap <= gate || closed) {
+                return;
+            }
+            if (spins < SPINS) {
+                Thread.onSpinWait();
+            } else {
+                LockSupport.parkNanos(PRODUCER_PARK_NANOS);
+            }
+        }
+    }
+
+    private static long minSequence(Subscription[] subs) {
+        long min = Long.MAX_VALUE;
+        for (Subscription subscription : subs) {
+            min = Math.min(min, subscription.sequence);
+        }
+        return min;
+    }
+
+    private synchronized void remove(Subscription subscription) {
+        Subscription[] current = subscriptions;
+        int index = Arrays.asList(current).indexOf(subscription);
+        if (index < 0) {
+            return;
+        }
+        Subscription[] next = new Subscription[current.length - 1];
+        System.arraycopy(current, 0, next, 0, index);
+        System.arraycopy(current, index + 1, next, index, next.length - index);
+        subscriptions = next;
+    }
+
+    /**
+     * One listener's position in the ring and the thread delivering to it.
+     */
+    public final class Subscription implements AutoCloseable {
+        private final BudgetEventListener listener;
+        private final Thread thread;
+        // The event handed to the listener, copied out of the ring.
+        private final BudgetEvent current = new BudgetEvent();
+        // Sequence of the last event read. Written only by this subscription's thread.
+        private volatile long sequence;
+        private volatile boolean stopped;
+        private volatile long delivered;
+        private volatile long missed;
+        private volatile long errors;
+        private volatile Throwable lastError;
+
+        private Subscription(BudgetEventListener listener, long sequence, int id) {
+            this.listener = listener;
+            this.sequence = sequence;
+            thread = new Thread(this::run, "budget-events-" + id);
+            thread.setDaemon(true);
+        }
+
+        /**
+         * Gets the number of events delivered to the listener.
+         * @return the count
+         */
+        public long getDeliveredCount() {
+            return delivered;
+        }
+
+        /**
+         * Gets the number of events overwritten before this subscription read
+         * them, under {@link Backpressure#OVERWRITE_OLDEST}.
+         * @return the count
+         */
+        public long getMissedCount() {
+            return missed;
+        }
+
+        /**
+         * Gets the number of events published but not yet read.
+         * @return the lag
+         */
+        public long getLag() {
+            return Math.max(0, cursor - sequence);
+        }
+
+        /**
+         * Gets the number of events whose listener threw.
+         * @return the count
+         */
+        public long getErrorCount() {
+            return errors;
+        }
+
+        /**
+         * Gets the last exception thrown by the listener.
+         * @return the exception, or null if none was thrown
+         */
+        public Throwable getLastError() {
+            return lastError;
+        }
+
+        /**
+         * Stops delivery after the event in progress, without delivering the
+         * events still in the ring, and waits for the thread to end unless
+         * called from the listener.
+         */
+        @Override
+        public void close() {
+            remove(this);
+            stopped = true;
+            LockSupport.unpark(thread);
+            if (thread == Thread.currentThread()) {
+                return;
+            }
+            boolean interrupted = false;
+            while (true) {
+                try {
+                    thread.join();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        private void run() {
+            long next = sequence + 1;
+            int spins = 0;
+            long idleNanos = MIN_IDLE_PARK_NANOS;
+            while (!stopped) {
+                if (next > cursor) {
+                    if (closed) {
+                        return;
+                    }
+                    if (spins++ < SPINS) {
+                        Thread.onSpinWait();
+                    } else {
+                        LockSupport.parkNanos(this, idleNanos);
+                        idleNanos = Math.min(MAX_IDLE_PARK_NANOS, idleNanos * 2);
+                    }
+                    continue;
+                }
+                spins = 0;
+                idleNanos = MIN_IDLE_PARK_NANOS;
+                BudgetEvent slot = ring[(int) next & mask];
+                if (slot.stamp() == next) {
+                    current.copyFrom(slot);
+                    // Order the field reads before the second stamp read, as in a seqlock.
+                    VarHandle.acquireFence();
+                    if (slot.stamp() == next) {
+                        current.stamp(next);
+                        deliver();
+                        sequence = next++;
+                        continue;
+                    }
+                }
+                // The producer has lapped this subscription: skip to the oldest event still in the ring.
+                long oldest = Math.max(next + 1, cursor - mask);
+                missed += oldest - next;
+                sequence = oldest - 1;
+                next = oldest;
+            }
+        }
+
+        private void deliver() {
+            try {
+                listener.onEvent(current);
+            } catch (Throwable e) {
+                errors++;
+                lastError = e;
+            }
+            delivered++;
+        }
+    }
+}
@@ -0,0 +1,16 @@
+// BudgetEventListener.java
+package budgetapp;
+
+/**
+ * Receives the events of a {@link BudgetEventBus}, one at a time and in
+ * publication order, on the subscription's own thread.
+ */
+@FunctionalInterface
+public interface BudgetEventListener {
+    /**
+     * Handles one event. The event object is reused once this returns.
+     * Exceptions are counted by the subscription and otherwise ignored.
+     * @param event the event
+     */
+    void onEvent(BudgetEvent event);
+}
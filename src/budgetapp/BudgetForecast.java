@@ -0,0 +1,392 @@
+// BudgetForecast.java
+package budgetapp;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Monte Carlo forecast of a month's spending: how likely each budget
+ * category is to run past its monthly limit before the month ends, and the
+ * month's projected net cash flow.
+ * <p>
+ * Each category's spending, and income as a whole, is fitted from the
+ * transactions of the last days before the forecast time: expenses arrive
+ * at the average daily rate seen (a Poisson process) with amounts, fees
+ * included, drawn from the amounts seen. The rest of the month is then
+ * simulated many times. The total of a busy category is drawn from its
+ * normal approximation, so a trial costs about the same however busy a
+ * category is.
+ * <p>
+ * Trials are split into ranges that run as fork/join tasks on a
+ * ForkJoinPool, like {@link SpendingAnalytics}. Each task draws from its own
+ * {@link SplittableRandom}, split from its parent's, so a seed gives the same
+ * result on any number of threads. Each task adds into its own primitive
+ * arrays, merged as the tasks join; a trial allocates nothing.
+ */
+public final class BudgetForecast {
+    /** Default number of simulated month-ends. */
+    public static final int DEFAULT_TRIALS = 10_000;
+    /** Default number of days of history the spending is fitted from. */
+    public static final int DEFAULT_HISTORY_DAYS = 90;
+
+    // Ranges of up to this many trials are not split. It does not depend on
+    // the pool, so the tree of tasks, and each task's random numbers, do not either.
+    private static final int SPLIT_TRIALS = 512;
+    // Amounts are drawn from at most this many quantiles of the history.
+    private static final int QUANTILES = 256;
+    // Above this expected count, totals are drawn from a normal approximation.
+    private static final double EXACT_COUNT_MEAN = 30;
+    // Above this count, sums are drawn from a normal approximation.
+    private static final int EXACT_SUM_COUNT = 32;
+    private static final double MILLIS_PER_DAY = 86_400_000.0;
+
+    private final BudgetManager manager;
+    private final int historyDays;
+    private final ForkJoinPool pool;
+
+    /**
+     * Creates a forecast over a manager, fitted from the last
+     * {@value #DEFAULT_HISTORY_DAYS} days and run on the common ForkJoinPool.
+     * @param manager the manager
+     * @throws IllegalArgumentException if manager is null
+     */
+    public BudgetForecast(BudgetManager manager) {
+        this(manager, DEFAULT_HISTORY_DAYS, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Creates a forecast over a manager.
+     * @param manager the manager
+     * @param historyDays the number of days before the forecast time to fit spending from
+     * @param pool the pool that runs the trials
+     * @throws IllegalArgumentException if manager or pool is null or historyDays is not positive
+     */
+    public BudgetForecast(BudgetManager manager, int historyDays, ForkJoinPool pool) {
+        if (manager == null) throw new IllegalArgumentException("Manager cannot be null");
+        if (historyDays <= 0) throw new IllegalArgumentException("History days must be positive");
+        if (pool == null) throw new IllegalArgumentException("Pool cannot be null");
+        this.manager = manager;
+        this.historyDays = historyDays;
+        this.pool = pool;
+    }
+
+    /**
+     * Forecasts the rest of the current month from now.
+     * @return the forecast
+     */
+    public ForecastReport forecast() {
+        return forecast(LocalDateTime.now());
+    }
+
+    /**
+     * Forecasts the rest of a month with {@value #DEFAULT_TRIALS} trials.
+     * @param asOf the time to forecast from; the month is the one it falls in
+     * @return the forecast
+     * @throws IllegalArgumentException if asOf is null
+     */
+    public ForecastReport forecast(LocalDateTime asOf) {
+        return forecast(asOf, DEFAULT_TRIALS, ThreadLocalRandom.current().nextLong());
+    }
+
+    /**
+     * Forecasts the rest of a month. The same seed over the same
+     * transactions gives the same forecast.
+     * @param asOf the time to forecast from; the month is the one it falls in
+     * @param trials the number of month-ends to simulate
+     * @param seed the random seed
+     * @return the forecast
+     * @throws IllegalArgumentException if asOf is null or trials is not positive
+     */
+    public ForecastReport forecast(LocalDateTime asOf, int trials, long seed) {
+        if (asOf == null) throw new IllegalArgumentException("Time cannot be null");
+        if (trials <= 0) throw new IllegalArgumentException("Trials must be positive");
+        YearMonth month = YearMonth.from(asOf);
+        BudgetCategory[] categories = manager.getCategories().toArray(new BudgetCategory[0]);
+        Model model = fit(categories, month, asOf);
+
+        Accumulator total = pool.invoke(new Trials(model, 0, trials, new SplittableRandom(seed)));
+
+        Map<String, ForecastReport.CategoryForecast> forecasts = new TreeMap<>();
+        for (int c = 0; c < categories.length; c++) {
+            double mean = total.deviation[c] / trials;
+            double stdDev = Math.sqrt(Math.max(0, total.deviationSquares[c] / trials - mean * mean));
+            forecasts.put(categories[c].getName(), new ForecastReport.CategoryForecast(categories[c].getName(),
+                    model.limits[c], model.spent[c], model.spent[c] + model.centers[c] + mean, stdDev,
+                    (double) total.exceeded[c] / trials));
+        }
+        int income = categories.length;
+        double netMean = total.netDeviation / trials;
+        double netStdDev = Math.sqrt(Math.max(0, total.netDeviationSquares / trials - netMean * netMean));
+        double expectedIncome = model.incomeSoFar + model.centers[income] + total.deviation[income] / trials;
+        return new ForecastReport(month, asOf, trials, forecasts, model.incomeSoFar, expectedIncome,
+                model.netCenter + netMean, netStdDev, (double) total.deficits / trials);
+    }
+
+    // Fits each category, then income, from the transactions before asOf.
+    private Model fit(BudgetCategory[] categories, YearMonth month, LocalDateTime asOf) {
+        int series = categories.length + 1;
+        int maxNameId = -1;
+        for (BudgetCategory category : categories) {
+            maxNameId = Math.max(maxNameId, category.getNameId());
+        }
+        int[] seriesByName = new int[maxNameId + 1];
+        Arrays.fill(seriesByName, -1);
+        for (int c = 0; c < categories.length; c++) {
+            seriesByName[categories[c].getNameId()] = c;
+        }
+        LocalDateTime historyStart = asOf.minusDays(historyDays);
+        LocalDateTime monthStart = month.atDay(1).atStartOfDay();
+        LocalDateTime from = historyStart.isBefore(monthStart) ? historyStart : monthStart;
+
+        long[][] samples = new long[series][16];
+        int[] counts = new int[series];
+        long incomeSoFar = 0;
+        long spentSoFar = 0;
+        // Each category's spend in the month before asOf, which may be in the past.
+        long[] spentByCategory = new long[categories.length];
+        LocalDateTime first = null;
+        for (Transaction t : manager.getTransactionsByDateRange(from.toLocalDate(), asOf.toLocalDate())) {
+            LocalDateTime dateTime = t.getDateTime();
+            if (!dateTime.isBefore(asOf)) {
+                continue;
+            }
+            boolean inMonth = !dateTime.isBefore(monthStart);
+            int s;
+            long amount;
+            if (t instanceof Expense) {
+                int name = ((Expense) t).getCategoryId();
+                s = name < seriesByName.length ? seriesByName[name] : -1;
+                amount = -t.getEffectiveAmountCents();
+                if (inMonth) {
+                    spentSoFar += amount;
+                    if (s >= 0) {
+                        spentByCategory[s] += amount;
+                    }
+                }
+            } else {
+                s = categories.length;
+                amount = t.getAmountCents();
+                if (inMonth) {
+                    incomeSoFar += amount;
+                }
+            }
+            if (s >= 0 && !dateTime.isBefore(historyStart)) {
+                if (first == null) {
+                    first = dateTime;
+                }
+                if (counts[s] == samples[s].length) {
+                    samples[s] = Arrays.copyOf(samples[s], counts[s] * 2);
+                }
+                samples[s][counts[s]++] = amount;
+            }
+        }
+
+        LocalDateTime monthEnd = month.plusMonths(1).atDay(1).atStartOfDay();
+        double remainingDays = Duration.between(asOf, monthEnd).toMillis() / MILLIS_PER_DAY;
+        // A history shorter than historyDays is fitted from the day of its first transaction.
+        LocalDateTime fitStart = first == null || first.isBefore(historyStart) ? historyStart : first.toLocalDate().atStartOfDay();
+        double historyLength = Math.max(1, Duration.between(fitStart, asOf).toMillis() / MILLIS_PER_DAY);
+        Model model = new Model(series);
+        for (int s = 0; s < series; s++) {
+            model.fit(s, samples[s], counts[s], counts[s] / historyLength * remainingDays);
+        }
+        for (int c = 0; c < categories.length; c++) {
+            model.limits[c] = categories[c].getLimitCents();
+            model.spent[c] = spentByCategory[c];
+        }
+        model.incomeSoFar = incomeSoFar;
+        double netCenter = incomeSoFar - spentSoFar + model.centers[categories.length];
+        for (int c = 0; c < categories.length; c++) {
+            netCenter -= model.centers[c];
+        }
+        model.netCenter = netCenter;
+        return model;
+    }
+
+    /**
+     * The fitted spending of each category, and of income as the last
+     * series, over the rest of the month.
+     */
+    private static final class Model {
+        // Expected number of transactions and e^-mean.
+        final double[] countMean;
+        final double[] countExp;
+        // Quantiles of the amounts seen, ascending.
+        final long[][] quantiles;
+        final double[] amountMean;
+        final double[] amountStdDev;
+        // Expected total over the rest of the month and its standard deviation;
+        // trials are accumulated as deviations from the expected total.
+        final double[] centers;
+        final double[] totalStdDev;
+        final long[] limits;
+        final long[] spent;
+        long incomeSoFar;
+        double netCenter;
+
+        Model(int series) {
+            countMean = new double[series];
+            countExp = new double[series];
+            quantiles = new long[series][];
+            amountMean = new double[series];
+            amountStdDev = new double[series];
+            centers = new double[series];
+            totalStdDev = new double[series];
+            limits = new long[series - 1];
+            spent = new long[series - 1];
+        }
+
+        void fit(int s, long[] samples, int count, double expectedCount) {
+            if (count == 0) {
+                quantiles[s] = new long[0];
+                return;
+            }
+            Arrays.sort(samples, 0, count);
+            int q = Math.min(count, QUANTILES);
+            long[] table = new long[q];
+            for (int k = 0; k < q; k++) {
+                table[k] = samples[(int) ((k + 0.5) * count / q)];
+            }
+            double sum = 0;
+            double sumSquares = 0;
+            for (int i = 0; i < count; i++) {
+                sum += samples[i];
+                sumSquares += (double) samples[i] * samples[i];
+            }
+            double mean = sum / count;
+            quantiles[s] = table;
+            amountMean[s] = mean;
+            amountStdDev[s] = Math.sqrt(Math.max(0, sumSquares / count - mean * mean));
+            countMean[s] = expectedCount;
+            countExp[s] = Math.exp(-expectedCount);
+            centers[s] = expectedCount * mean;
+            // A compound Poisson total has variance rate * E[amount^2].
+            totalStdDev[s] = Math.sqrt(expectedCount * sumSquares / count);
+        }
+
+        /**
+         * Draws one series' total over the rest of the month.
+         */
+        long draw(int s, SplittableRandom random) {
+            double mean = countMean[s];
+            if (mean == 0) {
+                return 0;
+            }
+            if (mean >= EXACT_COUNT_MEAN) {
+                return Math.max(0, Math.round(centers[s] + totalStdDev[s] * random.nextGaussian()));
+            }
+            // Knuth: count uniforms until their product drops below e^-mean.
+            double limit = countExp[s];
+            double product = random.nextDouble();
+            int n = 0;
+            while (product > limit) {
+                product *= random.nextDouble();
+                n++;
+            }
+            if (n <= EXACT_SUM_COUNT) {
+                long[] table = quantiles[s];
+                long sum = 0;
+                for (int i = 0; i < n; i++) {
+                    sum += table[random.nextInt(table.length)];
+                }
+                return sum;
+            }
+            return Math.max(0, Math.round(n * amountMean[s] + Math.sqrt(n) * amountStdDev[s] * random.nextGaussian()));
+        }
+    }
+
+    /**
+     * Simulates a range of trials, splitting it while it is large.
+     */
+    private static final class Trials extends RecursiveTask<Accumulator> {
+        private static final long serialVersionUID = 1L;
+
+        private final transient Model model;
+        private final int from;
+        private final int to;
+        private final transient SplittableRandom random;
+
+        Trials(Model model, int from, int to, SplittableRandom random) {
+            this.model = model;
+            this.from = from;
+            this.to = to;
+            this.random = random;
+        }
+
+        @Override
+        protected Accumulator compute() {
+            if (to - from > SPLIT_TRIALS) {
+                int mid = (from + to) >>> 1;
+                Trials left = new Trials(model, from, mid, random.split());
+                Trials right = new Trials(model, mid, to, random);
+                left.fork();
+                Accumulator result = right.compute();
+                result.merge(left.join());
+                return result;
+            }
+            int categories = model.limits.length;
+            Accumulator acc = new Accumulator(categories + 1);
+            for (int trial = from; trial < to; trial++) {
+                double net = 0;
+                for (int c = 0; c < categories; c++) {
+                    long drawn = model.draw(c, random);
+                    if (model.spent[c] + drawn > model.limits[c]) {
+                        acc.exceeded[c]++;
+                    }
+                    double deviation = drawn - model.centers[c];
+                    acc.deviation[c] += deviation;
+                    acc.deviationSquares[c] += deviation * deviation;
+                    net -= deviation;
+                }
+                double income = model.draw(categories, random) - model.centers[categories];
+                acc.deviation[categories] += income;
+                acc.deviationSquares[categories] += income * income;
+                net += income;
+                acc.netDeviation += net;
+                acc.netDeviationSquares += net * net;
+                if (model.netCenter + net < 0) {
+                    acc.deficits++;
+                }
+            }
+            return acc;
+        }
+    }
+
+    /**
+     * Per-series running totals of one range of trials, as deviations from
+     * the expected amounts so the squares stay small.
+     */
+    private static final class Accumulator {
+        final long[] exceeded;
+        final double[] deviation;
+        final double[] deviationSquares;
+        double netDeviation;
+        double netDeviationSquares;
+        long deficits;
+
+        Accumulator(int series) {
+            exceeded = new long[series];
+            deviation = new double[series];
+            deviationSquares = new double[series];
+        }
+
+        void merge(Accumulator other) {
+            for (int s = 0; s < exceeded.length; s++) {
+                exceeded[s] += other.exceeded[s];
+                deviation[s] += other.deviation[s];
+                deviationSquares[s] += other.deviationSquares[s];
+            }
+            netDeviation += other.netDeviation;
+            netDeviationSquares += other.netDeviationSquares;
+            deficits += other.deficits;
+        }
+    }
+}
@@ -0,0 +1,708 @@
+// BudgetJournal.java
+package budgetapp;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only write-ahead journal that makes a BudgetManager durable.
+ * <p>
+ * Every category add/delete, income, expense, transaction delete/update and
+ * expenditure reset is written as a compact binary record: {@code [int length][int crc32][byte type][payload]}
+ * after a file header holding a generation number. Opening a journal replays
+ * the existing records into the manager, drops any torn record left by a
+ * crash, and then attaches the journal so that new operations are logged.
+ * <p>
+ * A checkpoint ({@link BudgetManager#checkpoint}) starts a new generation. If
+ * the manager was loaded from a snapshot that already covers this journal's
+ * generation, the journal is stale and is discarded instead of replayed.
+ * <p>
+ * The {@link SyncMode} chooses between durability and latency. In GROUP mode a
+ * background thread writes and fsyncs everything appended since its last
+ * commit, so concurrent callers share one fsync while each still waits until
+ * its own record is on disk.
+ */
+public class BudgetJournal implements AutoCloseable {
+    /**
+     * When appended records are forced to disk.
+     */
+    public enum SyncMode {
+        /** Write and fsync every record before the operation returns. */
+        EVERY_OPERATION,
+        /** Batch records into shared fsyncs; operations wait for their batch. */
+        GROUP,
+        /** Fsync in the background every commit interval; operations do not wait. */
+        ASYNC
+    }
+
+    private static final byte CATEGORY_ADDED = 1;
+    private static final byte CATEGORY_DELETED = 2;
+    private static final byte INCOME_ADDED = 3;
+    private static final byte EXPENSE_ADDED = 4;
+    private static final byte EXPENDITURE_RESET = 5;
+    // Gives a journal id to a category that already exists in the manager.
+    private static final byte CATEGORY_BOUND = 6;
+    private static final byte TRANSACTION_DELETED = 7;
+    // A transaction id followed by an INCOME_ADDED or EXPENSE_ADDED record, applied as one.
+    private static final byte TRANSACTION_UPDATED = 8;
+    private static final int MAGIC = 0x424A4E4C; // "BJNL"
+    // 2: expense and income records end with the transaction id, and resets carry their month.
+    private static final int VERSION = 2;
+    private static final int FILE_HEADER_BYTES = Integer.BYTES * 2 + Long.BYTES;
+    private static final int HEADER_BYTES = Integer.BYTES * 2;
+    private static final int MAX_RECORD_BYTES = 1 << 20;
+
+    private final FileChannel channel;
+    private final SyncMode mode;
+    private final long commitIntervalMillis;
+    // Guards the buffers and sequence numbers.
+    private final Object monitor = new Object();
+    // Held while writing to the channel so batches reach the file in order.
+    private final Object writeLock = new Object();
+    private final CRC32 crc = new CRC32();
+    // Journal ids for categories; ids are never reused.
+    private final Map<BudgetCategory, Integer> categoryIds = new IdentityHashMap<>();
+    private int nextCategoryId;
+
+    private ByteBuffer pending = ByteBuffer.allocate(64 * 1024);
+    private ByteBuffer spare = ByteBuffer.allocate(64 * 1024);
+    private long appendedSeq;
+    private long durableSeq;
+    private IOException failure;
+    private boolean closed;
+    private long generation;
+    private BudgetManager manager;
+    private final Thread flusher;
+
+    private BudgetJournal(FileChannel channel, SyncMode mode, long commitIntervalMillis) {
+        this.channel = channel;
+        this.mode = mode;
+        this.commitIntervalMillis = commitIntervalMillis;
+        if (mode == SyncMode.EVERY_OPERATION) {
+            flusher = null;
+        } else {
+            flusher = new Thread(this::flushLoop, "budget-journal-flusher");
+            flusher.setDaemon(true);
+        }
+    }
+
+    /**
+     * Opens a journal in GROUP mode, replays it into the manager and attaches it.
+     * @param path the journal file (created if missing)
+     * @param manager an empty manager to rebuild
+     * @return the open journal
+     * @throws IOException if the file cannot be read or written
+     */
+    public static BudgetJournal open(Path path, BudgetManager manager) throws IOException {
+        return open(path, manager, SyncMode.GROUP, 10);
+    }
+
+    /**
+     * Opens a journal, replays it into the manager and attaches it.
+     * @param path the journal file (created if missing)
+     * @param manager an empty manager to rebuild
+     * @param mode when records are forced to disk
+     * @param commitIntervalMillis how often ASYNC mode commits
+     * @return the open journal
+     * @throws IOException if the file cannot be read or written
+     * @throws IllegalArgumentException if an argument is null or the interval is not positive
+     */
+    public static BudgetJournal open(Path path, BudgetManager manager, SyncMode mode, long commitIntervalMillis)
+            throws IOException {
+        if (path == null) throw new IllegalArgumentException("Path cannot be null");
+        if (manager == null) throw new IllegalArgumentException("Manager cannot be null");
+        if (mode == null) throw new IllegalArgumentException("Sync mode cannot be null");
+        if (commitIntervalMillis <= 0) throw new IllegalArgumentException("Commit interval must be positive");
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        try {
+            BudgetJournal journal = new BudgetJournal(channel, mode, commitIntervalMillis);
+            long covered = manager.getSnapshotJournalGeneration();
+            long fileGeneration = journal.readGeneration();
+            if (fileGeneration <= covered) {
+                // New file, or every record is already in the manager's snapshot.
+                journal.startGeneration(Math.max(covered, fileGeneration) + 1);
+            } else {
+                journal.generation = fileGeneration;
+                long validLength = journal.replay(manager);
+                // Anything after the last complete record was a torn write.
+                channel.truncate(validLength);
+                channel.position(validLength);
+            }
+            // Categories that came from a snapshot need ids before records can name them.
+            for (BudgetCategory category : manager.getCategories()) {
+                synchronized (journal.monitor) {
+                    journal.appendCategory(category, CATEGORY_BOUND);
+                }
+            }
+            journal.commit();
+            journal.manager = manager;
+            manager.attachJournal(journal);
+            if (journal.flusher != null) {
+                journal.flusher.start();
+            }
+            return journal;
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Gets the sync mode.
+     * @return the mode
+     */
+    public SyncMode getSyncMode() {
+        return mode;
+    }
+
+    /**
+     * Gets the generation of the journal; it increases at every checkpoint.
+     * @return the generation
+     */
+    public long getGeneration() {
+        synchronized (monitor) {
+            return generation;
+        }
+    }
+
+    /**
+     * Discards every record and starts the next generation, after a snapshot
+     * has captured the state they describe. The caller holds the manager's
+     * write lock, so no operation can be logged concurrently.
+     * @param categories the categories that exist in the manager
+     * @throws IOException if the journal could not be rewritten
+     */
+    void rotate(Iterable<BudgetCategory> categories) throws IOException {
+        synchronized (writeLock) {
+            synchronized (monitor) {
+                checkFailure();
+                pending.clear();
+                categoryIds.clear();
+                nextCategoryId = 0;
+                startGeneration(generation + 1);
+                for (BudgetCategory category : categories) {
+                    appendCategory(category, CATEGORY_BOUND);
+                }
+                writePending();
+                channel.force(false);
+                // Records dropped from the buffer are covered by the snapshot.
+                durableSeq = appendedSeq;
+                monitor.notifyAll();
+            }
+        }
+    }
+
+    long logCategoryAdded(BudgetCategory category) {
+        synchronized (monitor) {
+            return appendCategory(category, CATEGORY_ADDED);
+        }
+    }
+
+    long logCategoryDeleted(BudgetCategory category) {
+        synchronized (monitor) {
+            Integer id = categoryIds.remove(category);
+            if (id == null) {
+                return 0;
+            }
+            int start = begin(CATEGORY_DELETED, Integer.BYTES);
+            pending.putInt(id);
+            return end(start);
+        }
+    }
+
+    long logExpenditureReset(BudgetCategory category, YearMonth month) {
+        synchronized (monitor) {
+            Integer id = categoryIds.get(category);
+            if (id == null) {
+                return 0;
+            }
+            int start = begin(EXPENDITURE_RESET, Integer.BYTES * 2);
+            pending.putInt(id);
+            pending.putInt(MonthlyRollups.encode(month));
+            return end(start);
+        }
+    }
+
+    long logIncome(Income income) {
+        byte[] source = income.getSource().getBytes(StandardCharsets.UTF_8);
+        synchronized (monitor) {
+            int start = begin(INCOME_ADDED, incomeBytes(source));
+            putIncome(income, source);
+            return end(start);
+        }
+    }
+
+    long logExpense(Expense expense, BudgetCategory category) {
+        byte[] label = expense.getCategory().getBytes(StandardCharsets.UTF_8);
+        synchronized (monitor) {
+            int id = categoryId(category);
+            int start = begin(EXPENSE_ADDED, expenseBytes(label));
+            putExpense(id, expense, label);
+            return end(start);
+        }
+    }
+
+    long logTransactionDeleted(long id) {
+        synchronized (monitor) {
+            int start = begin(TRANSACTION_DELETED, Long.BYTES);
+            pending.putLong(id);
+            return end(start);
+        }
+    }
+
+    long logTransactionUpdated(long id, Transaction replacement, BudgetCategory category) {
+        if (replacement instanceof Expense) {
+            Expense expense = (Expense) replacement;
+            byte[] label = expense.getCategory().getBytes(StandardCharsets.UTF_8);
+            synchronized (monitor) {
+                int categoryId = categoryId(category);
+                int start = begin(TRANSACTION_UPDATED, Long.BYTES + 1 + expenseBytes(label));
+                pending.putLong(id);
+                pending.put(EXPENSE_ADDED);
+                putExpense(categoryId, expense, label);
+                return end(start);
+            }
+        }
+        Income income = (Income) replacement;
+        byte[] source = income.getSource().getBytes(StandardCharsets.UTF_8);
+        synchronized (monitor) {
+            int start = begin(TRANSACTION_UPDATED, Long.BYTES + 1 + incomeBytes(source));
+            pending.putLong(id);
+            pending.put(INCOME_ADDED);
+            putIncome(income, source);
+            return end(start);
+        }
+    }
+
+    /**
+     * Blocks until a record is durable, if the sync mode requires waiting.
+     * @param seq the sequence number returned when the record was appended
+     * @throws UncheckedIOException if the journal could not be written
+     */
+    void awaitDurable(long seq) {
+        if (mode != SyncMode.GROUP || seq == 0) {
+            checkFailure();
+            return;
+        }
+        synchronized (monitor) {
+            boolean interrupted = false;
+            while (durableSeq < seq && failure == null && !closed) {
+                try {
+                    monitor.wait();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        checkFailure();
+    }
+
+    /**
+     * Writes and fsyncs everything appended so far.
+     * @throws IOException if the journal could not be written
+     */
+    public void commit() throws IOException {
+        synchronized (writeLock) {
+            synchronized (monitor) {
+                if (failure != null) {
+                    throw failure;
+                }
+                if (pending.position() > 0) {
+                    writePending();
+                }
+                channel.force(false);
+                durableSeq = appendedSeq;
+                monitor.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Commits pending records, detaches from the manager and closes the file.
+     * @throws IOException if the final commit fails
+     */
+    @Override
+    public void close() throws IOException {
+        if (manager != null) {
+            manager.detachJournal(this);
+        }
+        try {
+            commit();
+        } finally {
+            synchronized (monitor) {
+                closed = true;
+                monitor.notifyAll();
+            }
+            if (flusher != null) {
+                try {
+                    flusher.join();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            channel.close();
+        }
+    }
+
+    private void flushLoop() {
+        while (true) {
+            synchronized (monitor) {
+                try {
+                    if (mode == SyncMode.ASYNC && !closed) {
+                        monitor.wait(commitIntervalMillis);
+                    }
+                    while (pending.position() == 0 && !closed) {
+                        monitor.wait();
+                    }
+                } catch (InterruptedException e) {
+                    return;
+                }
+                if (closed || failure != null) {
+                    return;
+                }
+            }
+            synchronized (writeLock) {
+                ByteBuffer toWrite;
+                long upTo;
+                synchronized (monitor) {
+                    if (pending.position() == 0) {
+                        continue; // already committed by commit()
+                    }
+                    // Swap buffers so appenders can continue while this batch is written.
+                    toWrite = pending;
+                    pending = spare;
+                    spare = toWrite;
+                    upTo = appendedSeq;
+                }
+                try {
+                    toWrite.flip();
+                    while (toWrite.hasRemaining()) {
+                        channel.write(toWrite);
+                    }
+                    toWrite.clear();
+                    channel.force(false);
+                    synchronized (monitor) {
+                        durableSeq = Math.max(durableSeq, upTo);
+                        monitor.notifyAll();
+                    }
+                } catch (IOException e) {
+                    synchronized (monitor) {
+                        failure = e;
+                        monitor.notifyAll();
+                    }
+                    return;
+                }
+            }
+        }
+    }
+
+    // Caller holds the monitor.
+    private long appendCategory(BudgetCategory category, byte type) {
+        if (categoryIds.containsKey(category)) {
+            return 0;
+        }
+        int id = nextCategoryId++;
+        categoryIds.put(category, id);
+        byte[] name = category.getName().getBytes(StandardCharsets.UTF_8);
+        int start = begin(type, 4 + 8 + 2 + name.length);
+        pending.putInt(id);
+        pending.putLong(category.getLimitCents());
+        putString(name);
+        return end(start);
+    }
+
+    // Gets a category's journal id, logging the category if it was implicitly
+    // added by BudgetManager.addExpense. Caller holds the monitor.
+    private int categoryId(BudgetCategory category) {
+        Integer id = categoryIds.get(category);
+        if (id == null) {
+            appendCategory(category, CATEGORY_ADDED);
+            id = categoryIds.get(category);
+        }
+        return id;
+    }
+
+    private static int incomeBytes(byte[] source) {
+        return 8 + 4 + 8 + 2 + source.length + 8;
+    }
+
+    private static int expenseBytes(byte[] label) {
+        return 4 + 8 + 4 + 8 + 1 + 2 + label.length + 8;
+    }
+
+    private void putIncome(Income income, byte[] source) {
+        putDateTime(income.getDateTime());
+        pending.putLong(income.getAmountCents());
+        putString(source);
+        pending.putLong(income.getId());
+    }
+
+    private void putExpense(int categoryId, Expense expense, byte[] label) {
+        pending.putInt(categoryId);
+        putDateTime(expense.getDateTime());
+        pending.putLong(expense.getAmountCents());
+        pending.put((byte) expense.getPaymentMethod().ordinal());
+        putString(label);
+        pending.putLong(expense.getId());
+    }
+
+    // Reserves room for a record and writes its header; returns the record start.
+    private int begin(byte type, int payloadBytes) {
+        checkFailure();
+        if (closed) {
+            throw new IllegalStateException("Journal is closed");
+        }
+        int needed = HEADER_BYTES + 1 + payloadBytes;
+        if (pending.remaining() < needed) {
+            ByteBuffer bigger = ByteBuffer.allocate(Math.max(pending.capacity() * 2, pending.position() + needed));
+            pending.flip();
+            bigger.put(pending);
+            pending = bigger;
+        }
+        int start = pending.position();
+        pending.putInt(1 + payloadBytes);
+        pending.putInt(0); // CRC, filled in by end()
+        pending.put(type);
+        return start;
+    }
+
+    private long end(int start) {
+        int bodyStart = start + HEADER_BYTES;
+        crc.reset();
+        crc.update(pending.array(), bodyStart, pending.position() - bodyStart);
+        pending.putInt(start + Integer.BYTES, (int) crc.getValue());
+        long seq = ++appendedSeq;
+        if (mode == SyncMode.EVERY_OPERATION) {
+            try {
+                writePending();
+                channel.force(false);
+                durableSeq = seq;
+            } catch (IOException e) {
+                failure = e;
+                throw new UncheckedIOException("Could not write budget journal", e);
+            }
+        } else {
+            monitor.notifyAll();
+        }
+        return seq;
+    }
+
+    // Caller holds the monitor.
+    private void writePending() throws IOException {
+        pending.flip();
+        while (pending.hasRemaining()) {
+            channel.write(pending);
+        }
+        pending.clear();
+    }
+
+    private void putDateTime(LocalDateTime dateTime) {
+        pending.putLong(dateTime.toEpochSecond(ZoneOffset.UTC));
+        pending.putInt(dateTime.getNano());
+    }
+
+    private void putString(byte[] bytes) {
+        if (bytes.length > 0xFFFF) {
+            throw new IllegalArgumentException("Name is too long to journal");
+        }
+        pending.putShort((short) bytes.length);
+        pending.put(bytes);
+    }
+
+    private void checkFailure() {
+        IOException e = failure;
+        if (e != null) {
+            throw new UncheckedIOException("Could not write budget journal", e);
+        }
+    }
+
+    // Reads the file header; returns 0 for an empty or unrecognised file.
+    private long readGeneration() throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(FILE_HEADER_BYTES);
+        channel.position(0);
+        while (header.hasRemaining() && channel.read(header) >= 0) {
+            // keep reading
+        }
+        if (header.hasRemaining()) {
+            return 0;
+        }
+        header.flip();
+        if (header.getInt() != MAGIC) {
+            throw new IOException("Not a budget journal");
+        }
+        int version = header.getInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported journal version " + version);
+        }
+        return header.getLong();
+    }
+
+    // Truncates the file to a bare header for a new generation. Caller holds the monitor or owns the journal.
+    private void startGeneration(long newGeneration) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(FILE_HEADER_BYTES);
+        header.putInt(MAGIC).putInt(VERSION).putLong(newGeneration).flip();
+        channel.truncate(0);
+        channel.position(0);
+        while (header.hasRemaining()) {
+            channel.write(header);
+        }
+        generation = newGeneration;
+    }
+
+    /**
+     * Applies every complete record to the manager.
+     * @return the file length covered by the header and valid records
+     */
+    private long replay(BudgetManager target) throws IOException {
+        Map<Integer, BudgetCategory> categories = new HashMap<>();
+        long valid = FILE_HEADER_BYTES;
+        channel.position(FILE_HEADER_BYTES);
+        InputStream in = new BufferedInputStream(Channels.newInputStream(channel), 1 << 16);
+        DataInputStream data = new DataInputStream(in);
+        byte[] body = new byte[256];
+        CRC32 check = new CRC32();
+        while (true) {
+            int length;
+            int expectedCrc;
+            try {
+                length = data.readInt();
+                expectedCrc = data.readInt();
+                if (length <= 0 || length > MAX_RECORD_BYTES) {
+                    break;
+                }
+                if (body.length < length) {
+                    body = new byte[Math.max(length, body.length * 2)];
+                }
+                data.readFully(body, 0, length);
+            } catch (EOFException e) {
+                break;
+            }
+            check.reset();
+            check.update(body, 0, length);
+            if ((int) check.getValue() != expectedCrc) {
+                break;
+            }
+            apply(ByteBuffer.wrap(body, 0, length), categories, target);
+            valid += HEADER_BYTES + length;
+        }
+        // Later records refer to categories by the ids used in this file.
+        for (Map.Entry<Integer, BudgetCategory> entry : categories.entrySet()) {
+            categoryIds.put(entry.getValue(), entry.getKey());
+            nextCategoryId = Math.max(nextCategoryId, entry.getKey() + 1);
+        }
+        return valid;
+    }
+
+    private void apply(ByteBuffer record, Map<Integer, BudgetCategory> categories, BudgetManager target) {
+        byte type = record.get();
+        switch (type) {
+            case CATEGORY_ADDED: {
+                int id = record.getInt();
+                long limit = record.getLong();
+                BudgetCategory category = BudgetCategory.ofCents(getString(record), limit);
+                categories.put(id, category);
+                nextCategoryId = Math.max(nextCategoryId, id + 1);
+                target.addCategory(category);
+                break;
+            }
+            case CATEGORY_BOUND: {
+                int id = record.getInt();
+                long limit = record.getLong();
+                String name = getString(record);
+                nextCategoryId = Math.max(nextCategoryId, id + 1);
+                for (BudgetCategory category : target.getCategories()) {
+                    if (category.getName().equals(name) && category.getLimitCents() == limit
+                            && !categories.containsValue(category)) {
+                        categories.put(id, category);
+                        break;
+                    }
+                }
+                break;
+            }
+            case CATEGORY_DELETED: {
+                BudgetCategory category = categories.remove(record.getInt());
+                if (category != null) {
+                    target.deleteCategory(category);
+                }
+                break;
+            }
+            case INCOME_ADDED: {
+                LocalDateTime dateTime = getDateTime(record);
+                long amount = record.getLong();
+                Income income = Income.ofCents(amount, dateTime, getString(record));
+                restoreId(income, record);
+                target.addIncome(income);
+                break;
+            }
+            case EXPENSE_ADDED: {
+                BudgetCategory category = categories.get(record.getInt());
+                LocalDateTime dateTime = getDateTime(record);
+                long amount = record.getLong();
+                Expense.PaymentMethod method = Expense.PaymentMethod.values()[record.get()];
+                Expense expense = Expense.ofCents(amount, dateTime, getString(record), method);
+                restoreId(expense, record);
+                if (category != null) {
+                    target.restoreExpense(expense, category);
+                }
+                break;
+            }
+            case TRANSACTION_DELETED:
+                target.deleteTransaction(record.getLong());
+                break;
+            case TRANSACTION_UPDATED:
+                target.deleteTransaction(record.getLong());
+                apply(record, categories, target);
+                break;
+            case EXPENDITURE_RESET: {
+                BudgetCategory category = categories.get(record.getInt());
+                YearMonth month = MonthlyRollups.decode(record.getInt());
+                if (category != null) {
+                    target.resetExpenditure(category, month);
+                }
+                break;
+            }
+            default:
+                throw new IllegalStateException("Unknown journal record type " + type);
+        }
+    }
+
+    private static void restoreId(Transaction transaction, ByteBuffer record) {
+        long id = record.getLong();
+        transaction.assignId(id);
+        TransactionIds.advancePast(id);
+    }
+
+    private static LocalDateTime getDateTime(ByteBuffer record) {
+        long seconds = record.getLong();
+        int nanos = record.getInt();
+        return LocalDateTime.ofEpochSecond(seconds, nanos, ZoneOffset.UTC);
+    }
+
+    private static String getString(ByteBuffer record) {
+        int length = record.getShort() & 0xFFFF;
+        String value = new String(record.array(), record.arrayOffset() + record.position(), length, StandardCharsets.UTF_8);
+        record.position(record.position() + length);
+        return value;
+    }
+}
\ No newline at end of file
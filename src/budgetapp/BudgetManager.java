@@ -1,29 +1,142 @@
 // BudgetManager.java
 package budgetapp;
 
+import java.io.IOException;
+import java.nio.file.Path;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.YearMonth;
+import java.time.ZoneId;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.stream.Collectors;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
 
 /**
  * Manages an entity's budget, including transactions and budget categories.
+ * <p>
+ * A BudgetManager may be shared between threads. Category limits are enforced
+ * with a lock-free reservation on each category, so concurrent expenses can
+ * never overshoot a limit; lists and indexes are guarded by a read/write lock.
+ * <p>
+ * Limits are monthly: each expense counts toward the limit of the month it is
+ * dated in. Per-month totals are maintained on every insert, so monthly
+ * summaries and trends cost O(months) rather than a scan of the transactions.
+ * Categories may add rolling limits over any number of days, optionally per
+ * payment method ({@link #addWindowLimit}).
+ * <p>
+ * Every transaction can be found, replaced or deleted by its id
+ * ({@link Transaction#getId()}) through a primitive-keyed index.
+ * <p>
+ * Results of {@link #getExpensesByCategory} and {@link #getExpensesAboveAmount}
+ * are cached until the expenses they cover change; see {@link #getQueryCacheStats()}.
+ * <p>
+ * Income sources and expense categories can be searched by prefix or by
+ * words ({@link #searchIncomes}, {@link #searchExpenses}) through an index
+ * that is built by the first search and updated on every change after it.
+ * <p>
+ * Changes, spending thresholds and limit rejections can be observed through
+ * a {@link BudgetEventBus}, which delivers them without blocking ingest.
+ * <p>
+ * A manager loaded with {@link BudgetSnapshot#load} keeps the snapshot's
+ * transactions in the mapped file; only transactions added since loading are
+ * held in the lists and indexes, and queries combine the two.
+ * <p>
+ * With tiered storage enabled ({@link #enableTieredStorage}), the
+ * transactions of closed months are moved out of the lists and indexes into
+ * compact segment files, and queries read them back transparently.
  */
 public class BudgetManager {
-    // Using HashMap to associate categories with expenses for efficient retrieval,
-    // and ArrayList for income to maintain order and allow sorting.
+    // Using ConcurrentHashMap to associate categories with expenses for efficient retrieval.
+    // Each expense list and the income list are kept in date order.
     private Map<BudgetCategory, List<Expense>> expenses;
     private List<Income> incomes;
+    // Every income and expense ordered by date and time, for range queries.
+    private TransactionTimeline timeline;
+    // Every expense ordered by effective amount, for threshold queries.
+    private ExpenseAmountIndex amountIndex;
+    // Spend per (category, month) and income per (source, month).
+    private MonthlyRollups rollups;
+    // In-memory transactions by id; snapshot rows are found through the snapshot's id order.
+    private final TransactionIdIndex ids;
+    // Results of category and threshold queries, invalidated by expense changes.
+    private final QueryCache queryCache;
+    // Name, month and amount postings for text search; built by the first search, then kept up to date.
+    private TextIndex textIndex;
+    // Guards the expense lists, the income list and the indexes.
+    private final ReadWriteLock lock;
+    // This manager's categories by name id (see SymbolTable); written under the write lock, read without it.
+    private final Map<Integer, BudgetCategory> categoriesByName = new ConcurrentHashMap<>();
+    // Categories removed by deleteCategory, so that an expense reserved before the delete does not
+    // bring one back; guarded by the write lock. Categories never added are registered by their first expense.
+    private final Set<BudgetCategory> deletedCategories = Collections.newSetFromMap(new IdentityHashMap<>());
+    // Optional write-ahead journal; records are appended under the write lock.
+    private volatile BudgetJournal journal;
+    // Optional event bus; events are published under the write lock, so it has one producer at a time.
+    private volatile BudgetEventBus events;
+    // Keys of the non-category runs merged by streaming queries.
+    private static final Object INCOME_RUN = new Object();
+    private static final Object SNAPSHOT_RUN = new Object();
+    private static final Object SEALED_RUN = new Object();
+    // How long an insert waits before retrying an automatic seal that failed.
+    private static final long SEAL_RETRY_MILLIS = 60_000;
+    // Transactions loaded from a snapshot file, or null.
+    private MappedSnapshot snapshot;
+    // Transactions of sealed months, or null if tiered storage is off.
+    private TieredStore tiers;
+    // When the current month ends and closed months are next sealed, in epoch milliseconds.
+    private volatile long nextSealMillis = Long.MAX_VALUE;
+    // Why the last automatic seal failed, or null if it did not.
+    private volatile IOException sealFailure;
+    // Latency, result-size and rejection metrics of the public operations.
+    private final BudgetMetrics metrics;
 
     /**
      * Constructs a BudgetManager with no transactions or categories.
      */
     public BudgetManager() {
-        expenses = new HashMap<>();
+        this(new BudgetMetrics());
+    }
+
+    /**
+     * Constructs a BudgetManager that records into shared metrics, so that
+     * many small managers (e.g. the tenants of a BudgetEngine) do not each
+     * carry their own histograms.
+     * @param metrics the metrics to record into
+     */
+    BudgetManager(BudgetMetrics metrics) {
+        expenses = new ConcurrentHashMap<>();
         incomes = new ArrayList<>();
+        timeline = new TransactionTimeline();
+        amountIndex = new ExpenseAmountIndex();
+        rollups = new MonthlyRollups();
+        ids = new TransactionIdIndex();
+        queryCache = new QueryCache();
+        lock = new ReentrantReadWriteLock();
+        this.metrics = metrics;
+    }
+
+    /**
+     * Constructs a BudgetManager over a loaded snapshot.
+     * @param snapshot the snapshot's categories and transactions
+     * @param rollups the snapshot's monthly totals
+     */
+    BudgetManager(MappedSnapshot snapshot, MonthlyRollups rollups) {
+        this();
+        this.snapshot = snapshot;
+        this.rollups = rollups;
+        for (BudgetCategory category : snapshot.getCategories()) {
+            expenseList(category);
+        }
     }
 
     /**
@@ -33,7 +146,22 @@ public class BudgetManager {
      */
     public void addCategory(BudgetCategory category) {
         if (category == null) throw new IllegalArgumentException("Category cannot be null");
-        expenses.putIfAbsent(category, new ArrayList<>());
+        long start = BudgetMetrics.start();
+        long seq = 0;
+        lock.writeLock().lock();
+        try {
+            deletedCategories.remove(category);
+            if (!expenses.containsKey(category)) {
+                expenseList(category);
+                if (journal != null) {
+                    seq = journal.logCategoryAdded(category);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        awaitJournal(seq);
+        metrics.record(BudgetMetrics.Operation.ADD_CATEGORY, start);
     }
 
     /**
@@ -41,7 +169,134 @@ public class BudgetManager {
      * @param category the category to delete
      */
     public void deleteCategory(BudgetCategory category) {
-        expenses.remove(category);
+        if (category == null) return;
+        long start = BudgetMetrics.start();
+        long seq = 0;
+        lock.writeLock().lock();
+        try {
+            List<Expense> removed = expenses.remove(category);
+            if (removed != null) {
+                deletedCategories.add(category);
+                unindexName(category);
+                queryCache.deleted(category);
+                // The category's snapshot and sealed rows are not enumerated here; the next search rebuilds the index.
+                textIndex = null;
+                timeline.removeAll(removed);
+                amountIndex.removeAll(removed);
+                for (Expense expense : removed) {
+                    ids.remove(expense.getId());
+                }
+                rollups.removeCategory(category);
+                if (snapshot != null) {
+                    snapshot.hide(category);
+                }
+                if (tiers != null) {
+                    tiers.hide(category);
+                }
+                if (journal != null) {
+                    seq = journal.logCategoryDeleted(category);
+                }
+                if (events != null) {
+                    events.categoryDeleted(category);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        awaitJournal(seq);
+        metrics.record(BudgetMetrics.Operation.DELETE_CATEGORY, start);
+    }
+
+    /**
+     * Resets a category's expenditure for the current month to zero. The
+     * monthly totals used for reports are not affected.
+     * @param category the category to reset
+     * @throws IllegalArgumentException if category is null
+     */
+    public void resetExpenditure(BudgetCategory category) {
+        resetExpenditure(category, YearMonth.now());
+    }
+
+    /**
+     * Resets a category's expenditure for a month to zero. The monthly totals
+     * used for reports are not affected.
+     * @param category the category to reset
+     * @param month the month to reset
+     * @throws IllegalArgumentException if category or month is null
+     */
+    public void resetExpenditure(BudgetCategory category, YearMonth month) {
+        if (category == null) throw new IllegalArgumentException("Category cannot be null");
+        if (month == null) throw new IllegalArgumentException("Month cannot be null");
+        long seq = 0;
+        lock.writeLock().lock();
+        try {
+            category.resetExpenditure(month);
+            if (journal != null) {
+                seq = journal.logExpenditureReset(category, month);
+            }
+            if (events != null) {
+                events.expenditureReset(category, month);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        awaitJournal(seq);
+    }
+
+    /**
+     * Adds a rolling limit to a category, e.g. no more than an amount in any
+     * seven days, or a daily cap on card payments. The window starts out
+     * holding the category's expenses in the days up to its latest expense,
+     * and every later expense is checked against it in O(1); a back-dated
+     * one is checked against every window containing its day. Expenses
+     * reserve rolling limits under the manager's write lock, as this method
+     * seeds the window, so an expense being added meanwhile is counted once.
+     * <p>
+     * Rolling limits are not journaled or saved in snapshots; add them again
+     * after loading a budget.
+     * @param category the budget category
+     * @param limit the limit to add
+     * @return false if the category already has an equal limit
+     * @throws IllegalArgumentException if category or limit is null
+     */
+    public boolean addWindowLimit(BudgetCategory category, WindowLimit limit) {
+        if (category == null) throw new IllegalArgumentException("Category cannot be null");
+        if (limit == null) throw new IllegalArgumentException("Window limit cannot be null");
+        lock.writeLock().lock();
+        try {
+            SpendWindow window = new SpendWindow(limit);
+            List<Expense> recent = getExpensesByCategory(category);
+            if (!recent.isEmpty()) {
+                // Only the expenses within the days the window holds before the latest one count.
+                long latest = recent.get(recent.size() - 1).getDateTime().toLocalDate().toEpochDay();
+                long before = latest - SpendWindow.span(limit);
+                int from = recent.size();
+                while (from > 0 && recent.get(from - 1).getDateTime().toLocalDate().toEpochDay() > before) {
+                    from--;
+                }
+                for (Expense expense : recent.subList(from, recent.size())) {
+                    if (limit.counts(expense.getPaymentMethod())) {
+                        window.add(expense.getDateTime().toLocalDate().toEpochDay(), -expense.getEffectiveAmountCents());
+                    }
+                }
+            }
+            return category.addWindow(window);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes a rolling limit from a category.
+     * @param category the budget category
+     * @param limit the limit to remove
+     * @return false if the category has no such limit
+     * @throws IllegalArgumentException if category or limit is null
+     */
+    public boolean removeWindowLimit(BudgetCategory category, WindowLimit limit) {
+        if (category == null) throw new IllegalArgumentException("Category cannot be null");
+        if (limit == null) throw new IllegalArgumentException("Window limit cannot be null");
+        return category.removeWindow(limit);
     }
 
     /**
@@ -51,25 +306,339 @@ public class BudgetManager {
      */
     public void addIncome(Income income) {
         if (income == null) throw new IllegalArgumentException("Income cannot be null");
-        incomes.add(income);
+        long start = BudgetMetrics.start();
+        long seq = 0;
+        lock.writeLock().lock();
+        try {
+            indexIncome(income);
+            if (journal != null) {
+                seq = journal.logIncome(income);
+            }
+            if (events != null) {
+                events.transactionAdded(income, null);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        awaitJournal(seq);
+        sealIfMonthEnded();
+        metrics.record(BudgetMetrics.Operation.ADD_INCOME, start);
     }
 
     /**
-     * Adds an expense to a category.
+     * Adds a batch of income transactions in one step.
+     * @param batch the incomes to add, in order
+     * @throws IllegalArgumentException if batch or any income is null
+     */
+    public void addIncomes(List<Income> batch) {
+        if (batch == null) throw new IllegalArgumentException("Incomes cannot be null");
+        for (Income income : batch) {
+            if (income == null) throw new IllegalArgumentException("Income cannot be null");
+        }
+        long start = BudgetMetrics.start();
+        long seq = 0;
+        lock.writeLock().lock();
+        try {
+            for (Income income : batch) {
+                indexIncome(income);
+                if (journal != null) {
+                    seq = journal.logIncome(income);
+                }
+                if (events != null) {
+                    events.transactionAdded(income, null);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        awaitJournal(seq);
+        sealIfMonthEnded();
+        metrics.record(BudgetMetrics.Operation.ADD_INCOMES, start);
+    }
+
+    /**
+     * Adds an expense to a category. A category that was never added is added
+     * by its first expense; one removed by {@link #deleteCategory} is not.
      * @param expense the expense to add
      * @param category the budget category
-     * @throws MonthlyLimitException if adding expense exceeds category limit
-     * @throws IllegalArgumentException if expense or category is null
+     * @throws MonthlyLimitException if adding expense exceeds the category limit for its month
+     * @throws WindowLimitException if adding expense exceeds one of the category's rolling limits
+     * @throws IllegalArgumentException if expense or category is null, or the category has been
+     *         deleted
      */
     public void addExpense(Expense expense, BudgetCategory category) throws MonthlyLimitException {
         if (expense == null) throw new IllegalArgumentException("Expense cannot be null");
         if (category == null) throw new IllegalArgumentException("Category cannot be null");
-        double newSpent = category.getSpentSoFar() + Math.abs(expense.getEffectiveAmount());
-        if (newSpent > category.getLimit()) {
-            throw new MonthlyLimitException("Expense exceeds monthly limit for " + category.getName());
+        long start = BudgetMetrics.start();
+        long cost = -expense.getEffectiveAmountCents();
+        // Check and add in one atomic step, outside the lock.
+        YearMonth month = YearMonth.from(expense.getDateTime());
+        long spent = category.reserve(month, cost);
+        if (spent < 0) {
+            metrics.recordRejection(category);
+            publishRejection(expense, category, month, cost);
+            metrics.record(BudgetMetrics.Operation.ADD_EXPENSE, start);
+            throw new MonthlyLimitException("Expense exceeds monthly limit for " + category.getName() + " in " + month);
+        }
+        long seq = 0;
+        lock.writeLock().lock();
+        try {
+            if (deletedCategories.contains(category)) {
+                // Deleted before or while the reservation was made; do not bring it back.
+                category.release(month, cost);
+                metrics.record(BudgetMetrics.Operation.ADD_EXPENSE, start);
+                throw new IllegalArgumentException("Category has been deleted: " + category.getName());
+            }
+            // Rolling limits are reserved under the lock, so a limit added meanwhile is seeded
+            // either with this expense or before it and never misses it.
+            try {
+                category.reserveWindows(expense);
+            } catch (WindowLimitException e) {
+                category.release(month, cost);
+                metrics.recordRejection(category);
+                if (events != null) {
+                    events.windowRejected(expense, category, month, cost, e);
+                }
+                metrics.record(BudgetMetrics.Operation.ADD_EXPENSE, start);
+                throw e;
+            }
+            indexExpense(expense, category);
+            if (journal != null) {
+                seq = journal.logExpense(expense, category);
+            }
+            if (events != null) {
+                events.spendReserved(category, month, spent - cost, spent);
+                events.transactionAdded(expense, category);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        awaitJournal(seq);
+        sealIfMonthEnded();
+        metrics.record(BudgetMetrics.Operation.ADD_EXPENSE, start);
+    }
+
+    /**
+     * Adds a batch of expenses to one category. The limit is checked once per
+     * month for the batch total of that month, and rolling limits expense by
+     * expense in batch order, so either every expense is added or none is. As
+     * with {@link #addExpense}, a category that was never added is added.
+     * @param batch the expenses to add, in order
+     * @param category the budget category
+     * @throws MonthlyLimitException if the batch total for any month exceeds the category limit
+     * @throws WindowLimitException if the batch exceeds one of the category's rolling limits
+     * @throws IllegalArgumentException if batch, any expense or category is null, or the category
+     *         has been deleted
+     */
+    public void addExpenses(List<Expense> batch, BudgetCategory category) throws MonthlyLimitException {
+        if (batch == null) throw new IllegalArgumentException("Expenses cannot be null");
+        if (category == null) throw new IllegalArgumentException("Category cannot be null");
+        for (Expense expense : batch) {
+            if (expense == null) throw new IllegalArgumentException("Expense cannot be null");
+        }
+        long start = BudgetMetrics.start();
+        Map<YearMonth, Long> totals = new TreeMap<>();
+        for (Expense expense : batch) {
+            totals.merge(YearMonth.from(expense.getDateTime()), -expense.getEffectiveAmountCents(), Math::addExact);
+        }
+        // Each reserved month's expenditure right after its reservation.
+        Map<YearMonth, Long> reserved = new TreeMap<>();
+        for (Map.Entry<YearMonth, Long> total : totals.entrySet()) {
+            long spent = category.reserve(total.getKey(), total.getValue());
+            if (spent < 0) {
+                for (YearMonth month : reserved.keySet()) {
+                    category.release(month, totals.get(month));
+                }
+                metrics.recordRejection(category);
+                publishRejection(null, category, total.getKey(), total.getValue());
+                metrics.record(BudgetMetrics.Operation.ADD_EXPENSES, start);
+                throw new MonthlyLimitException("Expenses exceed monthly limit for " + category.getName() + " in " + total.getKey());
+            }
+            reserved.put(total.getKey(), spent);
+        }
+        long seq = 0;
+        lock.writeLock().lock();
+        try {
+            if (deletedCategories.contains(category)) {
+                // Deleted before or while the reservations were made; do not bring it back.
+                for (YearMonth month : reserved.keySet()) {
+                    category.release(month, totals.get(month));
+                }
+                metrics.record(BudgetMetrics.Operation.ADD_EXPENSES, start);
+                throw new IllegalArgumentException("Category has been deleted: " + category.getName());
+            }
+            // Under the lock, as in addExpense, so a rolling limit added meanwhile cannot miss the batch.
+            try {
+                category.reserveWindows(batch);
+            } catch (WindowLimitException e) {
+                for (YearMonth month : reserved.keySet()) {
+                    category.release(month, totals.get(month));
+                }
+                metrics.recordRejection(category);
+                if (events != null) {
+                    long batchCost = totals.values().stream().mapToLong(Long::longValue).sum();
+                    events.windowRejected(null, category, totals.keySet().iterator().next(), batchCost, e);
+                }
+                metrics.record(BudgetMetrics.Operation.ADD_EXPENSES, start);
+                throw e;
+            }
+            if (events != null) {
+                for (Map.Entry<YearMonth, Long> spent : reserved.entrySet()) {
+                    long total = totals.get(spent.getKey());
+                    events.spendReserved(category, spent.getKey(), spent.getValue() - total, spent.getValue());
+                }
+            }
+            for (Expense expense : batch) {
+                indexExpense(expense, category);
+                if (journal != null) {
+                    seq = journal.logExpense(expense, category);
+                }
+                if (events != null) {
+                    events.transactionAdded(expense, category);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        awaitJournal(seq);
+        sealIfMonthEnded();
+        metrics.record(BudgetMetrics.Operation.ADD_EXPENSES, start);
+    }
+
+    /**
+     * Adds an expense that was already accepted earlier, e.g. when replaying a
+     * journal. The spend is added to the category without a limit check.
+     * @param expense the expense to restore
+     * @param category the budget category
+     */
+    void restoreExpense(Expense expense, BudgetCategory category) {
+        category.addExpenseCents(YearMonth.from(expense.getDateTime()), -expense.getEffectiveAmountCents());
+        lock.writeLock().lock();
+        try {
+            category.addWindows(expense);
+            indexExpense(expense, category);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Gets a transaction by id.
+     * @param id the transaction id
+     * @return the transaction, or null if there is none with that id
+     */
+    public Transaction getById(long id) {
+        lock.readLock().lock();
+        try {
+            return find(id);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Deletes a transaction by id. A deleted expense no longer counts toward
+     * its category's limits or the monthly totals.
+     * @param id the transaction id
+     * @return true if the transaction existed and was deleted
+     */
+    public boolean deleteTransaction(long id) {
+        long start = BudgetMetrics.start();
+        long seq = 0;
+        lock.writeLock().lock();
+        try {
+            Located found = locate(id);
+            if (found == null) {
+                metrics.record(BudgetMetrics.Operation.DELETE_TRANSACTION, start);
+                return false;
+            }
+            unlink(found);
+            if (found.category != null) {
+                Expense expense = (Expense) found.transaction;
+                found.category.release(YearMonth.from(expense.getDateTime()), -expense.getEffectiveAmountCents());
+                found.category.releaseWindows(expense);
+            }
+            if (journal != null) {
+                seq = journal.logTransactionDeleted(id);
+            }
+            if (events != null) {
+                events.transactionDeleted(found.transaction, found.category);
+            }
+        } finally {
+            lock.writeLock().unlock();
         }
-        category.addExpense(Math.abs(expense.getEffectiveAmount()));
-        expenses.computeIfAbsent(category, k -> new ArrayList<>()).add(expense);
+        awaitJournal(seq);
+        metrics.record(BudgetMetrics.Operation.DELETE_TRANSACTION, start);
+        return true;
+    }
+
+    /**
+     * Replaces a transaction with another of the same kind, keeping its id.
+     * A replacement expense goes to the old expense's category if it has the
+     * same category name, and otherwise to the category named by the
+     * replacement. The limit is checked against the month and category the
+     * replacement counts toward, after taking the old expense out.
+     * @param id the id of the transaction to replace
+     * @param replacement the new income or expense; it takes over the id
+     * @return true if the transaction existed and was replaced
+     * @throws MonthlyLimitException if the replacement expense exceeds its category's monthly or rolling limits
+     * @throws IllegalArgumentException if replacement is null, of the other kind, already in the
+     *         budget, or names a category that does not exist
+     */
+    public boolean updateTransaction(long id, Transaction replacement) throws MonthlyLimitException {
+        if (replacement == null) throw new IllegalArgumentException("Replacement cannot be null");
+        long start = BudgetMetrics.start();
+        try {
+            return replace(id, replacement);
+        } finally {
+            // Rejected replacements are timed too, like rejected adds.
+            metrics.record(BudgetMetrics.Operation.UPDATE_TRANSACTION, start);
+        }
+    }
+
+    // Does the work of updateTransaction.
+    private boolean replace(long id, Transaction replacement) throws MonthlyLimitException {
+        long seq = 0;
+        lock.writeLock().lock();
+        try {
+            Located found = locate(id);
+            if (found == null) {
+                return false;
+            }
+            if ((found.transaction instanceof Expense) != (replacement instanceof Expense)) {
+                throw new IllegalArgumentException("Replacement must be the same kind of transaction");
+            }
+            if (ids.get(replacement.getId()) == replacement) {
+                throw new IllegalArgumentException("Replacement is already in the budget");
+            }
+            BudgetCategory category = null;
+            if (replacement instanceof Expense) {
+                Expense expense = (Expense) replacement;
+                category = found.category != null && found.category.getNameId() == expense.getCategoryId()
+                        ? found.category : getCategory(expense.getCategoryId());
+                if (category == null) {
+                    throw new IllegalArgumentException("Unknown category: " + expense.getCategory());
+                }
+                reserveReplacement((Expense) found.transaction, found.category, expense, category);
+            }
+            unlink(found);
+            replacement.assignId(id);
+            if (category != null) {
+                indexExpense((Expense) replacement, category);
+            } else {
+                indexIncome((Income) replacement);
+            }
+            if (journal != null) {
+                seq = journal.logTransactionUpdated(id, replacement, category);
+            }
+            if (events != null) {
+                events.transactionUpdated(replacement, category);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        awaitJournal(seq);
+        return true;
     }
 
     /**
@@ -81,49 +650,1098 @@ public class BudgetManager {
     }
 
     /**
-     * Gets expenses for a category.
+     * Gets a category by name in O(1). If several categories share the name,
+     * one of them is returned.
+     * @param name the category name
+     * @return the category, or null if there is none with that name
+     */
+    public BudgetCategory getCategory(String name) {
+        return getCategory(SymbolTable.find(name));
+    }
+
+    /**
+     * Gets a category by the SymbolTable id of its name.
+     * @param nameId the name id, or -1
+     * @return the category, or null if there is none with that name
+     */
+    BudgetCategory getCategory(int nameId) {
+        return nameId < 0 ? null : categoriesByName.get(nameId);
+    }
+
+    // Gets a category's expense list, adding the category if it is new. Call with the write lock held.
+    private List<Expense> expenseList(BudgetCategory category) {
+        List<Expense> list = expenses.get(category);
+        if (list == null) {
+            list = new ArrayList<>();
+            expenses.put(category, list);
+            categoriesByName.putIfAbsent(category.getNameId(), category);
+        }
+        return list;
+    }
+
+    // Drops a deleted category from the name index, falling back to another category of the same name.
+    private void unindexName(BudgetCategory category) {
+        int id = category.getNameId();
+        if (categoriesByName.remove(id, category)) {
+            for (BudgetCategory other : expenses.keySet()) {
+                if (other.getNameId() == id) {
+                    categoriesByName.put(id, other);
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Gets expenses for a category. Repeated calls return the cached result
+     * until the category's expenses change.
      * @param category the budget category
-     * @return sorted list of expenses
+     * @return unmodifiable sorted list of expenses
      */
     public List<Expense> getExpensesByCategory(BudgetCategory category) {
-        return expenses.getOrDefault(category, new ArrayList<>()).stream()
-                .sorted()
-                .collect(Collectors.toList());
+        long start = BudgetMetrics.start();
+        List<Expense> result;
+        lock.readLock().lock();
+        try {
+            List<Expense> list = category == null ? null : expenses.get(category);
+            if (list == null) {
+                result = Collections.emptyList();
+            } else {
+                result = queryCache.byCategory(category);
+                if (result == null) {
+                    result = new ArrayList<>(list);
+                    if (tiers != null) {
+                        List<Expense> sealed = new ArrayList<>();
+                        tiers.collectCategory(category, sealed);
+                        result = mergeByDate(sealed, result);
+                    }
+                    if (snapshot != null) {
+                        List<Expense> mapped = new ArrayList<>();
+                        snapshot.collectCategory(category, mapped);
+                        result = mergeByDate(mapped, result);
+                    }
+                    // Writers are locked out, so the result matches the cache's current versions.
+                    result = queryCache.putByCategory(category, result);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        metrics.record(BudgetMetrics.Operation.GET_EXPENSES_BY_CATEGORY, start, result.size());
+        return result;
     }
 
     /**
-     * Gets expenses exceeding a specified amount.
-     * @param amount the threshold amount
-     * @return sorted list of expenses
+     * Gets expenses exceeding a specified amount. Repeated calls with the same
+     * amount return the cached result until any expense changes.
+     * @param amount the threshold amount, rounded to the nearest cent
+     * @return unmodifiable sorted list of expenses
      */
     public List<Expense> getExpensesAboveAmount(double amount) {
-        List<Expense> result = new ArrayList<>();
-        for (List<Expense> expenseList : expenses.values()) {
-            for (Expense e : expenseList) {
-                if (Math.abs(e.getEffectiveAmount()) > amount) {
-                    result.add(e);
+        long start = BudgetMetrics.start();
+        long threshold = Money.ofMajor(amount);
+        List<Expense> result;
+        lock.readLock().lock();
+        try {
+            result = queryCache.above(threshold);
+            if (result == null) {
+                result = amountIndex.above(threshold);
+                if (tiers != null) {
+                    List<Expense> sealed = new ArrayList<>();
+                    tiers.collectAmountRange(threshold + 1, Long.MAX_VALUE, sealed);
+                    result = mergeByDate(sealed, result);
                 }
+                if (snapshot != null) {
+                    List<Expense> mapped = new ArrayList<>();
+                    snapshot.collectAmountRange(threshold + 1, Long.MAX_VALUE, mapped);
+                    result = mergeByDate(mapped, result);
+                }
+                result = queryCache.putAbove(threshold, result);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        metrics.record(BudgetMetrics.Operation.GET_EXPENSES_ABOVE_AMOUNT, start, result.size());
+        return result;
+    }
+
+    /**
+     * Gets expenses whose effective amount lies within a range.
+     * @param minAmount the lowest amount (inclusive)
+     * @param maxAmount the highest amount (inclusive)
+     * @return sorted list of expenses
+     */
+    public List<Expense> getExpensesBetweenAmounts(double minAmount, double maxAmount) {
+        long min = Money.ofMajor(minAmount);
+        long max = Money.ofMajor(maxAmount);
+        lock.readLock().lock();
+        try {
+            List<Expense> hot = amountIndex.between(min, max);
+            if (tiers != null) {
+                List<Expense> sealed = new ArrayList<>();
+                tiers.collectAmountRange(min, max, sealed);
+                hot = mergeByDate(sealed, hot);
+            }
+            if (snapshot == null) {
+                return hot;
+            }
+            List<Expense> mapped = new ArrayList<>();
+            snapshot.collectAmountRange(min, max, mapped);
+            return mergeByDate(mapped, hot);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Gets the largest expenses by effective amount.
+     * @param n the maximum number of expenses to return
+     * @return list of expenses, largest first
+     * @throws IllegalArgumentException if n is negative
+     */
+    public List<Expense> getTopExpenses(int n) {
+        if (n < 0) throw new IllegalArgumentException("Count cannot be negative");
+        lock.readLock().lock();
+        try {
+            List<Expense> hot = amountIndex.top(n);
+            if (tiers != null) {
+                List<Expense> sealed = new ArrayList<>();
+                tiers.collectTop(n, sealed);
+                hot = mergeLargest(sealed, hot, n);
+            }
+            if (snapshot == null) {
+                return hot;
             }
+            List<Expense> mapped = new ArrayList<>();
+            snapshot.collectTop(n, mapped);
+            return mergeLargest(mapped, hot, n);
+        } finally {
+            lock.readLock().unlock();
         }
-        return result.stream().sorted().collect(Collectors.toList());
     }
 
     /**
      * Gets transactions within a date range.
-     * @param startDate the start date
-     * @param endDate the end date
+     * @param startDate the start date (inclusive)
+     * @param endDate the end date (inclusive)
      * @return sorted list of transactions
+     * @throws IllegalArgumentException if startDate or endDate is null
      */
     public List<Transaction> getTransactionsByDateRange(LocalDate startDate, LocalDate endDate) {
-        List<Transaction> result = new ArrayList<>();
-        result.addAll(incomes.stream()
-                .filter(i -> !i.getDateTime().toLocalDate().isBefore(startDate) &&
-                             !i.getDateTime().toLocalDate().isAfter(endDate))
-                .collect(Collectors.toList()));
-        expenses.values().forEach(list -> result.addAll(list.stream()
-                .filter(e -> !e.getDateTime().toLocalDate().isBefore(startDate) &&
-                             !e.getDateTime().toLocalDate().isAfter(endDate))
-                .collect(Collectors.toList())));
-        return result.stream().sorted().collect(Collectors.toList());
+        if (startDate == null || endDate == null) {
+            throw new IllegalArgumentException("Start and end dates cannot be null");
+        }
+        long start = BudgetMetrics.start();
+        List<Transaction> result;
+        lock.readLock().lock();
+        try {
+            result = between(startDate.atStartOfDay(), endDate.atTime(LocalTime.MAX));
+        } finally {
+            lock.readLock().unlock();
+        }
+        metrics.record(BudgetMetrics.Operation.GET_TRANSACTIONS_BY_DATE_RANGE, start, result.size());
+        return result;
+    }
+
+    /**
+     * Streams the expenses of a category lazily, in date order. Expenses are
+     * read in small chunks as the stream is consumed, so {@code skip} and
+     * {@code limit} page through a large category without copying or sorting
+     * it. The stream is weakly consistent with concurrent changes.
+     * @param category the budget category
+     * @return stream of expenses sorted by date and time
+     */
+    public Stream<Expense> streamExpensesByCategory(BudgetCategory category) {
+        return new TransactionCursor<Expense>(lock.readLock(), () -> {
+            List<TransactionCursor.Run<? extends Expense>> runs = new ArrayList<>(2);
+            List<Expense> list = category == null ? null : expenses.get(category);
+            if (list != null) {
+                // Snapshot rows first, so ties are ordered as in getExpensesByCategory.
+                if (snapshot != null) {
+                    runs.add(snapshot.categoryRun(SNAPSHOT_RUN, category));
+                }
+                if (tiers != null) {
+                    runs.add(tiers.categoryRun(SEALED_RUN, category));
+                }
+                runs.add(new TransactionCursor.ListRun<>(category, list, null));
+            }
+            return runs;
+        }, LocalDateTime.MIN, LocalDateTime.MAX).stream();
+    }
+
+    /**
+     * Streams expenses exceeding a specified amount lazily, in date order, by
+     * merging the date-ordered expense lists of all categories. See
+     * {@link #streamExpensesByCategory} for paging and consistency.
+     * @param amount the threshold amount, rounded to the nearest cent
+     * @return stream of expenses sorted by date and time
+     */
+    public Stream<Expense> streamExpensesAboveAmount(double amount) {
+        long threshold = Money.ofMajor(amount);
+        return new TransactionCursor<Expense>(lock.readLock(), () -> {
+            List<TransactionCursor.Run<? extends Expense>> runs = new ArrayList<>(expenses.size() + 1);
+            if (snapshot != null) {
+                MappedSnapshot mapped = snapshot;
+                runs.add(mapped.<Expense>run(SNAPSHOT_RUN,
+                        row -> mapped.method(row) >= 0 && mapped.effectiveCents(row) > threshold));
+            }
+            if (tiers != null) {
+                runs.add(tiers.<Expense>run(SEALED_RUN, true, threshold + 1));
+            }
+            for (Map.Entry<BudgetCategory, List<Expense>> entry : expenses.entrySet()) {
+                runs.add(new TransactionCursor.ListRun<>(entry.getKey(), entry.getValue(),
+                        e -> -e.getEffectiveAmountCents() > threshold));
+            }
+            return runs;
+        }, LocalDateTime.MIN, LocalDateTime.MAX).stream();
+    }
+
+    /**
+     * Streams transactions within a date range lazily, in date order, by
+     * merging the income list with the date-ordered expense lists of all
+     * categories. See {@link #streamExpensesByCategory} for paging and consistency.
+     * @param startDate the start date (inclusive)
+     * @param endDate the end date (inclusive)
+     * @return stream of transactions sorted by date and time
+     * @throws IllegalArgumentException if startDate or endDate is null
+     */
+    public Stream<Transaction> streamTransactionsByDateRange(LocalDate startDate, LocalDate endDate) {
+        if (startDate == null || endDate == null) {
+            throw new IllegalArgumentException("Start and end dates cannot be null");
+        }
+        return new TransactionCursor<Transaction>(lock.readLock(), () -> {
+            List<TransactionCursor.Run<? extends Transaction>> runs = new ArrayList<>(expenses.size() + 2);
+            if (snapshot != null) {
+                runs.add(snapshot.<Transaction>run(SNAPSHOT_RUN, null));
+            }
+            if (tiers != null) {
+                runs.add(tiers.<Transaction>run(SEALED_RUN, false, Long.MIN_VALUE));
+            }
+            runs.add(new TransactionCursor.ListRun<>(INCOME_RUN, incomes, null));
+            for (Map.Entry<BudgetCategory, List<Expense>> entry : expenses.entrySet()) {
+                runs.add(new TransactionCursor.ListRun<>(entry.getKey(), entry.getValue(), null));
+            }
+            return runs;
+        }, startDate.atStartOfDay(), endDate.atTime(LocalTime.MAX)).stream();
+    }
+
+    /**
+     * Searches income sources by prefix or words, e.g. every income from a
+     * source starting with "Freel", optionally within date and amount ranges.
+     * The sources, months and amount ranges are matched through posting lists
+     * of transaction ids, which are intersected rather than scanning the
+     * transactions. The index is built by the first search.
+     * @param query the search
+     * @return unmodifiable list of matching incomes in date order
+     * @throws IllegalArgumentException if query is null
+     */
+    public List<Income> searchIncomes(SearchQuery query) {
+        return search(query, false, Income.class, BudgetMetrics.Operation.SEARCH_INCOMES);
+    }
+
+    /**
+     * Searches expense categories by prefix or words, optionally within date
+     * and amount ranges. Amounts are compared with the effective amount,
+     * including fees. See {@link #searchIncomes}.
+     * @param query the search
+     * @return unmodifiable list of matching expenses in date order
+     * @throws IllegalArgumentException if query is null
+     */
+    public List<Expense> searchExpenses(SearchQuery query) {
+        return search(query, true, Expense.class, BudgetMetrics.Operation.SEARCH_EXPENSES);
+    }
+
+    /**
+     * Gets a category's spending in one month.
+     * @param category the budget category
+     * @param month the month
+     * @return the month's total, count and fees
+     * @throws IllegalArgumentException if category or month is null
+     */
+    public MonthlyTotal getMonthlySpending(BudgetCategory category, YearMonth month) {
+        if (category == null) throw new IllegalArgumentException("Category cannot be null");
+        if (month == null) throw new IllegalArgumentException("Month cannot be null");
+        lock.readLock().lock();
+        try {
+            return rollups.expenseTotal(category, month);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Gets the spending of every category with expenses in a month.
+     * @param month the month
+     * @return map of category to the month's total
+     * @throws IllegalArgumentException if month is null
+     */
+    public Map<BudgetCategory, MonthlyTotal> getMonthlySummary(YearMonth month) {
+        if (month == null) throw new IllegalArgumentException("Month cannot be null");
+        lock.readLock().lock();
+        try {
+            return rollups.expensesIn(month);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Gets the income of every source with income in a month.
+     * @param month the month
+     * @return map of source to the month's total
+     * @throws IllegalArgumentException if month is null
+     */
+    public Map<String, MonthlyTotal> getMonthlyIncome(YearMonth month) {
+        if (month == null) throw new IllegalArgumentException("Month cannot be null");
+        lock.readLock().lock();
+        try {
+            return rollups.incomeIn(month);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Gets a category's spending for each month in a range.
+     * @param category the budget category
+     * @param from the first month (inclusive)
+     * @param to the last month (inclusive)
+     * @return one total per month, including months without expenses
+     * @throws IllegalArgumentException if any argument is null or from is after to
+     */
+    public List<MonthlyTotal> getSpendingTrend(BudgetCategory category, YearMonth from, YearMonth to) {
+        if (category == null) throw new IllegalArgumentException("Category cannot be null");
+        checkMonths(from, to);
+        lock.readLock().lock();
+        try {
+            return rollups.expenseTrend(category, from, to);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Gets the income from a source for each month in a range.
+     * @param source the income source
+     * @param from the first month (inclusive)
+     * @param to the last month (inclusive)
+     * @return one total per month, including months without income
+     * @throws IllegalArgumentException if any argument is null or from is after to
+     */
+    public List<MonthlyTotal> getIncomeTrend(String source, YearMonth from, YearMonth to) {
+        if (source == null) throw new IllegalArgumentException("Source cannot be null");
+        checkMonths(from, to);
+        lock.readLock().lock();
+        try {
+            return rollups.incomeTrend(source, from, to);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Copies all transactions, in date order, into a columnar store.
+     * @return a new store holding every income and expense
+     */
+    public ColumnarTransactionStore toColumnarStore() {
+        List<Transaction> all;
+        lock.readLock().lock();
+        try {
+            all = between(LocalDateTime.MIN, LocalDateTime.MAX);
+        } finally {
+            lock.readLock().unlock();
+        }
+        ColumnarTransactionStore store = new ColumnarTransactionStore(all.size());
+        for (Transaction t : all) {
+            store.append(t);
+        }
+        return store;
+    }
+
+    /**
+     * Gets the hit, miss, invalidation and eviction counts of the query result cache.
+     * @return the statistics
+     */
+    public QueryCacheStats getQueryCacheStats() {
+        return queryCache.stats();
+    }
+
+    /**
+     * Bounds the query result cache, evicting results that no longer fit.
+     * Results holding more than a quarter of maxRows are never cached.
+     * @param maxEntries the maximum number of cached results; 0 disables the cache
+     * @param maxRows the maximum number of expenses held by all cached results
+     * @throws IllegalArgumentException if a bound is negative
+     */
+    public void setQueryCacheLimits(int maxEntries, int maxRows) {
+        if (maxEntries < 0 || maxRows < 0) throw new IllegalArgumentException("Cache limits cannot be negative");
+        queryCache.resize(maxEntries, maxRows);
+    }
+
+    /**
+     * Turns on tiered storage. The transactions of closed months are moved
+     * from memory into one segment file per month in a directory, and are
+     * read back through a cache of decoded segments. Months before the
+     * current one are sealed at once, and a month is sealed on the first
+     * insert after it ends. Expenses added later to a sealed month are kept
+     * in memory until the next seal. Segment files of an earlier run in the
+     * directory are deleted; the journal and snapshots remain the durable copy.
+     * @param directory the directory for segment files
+     * @param maxCachedRows the maximum number of decoded rows kept in memory
+     * @throws IOException if the directory cannot be prepared or a segment cannot be written
+     * @throws IllegalArgumentException if directory is null or maxCachedRows is negative
+     * @throws IllegalStateException if tiered storage is already on
+     */
+    public void enableTieredStorage(Path directory, int maxCachedRows) throws IOException {
+        if (directory == null) throw new IllegalArgumentException("Directory cannot be null");
+        if (maxCachedRows < 0) throw new IllegalArgumentException("Cached rows cannot be negative");
+        lock.writeLock().lock();
+        try {
+            if (tiers != null) {
+                throw new IllegalStateException("Tiered storage is already enabled");
+            }
+            tiers = new TieredStore(directory, maxCachedRows);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        sealClosedMonths();
+    }
+
+    /**
+     * Seals the in-memory transactions of every month before the current one.
+     * @return the number of transactions moved out of memory
+     * @throws IOException if a segment cannot be written; months sealed before the failure stay sealed
+     * @throws IllegalStateException if tiered storage is off
+     */
+    public int sealClosedMonths() throws IOException {
+        YearMonth current = YearMonth.now();
+        int sealed = sealMonthsBefore(current);
+        nextSealMillis = current.plusMonths(1).atDay(1).atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        return sealed;
+    }
+
+    /**
+     * Seals the in-memory transactions of every month before a given month.
+     * Inserts wait while segments are written.
+     * @param month the first month to keep in memory
+     * @return the number of transactions moved out of memory
+     * @throws IOException if a segment cannot be written; months sealed before the failure stay sealed
+     * @throws IllegalArgumentException if month is null
+     * @throws IllegalStateException if tiered storage is off
+     */
+    public int sealMonthsBefore(YearMonth month) throws IOException {
+        if (month == null) throw new IllegalArgumentException("Month cannot be null");
+        lock.writeLock().lock();
+        try {
+            if (tiers == null) {
+                throw new IllegalStateException("Tiered storage is not enabled");
+            }
+            LocalDateTime cutoff = month.atDay(1).atStartOfDay();
+            int moved = 0;
+            LocalDateTime earliest;
+            while ((earliest = earliestInMemory()) != null && earliest.isBefore(cutoff)) {
+                moved += seal(YearMonth.from(earliest));
+            }
+            return moved;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Gets the months with sealed transactions.
+     * @return the months, in order; empty if tiered storage is off
+     */
+    public List<YearMonth> getSealedMonths() {
+        lock.readLock().lock();
+        try {
+            return tiers == null ? Collections.emptyList() : tiers.months();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Gets the total size of the sealed segment files.
+     * @return the size in bytes; 0 if tiered storage is off
+     */
+    public long getSealedBytes() {
+        lock.readLock().lock();
+        try {
+            return tiers == null ? 0 : tiers.byteCount();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Gets why the last automatic seal failed. Months are sealed on the first
+     * insert after a month ends; if a segment cannot be written then, the
+     * insert still succeeds, the rows stay in memory and the seal is retried
+     * on an insert a minute later.
+     * @return the error, or null if the last automatic seal succeeded or none has run
+     */
+    public IOException getSealFailure() {
+        return sealFailure;
+    }
+
+    /**
+     * Gets the latency, throughput, result-size and rejection metrics of this manager.
+     * @return the metrics
+     */
+    public BudgetMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Writes every category and transaction to a snapshot file and, if a
+     * journal is attached, starts a new journal generation so that replay
+     * only needs the operations made after the checkpoint.
+     * @param path the snapshot file; it is replaced atomically
+     * @throws IOException if the snapshot or journal could not be written
+     * @throws IllegalArgumentException if path is null
+     */
+    public void checkpoint(Path path) throws IOException {
+        if (path == null) throw new IllegalArgumentException("Path cannot be null");
+        lock.writeLock().lock();
+        try {
+            List<BudgetCategory> categories = new ArrayList<>(expenses.keySet());
+            Map<Expense, BudgetCategory> hotCategories = new IdentityHashMap<>();
+            for (Map.Entry<BudgetCategory, List<Expense>> entry : expenses.entrySet()) {
+                for (Expense expense : entry.getValue()) {
+                    hotCategories.put(expense, entry.getKey());
+                }
+            }
+            List<Transaction> hot = timeline.between(LocalDateTime.MIN, LocalDateTime.MAX);
+            if (tiers != null) {
+                // Sealed rows go into the snapshot too; this decodes every segment once.
+                List<Transaction> sealed = new ArrayList<>();
+                tiers.collectAll(sealed, hotCategories);
+                hot = mergeByDate(sealed, hot);
+            }
+            long generation = journal == null ? 0 : journal.getGeneration();
+            BudgetSnapshot.write(path, categories, snapshot, hot, hotCategories, rollups, generation);
+            if (journal != null) {
+                journal.rotate(categories);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Gets the journal generation covered by the snapshot this manager was
+     * loaded from.
+     * @return the generation, or 0 if the manager was not loaded from a snapshot
+     */
+    long getSnapshotJournalGeneration() {
+        return snapshot == null ? 0 : snapshot.getJournalGeneration();
+    }
+
+    void attachJournal(BudgetJournal journal) {
+        lock.writeLock().lock();
+        try {
+            if (this.journal != null) {
+                throw new IllegalStateException("A journal is already attached");
+            }
+            this.journal = journal;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    void detachJournal(BudgetJournal journal) {
+        lock.writeLock().lock();
+        try {
+            if (this.journal == journal) {
+                this.journal = null;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    void attachEventBus(BudgetEventBus events) {
+        lock.writeLock().lock();
+        try {
+            if (this.events != null) {
+                throw new IllegalStateException("An event bus is already attached");
+            }
+            this.events = events;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    void detachEventBus(BudgetEventBus events) {
+        lock.writeLock().lock();
+        try {
+            if (this.events == events) {
+                this.events = null;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Seals closed months on the first insert after a month ends.
+    // Lets tests make the next insert behave as if the month had just ended.
+    void expireSealTimer() {
+        nextSealMillis = 0;
+    }
+
+    private void sealIfMonthEnded() {
+        long now = System.currentTimeMillis();
+        if (now >= nextSealMillis) {
+            trySealClosedMonths(now);
+        }
+    }
+
+    /**
+     * Seals closed months on behalf of an insert that is already committed,
+     * so a failure is kept for {@link #getSealFailure} instead of thrown; the
+     * rows stay in memory and the seal is retried a minute later.
+     * @return true if the seal succeeded
+     */
+    boolean trySealClosedMonths(long nowMillis) {
+        try {
+            sealClosedMonths();
+            sealFailure = null;
+            return true;
+        } catch (IOException e) {
+            sealFailure = e;
+            nextSealMillis = nowMillis + SEAL_RETRY_MILLIS;
+            return false;
+        }
+    }
+
+    // Earliest date of an in-memory transaction, or null. Caller holds the lock.
+    private LocalDateTime earliestInMemory() {
+        LocalDateTime earliest = incomes.isEmpty() ? null : incomes.get(0).getDateTime();
+        for (List<Expense> list : expenses.values()) {
+            if (!list.isEmpty() && (earliest == null || list.get(0).getDateTime().isBefore(earliest))) {
+                earliest = list.get(0).getDateTime();
+            }
+        }
+        return earliest;
+    }
+
+    // Moves a month's in-memory transactions into its segment. Every earlier
+    // month is already sealed, so they are a prefix of each list. Caller holds the write lock.
+    private int seal(YearMonth month) throws IOException {
+        LocalDateTime end = month.plusMonths(1).atDay(1).atStartOfDay();
+        List<Income> monthIncomes = incomes.subList(0, TransactionCursor.ListRun.lowerBound(incomes, end));
+        List<Transaction> rows = new ArrayList<>(monthIncomes);
+        Map<Expense, BudgetCategory> rowCategories = new IdentityHashMap<>();
+        Map<BudgetCategory, List<Expense>> monthExpenses = new IdentityHashMap<>();
+        for (Map.Entry<BudgetCategory, List<Expense>> entry : expenses.entrySet()) {
+            List<Expense> list = entry.getValue();
+            List<Expense> prefix = list.subList(0, TransactionCursor.ListRun.lowerBound(list, end));
+            if (!prefix.isEmpty()) {
+                monthExpenses.put(entry.getKey(), prefix);
+                rows.addAll(prefix);
+                for (Expense expense : prefix) {
+                    rowCategories.put(expense, entry.getKey());
+                }
+            }
+        }
+        // Stable, so transactions at the same instant keep a fixed order.
+        rows.sort(Comparator.comparing(Transaction::getDateTime));
+        tiers.seal(month, rows, rowCategories);
+        // Written; now drop the month from memory.
+        timeline.removeAll(rows);
+        for (Transaction t : rows) {
+            ids.remove(t.getId());
+        }
+        monthIncomes.clear();
+        for (Map.Entry<BudgetCategory, List<Expense>> entry : monthExpenses.entrySet()) {
+            amountIndex.removeAll(entry.getValue());
+            entry.getValue().clear();
+        }
+        return rows.size();
+    }
+
+    private static void checkMonths(YearMonth from, YearMonth to) {
+        if (from == null || to == null) throw new IllegalArgumentException("Months cannot be null");
+        if (from.isAfter(to)) throw new IllegalArgumentException("First month cannot be after last month");
+    }
+
+    // Adds an income to the list and indexes. Caller holds the write lock.
+    private void indexIncome(Income income) {
+        insertByDate(incomes, income);
+        timeline.add(income);
+        rollups.addIncome(income);
+        ids.put(income);
+        if (textIndex != null) {
+            textIndex.add(income);
+        }
+    }
+
+    // Adds an expense to its category's list and the indexes. Caller holds the write lock.
+    private void indexExpense(Expense expense, BudgetCategory category) {
+        insertByDate(expenseList(category), expense);
+        timeline.add(expense);
+        amountIndex.add(expense);
+        rollups.addExpense(category, expense);
+        ids.put(expense);
+        if (textIndex != null) {
+            textIndex.add(expense);
+        }
+        queryCache.changed(category);
+    }
+
+    // Finds a transaction in memory, in the snapshot or in a sealed month. Caller holds the lock.
+    private Transaction find(long id) {
+        Transaction transaction = ids.get(id);
+        if (transaction == null && snapshot != null) {
+            int row = snapshot.findRow(id);
+            if (row >= 0) {
+                transaction = snapshot.row(row);
+            }
+        }
+        if (transaction == null && tiers != null) {
+            TieredStore.Location sealed = tiers.find(id);
+            if (sealed != null) {
+                transaction = sealed.transaction;
+            }
+        }
+        return transaction;
+    }
+
+    // Finds a transaction in memory or in the snapshot. Caller holds the lock.
+    private Located locate(long id) {
+        Transaction transaction = ids.get(id);
+        if (transaction != null) {
+            BudgetCategory category = transaction instanceof Expense ? categoryHolding((Expense) transaction) : null;
+            return new Located(transaction, category, -1, null);
+        }
+        if (snapshot != null) {
+            int row = snapshot.findRow(id);
+            if (row >= 0) {
+                return new Located(snapshot.row(row), snapshot.categoryOf(row), row, null);
+            }
+        }
+        if (tiers != null) {
+            TieredStore.Location sealed = tiers.find(id);
+            if (sealed != null) {
+                return new Located(sealed.transaction, sealed.category, -1, sealed);
+            }
+        }
+        return null;
+    }
+
+    // Gets the category whose list holds an in-memory expense, trying categories of the expense's name first.
+    private BudgetCategory categoryHolding(Expense expense) {
+        for (int pass = 0; pass < 2; pass++) {
+            for (Map.Entry<BudgetCategory, List<Expense>> entry : expenses.entrySet()) {
+                boolean sameName = entry.getKey().getNameId() == expense.getCategoryId();
+                if (sameName == (pass == 0) && indexByDate(entry.getValue(), expense) >= 0) {
+                    return entry.getKey();
+                }
+            }
+        }
+        return null;
+    }
+
+    // Removes a located transaction from the lists, indexes and monthly totals,
+    // but not from its category's monthly spend. Caller holds the write lock.
+    private void unlink(Located found) {
+        Transaction transaction = found.transaction;
+        boolean inMemory = found.row < 0 && found.sealed == null;
+        if (textIndex != null) {
+            textIndex.remove(transaction);
+        }
+        if (found.row >= 0) {
+            snapshot.delete(found.row);
+        } else if (found.sealed != null) {
+            tiers.delete(found.sealed);
+        } else {
+            ids.remove(transaction.getId());
+            timeline.remove(transaction);
+        }
+        if (transaction instanceof Income) {
+            if (inMemory) {
+                incomes.remove(indexByDate(incomes, transaction));
+            }
+            rollups.removeIncome((Income) transaction);
+            return;
+        }
+        Expense expense = (Expense) transaction;
+        if (inMemory) {
+            amountIndex.remove(expense);
+        }
+        if (found.category != null) {
+            if (inMemory) {
+                List<Expense> list = expenses.get(found.category);
+                list.remove(indexByDate(list, expense));
+            }
+            rollups.removeExpense(found.category, expense);
+        }
+        queryCache.changed(found.category);
+    }
+
+    // Takes a replaced expense's spend out and the replacement's in without
+    // ever letting a month or window exceed its limit. Caller holds the write lock.
+    private void reserveReplacement(Expense old, BudgetCategory oldCategory, Expense replacement,
+                                    BudgetCategory category) throws MonthlyLimitException {
+        YearMonth oldMonth = YearMonth.from(old.getDateTime());
+        YearMonth month = YearMonth.from(replacement.getDateTime());
+        long oldCost = -old.getEffectiveAmountCents();
+        long cost = -replacement.getEffectiveAmountCents();
+        boolean sameMonth = category == oldCategory && month.equals(oldMonth);
+        long reserved = sameMonth ? Math.max(0, cost - oldCost) : cost;
+        long spent = sameMonth && cost <= oldCost ? -1 : reserve(replacement, category, month, reserved);
+        if (sameMonth && cost < oldCost) {
+            category.release(month, oldCost - cost);
+        }
+        if (oldCategory != null) {
+            oldCategory.releaseWindows(old);
+        }
+        try {
+            category.reserveWindows(replacement);
+        } catch (WindowLimitException e) {
+            if (oldCategory != null) {
+                oldCategory.addWindows(old);
+            }
+            if (spent >= 0) {
+                category.release(month, reserved);
+            }
+            if (sameMonth && cost < oldCost) {
+                category.addExpenseCents(month, oldCost - cost);
+            }
+            metrics.recordRejection(category);
+            if (events != null) {
+                events.windowRejected(replacement, category, month, cost, e);
+            }
+            throw e;
+        }
+        if (!sameMonth && oldCategory != null) {
+            oldCategory.release(oldMonth, oldCost);
+        }
+        if (spent >= 0 && events != null) {
+            events.spendReserved(category, month, spent - reserved, spent);
+        }
+    }
+
+    // Reserves spend for a replacement expense. Caller holds the write lock.
+    private long reserve(Expense replacement, BudgetCategory category, YearMonth month, long amountCents)
+            throws MonthlyLimitException {
+        long spent = category.reserve(month, amountCents);
+        if (spent < 0) {
+            metrics.recordRejection(category);
+            if (events != null) {
+                events.limitRejected(replacement, category, month, amountCents);
+            }
+            throw new MonthlyLimitException("Expense exceeds monthly limit for " + category.getName() + " in " + month);
+        }
+        return spent;
+    }
+
+    // Publishes a monthly-limit rejection made outside the write lock, taking the lock so that events
+    // have one producer.
+    private void publishRejection(Expense expense, BudgetCategory category, YearMonth month, long amountCents) {
+        if (events == null) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            if (events != null) {
+                events.limitRejected(expense, category, month, amountCents);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private <T extends Transaction> List<T> search(SearchQuery query, boolean expenses, Class<T> type,
+                                                   BudgetMetrics.Operation operation) {
+        if (query == null) throw new IllegalArgumentException("Query cannot be null");
+        long start = BudgetMetrics.start();
+        List<T> result = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            while (textIndex == null) {
+                // Build under the write lock, then downgrade to the read lock.
+                lock.readLock().unlock();
+                lock.writeLock().lock();
+                try {
+                    lock.readLock().lock();
+                    if (textIndex == null) {
+                        textIndex = buildTextIndex();
+                    }
+                } finally {
+                    lock.writeLock().unlock();
+                }
+            }
+            List<Transaction> found = new ArrayList<>();
+            // Sealed rows are read a segment at a time rather than one id at a time.
+            IdBitmap sealed = new IdBitmap();
+            textIndex.match(query, expenses).forEach(id -> {
+                Transaction transaction = ids.get(id);
+                if (transaction == null && snapshot != null) {
+                    int row = snapshot.findRow(id);
+                    transaction = row < 0 ? null : snapshot.row(row);
+                }
+                if (transaction != null) {
+                    found.add(transaction);
+                } else if (tiers != null) {
+                    sealed.add(id);
+                }
+            });
+            if (tiers != null) {
+                tiers.collectIds(sealed, found);
+            }
+            for (Transaction transaction : found) {
+                if (query.accepts(transaction)) {
+                    result.add(type.cast(transaction));
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        // Ids follow insertion order, so sort by date; the sort is stable, so ties stay in id order.
+        Collections.sort(result);
+        metrics.record(operation, start, result.size());
+        return Collections.unmodifiableList(result);
+    }
+
+    // Indexes every transaction for text search. Caller holds the write lock.
+    private TextIndex buildTextIndex() {
+        TextIndex index = new TextIndex();
+        for (Income income : incomes) {
+            index.add(income);
+        }
+        for (List<Expense> list : expenses.values()) {
+            for (Expense expense : list) {
+                index.add(expense);
+            }
+        }
+        if (snapshot != null) {
+            snapshot.indexText(index);
+        }
+        if (tiers != null) {
+            tiers.indexText(index);
+        }
+        return index;
+    }
+
+    // Snapshot and in-memory transactions in a date range. Caller holds the lock.
+    private List<Transaction> between(LocalDateTime from, LocalDateTime to) {
+        List<Transaction> hot = timeline.between(from, to);
+        if (tiers != null) {
+            List<Transaction> sealed = new ArrayList<>();
+            tiers.collectRange(from, to, sealed);
+            hot = mergeByDate(sealed, hot);
+        }
+        if (snapshot == null) {
+            return hot;
+        }
+        List<Transaction> mapped = new ArrayList<>();
+        snapshot.collectRange(from, to, mapped);
+        return mergeByDate(mapped, hot);
+    }
+
+    // Keeps a list in date order; transactions at the same instant stay in insertion order.
+    private static <T extends Transaction> void insertByDate(List<T> list, T transaction) {
+        int size = list.size();
+        LocalDateTime dateTime = transaction.getDateTime();
+        if (size == 0 || !list.get(size - 1).getDateTime().isAfter(dateTime)) {
+            list.add(transaction);
+            return;
+        }
+        // After every element that is not later than the new one.
+        int lo = 0;
+        int hi = size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (list.get(mid).getDateTime().isAfter(dateTime)) {
+                hi = mid;
+            } else {
+                lo = mid + 1;
+            }
+        }
+        list.add(lo, transaction);
+    }
+
+    // Position of a transaction (by identity) in a date-ordered list, or -1.
+    private static <T extends Transaction> int indexByDate(List<T> list, Transaction transaction) {
+        LocalDateTime dateTime = transaction.getDateTime();
+        int lo = 0;
+        int hi = list.size();
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (list.get(mid).getDateTime().isBefore(dateTime)) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        for (int i = lo; i < list.size() && list.get(i).getDateTime().equals(dateTime); i++) {
+            if (list.get(i) == transaction) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // Merges two date-ordered lists; on equal dates snapshot rows come first.
+    private static <T extends Transaction> List<T> mergeByDate(List<T> mapped, List<T> hot) {
+        if (hot.isEmpty()) {
+            return mapped;
+        }
+        List<T> result = new ArrayList<>(mapped.size() + hot.size());
+        int i = 0;
+        int j = 0;
+        while (i < mapped.size() || j < hot.size()) {
+            if (j == hot.size() || (i < mapped.size() && mapped.get(i).compareTo(hot.get(j)) <= 0)) {
+                result.add(mapped.get(i++));
+            } else {
+                result.add(hot.get(j++));
+            }
+        }
+        return result;
+    }
+
+    // Merges two largest-first lists, keeping at most n expenses.
+    private static List<Expense> mergeLargest(List<Expense> mapped, List<Expense> hot, int n) {
+        List<Expense> result = new ArrayList<>(Math.min(n, mapped.size() + hot.size()));
+        int i = 0;
+        int j = 0;
+        while (result.size() < n && (i < mapped.size() || j < hot.size())) {
+            if (j == hot.size() || (i < mapped.size()
+                    && mapped.get(i).getEffectiveAmountCents() <= hot.get(j).getEffectiveAmountCents())) {
+                result.add(mapped.get(i++));
+            } else {
+                result.add(hot.get(j++));
+            }
+        }
+        return result;
+    }
+
+    // Waits, outside the write lock, until a journal record is durable.
+    private void awaitJournal(long seq) {
+        BudgetJournal j = journal;
+        if (j != null && seq != 0) {
+            j.awaitDurable(seq);
+        }
+    }
+
+    /**
+     * Where a transaction was found: in memory (row -1, sealed null), in a
+     * snapshot row or in a sealed segment.
+     */
+    private static final class Located {
+        final Transaction transaction;
+        // The expense's category, or null for an income.
+        final BudgetCategory category;
+        final int row;
+        final TieredStore.Location sealed;
+
+        Located(Transaction transaction, BudgetCategory category, int row, TieredStore.Location sealed) {
+            this.transaction = transaction;
+            this.category = category;
+            this.row = row;
+            this.sealed = sealed;
+        }
     }
 }
\ No newline at end of file
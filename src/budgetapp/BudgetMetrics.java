@@ -0,0 +1,242 @@
+// BudgetMetrics.java
+package budgetapp;
+
+import java.lang.management.ManagementFactory;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToLongFunction;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Latency, throughput, result-size and rejection metrics of a BudgetManager.
+ * <p>
+ * Every instrumented call records its latency in a {@link LatencyHistogram};
+ * queries also record the number of results. Recording takes two
+ * {@code System.nanoTime()} reads and a few atomic increments, with no locks
+ * and no allocation. Metrics can be read through JMX after {@link #register}
+ * or printed with {@link #dump}.
+ */
+public final class BudgetMetrics implements BudgetMetricsMXBean {
+    /**
+     * The instrumented BudgetManager operations.
+     */
+    public enum Operation {
+        ADD_CATEGORY("addCategory", false),
+        DELETE_CATEGORY("deleteCategory", false),
+        ADD_INCOME("addIncome", false),
+        ADD_EXPENSE("addExpense", false),
+        ADD_INCOMES("addIncomes", false),
+        ADD_EXPENSES("addExpenses", false),
+        DELETE_TRANSACTION("deleteTransaction", false),
+        UPDATE_TRANSACTION("updateTransaction", false),
+        GET_EXPENSES_BY_CATEGORY("getExpensesByCategory", true),
+        GET_EXPENSES_ABOVE_AMOUNT("getExpensesAboveAmount", true),
+        GET_TRANSACTIONS_BY_DATE_RANGE("getTransactionsByDateRange", true),
+        SEARCH_INCOMES("searchIncomes", true),
+        SEARCH_EXPENSES("searchExpenses", true);
+
+        private final String methodName;
+        private final boolean query;
+
+        Operation(String methodName, boolean query) {
+            this.methodName = methodName;
+            this.query = query;
+        }
+
+        /**
+         * Gets the name of the BudgetManager method.
+         * @return the method name
+         */
+        public String getMethodName() {
+            return methodName;
+        }
+    }
+
+    private final Map<Operation, LatencyHistogram> latencies = new EnumMap<>(Operation.class);
+    private final Map<Operation, LatencyHistogram> resultSizes = new EnumMap<>(Operation.class);
+    private final ConcurrentHashMap<String, LongAdder> rejections = new ConcurrentHashMap<>();
+    private volatile long resetNanos = System.nanoTime();
+
+    BudgetMetrics() {
+        for (Operation operation : Operation.values()) {
+            latencies.put(operation, new LatencyHistogram());
+            if (operation.query) {
+                resultSizes.put(operation, new LatencyHistogram());
+            }
+        }
+    }
+
+    /**
+     * Gets the start time of a call, to pass to {@link #record}.
+     * @return the current System.nanoTime()
+     */
+    static long start() {
+        return System.nanoTime();
+    }
+
+    void record(Operation operation, long startNanos) {
+        latencies.get(operation).record(System.nanoTime() - startNanos);
+    }
+
+    void record(Operation operation, long startNanos, int resultSize) {
+        latencies.get(operation).record(System.nanoTime() - startNanos);
+        resultSizes.get(operation).record(resultSize);
+    }
+
+    void recordRejection(BudgetCategory category) {
+        rejections.computeIfAbsent(category.getName(), k -> new LongAdder()).increment();
+    }
+
+    /**
+     * Gets the latency histogram of an operation, in nanoseconds.
+     * @param operation the operation
+     * @return the histogram
+     */
+    public LatencyHistogram getLatency(Operation operation) {
+        return latencies.get(operation);
+    }
+
+    /**
+     * Gets the result-size histogram of a query operation.
+     * @param operation the operation
+     * @return the histogram, or null if the operation is not a query
+     */
+    public LatencyHistogram getResultSize(Operation operation) {
+        return resultSizes.get(operation);
+    }
+
+    /**
+     * Registers these metrics with the platform MBean server under
+     * {@code budgetapp:type=BudgetMetrics,name=<name>}.
+     * @param name the name distinguishing this manager
+     * @return the registered object name
+     * @throws JMException if registration fails, e.g. because the name is taken
+     */
+    public ObjectName register(String name) throws JMException {
+        ObjectName objectName = new ObjectName("budgetapp:type=BudgetMetrics,name=" + ObjectName.quote(name));
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+        return objectName;
+    }
+
+    /**
+     * Removes a registration made by {@link #register}.
+     * @param objectName the registered object name
+     * @throws JMException if the name is not registered
+     */
+    public static void unregister(ObjectName objectName) throws JMException {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        server.unregisterMBean(objectName);
+    }
+
+    @Override
+    public Map<String, Long> getOperationCounts() {
+        return byOperation(latencies, LatencyHistogram::getCount);
+    }
+
+    @Override
+    public Map<String, Double> getThroughputPerSecond() {
+        double seconds = Math.max(1e-9, (System.nanoTime() - resetNanos) / 1e9);
+        return byOperationDouble(latencies, h -> h.getCount() / seconds);
+    }
+
+    @Override
+    public Map<String, Long> getLatencyP50Nanos() {
+        return byOperation(latencies, h -> h.getValueAtPercentile(50));
+    }
+
+    @Override
+    public Map<String, Long> getLatencyP99Nanos() {
+        return byOperation(latencies, h -> h.getValueAtPercentile(99));
+    }
+
+    @Override
+    public Map<String, Long> getLatencyP999Nanos() {
+        return byOperation(latencies, h -> h.getValueAtPercentile(99.9));
+    }
+
+    @Override
+    public Map<String, Long> getLatencyMaxNanos() {
+        return byOperation(latencies, LatencyHistogram::getMax);
+    }
+
+    @Override
+    public Map<String, Double> getMeanResultSize() {
+        return byOperationDouble(resultSizes, LatencyHistogram::getMean);
+    }
+
+    @Override
+    public Map<String, Long> getResultSizeP99() {
+        return byOperation(resultSizes, h -> h.getValueAtPercentile(99));
+    }
+
+    @Override
+    public Map<String, Long> getRejectionsByCategory() {
+        Map<String, Long> result = new TreeMap<>();
+        for (Map.Entry<String, LongAdder> entry : rejections.entrySet()) {
+            result.put(entry.getKey(), entry.getValue().sum());
+        }
+        return result;
+    }
+
+    @Override
+    public String dump() {
+        StringBuilder out = new StringBuilder();
+        double seconds = (System.nanoTime() - resetNanos) / 1e9;
+        out.append(String.format(Locale.ROOT, "Budget metrics over the last %.1f s (latency in microseconds)%n", seconds));
+        out.append(String.format(Locale.ROOT, "%-28s %9s %9s %9s %9s %9s %9s %10s %9s%n",
+                "operation", "count", "ops/s", "p50", "p99", "p99.9", "max", "mean size", "p99 size"));
+        for (Operation operation : Operation.values()) {
+            LatencyHistogram latency = latencies.get(operation);
+            long count = latency.getCount();
+            out.append(String.format(Locale.ROOT, "%-28s %9d %9.1f %9.1f %9.1f %9.1f %9.1f",
+                    operation.methodName, count, count / Math.max(1e-9, seconds),
+                    latency.getValueAtPercentile(50) / 1e3, latency.getValueAtPercentile(99) / 1e3,
+                    latency.getValueAtPercentile(99.9) / 1e3, latency.getMax() / 1e3));
+            LatencyHistogram sizes = resultSizes.get(operation);
+            if (sizes != null) {
+                out.append(String.format(Locale.ROOT, " %10.1f %9d", sizes.getMean(), sizes.getValueAtPercentile(99)));
+            }
+            out.append(System.lineSeparator());
+        }
+        Map<String, Long> rejected = getRejectionsByCategory();
+        out.append("Monthly limit rejections: ").append(rejected.isEmpty() ? "none" : rejected);
+        return out.toString();
+    }
+
+    @Override
+    public void reset() {
+        for (LatencyHistogram histogram : latencies.values()) {
+            histogram.reset();
+        }
+        for (LatencyHistogram histogram : resultSizes.values()) {
+            histogram.reset();
+        }
+        rejections.clear();
+        resetNanos = System.nanoTime();
+    }
+
+    private static Map<String, Long> byOperation(Map<Operation, LatencyHistogram> histograms,
+                                                 ToLongFunction<LatencyHistogram> value) {
+        Map<String, Long> result = new TreeMap<>();
+        for (Map.Entry<Operation, LatencyHistogram> entry : histograms.entrySet()) {
+            result.put(entry.getKey().methodName, value.applyAsLong(entry.getValue()));
+        }
+        return result;
+    }
+
+    private static Map<String, Double> byOperationDouble(Map<Operation, LatencyHistogram> histograms,
+                                                         ToDoubleFunction<LatencyHistogram> value) {
+        Map<String, Double> result = new TreeMap<>();
+        for (Map.Entry<Operation, LatencyHistogram> entry : histograms.entrySet()) {
+            result.put(entry.getKey().methodName, value.applyAsDouble(entry.getValue()));
+        }
+        return result;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,75 @@
+// BudgetMetricsMXBean.java
+package budgetapp;
+
+import java.util.Map;
+
+/**
+ * JMX view of a BudgetManager's {@link BudgetMetrics}. Maps are keyed by
+ * operation name (e.g. {@code addExpense}) or, for rejections, by category name.
+ */
+public interface BudgetMetricsMXBean {
+    /**
+     * Gets the number of calls of each operation since the last reset.
+     * @return map of operation to count
+     */
+    Map<String, Long> getOperationCounts();
+
+    /**
+     * Gets the calls per second of each operation since the last reset.
+     * @return map of operation to throughput
+     */
+    Map<String, Double> getThroughputPerSecond();
+
+    /**
+     * Gets the median latency of each operation.
+     * @return map of operation to latency in nanoseconds
+     */
+    Map<String, Long> getLatencyP50Nanos();
+
+    /**
+     * Gets the 99th percentile latency of each operation.
+     * @return map of operation to latency in nanoseconds
+     */
+    Map<String, Long> getLatencyP99Nanos();
+
+    /**
+     * Gets the 99.9th percentile latency of each operation.
+     * @return map of operation to latency in nanoseconds
+     */
+    Map<String, Long> getLatencyP999Nanos();
+
+    /**
+     * Gets the maximum latency of each operation.
+     * @return map of operation to latency in nanoseconds
+     */
+    Map<String, Long> getLatencyMaxNanos();
+
+    /**
+     * Gets the mean result size of each query operation.
+     * @return map of operation to mean number of results
+     */
+    Map<String, Double> getMeanResultSize();
+
+    /**
+     * Gets the 99th percentile result size of each query operation.
+     * @return map of operation to number of results
+     */
+    Map<String, Long> getResultSizeP99();
+
+    /**
+     * Gets the number of addExpense and addExpenses calls rejected for exceeding a limit.
+     * @return map of category name to rejections
+     */
+    Map<String, Long> getRejectionsByCategory();
+
+    /**
+     * Formats every metric as plain text.
+     * @return the report
+     */
+    String dump();
+
+    /**
+     * Clears every metric.
+     */
+    void reset();
+}
\ No newline at end of file
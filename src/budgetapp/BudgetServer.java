@@ -0,0 +1,177 @@
+// BudgetServer.java
+package budgetapp;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Serves a BudgetManager over a line protocol on a local TCP port.
+ * <p>
+ * Every request is one line of comma-separated fields, in the same format as
+ * {@link TransactionImporter} rows:
+ * <pre>
+ * INCOME,2025-03-03 12:12,1000.00,Salary
+ * EXPENSE,2025-03-03 12:12,50.00,Food,CARD
+ * ADD_CATEGORY,Food,500.00
+ * DELETE_CATEGORY,Food
+ * EXPENSES_BY_CATEGORY,Food
+ * EXPENSES_ABOVE,100.00
+ * TRANSACTIONS,2025-03-01,2025-03-31
+ * QUIT
+ * </pre>
+ * Writes reply {@code OK}. Queries reply one INCOME or EXPENSE row per
+ * transaction, in date order, followed by {@code OK <count>}. A failed request
+ * replies {@code ERR <message>} and the connection stays open.
+ * <p>
+ * Each connection is served on its own virtual thread, so thousands of idle
+ * or blocked clients cost little. Requests from different connections run
+ * concurrently against the manager, which is thread-safe; category creation
+ * and deletion are serialized so that category names stay unique.
+ */
+public class BudgetServer implements AutoCloseable {
+    private final CommandProcessor processor;
+    private final ServerSocket serverSocket;
+    // Open connections and the virtual threads serving them.
+    private final Map<Socket, Thread> connections = new ConcurrentHashMap<>();
+    private Thread acceptor;
+
+    /**
+     * Binds a server to a port on the loopback address. Call {@link #start()}
+     * to accept connections.
+     * @param manager the manager to serve
+     * @param port the port, or 0 for any free port
+     * @throws IOException if the port cannot be bound
+     * @throws IllegalArgumentException if manager is null
+     */
+    public BudgetServer(BudgetManager manager, int port) throws IOException {
+        this(manager, new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+    }
+
+    /**
+     * Binds a server to an address. Call {@link #start()} to accept connections.
+     * @param manager the manager to serve
+     * @param address the address to listen on
+     * @throws IOException if the address cannot be bound
+     * @throws IllegalArgumentException if manager or address is null
+     */
+    public BudgetServer(BudgetManager manager, InetSocketAddress address) throws IOException {
+        if (manager == null) throw new IllegalArgumentException("Manager cannot be null");
+        if (address == null) throw new IllegalArgumentException("Address cannot be null");
+        this.processor = new CommandProcessor(manager);
+        this.serverSocket = new ServerSocket();
+        serverSocket.setReuseAddress(true);
+        serverSocket.bind(address, 1024);
+    }
+
+    /**
+     * Gets the port the server listens on.
+     * @return the port
+     */
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * Starts accepting connections on a background thread.
+     * @throws IllegalStateException if the server was already started
+     */
+    public synchronized void start() {
+        if (acceptor != null) throw new IllegalStateException("Server already started");
+        acceptor = Thread.ofPlatform().name("budget-server-accept").start(this::acceptLoop);
+    }
+
+    /**
+     * Waits until the server is closed.
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public void awaitTermination() throws InterruptedException {
+        Thread thread;
+        synchronized (this) {
+            thread = acceptor;
+        }
+        if (thread != null) {
+            thread.join();
+        }
+    }
+
+    /**
+     * Stops accepting connections and closes the open ones. Returns once the
+     * requests already being applied to the manager have completed, so the
+     * caller may then close the manager's journal.
+     */
+    @Override
+    public void close() {
+        try {
+            serverSocket.close();
+        } catch (IOException e) {
+            // Closing anyway.
+        }
+        List<Thread> handlers = new ArrayList<>(connections.values());
+        for (Socket socket : connections.keySet()) {
+            closeQuietly(socket);
+        }
+        try {
+            for (Thread handler : handlers) {
+                handler.join();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void acceptLoop() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                Thread handler = Thread.ofVirtual().name("budget-client-" + socket.getPort()).unstarted(() -> serve(socket));
+                connections.put(socket, handler);
+                handler.start();
+            } catch (SocketException e) {
+                // Server closed.
+            } catch (IOException e) {
+                System.err.println("Budget server accept failed: " + e.getMessage());
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        try (BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+             Writer out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                boolean more = processor.execute(line, out);
+                out.flush();
+                if (!more) {
+                    break;
+                }
+            }
+        } catch (IOException e) {
+            // Client went away.
+        } finally {
+            connections.remove(socket);
+            closeQuietly(socket);
+        }
+    }
+
+    private static void closeQuietly(Socket socket) {
+        try {
+            socket.close();
+        } catch (IOException e) {
+            // Already closed.
+        }
+    }
+}
\ No newline at end of file
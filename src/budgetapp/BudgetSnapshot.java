@@ -0,0 +1,414 @@
+// BudgetSnapshot.java
+package budgetapp;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Versioned binary snapshot of a BudgetManager: categories with their limits
+ * and spend, and every income and expense.
+ * <p>
+ * Transactions are stored column by column in date order, followed by three
+ * row permutations (expenses by effective amount, expenses by category and
+ * rows by transaction id). Loading
+ * memory-maps the file and reads only the header, so startup time does not
+ * depend on the number of transactions; rows are decoded when queried.
+ * <p>
+ * Layout (big-endian): magic, version, journal generation, categories
+ * (name, limit, spend per month), label dictionary, monthly totals, row and
+ * expense counts, largest transaction id, then the
+ * 8-byte aligned columns: epoch seconds, amounts, transaction ids, nanos,
+ * label codes, category codes (-1 for income), amount order, category offsets,
+ * category order, id order and payment methods (-1 for income). A single file
+ * holds up to about 40 million transactions.
+ */
+public final class BudgetSnapshot {
+    private static final int MAGIC = 0x42534E50; // "BSNP"
+    private static final int VERSION = 3;
+
+    private BudgetSnapshot() {
+    }
+
+    /**
+     * Loads a snapshot into a new BudgetManager. The file stays mapped while
+     * the manager is in use and must not be modified.
+     * @param path the snapshot file
+     * @return a manager backed by the snapshot
+     * @throws IOException if the file cannot be read or is not a valid snapshot
+     */
+    public static BudgetManager load(Path path) throws IOException {
+        if (path == null) throw new IllegalArgumentException("Path cannot be null");
+        MappedByteBuffer file;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Snapshot is too large to map: " + channel.size() + " bytes");
+            }
+            file = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if (file.remaining() < 16 || file.getInt() != MAGIC) {
+            throw new IOException("Not a budget snapshot: " + path);
+        }
+        int version = file.getInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported snapshot version " + version);
+        }
+        long journalGeneration = file.getLong();
+        BudgetCategory[] categories = new BudgetCategory[file.getInt()];
+        for (int i = 0; i < categories.length; i++) {
+            String name = getString(file);
+            categories[i] = BudgetCategory.ofCents(name, file.getLong());
+            for (int months = file.getInt(); months > 0; months--) {
+                categories[i].addExpenseCents(MonthlyRollups.decode(file.getInt()), file.getLong());
+            }
+        }
+        String[] labels = new String[file.getInt()];
+        for (int i = 0; i < labels.length; i++) {
+            labels[i] = getString(file);
+        }
+        MonthlyRollups rollups = MonthlyRollups.readFrom(file, categories);
+        int rows = file.getInt();
+        int expenses = file.getInt();
+        // New ids must not collide with the snapshot's, whatever the clock says.
+        TransactionIds.advancePast(file.getLong());
+        int offset = align(file.position());
+
+        LongBuffer epochSeconds = slice(file, offset, rows * 8L).asLongBuffer();
+        offset += rows * 8;
+        LongBuffer amounts = slice(file, offset, rows * 8L).asLongBuffer();
+        offset += rows * 8;
+        LongBuffer ids = slice(file, offset, rows * 8L).asLongBuffer();
+        offset += rows * 8;
+        IntBuffer nanos = slice(file, offset, rows * 4L).asIntBuffer();
+        offset += rows * 4;
+        IntBuffer labelCodes = slice(file, offset, rows * 4L).asIntBuffer();
+        offset += rows * 4;
+        IntBuffer categoryCodes = slice(file, offset, rows * 4L).asIntBuffer();
+        offset += rows * 4;
+        IntBuffer byAmount = slice(file, offset, expenses * 4L).asIntBuffer();
+        offset += expenses * 4;
+        IntBuffer categoryOffsets = slice(file, offset, (categories.length + 1) * 4L).asIntBuffer();
+        offset += (categories.length + 1) * 4;
+        IntBuffer byCategory = slice(file, offset, expenses * 4L).asIntBuffer();
+        offset += expenses * 4;
+        IntBuffer byId = slice(file, offset, rows * 4L).asIntBuffer();
+        offset += rows * 4;
+        ByteBuffer methods = slice(file, offset, rows);
+
+        MappedSnapshot snapshot = new MappedSnapshot(journalGeneration, categories, labels, rows, expenses,
+                epochSeconds, amounts, ids, nanos, labelCodes, categoryCodes, byAmount, categoryOffsets, byCategory,
+                byId, methods);
+        return new BudgetManager(snapshot, rollups);
+    }
+
+    /**
+     * Writes a snapshot atomically (via a temporary file and rename) and
+     * durably: the file and then its directory are synced before returning.
+     * The caller holds the manager's lock so the state cannot change meanwhile.
+     * @param path the snapshot file
+     * @param categories every category in the manager
+     * @param base the snapshot the manager was loaded from, or null
+     * @param hot the transactions added since loading, in date order
+     * @param hotCategories the category of each hot expense
+     * @param rollups the manager's monthly totals
+     * @param journalGeneration the journal generation the snapshot covers
+     * @throws IOException if the file cannot be written
+     */
+    static void write(Path path, List<BudgetCategory> categories, MappedSnapshot base, List<Transaction> hot,
+                      Map<Expense, BudgetCategory> hotCategories, MonthlyRollups rollups,
+                      long journalGeneration) throws IOException {
+        Rows rows = new Rows(categories);
+        int b = 0;
+        int h = 0;
+        int baseSize = base == null ? 0 : base.size();
+        // Both sources are in date order; merge them, snapshot rows first on ties.
+        while (b < baseSize || h < hot.size()) {
+            if (b < baseSize && !base.isVisible(b)) {
+                b++;
+                continue;
+            }
+            boolean takeBase = h == hot.size() || (b < baseSize && !isAfter(base, b, hot.get(h)));
+            if (takeBase) {
+                rows.add(base.id(b), base.epochSecond(b), base.nano(b), base.amountCents(b), base.label(b),
+                        base.method(b), base.categoryOf(b));
+                b++;
+            } else {
+                Transaction t = hot.get(h++);
+                if (t instanceof Expense) {
+                    Expense e = (Expense) t;
+                    rows.add(e.getId(), e.getDateTime().toEpochSecond(ZoneOffset.UTC), e.getDateTime().getNano(),
+                            e.getAmountCents(), e.getCategory(), (byte) e.getPaymentMethod().ordinal(), hotCategories.get(e));
+                } else {
+                    Income i = (Income) t;
+                    rows.add(i.getId(), i.getDateTime().toEpochSecond(ZoneOffset.UTC), i.getDateTime().getNano(),
+                            i.getAmountCents(), i.getSource(), (byte) -1, null);
+                }
+            }
+        }
+
+        Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            OutputStream stream = Channels.newOutputStream(channel);
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream, 1 << 16));
+            rows.writeTo(out, rollups, journalGeneration);
+            out.flush();
+            channel.force(true);
+        }
+        Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        // The rename is durable only once the directory is; the journal is rotated after this returns.
+        syncDirectory(path.toAbsolutePath().getParent());
+    }
+
+    /**
+     * Forces a directory's entries to disk, so that a file renamed into it
+     * survives a crash.
+     * @param directory the directory
+     * @throws IOException if the directory could not be synced
+     */
+    static void syncDirectory(Path directory) throws IOException {
+        FileChannel channel;
+        try {
+            channel = FileChannel.open(directory, StandardOpenOption.READ);
+        } catch (IOException e) {
+            // Windows cannot open a directory; there the rename is as durable as the file system makes it.
+            return;
+        }
+        try (channel) {
+            channel.force(true);
+        }
+    }
+
+    private static boolean isAfter(MappedSnapshot base, int row, Transaction t) {
+        long second = t.getDateTime().toEpochSecond(ZoneOffset.UTC);
+        long s = base.epochSecond(row);
+        return s > second || (s == second && base.nano(row) > t.getDateTime().getNano());
+    }
+
+    private static ByteBuffer slice(ByteBuffer file, int offset, long length) throws IOException {
+        if (offset + length > file.capacity()) {
+            throw new IOException("Snapshot is truncated");
+        }
+        return file.duplicate().position(offset).limit(offset + (int) length).slice();
+    }
+
+    private static int align(int position) {
+        return (position + 7) & ~7;
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getShort() & 0xFFFF];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Column builder for the rows being written.
+     */
+    private static final class Rows {
+        private final List<BudgetCategory> categories;
+        private final Map<BudgetCategory, Integer> categoryIndex = new IdentityHashMap<>();
+        private final List<String> labels = new ArrayList<>();
+        private final Map<String, Integer> labelCodes = new HashMap<>();
+        private long[] epochSeconds = new long[1024];
+        private long[] amounts = new long[1024];
+        private long[] ids = new long[1024];
+        private int[] nanos = new int[1024];
+        private int[] labelColumn = new int[1024];
+        private int[] categoryColumn = new int[1024];
+        private byte[] methods = new byte[1024];
+        private int size;
+        private int expenses;
+        private long maxId;
+
+        Rows(List<BudgetCategory> categories) {
+            this.categories = categories;
+            for (int i = 0; i < categories.size(); i++) {
+                categoryIndex.put(categories.get(i), i);
+            }
+        }
+
+        void add(long id, long second, int nano, long amount, String label, byte method, BudgetCategory category) {
+            if (size == epochSeconds.length) {
+                int capacity = size * 2;
+                epochSeconds = Arrays.copyOf(epochSeconds, capacity);
+                amounts = Arrays.copyOf(amounts, capacity);
+                ids = Arrays.copyOf(ids, capacity);
+                nanos = Arrays.copyOf(nanos, capacity);
+                labelColumn = Arrays.copyOf(labelColumn, capacity);
+                categoryColumn = Arrays.copyOf(categoryColumn, capacity);
+                methods = Arrays.copyOf(methods, capacity);
+            }
+            Integer code = labelCodes.get(label);
+            if (code == null) {
+                code = labels.size();
+                labels.add(label);
+                labelCodes.put(label, code);
+            }
+            Integer categoryCode = category == null ? null : categoryIndex.get(category);
+            epochSeconds[size] = second;
+            nanos[size] = nano;
+            amounts[size] = amount;
+            ids[size] = id;
+            maxId = Math.max(maxId, id);
+            labelColumn[size] = code;
+            categoryColumn[size] = method < 0 || categoryCode == null ? -1 : categoryCode;
+            methods[size] = method;
+            if (method >= 0) {
+                expenses++;
+            }
+            size++;
+        }
+
+        void writeTo(DataOutputStream out, MonthlyRollups rollups, long journalGeneration) throws IOException {
+            ByteArrayOutputStream headerBytes = new ByteArrayOutputStream();
+            DataOutputStream header = new DataOutputStream(headerBytes);
+            header.writeInt(MAGIC);
+            header.writeInt(VERSION);
+            header.writeLong(journalGeneration);
+            header.writeInt(categories.size());
+            for (BudgetCategory category : categories) {
+                putString(header, category.getName());
+                header.writeLong(category.getLimitCents());
+                Map<YearMonth, Long> spent = category.getSpentByMonth();
+                header.writeInt(spent.size());
+                for (Map.Entry<YearMonth, Long> month : spent.entrySet()) {
+                    header.writeInt(MonthlyRollups.encode(month.getKey()));
+                    header.writeLong(month.getValue());
+                }
+            }
+            header.writeInt(labels.size());
+            for (String label : labels) {
+                putString(header, label);
+            }
+            rollups.writeTo(header, categoryIndex);
+            header.writeInt(size);
+            header.writeInt(expenses);
+            header.writeLong(maxId);
+            while (headerBytes.size() % 8 != 0) {
+                header.writeByte(0);
+            }
+            headerBytes.writeTo(out);
+
+            for (int i = 0; i < size; i++) out.writeLong(epochSeconds[i]);
+            for (int i = 0; i < size; i++) out.writeLong(amounts[i]);
+            for (int i = 0; i < size; i++) out.writeLong(ids[i]);
+            for (int i = 0; i < size; i++) out.writeInt(nanos[i]);
+            for (int i = 0; i < size; i++) out.writeInt(labelColumn[i]);
+            for (int i = 0; i < size; i++) out.writeInt(categoryColumn[i]);
+            for (int row : amountOrder()) out.writeInt(row);
+            int[][] grouped = categoryOrder();
+            for (int offset : grouped[0]) out.writeInt(offset);
+            for (int row : grouped[1]) out.writeInt(row);
+            for (int row : idOrder()) out.writeInt(row);
+            out.write(methods, 0, size);
+        }
+
+        // Expense rows sorted by effective amount; a stable sort keeps date order on ties.
+        private int[] amountOrder() {
+            int[] rows = new int[expenses];
+            long[] keys = new long[expenses];
+            int n = 0;
+            for (int i = 0; i < size; i++) {
+                if (methods[i] >= 0) {
+                    rows[n] = i;
+                    keys[n] = amounts[i] + Money.fee(amounts[i], Expense.PaymentMethod.values()[methods[i]].getFeeBasisPoints());
+                    n++;
+                }
+            }
+            return sortByKey(rows, keys);
+        }
+
+        // Every row sorted by transaction id, for lookups by id.
+        private int[] idOrder() {
+            int[] rows = new int[size];
+            for (int i = 0; i < size; i++) {
+                rows[i] = i;
+            }
+            return sortByKey(rows, Arrays.copyOf(ids, size));
+        }
+
+        // Stable bottom-up merge sort of rows by parallel keys.
+        private static int[] sortByKey(int[] rows, long[] keys) {
+            int n = rows.length;
+            int[] rowTmp = new int[n];
+            long[] keyTmp = new long[n];
+            for (int width = 1; width < n; width *= 2) {
+                for (int lo = 0; lo < n; lo += 2 * width) {
+                    int mid = Math.min(lo + width, n);
+                    int hi = Math.min(lo + 2 * width, n);
+                    int i = lo;
+                    int j = mid;
+                    for (int k = lo; k < hi; k++) {
+                        if (i < mid && (j >= hi || keys[i] <= keys[j])) {
+                            rowTmp[k] = rows[i];
+                            keyTmp[k] = keys[i++];
+                        } else {
+                            rowTmp[k] = rows[j];
+                            keyTmp[k] = keys[j++];
+                        }
+                    }
+                }
+                int[] r = rows;
+                rows = rowTmp;
+                rowTmp = r;
+                long[] k = keys;
+                keys = keyTmp;
+                keyTmp = k;
+            }
+            return rows;
+        }
+
+        // Counting sort of expense rows by category: {offsets, rows}.
+        private int[][] categoryOrder() {
+            int[] offsets = new int[categories.size() + 1];
+            for (int i = 0; i < size; i++) {
+                if (categoryColumn[i] >= 0) {
+                    offsets[categoryColumn[i] + 1]++;
+                }
+            }
+            for (int c = 0; c < categories.size(); c++) {
+                offsets[c + 1] += offsets[c];
+            }
+            int[] next = Arrays.copyOf(offsets, offsets.length);
+            int[] rows = new int[expenses];
+            for (int i = 0; i < size; i++) {
+                if (categoryColumn[i] >= 0) {
+                    rows[next[categoryColumn[i]]++] = i;
+                }
+            }
+            // Expenses whose category is unknown keep a row but belong to no group.
+            return new int[][] {offsets, Arrays.copyOf(rows, expenses)};
+        }
+
+        private static void putString(DataOutputStream out, String value) throws IOException {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            if (bytes.length > 0xFFFF) {
+                throw new IOException("Name is too long for a snapshot");
+            }
+            out.writeShort(bytes.length);
+            out.write(bytes);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,252 @@
+// ColumnarTransactionStore.java
+package budgetapp;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact storage engine that keeps transactions as parallel primitive arrays
+ * instead of one object per row. Each row costs 33 bytes: the transaction id,
+ * epoch seconds and nanoseconds, the amount in cents, a dictionary code for
+ * the category (or income source) and the payment method ordinal. Income and
+ * Expense objects are only created on demand by {@link #get(int)}, with the
+ * id and time they were stored with.
+ */
+public class ColumnarTransactionStore {
+    // Payment method column value used for income rows.
+    static final byte INCOME = -1;
+    private static final int INITIAL_CAPACITY = 16;
+
+    private long[] ids;
+    private long[] epochSeconds;
+    private int[] nanos;
+    private long[] amounts;
+    private int[] labels;
+    private byte[] methods;
+    private int size;
+
+    // Category and source names are stored once and referenced by code.
+    private final List<SymbolTable.Symbol> dictionary;
+    private final Map<String, Integer> codes;
+
+    /**
+     * Constructs an empty store.
+     */
+    public ColumnarTransactionStore() {
+        this(INITIAL_CAPACITY);
+    }
+
+    /**
+     * Constructs an empty store sized for a number of rows.
+     * @param capacity the expected number of rows
+     * @throws IllegalArgumentException if capacity is negative
+     */
+    public ColumnarTransactionStore(int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("Capacity cannot be negative");
+        }
+        ids = new long[capacity];
+        epochSeconds = new long[capacity];
+        nanos = new int[capacity];
+        amounts = new long[capacity];
+        labels = new int[capacity];
+        methods = new byte[capacity];
+        size = 0;
+        dictionary = new ArrayList<>();
+        codes = new HashMap<>();
+    }
+
+    /**
+     * Appends a transaction as a new row.
+     * @param transaction the income or expense to store
+     * @return the row number
+     * @throws IllegalArgumentException if transaction is null
+     */
+    public int append(Transaction transaction) {
+        if (transaction == null) {
+            throw new IllegalArgumentException("Transaction cannot be null");
+        }
+        ensureCapacity(size + 1);
+        ids[size] = transaction.getId();
+        epochSeconds[size] = transaction.getDateTime().toEpochSecond(ZoneOffset.UTC);
+        nanos[size] = transaction.getDateTime().getNano();
+        amounts[size] = transaction.getAmountCents();
+        if (transaction instanceof Expense) {
+            Expense expense = (Expense) transaction;
+            labels[size] = encode(expense.getCategorySymbol());
+            methods[size] = (byte) expense.getPaymentMethod().ordinal();
+        } else {
+            labels[size] = encode(((Income) transaction).getSourceSymbol());
+            methods[size] = INCOME;
+        }
+        return size++;
+    }
+
+    /**
+     * Gets a row as a new Income or Expense object with the row's original id.
+     * @param row the row number
+     * @return the transaction view
+     * @throws IndexOutOfBoundsException if row is out of range
+     */
+    public Transaction get(int row) {
+        checkRow(row);
+        LocalDateTime dateTime = LocalDateTime.ofEpochSecond(epochSeconds[row], nanos[row], ZoneOffset.UTC);
+        SymbolTable.Symbol label = dictionary.get(labels[row]);
+        if (methods[row] == INCOME) {
+            return Income.ofSymbol(ids[row], amounts[row], dateTime, label);
+        }
+        return Expense.ofSymbol(ids[row], amounts[row], dateTime, label, Expense.PaymentMethod.values()[methods[row]]);
+    }
+
+    /**
+     * Checks whether a row holds an income.
+     * @param row the row number
+     * @return true for income, false for expense
+     */
+    public boolean isIncome(int row) {
+        checkRow(row);
+        return methods[row] == INCOME;
+    }
+
+    /**
+     * Gets the transaction id of a row.
+     * @param row the row number
+     * @return the id
+     */
+    public long getId(int row) {
+        checkRow(row);
+        return ids[row];
+    }
+
+    /**
+     * Gets the time of a row in seconds since the epoch (UTC).
+     * @param row the row number
+     * @return the epoch second
+     */
+    public long getEpochSecond(int row) {
+        checkRow(row);
+        return epochSeconds[row];
+    }
+
+    /**
+     * Gets the nanosecond of the second of a row's time.
+     * @param row the row number
+     * @return the nanosecond, 0 to 999,999,999
+     */
+    public int getNano(int row) {
+        checkRow(row);
+        return nanos[row];
+    }
+
+    /**
+     * Gets the amount of a row in cents.
+     * @param row the row number
+     * @return the amount in cents
+     */
+    public long getAmountCents(int row) {
+        checkRow(row);
+        return amounts[row];
+    }
+
+    /**
+     * Gets the category (or income source) of a row.
+     * @param row the row number
+     * @return the category or source name
+     */
+    public String getLabel(int row) {
+        checkRow(row);
+        return dictionary.get(labels[row]).name;
+    }
+
+    /**
+     * Gets the number of stored rows.
+     * @return the size
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Estimates the heap used by the columns, including unused capacity.
+     * @return approximate size in bytes
+     */
+    public long estimateHeapBytes() {
+        long columns = (long) epochSeconds.length
+                * (Long.BYTES + Long.BYTES + Integer.BYTES + Long.BYTES + Integer.BYTES + Byte.BYTES);
+        long names = 0;
+        for (SymbolTable.Symbol symbol : dictionary) {
+            names += 40 + symbol.name.length();
+        }
+        return columns + names;
+    }
+
+    // The raw columns, for bulk readers such as SpendingAnalytics. Only the
+    // first size() entries are rows, and callers must not modify them.
+
+    long[] epochSecondColumn() {
+        return epochSeconds;
+    }
+
+    long[] amountColumn() {
+        return amounts;
+    }
+
+    int[] labelColumn() {
+        return labels;
+    }
+
+    byte[] methodColumn() {
+        return methods;
+    }
+
+    /**
+     * Gets the number of distinct labels; every label code is below this.
+     * @return the dictionary size
+     */
+    int labelCount() {
+        return dictionary.size();
+    }
+
+    /**
+     * Gets the text of a label code.
+     * @param code the code
+     * @return the category or source name
+     */
+    String labelName(int code) {
+        return dictionary.get(code).name;
+    }
+
+    private int encode(SymbolTable.Symbol label) {
+        Integer code = codes.get(label.name);
+        if (code == null) {
+            code = dictionary.size();
+            dictionary.add(label);
+            codes.put(label.name, code);
+        }
+        return code;
+    }
+
+    private void ensureCapacity(int required) {
+        if (required <= epochSeconds.length) {
+            return;
+        }
+        int capacity = Math.max(required, Math.max(INITIAL_CAPACITY, epochSeconds.length + (epochSeconds.length >> 1)));
+        ids = Arrays.copyOf(ids, capacity);
+        epochSeconds = Arrays.copyOf(epochSeconds, capacity);
+        nanos = Arrays.copyOf(nanos, capacity);
+        amounts = Arrays.copyOf(amounts, capacity);
+        labels = Arrays.copyOf(labels, capacity);
+        methods = Arrays.copyOf(methods, capacity);
+    }
+
+    private void checkRow(int row) {
+        if (row < 0 || row >= size) {
+            throw new IndexOutOfBoundsException("Row " + row + " out of range for size " + size);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,210 @@
+// CommandProcessor.java
+package budgetapp;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Executes the line commands of {@link BudgetServer} and of Main's batch mode
+ * against a BudgetManager and writes their replies.
+ * <p>
+ * Replies and query rows are built in a reusable StringBuilder by hand rather
+ * than with String.format or DateTimeFormatter, and written to the caller's
+ * Writer, which is expected to be buffered. Dates are parsed by hand as well.
+ * Safe for use by several threads, each with its own Writer.
+ */
+final class CommandProcessor {
+    private final BudgetManager manager;
+    // Serializes category creation and deletion so that names stay unique.
+    private final Object categoryLock = new Object();
+    private final ThreadLocal<StringBuilder> rowBuilder = ThreadLocal.withInitial(() -> new StringBuilder(96));
+
+    /**
+     * Creates a processor.
+     * @param manager the manager to run commands against
+     */
+    CommandProcessor(BudgetManager manager) {
+        this.manager = manager;
+    }
+
+    /**
+     * Executes one command line and writes its reply. Blank lines are ignored.
+     * Errors, including unexpected runtime exceptions from the command, are
+     * reported to the writer as {@code ERR <message>}.
+     * @param line the command
+     * @param out where the reply goes
+     * @return false if the command was QUIT, true otherwise
+     * @throws IOException if the reply cannot be written
+     */
+    boolean execute(String line, Writer out) throws IOException {
+        if (line.isBlank()) {
+            return true;
+        }
+        String[] fields = line.split(",", -1);
+        String command = fields[0].trim().toUpperCase();
+        if (command.equals("QUIT")) {
+            out.write("OK\n");
+            return false;
+        }
+        try {
+            handle(command, fields, out);
+        } catch (MonthlyLimitException | IllegalArgumentException | DateTimeException e) {
+            out.write("ERR " + oneLine(e.getMessage()) + "\n");
+        } catch (IndexOutOfBoundsException e) {
+            out.write("ERR Missing field in: " + line + "\n");
+        } catch (RuntimeException e) {
+            // Whatever else one command throws, e.g. an overflowing total, must not end the session.
+            out.write("ERR " + (e.getMessage() == null ? e.getClass().getSimpleName() : oneLine(e.getMessage())) + "\n");
+        }
+        return true;
+    }
+
+    private void handle(String command, String[] fields, Writer out) throws IOException, MonthlyLimitException {
+        switch (command) {
+            case "INCOME":
+                manager.addIncome(Income.ofCents(Money.parse(fields[2].trim()), parseDateTime(fields[1].trim()),
+                        fields[3].trim()));
+                out.write("OK\n");
+                break;
+
+            case "EXPENSE": {
+                BudgetCategory category = requireCategory(fields[3].trim());
+                Expense.PaymentMethod method = Expense.PaymentMethod.valueOf(fields[4].trim().toUpperCase());
+                manager.addExpense(Expense.ofCents(Money.parse(fields[2].trim()), parseDateTime(fields[1].trim()),
+                        category.getName(), method), category);
+                out.write("OK\n");
+                break;
+            }
+
+            case "ADD_CATEGORY": {
+                String name = fields[1].trim();
+                BudgetCategory category = BudgetCategory.ofCents(name, Money.parse(fields[2].trim()));
+                synchronized (categoryLock) {
+                    if (manager.getCategory(name) != null) {
+                        throw new IllegalArgumentException("Category already exists: " + name);
+                    }
+                    manager.addCategory(category);
+                }
+                out.write("OK\n");
+                break;
+            }
+
+            case "DELETE_CATEGORY": {
+                synchronized (categoryLock) {
+                    manager.deleteCategory(requireCategory(fields[1].trim()));
+                }
+                out.write("OK\n");
+                break;
+            }
+
+            case "EXPENSES_BY_CATEGORY":
+                writeRows(manager.streamExpensesByCategory(requireCategory(fields[1].trim())), out);
+                break;
+
+            case "EXPENSES_ABOVE":
+                writeRows(manager.streamExpensesAboveAmount(Money.toMajor(Money.parse(fields[1].trim()))), out);
+                break;
+
+            case "TRANSACTIONS":
+                writeRows(manager.streamTransactionsByDateRange(LocalDate.parse(fields[1].trim()),
+                        LocalDate.parse(fields[2].trim())), out);
+                break;
+
+            default:
+                throw new IllegalArgumentException("Unknown command: " + fields[0]);
+        }
+    }
+
+    private void writeRows(Stream<? extends Transaction> transactions, Writer out) throws IOException {
+        StringBuilder row = rowBuilder.get();
+        long count = 0;
+        Iterator<? extends Transaction> rows = transactions.iterator();
+        while (rows.hasNext()) {
+            row.setLength(0);
+            appendRow(row, rows.next()).append('\n');
+            out.append(row);
+            count++;
+        }
+        row.setLength(0);
+        out.append(row.append("OK ").append(count).append('\n'));
+    }
+
+    /**
+     * Appends a transaction as an importer CSV row, e.g.
+     * {@code EXPENSE,2025-03-03 12:12:00,50.00,Food,CARD}.
+     * @param sb the builder to append to
+     * @param t the transaction
+     * @return the same builder
+     */
+    static StringBuilder appendRow(StringBuilder sb, Transaction t) {
+        if (t instanceof Expense) {
+            Expense e = (Expense) t;
+            appendDateTime(sb.append("EXPENSE,"), e.getDateTime()).append(',');
+            return Money.appendTo(sb, e.getAmountCents()).append(',').append(e.getCategory())
+                    .append(',').append(e.getPaymentMethod().name());
+        }
+        Income i = (Income) t;
+        appendDateTime(sb.append("INCOME,"), i.getDateTime()).append(',');
+        return Money.appendTo(sb, i.getAmountCents()).append(',').append(i.getSource());
+    }
+
+    /**
+     * Appends a date and time as {@code yyyy-MM-dd HH:mm:ss}.
+     * @param sb the builder to append to
+     * @param dateTime the date and time, with a four-digit year
+     * @return the same builder
+     */
+    static StringBuilder appendDateTime(StringBuilder sb, LocalDateTime dateTime) {
+        sb.append(dateTime.getYear()).append('-');
+        appendTwoDigits(sb, dateTime.getMonthValue()).append('-');
+        appendTwoDigits(sb, dateTime.getDayOfMonth()).append(' ');
+        appendTwoDigits(sb, dateTime.getHour()).append(':');
+        appendTwoDigits(sb, dateTime.getMinute()).append(':');
+        return appendTwoDigits(sb, dateTime.getSecond());
+    }
+
+    /**
+     * Parses {@code yyyy-MM-dd HH:mm} or {@code yyyy-MM-dd HH:mm:ss}.
+     * @param text the text to parse
+     * @return the date and time
+     * @throws DateTimeException if the text is malformed or not a valid date and time
+     */
+    static LocalDateTime parseDateTime(String text) {
+        int length = text.length();
+        if ((length != 16 && length != 19) || text.charAt(4) != '-' || text.charAt(7) != '-'
+                || text.charAt(10) != ' ' || text.charAt(13) != ':' || (length == 19 && text.charAt(16) != ':')) {
+            throw new DateTimeException("Expected yyyy-MM-dd HH:mm[:ss]: " + text);
+        }
+        return LocalDateTime.of(digits(text, 0, 4), digits(text, 5, 7), digits(text, 8, 10),
+                digits(text, 11, 13), digits(text, 14, 16), length == 19 ? digits(text, 17, 19) : 0);
+    }
+
+    private static int digits(String text, int from, int to) {
+        int value = 0;
+        for (int i = from; i < to; i++) {
+            char c = text.charAt(i);
+            if (c < '0' || c > '9') throw new DateTimeException("Expected yyyy-MM-dd HH:mm[:ss]: " + text);
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    private static StringBuilder appendTwoDigits(StringBuilder sb, int value) {
+        return sb.append((char) ('0' + value / 10)).append((char) ('0' + value % 10));
+    }
+
+    private BudgetCategory requireCategory(String name) {
+        BudgetCategory category = manager.getCategory(name);
+        if (category == null) throw new IllegalArgumentException("Unknown category: " + name);
+        return category;
+    }
+
+    private static String oneLine(String message) {
+        return message == null ? "" : message.replace('\n', ' ').replace('\r', ' ');
+    }
+}
\ No newline at end of file
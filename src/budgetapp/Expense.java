@@ -8,21 +8,29 @@ import java.time.LocalDateTime;
  */
 public class Expense extends Transaction {
     public enum PaymentMethod {
-        CASH(0.0), CARD(0.01), ALIPAY(0.005), WECHAT(0.005);
+        CASH(0), CARD(100), ALIPAY(50), WECHAT(50);
 
-        private final double feeRate;
+        // Fee rate in basis points (1/100 of a percent).
+        private final int feeBasisPoints;
 
-        PaymentMethod(double feeRate) {
-            this.feeRate = feeRate;
+        PaymentMethod(int feeBasisPoints) {
+            this.feeBasisPoints = feeBasisPoints;
         }
 
         public double getFeeRate() {
-            return feeRate;
+            return feeBasisPoints / (double) Money.BASIS_POINTS;
+        }
+
+        public int getFeeBasisPoints() {
+            return feeBasisPoints;
         }
     }
 
-    private String category;
+    // Category name, shared through the SymbolTable.
+    private SymbolTable.Symbol category;
     private PaymentMethod paymentMethod;
+    // Fee in cents, rounded once at construction (see Money.fee).
+    private long fee;
 
     /**
      * Constructs an Expense transaction.
@@ -30,18 +38,74 @@ public class Expense extends Transaction {
      * @param dateTime the date and time
      * @param category the expense category
      * @param paymentMethod the payment method
-     * @throws IllegalArgumentException if category is null/empty or paymentMethod is null
+     * @throws IllegalArgumentException if category is null/empty, paymentMethod is null or
+     *         the fee on amount does not fit in a long
      */
     public Expense(double amount, LocalDateTime dateTime, String category, PaymentMethod paymentMethod) {
-        super(amount, dateTime);
-        if (category == null || category.trim().isEmpty()) {
-            throw new IllegalArgumentException("Category cannot be null or empty");
-        }
+        this(Money.ofMajor(amount), dateTime, category, paymentMethod);
+    }
+
+    private Expense(long amountCents, LocalDateTime dateTime, String category, PaymentMethod paymentMethod) {
+        this(amountCents, dateTime, internCategory(category), paymentMethod);
+    }
+
+    private Expense(long amountCents, LocalDateTime dateTime, SymbolTable.Symbol category, PaymentMethod paymentMethod) {
+        super(amountCents, dateTime);
+        init(category, paymentMethod);
+    }
+
+    private Expense(long id, long amountCents, LocalDateTime dateTime, SymbolTable.Symbol category,
+                    PaymentMethod paymentMethod) {
+        super(id, amountCents, dateTime);
+        init(category, paymentMethod);
+    }
+
+    private void init(SymbolTable.Symbol category, PaymentMethod paymentMethod) {
         if (paymentMethod == null) {
             throw new IllegalArgumentException("Payment method cannot be null");
         }
         this.category = category;
         this.paymentMethod = paymentMethod;
+        try {
+            this.fee = Money.fee(amount, paymentMethod.getFeeBasisPoints());
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("Amount is too large for a " + paymentMethod + " fee");
+        }
+    }
+
+    /**
+     * Creates an Expense transaction from an amount in cents.
+     * @param amountCents the expense amount in cents
+     * @param dateTime the date and time
+     * @param category the expense category
+     * @param paymentMethod the payment method
+     * @return the new expense
+     * @throws IllegalArgumentException if amount is not positive, dateTime is null,
+     *         category is null/empty, paymentMethod is null or the fee does not fit in a long
+     */
+    public static Expense ofCents(long amountCents, LocalDateTime dateTime, String category, PaymentMethod paymentMethod) {
+        return new Expense(amountCents, dateTime, category, paymentMethod);
+    }
+
+    /**
+     * Recreates a stored Expense with its original id and an interned category name.
+     * @param id the id issued when the expense was first created
+     * @param amountCents the expense amount in cents
+     * @param dateTime the date and time
+     * @param category the category name's symbol
+     * @param paymentMethod the payment method
+     * @return the expense
+     */
+    static Expense ofSymbol(long id, long amountCents, LocalDateTime dateTime, SymbolTable.Symbol category,
+                            PaymentMethod paymentMethod) {
+        return new Expense(id, amountCents, dateTime, category, paymentMethod);
+    }
+
+    private static SymbolTable.Symbol internCategory(String category) {
+        if (category == null || category.trim().isEmpty()) {
+            throw new IllegalArgumentException("Category cannot be null or empty");
+        }
+        return SymbolTable.symbol(category);
     }
 
     /**
@@ -49,6 +113,18 @@ public class Expense extends Transaction {
      * @return the category
      */
     public String getCategory() {
+        return category.name;
+    }
+
+    /**
+     * Gets the category of the expense as a {@link SymbolTable} id.
+     * @return the id
+     */
+    public int getCategoryId() {
+        return category.id;
+    }
+
+    SymbolTable.Symbol getCategorySymbol() {
         return category;
     }
 
@@ -60,14 +136,22 @@ public class Expense extends Transaction {
         return paymentMethod;
     }
 
+    /**
+     * Gets the payment method fee in cents.
+     * @return the fee
+     */
+    public long getFeeCents() {
+        return fee;
+    }
+
     @Override
-    public double getEffectiveAmount() {
-        double fee = amount * paymentMethod.getFeeRate();
+    public long getEffectiveAmountCents() {
         return -(amount + fee); // Deduct amount plus fee
     }
 
     @Override
     public String toString() {
-        return String.format("Expense on %s of $%.2f (%s) on %s", category, amount, paymentMethod, dateTime);
+        StringBuilder sb = new StringBuilder(64).append("Expense on ").append(getCategory()).append(" of $");
+        return Money.appendTo(sb, amount).append(" (").append(paymentMethod).append(") on ").append(dateTime).toString();
     }
 }
\ No newline at end of file
@@ -0,0 +1,186 @@
+// ExpenseAmountIndex.java
+package budgetapp;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+
+/**
+ * Index of expenses ordered by effective amount (amount plus fee), used to
+ * answer threshold, range and top-N queries without scanning every expense.
+ */
+class ExpenseAmountIndex {
+    // Keyed by the absolute effective amount in cents; each bucket in date order.
+    private final NavigableMap<Long, List<Expense>> byAmount;
+    private int size;
+
+    /**
+     * Constructs an empty index.
+     */
+    ExpenseAmountIndex() {
+        byAmount = new TreeMap<>();
+        size = 0;
+    }
+
+    /**
+     * Adds an expense to the index.
+     * @param expense the expense to index
+     */
+    void add(Expense expense) {
+        List<Expense> bucket = byAmount.computeIfAbsent(keyOf(expense), k -> new ArrayList<>(1));
+        int n = bucket.size();
+        // Expenses mostly arrive in date order, so this is usually an append.
+        if (n == 0 || !bucket.get(n - 1).getDateTime().isAfter(expense.getDateTime())) {
+            bucket.add(expense);
+        } else {
+            bucket.add(upperBound(bucket, expense), expense);
+        }
+        size++;
+    }
+
+    /**
+     * Removes an expense (by identity) from the index.
+     * @param expense the expense to remove
+     * @return true if the expense was indexed
+     */
+    boolean remove(Expense expense) {
+        Long key = keyOf(expense);
+        List<Expense> bucket = byAmount.get(key);
+        if (bucket == null) {
+            return false;
+        }
+        for (int i = 0; i < bucket.size(); i++) {
+            if (bucket.get(i) == expense) {
+                bucket.remove(i);
+                if (bucket.isEmpty()) {
+                    byAmount.remove(key);
+                }
+                size--;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Removes a group of expenses from the index.
+     * @param expenses the expenses to remove
+     */
+    void removeAll(Collection<Expense> expenses) {
+        for (Expense e : expenses) {
+            remove(e);
+        }
+    }
+
+    /**
+     * Gets the expenses whose effective amount is strictly above a threshold.
+     * @param amount the threshold amount in cents
+     * @return list of expenses sorted by date and time
+     */
+    List<Expense> above(long amount) {
+        return inDateOrder(byAmount.tailMap(amount, false));
+    }
+
+    /**
+     * Gets the expenses whose effective amount lies in a range, both ends inclusive.
+     * @param min the lowest amount in cents
+     * @param max the highest amount in cents
+     * @return list of expenses sorted by date and time
+     */
+    List<Expense> between(long min, long max) {
+        if (min > max) {
+            return new ArrayList<>();
+        }
+        return inDateOrder(byAmount.subMap(min, true, max, true));
+    }
+
+    /**
+     * Gets the largest expenses by effective amount.
+     * @param n the maximum number of expenses to return
+     * @return list of at most n expenses, largest first
+     */
+    List<Expense> top(int n) {
+        List<Expense> result = new ArrayList<>(Math.min(n, size));
+        for (List<Expense> bucket : byAmount.descendingMap().values()) {
+            for (Expense e : bucket) {
+                if (result.size() == n) {
+                    return result;
+                }
+                result.add(e);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Gets the number of indexed expenses.
+     * @return the size
+     */
+    int size() {
+        return size;
+    }
+
+    private static Long keyOf(Expense expense) {
+        return -expense.getEffectiveAmountCents();
+    }
+
+    // First index whose date is after the expense's.
+    private static int upperBound(List<Expense> bucket, Expense expense) {
+        int lo = 0;
+        int hi = bucket.size();
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (bucket.get(mid).getDateTime().isAfter(expense.getDateTime())) {
+                hi = mid;
+            } else {
+                lo = mid + 1;
+            }
+        }
+        return lo;
+    }
+
+    // Merges the date-ordered buckets, so the k matches cost O(k log b) for b buckets
+    // rather than a sort. Equal dates keep the smaller amount first.
+    private static List<Expense> inDateOrder(Map<Long, List<Expense>> matches) {
+        List<Expense> result = new ArrayList<>();
+        PriorityQueue<Run> runs = new PriorityQueue<>();
+        int order = 0;
+        for (List<Expense> bucket : matches.values()) {
+            runs.add(new Run(bucket, order++));
+        }
+        if (runs.size() == 1) {
+            result.addAll(runs.peek().bucket);
+            return result;
+        }
+        while (!runs.isEmpty()) {
+            Run run = runs.poll();
+            result.add(run.bucket.get(run.index++));
+            if (run.index < run.bucket.size()) {
+                runs.add(run);
+            }
+        }
+        return result;
+    }
+
+    // The unread part of one bucket.
+    private static final class Run implements Comparable<Run> {
+        final List<Expense> bucket;
+        final int order;
+        int index;
+
+        Run(List<Expense> bucket, int order) {
+            this.bucket = bucket;
+            this.order = order;
+        }
+
+        @Override
+        public int compareTo(Run other) {
+            int byDate = bucket.get(index).compareTo(other.bucket.get(other.index));
+            return byDate != 0 ? byDate : Integer.compare(order, other.order);
+        }
+    }
+}
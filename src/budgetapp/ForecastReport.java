@@ -0,0 +1,205 @@
+// ForecastReport.java
+package budgetapp;
+
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Result of a {@link BudgetForecast}: for each category, how likely the
+ * month's spending is to run past its limit and what it is expected to end
+ * at, plus the month's projected net cash flow.
+ */
+public final class ForecastReport {
+    private final YearMonth month;
+    private final LocalDateTime asOf;
+    private final int trials;
+    private final Map<String, CategoryForecast> categories;
+    private final long incomeSoFarCents;
+    private final double expectedIncomeCents;
+    private final double expectedNetCents;
+    private final double netStdDevCents;
+    private final double deficitProbability;
+
+    ForecastReport(YearMonth month, LocalDateTime asOf, int trials, Map<String, CategoryForecast> categories,
+                   long incomeSoFarCents, double expectedIncomeCents, double expectedNetCents, double netStdDevCents,
+                   double deficitProbability) {
+        this.month = month;
+        this.asOf = asOf;
+        this.trials = trials;
+        this.categories = Collections.unmodifiableMap(categories);
+        this.incomeSoFarCents = incomeSoFarCents;
+        this.expectedIncomeCents = expectedIncomeCents;
+        this.expectedNetCents = expectedNetCents;
+        this.netStdDevCents = netStdDevCents;
+        this.deficitProbability = deficitProbability;
+    }
+
+    /**
+     * Gets the month forecast.
+     * @return the month
+     */
+    public YearMonth getMonth() {
+        return month;
+    }
+
+    /**
+     * Gets the time the forecast starts from; only later spending was simulated.
+     * @return the time
+     */
+    public LocalDateTime getAsOf() {
+        return asOf;
+    }
+
+    /**
+     * Gets the number of simulated month-ends.
+     * @return the trial count
+     */
+    public int getTrials() {
+        return trials;
+    }
+
+    /**
+     * Gets the forecast of each category, in name order.
+     * @return map of category name to forecast
+     */
+    public Map<String, CategoryForecast> getCategories() {
+        return categories;
+    }
+
+    /**
+     * Gets the income received in the month before the forecast time.
+     * @return the income in cents
+     */
+    public long getIncomeSoFarCents() {
+        return incomeSoFarCents;
+    }
+
+    /**
+     * Gets the month's expected total income.
+     * @return the mean income in cents
+     */
+    public double getExpectedIncomeCents() {
+        return expectedIncomeCents;
+    }
+
+    /**
+     * Gets the month's expected income minus spending and fees.
+     * @return the mean net cash flow in cents
+     */
+    public double getExpectedNetCashFlowCents() {
+        return expectedNetCents;
+    }
+
+    /**
+     * Gets the standard deviation of the month's net cash flow.
+     * @return the standard deviation in cents
+     */
+    public double getNetCashFlowStdDevCents() {
+        return netStdDevCents;
+    }
+
+    /**
+     * Gets the probability that the month ends with spending above income.
+     * @return the fraction of trials with a negative net cash flow
+     */
+    public double getDeficitProbability() {
+        return deficitProbability;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder(128 + categories.size() * 96)
+                .append("Forecast for ").append(month).append(" as of ").append(asOf)
+                .append(" (").append(trials).append(" trials):\n");
+        for (CategoryForecast category : categories.values()) {
+            sb.append(category).append('\n');
+        }
+        Money.appendTo(sb.append("Expected income $"), Math.round(expectedIncomeCents));
+        Money.appendTo(sb.append(", net $"), Math.round(expectedNetCents));
+        Money.appendTo(sb.append(" +/- $"), Math.round(netStdDevCents));
+        return sb.append(String.format(", deficit %.1f%%", deficitProbability * 100)).toString();
+    }
+
+    /**
+     * Forecast of one category's spending for the month, including fees.
+     */
+    public static final class CategoryForecast {
+        private final String name;
+        private final long limitCents;
+        private final long spentCents;
+        private final double expectedCents;
+        private final double stdDevCents;
+        private final double exceedProbability;
+
+        CategoryForecast(String name, long limitCents, long spentCents, double expectedCents, double stdDevCents,
+                         double exceedProbability) {
+            this.name = name;
+            this.limitCents = limitCents;
+            this.spentCents = spentCents;
+            this.expectedCents = expectedCents;
+            this.stdDevCents = stdDevCents;
+            this.exceedProbability = exceedProbability;
+        }
+
+        /**
+         * Gets the category name.
+         * @return the name
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Gets the category's monthly limit.
+         * @return the limit in cents
+         */
+        public long getLimitCents() {
+            return limitCents;
+        }
+
+        /**
+         * Gets the month's expenditure counted against the limit when the forecast was made.
+         * @return the expenditure in cents
+         */
+        public long getSpentCents() {
+            return spentCents;
+        }
+
+        /**
+         * Gets the expected expenditure at month end, had the limit not stopped any expense.
+         * @return the mean in cents
+         */
+        public double getExpectedCents() {
+            return expectedCents;
+        }
+
+        /**
+         * Gets the standard deviation of the expenditure at month end.
+         * @return the standard deviation in cents
+         */
+        public double getStdDevCents() {
+            return stdDevCents;
+        }
+
+        /**
+         * Gets the probability that the month's spending runs past the limit,
+         * so that some expense would be rejected.
+         * @return the fraction of trials over the limit
+         */
+        public double getExceedProbability() {
+            return exceedProbability;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder(96).append(name).append(": $");
+            Money.appendTo(sb, spentCents);
+            Money.appendTo(sb.append(" spent, expected $"), Math.round(expectedCents));
+            Money.appendTo(sb.append(" +/- $"), Math.round(stdDevCents));
+            Money.appendTo(sb.append(" of $"), limitCents);
+            return sb.append(String.format(", over limit %.1f%%", exceedProbability * 100)).toString();
+        }
+    }
+}
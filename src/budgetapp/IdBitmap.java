@@ -0,0 +1,505 @@
+// IdBitmap.java
+package budgetapp;
+
+import java.util.Arrays;
+import java.util.function.LongConsumer;
+
+/**
+ * Compressed set of transaction ids, laid out like a roaring bitmap: ids are
+ * split into chunks of 65,536 by their high bits, and each chunk holds its
+ * low 16 bits either as a sorted char array (up to 4,096 ids, two bytes
+ * each) or as a 65,536-bit bitmap (8 KB, for denser chunks). Transaction ids
+ * are handed out in sequence, so the ids of one name, month or amount range
+ * cluster into few chunks and intersections work a chunk at a time.
+ * <p>
+ * Not thread safe.
+ */
+final class IdBitmap {
+    // Most ids an array chunk holds before it becomes a bitmap chunk.
+    private static final int ARRAY_MAX = 4096;
+    private static final int WORDS = 1024;
+
+    // Chunk keys (id >>> 16) in ascending order, and their chunks.
+    private long[] keys;
+    private Chunk[] chunks;
+    private int size;
+
+    IdBitmap() {
+        keys = new long[4];
+        chunks = new Chunk[4];
+    }
+
+    /**
+     * Adds an id.
+     * @return true if the id was not already present
+     */
+    boolean add(long id) {
+        long key = id >>> 16;
+        int index = indexOf(key);
+        if (index < 0) {
+            index = -index - 1;
+            insertChunk(index, key, new ArrayChunk());
+        }
+        Chunk chunk = chunks[index];
+        int before = chunk.cardinality();
+        chunks[index] = chunk.add((char) id);
+        return chunks[index].cardinality() > before;
+    }
+
+    /**
+     * Removes an id.
+     * @return true if the id was present
+     */
+    boolean remove(long id) {
+        int index = indexOf(id >>> 16);
+        if (index < 0) {
+            return false;
+        }
+        Chunk chunk = chunks[index];
+        int before = chunk.cardinality();
+        chunk = chunk.remove((char) id);
+        if (chunk.cardinality() == 0) {
+            System.arraycopy(keys, index + 1, keys, index, size - index - 1);
+            System.arraycopy(chunks, index + 1, chunks, index, size - index - 1);
+            chunks[--size] = null;
+        } else {
+            chunks[index] = chunk;
+        }
+        return chunk.cardinality() < before;
+    }
+
+    boolean contains(long id) {
+        int index = indexOf(id >>> 16);
+        return index >= 0 && chunks[index].contains((char) id);
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    long cardinality() {
+        long total = 0;
+        for (int i = 0; i < size; i++) {
+            total += chunks[i].cardinality();
+        }
+        return total;
+    }
+
+    /**
+     * Gets the smallest id; the bitmap must not be empty.
+     */
+    long first() {
+        return keys[0] << 16 | chunks[0].first();
+    }
+
+    /**
+     * Gets the largest id; the bitmap must not be empty.
+     */
+    long last() {
+        return keys[size - 1] << 16 | chunks[size - 1].last();
+    }
+
+    /**
+     * Gets the approximate memory held by the chunks, in bytes.
+     */
+    long sizeInBytes() {
+        long bytes = 16L * keys.length;
+        for (int i = 0; i < size; i++) {
+            bytes += chunks[i].sizeInBytes();
+        }
+        return bytes;
+    }
+
+    /**
+     * Gets the ids present in both bitmaps, as a new bitmap.
+     */
+    IdBitmap and(IdBitmap other) {
+        IdBitmap result = new IdBitmap();
+        int i = 0;
+        int j = 0;
+        while (i < size && j < other.size) {
+            if (keys[i] < other.keys[j]) {
+                i++;
+            } else if (keys[i] > other.keys[j]) {
+                j++;
+            } else {
+                Chunk chunk = chunks[i].and(other.chunks[j]);
+                if (chunk.cardinality() > 0) {
+                    result.appendChunk(keys[i], chunk);
+                }
+                i++;
+                j++;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Gets the ids present in either bitmap, as a new bitmap.
+     */
+    IdBitmap or(IdBitmap other) {
+        IdBitmap result = new IdBitmap();
+        int i = 0;
+        int j = 0;
+        while (i < size || j < other.size) {
+            if (j == other.size || (i < size && keys[i] < other.keys[j])) {
+                result.appendChunk(keys[i], chunks[i].copy());
+                i++;
+            } else if (i == size || keys[i] > other.keys[j]) {
+                result.appendChunk(other.keys[j], other.chunks[j].copy());
+                j++;
+            } else {
+                result.appendChunk(keys[i], chunks[i].or(other.chunks[j]));
+                i++;
+                j++;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Adds every id of another bitmap to this one.
+     */
+    void addAll(IdBitmap other) {
+        for (int j = 0; j < other.size; j++) {
+            int index = indexOf(other.keys[j]);
+            if (index < 0) {
+                insertChunk(-index - 1, other.keys[j], other.chunks[j].copy());
+            } else {
+                chunks[index] = chunks[index].or(other.chunks[j]);
+            }
+        }
+    }
+
+    /**
+     * Passes every id to an action in ascending order.
+     */
+    void forEach(LongConsumer action) {
+        for (int i = 0; i < size; i++) {
+            chunks[i].forEach(keys[i] << 16, action);
+        }
+    }
+
+    private int indexOf(long key) {
+        // Ids are mostly added in sequence, so try the last chunk first.
+        if (size > 0 && keys[size - 1] == key) {
+            return size - 1;
+        }
+        return Arrays.binarySearch(keys, 0, size, key);
+    }
+
+    private void insertChunk(int index, long key, Chunk chunk) {
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, size * 2);
+            chunks = Arrays.copyOf(chunks, size * 2);
+        }
+        System.arraycopy(keys, index, keys, index + 1, size - index);
+        System.arraycopy(chunks, index, chunks, index + 1, size - index);
+        keys[index] = key;
+        chunks[index] = chunk;
+        size++;
+    }
+
+    private void appendChunk(long key, Chunk chunk) {
+        insertChunk(size, key, chunk);
+    }
+
+    /**
+     * The low 16 bits of the ids of one chunk. Operations may return a chunk
+     * of the other kind when the cardinality crosses ARRAY_MAX.
+     */
+    private abstract static class Chunk {
+        abstract int cardinality();
+
+        abstract boolean contains(char low);
+
+        abstract int first();
+
+        abstract int last();
+
+        abstract Chunk add(char low);
+
+        abstract Chunk remove(char low);
+
+        abstract Chunk and(Chunk other);
+
+        abstract Chunk or(Chunk other);
+
+        abstract Chunk copy();
+
+        abstract void forEach(long high, LongConsumer action);
+
+        abstract long sizeInBytes();
+    }
+
+    private static final class ArrayChunk extends Chunk {
+        private char[] values;
+        private int count;
+
+        ArrayChunk() {
+            values = new char[4];
+        }
+
+        ArrayChunk(char[] values, int count) {
+            this.values = values;
+            this.count = count;
+        }
+
+        @Override
+        int cardinality() {
+            return count;
+        }
+
+        @Override
+        boolean contains(char low) {
+            return Arrays.binarySearch(values, 0, count, low) >= 0;
+        }
+
+        @Override
+        int first() {
+            return values[0];
+        }
+
+        @Override
+        int last() {
+            return values[count - 1];
+        }
+
+        @Override
+        Chunk add(char low) {
+            int index = count > 0 && values[count - 1] < low ? -count - 1 : Arrays.binarySearch(values, 0, count, low);
+            if (index >= 0) {
+                return this;
+            }
+            if (count == ARRAY_MAX) {
+                return toBitmap().add(low);
+            }
+            index = -index - 1;
+            if (count == values.length) {
+                values = Arrays.copyOf(values, Math.min(ARRAY_MAX, Math.max(4, count * 2)));
+            }
+            System.arraycopy(values, index, values, index + 1, count - index);
+            values[index] = low;
+            count++;
+            return this;
+        }
+
+        @Override
+        Chunk remove(char low) {
+            int index = Arrays.binarySearch(values, 0, count, low);
+            if (index >= 0) {
+                System.arraycopy(values, index + 1, values, index, count - index - 1);
+                count--;
+            }
+            return this;
+        }
+
+        @Override
+        Chunk and(Chunk other) {
+            char[] result = new char[Math.min(count, other.cardinality())];
+            int n = 0;
+            if (other instanceof BitmapChunk) {
+                for (int i = 0; i < count; i++) {
+                    if (other.contains(values[i])) {
+                        result[n++] = values[i];
+                    }
+                }
+                return new ArrayChunk(result, n);
+            }
+            ArrayChunk array = (ArrayChunk) other;
+            int i = 0;
+            int j = 0;
+            while (i < count && j < array.count) {
+                if (values[i] < array.values[j]) {
+                    i++;
+                } else if (values[i] > array.values[j]) {
+                    j++;
+                } else {
+                    result[n++] = values[i];
+                    i++;
+                    j++;
+                }
+            }
+            return new ArrayChunk(result, n);
+        }
+
+        @Override
+        Chunk or(Chunk other) {
+            if (other instanceof BitmapChunk) {
+                return other.or(this);
+            }
+            ArrayChunk array = (ArrayChunk) other;
+            if (count + array.count > ARRAY_MAX) {
+                return toBitmap().or(array);
+            }
+            char[] result = new char[Math.max(4, count + array.count)];
+            int n = 0;
+            int i = 0;
+            int j = 0;
+            while (i < count || j < array.count) {
+                if (j == array.count || (i < count && values[i] < array.values[j])) {
+                    result[n++] = values[i++];
+                } else if (i == count || values[i] > array.values[j]) {
+                    result[n++] = array.values[j++];
+                } else {
+                    result[n++] = values[i];
+                    i++;
+                    j++;
+                }
+            }
+            return new ArrayChunk(result, n);
+        }
+
+        @Override
+        Chunk copy() {
+            return new ArrayChunk(Arrays.copyOf(values, Math.max(4, count)), count);
+        }
+
+        @Override
+        void forEach(long high, LongConsumer action) {
+            for (int i = 0; i < count; i++) {
+                action.accept(high | values[i]);
+            }
+        }
+
+        @Override
+        long sizeInBytes() {
+            return 32L + 2L * values.length;
+        }
+
+        private BitmapChunk toBitmap() {
+            BitmapChunk bitmap = new BitmapChunk();
+            for (int i = 0; i < count; i++) {
+                bitmap.words[values[i] >>> 6] |= 1L << values[i];
+            }
+            bitmap.count = count;
+            return bitmap;
+        }
+    }
+
+    private static final class BitmapChunk extends Chunk {
+        private final long[] words = new long[WORDS];
+        private int count;
+
+        @Override
+        int cardinality() {
+            return count;
+        }
+
+        @Override
+        boolean contains(char low) {
+            return (words[low >>> 6] & (1L << low)) != 0;
+        }
+
+        @Override
+        int first() {
+            int i = 0;
+            while (words[i] == 0) {
+                i++;
+            }
+            return i << 6 | Long.numberOfTrailingZeros(words[i]);
+        }
+
+        @Override
+        int last() {
+            int i = WORDS - 1;
+            while (words[i] == 0) {
+                i--;
+            }
+            return i << 6 | 63 - Long.numberOfLeadingZeros(words[i]);
+        }
+
+        @Override
+        Chunk add(char low) {
+            long bit = 1L << low;
+            if ((words[low >>> 6] & bit) == 0) {
+                words[low >>> 6] |= bit;
+                count++;
+            }
+            return this;
+        }
+
+        @Override
+        Chunk remove(char low) {
+            long bit = 1L << low;
+            if ((words[low >>> 6] & bit) != 0) {
+                words[low >>> 6] &= ~bit;
+                count--;
+            }
+            return count <= ARRAY_MAX ? toArray() : this;
+        }
+
+        @Override
+        Chunk and(Chunk other) {
+            if (other instanceof ArrayChunk) {
+                return other.and(this);
+            }
+            BitmapChunk result = new BitmapChunk();
+            long[] theirs = ((BitmapChunk) other).words;
+            int n = 0;
+            for (int i = 0; i < WORDS; i++) {
+                result.words[i] = words[i] & theirs[i];
+                n += Long.bitCount(result.words[i]);
+            }
+            result.count = n;
+            return n <= ARRAY_MAX ? result.toArray() : result;
+        }
+
+        @Override
+        Chunk or(Chunk other) {
+            BitmapChunk result = (BitmapChunk) copy();
+            if (other instanceof ArrayChunk) {
+                ArrayChunk array = (ArrayChunk) other;
+                for (int i = 0; i < array.count; i++) {
+                    result.add(array.values[i]);
+                }
+                return result;
+            }
+            long[] theirs = ((BitmapChunk) other).words;
+            int n = 0;
+            for (int i = 0; i < WORDS; i++) {
+                result.words[i] |= theirs[i];
+                n += Long.bitCount(result.words[i]);
+            }
+            result.count = n;
+            return result;
+        }
+
+        @Override
+        Chunk copy() {
+            BitmapChunk copy = new BitmapChunk();
+            System.arraycopy(words, 0, copy.words, 0, WORDS);
+            copy.count = count;
+            return copy;
+        }
+
+        @Override
+        void forEach(long high, LongConsumer action) {
+            for (int i = 0; i < WORDS; i++) {
+                long word = words[i];
+                while (word != 0) {
+                    action.accept(high | (i << 6) | Long.numberOfTrailingZeros(word));
+                    word &= word - 1;
+                }
+            }
+        }
+
+        @Override
+        long sizeInBytes() {
+            return 24L + 8L * WORDS;
+        }
+
+        private ArrayChunk toArray() {
+            char[] values = new char[Math.max(4, count)];
+            int n = 0;
+            for (int i = 0; i < WORDS; i++) {
+                long word = words[i];
+                while (word != 0) {
+                    values[n++] = (char) ((i << 6) | Long.numberOfTrailingZeros(word));
+                    word &= word - 1;
+                }
+            }
+            return new ArrayChunk(values, n);
+        }
+    }
+}
@@ -0,0 +1,101 @@
+// ImportResult.java
+package budgetapp;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Outcome of a bulk import: how many rows were added and which were rejected.
+ */
+public class ImportResult {
+    /**
+     * A row that could not be imported, with the reason.
+     */
+    public static class RejectedRow {
+        private final long lineNumber;
+        private final String line;
+        private final String reason;
+
+        /**
+         * Constructs a RejectedRow.
+         * @param lineNumber the 1-based line number in the input
+         * @param line the raw line text
+         * @param reason why the row was rejected
+         */
+        public RejectedRow(long lineNumber, String line, String reason) {
+            this.lineNumber = lineNumber;
+            this.line = line;
+            this.reason = reason;
+        }
+
+        /**
+         * Gets the line number of the row.
+         * @return the 1-based line number
+         */
+        public long getLineNumber() {
+            return lineNumber;
+        }
+
+        /**
+         * Gets the raw text of the row.
+         * @return the line
+         */
+        public String getLine() {
+            return line;
+        }
+
+        /**
+         * Gets the reason the row was rejected.
+         * @return the reason
+         */
+        public String getReason() {
+            return reason;
+        }
+
+        @Override
+        public String toString() {
+            return "Line " + lineNumber + ": " + reason + " [" + line + "]";
+        }
+    }
+
+    private long importedCount;
+    private final List<RejectedRow> rejectedRows;
+
+    /**
+     * Constructs an empty ImportResult.
+     */
+    public ImportResult() {
+        importedCount = 0;
+        rejectedRows = new ArrayList<>();
+    }
+
+    void addImported(long count) {
+        importedCount += count;
+    }
+
+    void addRejected(RejectedRow row) {
+        rejectedRows.add(row);
+    }
+
+    /**
+     * Gets the number of transactions added to the manager.
+     * @return the imported count
+     */
+    public long getImportedCount() {
+        return importedCount;
+    }
+
+    /**
+     * Gets the rows that were rejected, in input order.
+     * @return unmodifiable list of rejected rows
+     */
+    public List<RejectedRow> getRejectedRows() {
+        return Collections.unmodifiableList(rejectedRows);
+    }
+
+    @Override
+    public String toString() {
+        return "Imported " + importedCount + " transactions, rejected " + rejectedRows.size() + " rows";
+    }
+}
\ No newline at end of file
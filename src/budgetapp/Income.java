@@ -7,7 +7,8 @@ import java.time.LocalDateTime;
  * Represents money received (e.g., salary, gift).
  */
 public class Income extends Transaction {
-    private String source;
+    // Source, shared through the SymbolTable.
+    private SymbolTable.Symbol source;
 
     /**
      * Constructs an Income transaction.
@@ -17,11 +18,52 @@ public class Income extends Transaction {
      * @throws IllegalArgumentException if source is null or empty
      */
     public Income(double amount, LocalDateTime dateTime, String source) {
-        super(amount, dateTime);
+        this(Money.ofMajor(amount), dateTime, source);
+    }
+
+    private Income(long amountCents, LocalDateTime dateTime, String source) {
+        this(amountCents, dateTime, internSource(source));
+    }
+
+    private Income(long amountCents, LocalDateTime dateTime, SymbolTable.Symbol source) {
+        super(amountCents, dateTime);
+        this.source = source;
+    }
+
+    private Income(long id, long amountCents, LocalDateTime dateTime, SymbolTable.Symbol source) {
+        super(id, amountCents, dateTime);
+        this.source = source;
+    }
+
+    /**
+     * Creates an Income transaction from an amount in cents.
+     * @param amountCents the income amount in cents
+     * @param dateTime the date and time
+     * @param source the source of income (e.g., Salary)
+     * @return the new income
+     * @throws IllegalArgumentException if amount is not positive, dateTime is null or source is null/empty
+     */
+    public static Income ofCents(long amountCents, LocalDateTime dateTime, String source) {
+        return new Income(amountCents, dateTime, source);
+    }
+
+    /**
+     * Recreates a stored Income with its original id and an interned source.
+     * @param id the id issued when the income was first created
+     * @param amountCents the income amount in cents
+     * @param dateTime the date and time
+     * @param source the source's symbol
+     * @return the income
+     */
+    static Income ofSymbol(long id, long amountCents, LocalDateTime dateTime, SymbolTable.Symbol source) {
+        return new Income(id, amountCents, dateTime, source);
+    }
+
+    private static SymbolTable.Symbol internSource(String source) {
         if (source == null || source.trim().isEmpty()) {
             throw new IllegalArgumentException("Source cannot be null or empty");
         }
-        this.source = source;
+        return SymbolTable.symbol(source);
     }
 
     /**
@@ -29,16 +71,29 @@ public class Income extends Transaction {
      * @return the source
      */
     public String getSource() {
+        return source.name;
+    }
+
+    /**
+     * Gets the source of the income as a {@link SymbolTable} id.
+     * @return the id
+     */
+    public int getSourceId() {
+        return source.id;
+    }
+
+    SymbolTable.Symbol getSourceSymbol() {
         return source;
     }
 
     @Override
-    public double getEffectiveAmount() {
+    public long getEffectiveAmountCents() {
         return amount; // No fees for income
     }
 
     @Override
     public String toString() {
-        return String.format("Income from %s of $%.2f on %s", source, amount, dateTime);
+        StringBuilder sb = new StringBuilder(64).append("Income from ").append(getSource()).append(" of $");
+        return Money.appendTo(sb, amount).append(" on ").append(dateTime).toString();
     }
 }
\ No newline at end of file
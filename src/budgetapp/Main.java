@@ -1,13 +1,31 @@
 package budgetapp;
 
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.YearMonth;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Scanner;
+import java.util.stream.Stream;
+import javax.management.JMException;
 
 /**
  * Entry point for the Budget Management Application.
@@ -21,10 +39,54 @@ public class Main {
         new BudgetCategory("Utilities", 300.0),
         new BudgetCategory("Entertainment", 150.0)
     );
+    // Rejected import rows printed before the list is truncated
+    private static final int MAX_REJECTED_SHOWN = 20;
+    // Journal file used when no path is given on the command line
+    private static final String DEFAULT_JOURNAL = "budget.journal";
+    // Snapshot file used when no path is given on the command line
+    private static final String DEFAULT_SNAPSHOT = "budget.snapshot";
+    // Transactions printed before asking whether to show more
+    private static final int PAGE_SIZE = 50;
+    // How often the journal is committed in the background in batch mode
+    private static final long JOURNAL_COMMIT_INTERVAL_MILLIS = 10;
+    // Read and write buffer size for batch mode
+    private static final int BATCH_BUFFER_SIZE = 1 << 16;
+
+    // Where startup messages go; stderr in batch mode so that stdout holds only command output
+    private static PrintStream status = System.out;
 
     public static void main(String[] args) {
+        // "--serve <port>" or "--batch <script|->" before the file arguments replaces the menu.
+        int serverPort = -1;
+        String batchScript = null;
+        if (args.length > 1 && args[0].equals("--serve")) {
+            serverPort = Integer.parseInt(args[1]);
+            args = Arrays.copyOfRange(args, 2, args.length);
+        } else if (args.length > 1 && args[0].equals("--batch")) {
+            batchScript = args[1];
+            args = Arrays.copyOfRange(args, 2, args.length);
+            status = System.err;
+        }
         Scanner scanner = new Scanner(System.in);
-        BudgetManager manager = new BudgetManager();
+        Path snapshotPath = Paths.get(args.length > 1 ? args[1] : DEFAULT_SNAPSHOT);
+        BudgetManager manager = loadSnapshot(snapshotPath);
+        if (manager == null) {
+            return;
+        }
+        // A script does not wait for an fsync per command; closing the journal commits it.
+        BudgetJournal.SyncMode syncMode = batchScript != null ? BudgetJournal.SyncMode.ASYNC : BudgetJournal.SyncMode.GROUP;
+        BudgetJournal journal = openJournal(manager, args.length > 0 ? args[0] : DEFAULT_JOURNAL, syncMode);
+        if (batchScript != null) {
+            runBatch(manager, journal, batchScript);
+            return;
+        }
+        // Journal replay is not user activity.
+        manager.getMetrics().reset();
+        registerMetrics(manager);
+        if (serverPort >= 0) {
+            serve(manager, journal, serverPort);
+            return;
+        }
         DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
 
         while (true) {
@@ -36,8 +98,14 @@ public class Main {
             System.out.println("5. View Expenses by Category");
             System.out.println("6. View Expenses Above Amount");
             System.out.println("7. View Transactions by Date Range");
-            System.out.println("8. Reset Category Expenditure");
-            System.out.println("9. Exit");
+            System.out.println("8. Reset Category Expenditure (this month)");
+            System.out.println("9. Import Transactions from CSV");
+            System.out.println("10. Save Checkpoint");
+            System.out.println("11. View Monthly Summary");
+            System.out.println("12. Show Performance Metrics");
+            System.out.println("13. Export Transactions");
+            System.out.println("14. Forecast This Month");
+            System.out.println("0. Exit");
             System.out.print("Enter your choice: ");
 
             try {
@@ -45,12 +113,12 @@ public class Main {
                 switch (choice) {
                     case 1:
                         System.out.print("Enter income amount (e.g., 1000.00): ");
-                        double incomeAmount = Double.parseDouble(scanner.nextLine());
+                        long incomeAmount = Money.parse(scanner.nextLine());
                         System.out.print("Enter source (e.g., Salary): ");
                         String source = scanner.nextLine();
                         System.out.print("Enter date and time (yyyy-MM-dd HH:mm, e.g., 2025-03-03 12:12): ");
                         LocalDateTime incomeDate = LocalDateTime.parse(scanner.nextLine(), formatter);
-                        manager.addIncome(new Income(incomeAmount, incomeDate, source));
+                        manager.addIncome(Income.ofCents(incomeAmount, incomeDate, source));
                         System.out.println("Income added!");
                         break;
 
@@ -60,12 +128,12 @@ public class Main {
                             break; // User chose not to create a new category
                         }
                         System.out.print("Enter expense amount (e.g., 50.00): ");
-                        double expenseAmount = Double.parseDouble(scanner.nextLine());
+                        long expenseAmount = Money.parse(scanner.nextLine());
                         System.out.print("Enter payment method (CASH, CARD, ALIPAY, WECHAT): ");
                         Expense.PaymentMethod method = Expense.PaymentMethod.valueOf(scanner.nextLine().toUpperCase());
                         System.out.print("Enter date and time (yyyy-MM-dd HH:mm, e.g., 2025-03-03 12:12): ");
                         LocalDateTime expenseDate = LocalDateTime.parse(scanner.nextLine(), formatter);
-                        manager.addExpense(new Expense(expenseAmount, expenseDate, selectedCategory.getName(), method), selectedCategory);
+                        manager.addExpense(Expense.ofCents(expenseAmount, expenseDate, selectedCategory.getName(), method), selectedCategory);
                         System.out.println("Expense added!");
                         break;
 
@@ -73,8 +141,8 @@ public class Main {
                         System.out.print("Enter category name for expenses (e.g., Food, Rent, Transport): ");
                         String newCategoryName = scanner.nextLine();
                         System.out.print("Enter monthly limit (e.g., 500.00): ");
-                        double limit = Double.parseDouble(scanner.nextLine());
-                        BudgetCategory newCategory = new BudgetCategory(newCategoryName, limit);
+                        long limit = Money.parse(scanner.nextLine());
+                        BudgetCategory newCategory = BudgetCategory.ofCents(newCategoryName, limit);
                         manager.addCategory(newCategory);
                         System.out.println("Category added!");
                         break;
@@ -91,9 +159,7 @@ public class Main {
                         BudgetCategory categoryToView = selectCategory(scanner, manager, false);
                         if (categoryToView != null) {
                             System.out.println("\nExpenses for " + categoryToView.getName() + ":");
-                            for (Expense e : manager.getExpensesByCategory(categoryToView)) {
-                                System.out.println(e);
-                            }
+                            printPaged(scanner, manager.streamExpensesByCategory(categoryToView));
                         }
                         break;
 
@@ -101,9 +167,7 @@ public class Main {
                         System.out.print("Enter minimum expense amount (e.g., 100.00): ");
                         double minAmount = Double.parseDouble(scanner.nextLine());
                         System.out.println("\nExpenses above $" + minAmount + ":");
-                        for (Expense e : manager.getExpensesAboveAmount(minAmount)) {
-                            System.out.println(e);
-                        }
+                        printPaged(scanner, manager.streamExpensesAboveAmount(minAmount));
                         break;
 
                     case 7:
@@ -112,20 +176,80 @@ public class Main {
                         System.out.print("Enter end date (yyyy-MM-dd): ");
                         LocalDate end = LocalDate.parse(scanner.nextLine());
                         System.out.println("\nTransactions from " + start + " to " + end + ":");
-                        for (Transaction t : manager.getTransactionsByDateRange(start, end)) {
-                            System.out.println(t);
-                        }
+                        printPaged(scanner, manager.streamTransactionsByDateRange(start, end));
                         break;
 
                     case 8:
                         BudgetCategory categoryToReset = selectCategory(scanner, manager, false);
                         if (categoryToReset != null) {
-                            categoryToReset.resetExpenditure();
+                            manager.resetExpenditure(categoryToReset);
                             System.out.println("Category expenditure reset!");
                         }
                         break;
 
                     case 9:
+                        System.out.print("Enter CSV file path: ");
+                        ImportResult imported = new TransactionImporter(manager).importFile(Paths.get(scanner.nextLine().trim()));
+                        System.out.println(imported);
+                        List<ImportResult.RejectedRow> rejected = imported.getRejectedRows();
+                        for (int i = 0; i < Math.min(rejected.size(), MAX_REJECTED_SHOWN); i++) {
+                            System.out.println(rejected.get(i));
+                        }
+                        if (rejected.size() > MAX_REJECTED_SHOWN) {
+                            System.out.println("... and " + (rejected.size() - MAX_REJECTED_SHOWN) + " more");
+                        }
+                        break;
+
+                    case 10:
+                        try {
+                            manager.checkpoint(snapshotPath);
+                            System.out.println("Checkpoint saved to " + snapshotPath);
+                        } catch (IOException e) {
+                            System.out.println("Could not save checkpoint: " + e.getMessage());
+                        }
+                        break;
+
+                    case 11:
+                        System.out.print("Enter month (yyyy-MM, e.g., 2025-03): ");
+                        YearMonth month = YearMonth.parse(scanner.nextLine().trim());
+                        System.out.println("\nSpending in " + month + ":");
+                        for (Map.Entry<BudgetCategory, MonthlyTotal> entry : manager.getMonthlySummary(month).entrySet()) {
+                            BudgetCategory category = entry.getKey();
+                            System.out.printf("%s: $%s of $%s (%d expense(s), fees $%s)%n", category.getName(),
+                                    Money.format(entry.getValue().getAmountCents()), Money.format(category.getLimitCents()),
+                                    entry.getValue().getCount(), Money.format(entry.getValue().getFeeCents()));
+                        }
+                        System.out.println("Income in " + month + ":");
+                        for (Map.Entry<String, MonthlyTotal> entry : manager.getMonthlyIncome(month).entrySet()) {
+                            System.out.printf("%s: $%s (%d income(s))%n", entry.getKey(),
+                                    Money.format(entry.getValue().getAmountCents()), entry.getValue().getCount());
+                        }
+                        break;
+
+                    case 12:
+                        System.out.println(manager.getMetrics().dump());
+                        System.out.println(manager.getQueryCacheStats());
+                        break;
+
+                    case 13:
+                        System.out.print("Enter export file path (.csv or .json, add .gz to compress): ");
+                        Path exportPath = Paths.get(scanner.nextLine().trim());
+                        try {
+                            long exported = TransactionExporter.forPath(exportPath).exportLedger(manager, exportPath);
+                            System.out.println("Exported " + exported + " transactions to " + exportPath);
+                        } catch (IOException e) {
+                            System.out.println("Could not write file: " + e.getMessage());
+                        }
+                        break;
+
+                    case 14:
+                        System.out.println(new BudgetForecast(manager).forecast());
+                        break;
+
+                    case 0:
+                        if (journal != null) {
+                            journal.close();
+                        }
                         System.out.println("Exiting Budget Manager. Goodbye!");
                         scanner.close();
                         return;
@@ -139,6 +263,8 @@ public class Main {
                 System.out.println("Invalid date/time format. Use yyyy-MM-dd HH:mm (e.g., 2025-03-03 12:12).");
             } catch (IllegalArgumentException e) {
                 System.out.println("Error: " + e.getMessage());
+            } catch (IOException e) {
+                System.out.println("Could not read file: " + e.getMessage());
             } catch (MonthlyLimitException e) {
                 System.out.println("Error: " + e.getMessage());
             } catch (Exception e) {
@@ -147,6 +273,148 @@ public class Main {
         }
     }
 
+    /**
+     * Loads the last checkpoint, or starts with an empty manager if there is none.
+     * A checkpoint that cannot be read is not ignored, since replaying the
+     * journal without it would lose data.
+     * @param path the snapshot file path
+     * @return the loaded or new BudgetManager, or null if the checkpoint could not be read
+     */
+    private static BudgetManager loadSnapshot(Path path) {
+        if (!Files.exists(path)) {
+            return new BudgetManager();
+        }
+        try {
+            BudgetManager manager = BudgetSnapshot.load(path);
+            status.println("Loaded checkpoint " + path);
+            return manager;
+        } catch (IOException | RuntimeException e) {
+            status.println("Could not load checkpoint " + path + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Prints transactions one page at a time. Only the rows shown are read.
+     * @param scanner the Scanner for user input
+     * @param transactions the transactions to print, in order
+     */
+    private static void printPaged(Scanner scanner, Stream<? extends Transaction> transactions) {
+        Iterator<? extends Transaction> rows = transactions.iterator();
+        int shown = 0;
+        while (rows.hasNext()) {
+            System.out.println(rows.next());
+            if (++shown % PAGE_SIZE == 0 && rows.hasNext()) {
+                System.out.print("-- Enter for more, q to stop -- ");
+                if (scanner.nextLine().trim().equalsIgnoreCase("q")) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Runs a script of {@link BudgetServer} commands without menus, writing
+     * every reply to stdout through one buffered writer, and reports the
+     * throughput on stderr.
+     * @param manager the BudgetManager to run against
+     * @param journal the open journal, closed at the end, or null
+     * @param script the script file, or "-" for stdin
+     */
+    private static void runBatch(BudgetManager manager, BudgetJournal journal, String script) {
+        CommandProcessor processor = new CommandProcessor(manager);
+        long commands = 0;
+        long start = System.nanoTime();
+        try (BufferedReader in = script.equals("-")
+                     ? new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8), BATCH_BUFFER_SIZE)
+                     : new BufferedReader(new InputStreamReader(Files.newInputStream(Paths.get(script)),
+                             StandardCharsets.UTF_8), BATCH_BUFFER_SIZE);
+             Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(FileDescriptor.out),
+                     StandardCharsets.UTF_8), BATCH_BUFFER_SIZE)) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (line.isBlank() || line.startsWith("#")) {
+                    continue;
+                }
+                commands++;
+                if (!processor.execute(line, out)) {
+                    break;
+                }
+            }
+        } catch (IOException e) {
+            status.println("Could not run script " + script + ": " + e.getMessage());
+        } finally {
+            if (journal != null) {
+                try {
+                    journal.close();
+                } catch (IOException e) {
+                    status.println("Could not close journal: " + e.getMessage());
+                }
+            }
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        status.printf("%d commands in %.3f s (%.0f commands/s)%n", commands, seconds, commands / seconds);
+    }
+
+    /**
+     * Serves the manager on a local port until the process is stopped.
+     * @param manager the BudgetManager to serve
+     * @param journal the open journal, closed on shutdown, or null
+     * @param port the port to listen on
+     */
+    private static void serve(BudgetManager manager, BudgetJournal journal, int port) {
+        try {
+            BudgetServer server = new BudgetServer(manager, port);
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                server.close();
+                if (journal != null) {
+                    try {
+                        journal.close();
+                    } catch (IOException e) {
+                        System.out.println("Could not close journal: " + e.getMessage());
+                    }
+                }
+            }));
+            server.start();
+            System.out.println("Serving budget on localhost:" + server.getPort() + " (Ctrl+C to stop)");
+            server.awaitTermination();
+        } catch (IOException e) {
+            System.out.println("Could not start server on port " + port + ": " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Publishes the manager's metrics over JMX, e.g. for JConsole.
+     * @param manager the BudgetManager to monitor
+     */
+    private static void registerMetrics(BudgetManager manager) {
+        try {
+            manager.getMetrics().register("main");
+        } catch (JMException e) {
+            System.out.println("Could not register metrics with JMX: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Opens the journal and replays any saved state into the manager.
+     * @param manager the BudgetManager to rebuild, empty or loaded from a checkpoint
+     * @param path the journal file path
+     * @param mode when journal records are forced to disk
+     * @return the open journal, or null if it could not be opened
+     */
+    private static BudgetJournal openJournal(BudgetManager manager, String path, BudgetJournal.SyncMode mode) {
+        try {
+            BudgetJournal journal = BudgetJournal.open(Paths.get(path), manager, mode, JOURNAL_COMMIT_INTERVAL_MILLIS);
+            status.println("Saving changes to " + path);
+            return journal;
+        } catch (IOException | RuntimeException e) {
+            status.println("Could not open journal " + path + ", changes will not be saved: " + e.getMessage());
+            return null;
+        }
+    }
+
     /**
      * Displays available categories and lets the user select one.
      * @param scanner the Scanner for user input
@@ -176,13 +444,13 @@ public class Main {
                     System.out.print("Enter custom category name for expenses (e.g., Food, Rent, Transport): ");
                     String customName = scanner.nextLine();
                     System.out.print("Enter monthly limit (e.g., 500.00): ");
-                    double customLimit = Double.parseDouble(scanner.nextLine());
-                    BudgetCategory customCategory = new BudgetCategory(customName, customLimit);
+                    long customLimit = Money.parse(scanner.nextLine());
+                    BudgetCategory customCategory = BudgetCategory.ofCents(customName, customLimit);
                     manager.addCategory(customCategory);
                     return customCategory;
                 } else if (choice >= 1 && choice <= TEMPLATE_CATEGORIES.size()) {
                     BudgetCategory selectedTemplate = TEMPLATE_CATEGORIES.get(choice - 1);
-                    BudgetCategory newCategory = new BudgetCategory(selectedTemplate.getName(), selectedTemplate.getLimit());
+                    BudgetCategory newCategory = BudgetCategory.ofCents(selectedTemplate.getName(), selectedTemplate.getLimitCents());
                     manager.addCategory(newCategory);
                     return newCategory;
                 } else {
@@ -214,8 +482,8 @@ public class Main {
                     System.out.print("Enter new category name for expenses (e.g., Food, Rent, Transport): ");
                     String newName = scanner.nextLine();
                     System.out.print("Enter monthly limit (e.g., 500.00): ");
-                    double newLimit = Double.parseDouble(scanner.nextLine());
-                    BudgetCategory newCategory = new BudgetCategory(newName, newLimit);
+                    long newLimit = Money.parse(scanner.nextLine());
+                    BudgetCategory newCategory = BudgetCategory.ofCents(newName, newLimit);
                     manager.addCategory(newCategory);
                     return newCategory;
                 } else if (choice >= 1 && choice <= categories.size()) {
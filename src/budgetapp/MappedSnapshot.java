@@ -0,0 +1,394 @@
+// MappedSnapshot.java
+package budgetapp;
+
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntPredicate;
+
+/**
+ * Read-only transactions of a memory-mapped snapshot (see {@link BudgetSnapshot}).
+ * Rows stay in the mapped file and are turned into Income and Expense objects
+ * only when a query returns them, so loading costs nothing per row.
+ * <p>
+ * Rows are stored in date order. Three row permutations written with the
+ * snapshot serve amount queries (expenses by effective amount), category
+ * queries (expenses grouped by category, in date order) and id lookups (rows
+ * by transaction id).
+ */
+final class MappedSnapshot {
+    private final long journalGeneration;
+    private final BudgetCategory[] categories;
+    private final Map<BudgetCategory, Integer> categoryIndex;
+    private final String[] labels;
+    // Symbols of the labels, by label code; they keep the labels' ids in use while the snapshot is.
+    private final SymbolTable.Symbol[] labelSymbols;
+    private final int rowCount;
+    private final int expenseCount;
+    private final LongBuffer epochSeconds;
+    private final LongBuffer amounts;
+    private final LongBuffer ids;
+    private final IntBuffer nanos;
+    private final IntBuffer labelCodes;
+    private final IntBuffer categoryCodes;
+    private final IntBuffer byAmount;
+    private final IntBuffer categoryOffsets;
+    private final IntBuffer byCategory;
+    private final IntBuffer byId;
+    private final ByteBuffer methods;
+    // Categories deleted since loading; their rows are skipped.
+    private final boolean[] hidden;
+    // Rows deleted or replaced since loading.
+    private final BitSet deleted = new BitSet();
+
+    MappedSnapshot(long journalGeneration, BudgetCategory[] categories, String[] labels, int rowCount, int expenseCount,
+                   LongBuffer epochSeconds, LongBuffer amounts, LongBuffer ids, IntBuffer nanos, IntBuffer labelCodes,
+                   IntBuffer categoryCodes, IntBuffer byAmount, IntBuffer categoryOffsets, IntBuffer byCategory,
+                   IntBuffer byId, ByteBuffer methods) {
+        this.journalGeneration = journalGeneration;
+        this.categories = categories;
+        this.labels = labels;
+        this.labelSymbols = new SymbolTable.Symbol[labels.length];
+        for (int i = 0; i < labels.length; i++) {
+            labelSymbols[i] = SymbolTable.symbol(labels[i]);
+        }
+        this.rowCount = rowCount;
+        this.expenseCount = expenseCount;
+        this.epochSeconds = epochSeconds;
+        this.amounts = amounts;
+        this.ids = ids;
+        this.nanos = nanos;
+        this.labelCodes = labelCodes;
+        this.categoryCodes = categoryCodes;
+        this.byAmount = byAmount;
+        this.categoryOffsets = categoryOffsets;
+        this.byCategory = byCategory;
+        this.byId = byId;
+        this.methods = methods;
+        this.hidden = new boolean[categories.length];
+        this.categoryIndex = new IdentityHashMap<>();
+        for (int i = 0; i < categories.length; i++) {
+            categoryIndex.put(categories[i], i);
+        }
+    }
+
+    long getJournalGeneration() {
+        return journalGeneration;
+    }
+
+    BudgetCategory[] getCategories() {
+        return categories.clone();
+    }
+
+    int size() {
+        return rowCount;
+    }
+
+    /**
+     * Hides the rows of a deleted category.
+     * @param category the deleted category
+     */
+    void hide(BudgetCategory category) {
+        Integer index = categoryIndex.get(category);
+        if (index != null) {
+            hidden[index] = true;
+        }
+    }
+
+    /**
+     * Hides one row, after its transaction was deleted or replaced.
+     * @param row the row number
+     */
+    void delete(int row) {
+        deleted.set(row);
+    }
+
+    boolean isVisible(int row) {
+        int category = categoryCodes.get(row);
+        return (category < 0 || !hidden[category]) && !deleted.get(row);
+    }
+
+    /**
+     * Finds the visible row of a transaction id by binary search over the id order.
+     * @param id the transaction id
+     * @return the row number, or -1 if no visible row has the id
+     */
+    int findRow(long id) {
+        int lo = 0;
+        int hi = rowCount;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            int row = byId.get(mid);
+            long rowId = ids.get(row);
+            if (rowId < id) {
+                lo = mid + 1;
+            } else if (rowId > id) {
+                hi = mid;
+            } else {
+                return isVisible(row) ? row : -1;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Gets the category of a row.
+     * @param row the row number
+     * @return the category, or null for an income
+     */
+    BudgetCategory categoryOf(int row) {
+        int category = categoryCodes.get(row);
+        return category < 0 ? null : categories[category];
+    }
+
+    long epochSecond(int row) {
+        return epochSeconds.get(row);
+    }
+
+    int nano(int row) {
+        return nanos.get(row);
+    }
+
+    long amountCents(int row) {
+        return amounts.get(row);
+    }
+
+    long id(int row) {
+        return ids.get(row);
+    }
+
+    String label(int row) {
+        return labels[labelCodes.get(row)];
+    }
+
+    /**
+     * Gets the payment method ordinal of a row.
+     * @param row the row number
+     * @return the ordinal, or -1 for an income
+     */
+    byte method(int row) {
+        return methods.get(row);
+    }
+
+    /**
+     * Creates an Income or Expense object for a row.
+     * @param row the row number
+     * @return the transaction
+     */
+    Transaction row(int row) {
+        LocalDateTime dateTime = LocalDateTime.ofEpochSecond(epochSeconds.get(row), nanos.get(row), ZoneOffset.UTC);
+        SymbolTable.Symbol label = labelSymbols[labelCodes.get(row)];
+        byte method = methods.get(row);
+        long id = ids.get(row);
+        return method < 0 ? Income.ofSymbol(id, amounts.get(row), dateTime, label)
+                : Expense.ofSymbol(id, amounts.get(row), dateTime, label, Expense.PaymentMethod.values()[method]);
+    }
+
+    /**
+     * Adds every visible row to a search index, without creating its transaction.
+     */
+    void indexText(TextIndex index) {
+        for (int row = 0; row < rowCount; row++) {
+            if (isVisible(row)) {
+                boolean expense = methods.get(row) >= 0;
+                LocalDate date = LocalDate.ofEpochDay(Math.floorDiv(epochSeconds.get(row), 86_400L));
+                index.add(ids.get(row), expense, labelSymbols[labelCodes.get(row)], TextIndex.monthOf(date),
+                        expense ? effectiveCents(row) : amounts.get(row));
+            }
+        }
+    }
+
+    /**
+     * Adds the visible transactions between two instants (inclusive) in date order.
+     */
+    void collectRange(LocalDateTime from, LocalDateTime to, List<Transaction> out) {
+        int lo = firstAtOrAfter(from.toEpochSecond(ZoneOffset.UTC), from.getNano());
+        long toSecond = to.toEpochSecond(ZoneOffset.UTC);
+        int toNano = to.getNano();
+        for (int row = lo; row < rowCount && !isAfter(row, toSecond, toNano); row++) {
+            if (isVisible(row)) {
+                out.add(row(row));
+            }
+        }
+    }
+
+    /**
+     * Adds the visible expenses whose effective amount is in [min, max], in date order.
+     */
+    void collectAmountRange(long min, long max, List<Expense> out) {
+        int from = firstAmountAbove(min - 1);
+        int to = min > max ? from : firstAmountAbove(max);
+        int[] rows = new int[Math.max(0, to - from)];
+        int count = 0;
+        for (int i = from; i < to; i++) {
+            int row = byAmount.get(i);
+            if (isVisible(row)) {
+                rows[count++] = row;
+            }
+        }
+        // Row order is date order, so sorting row numbers is all that is needed.
+        Arrays.sort(rows, 0, count);
+        for (int i = 0; i < count; i++) {
+            out.add((Expense) row(rows[i]));
+        }
+    }
+
+    /**
+     * Adds up to n visible expenses with the largest effective amounts, largest first.
+     */
+    void collectTop(int n, List<Expense> out) {
+        for (int i = expenseCount - 1; i >= 0 && out.size() < n; i--) {
+            int row = byAmount.get(i);
+            if (isVisible(row)) {
+                out.add((Expense) row(row));
+            }
+        }
+    }
+
+    /**
+     * Adds the expenses of a category in date order.
+     */
+    void collectCategory(BudgetCategory category, List<Expense> out) {
+        Integer index = categoryIndex.get(category);
+        if (index == null || hidden[index]) {
+            return;
+        }
+        for (int i = categoryOffsets.get(index); i < categoryOffsets.get(index + 1); i++) {
+            int row = byCategory.get(i);
+            if (!deleted.get(row)) {
+                out.add((Expense) row(row));
+            }
+        }
+    }
+
+    /**
+     * Creates a date-ordered run over the visible rows that pass a filter.
+     * @param key identifies the run in a cursor
+     * @param filter the row filter; must only accept rows of type T
+     * @return the run
+     */
+    <T extends Transaction> TransactionCursor.Run<T> run(Object key, IntPredicate filter) {
+        return new RowRun<>(key, null, 0, rowCount, filter);
+    }
+
+    /**
+     * Creates a date-ordered run over the expenses of a category.
+     * @param key identifies the run in a cursor
+     * @param category the category
+     * @return the run, empty if the category is not in the snapshot or was deleted
+     */
+    TransactionCursor.Run<Expense> categoryRun(Object key, BudgetCategory category) {
+        Integer index = categoryIndex.get(category);
+        if (index == null || hidden[index]) {
+            return new RowRun<>(key, byCategory, 0, 0, null);
+        }
+        return new RowRun<>(key, byCategory, categoryOffsets.get(index), categoryOffsets.get(index + 1), null);
+    }
+
+    long effectiveCents(int row) {
+        long amount = amounts.get(row);
+        return amount + Money.fee(amount, Expense.PaymentMethod.values()[methods.get(row)].getFeeBasisPoints());
+    }
+
+    // First position in byAmount whose effective amount is greater than the threshold.
+    private int firstAmountAbove(long threshold) {
+        int lo = 0;
+        int hi = expenseCount;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (effectiveCents(byAmount.get(mid)) > threshold) {
+                hi = mid;
+            } else {
+                lo = mid + 1;
+            }
+        }
+        return lo;
+    }
+
+    private int firstAtOrAfter(long second, int nano) {
+        int lo = 0;
+        int hi = rowCount;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            long s = epochSeconds.get(mid);
+            if (s < second || (s == second && nanos.get(mid) < nano)) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    private boolean isAfter(int row, long second, int nano) {
+        long s = epochSeconds.get(row);
+        return s > second || (s == second && nanos.get(row) > nano);
+    }
+
+    /**
+     * Run over rows [from, to) of the snapshot, or of a row permutation that
+     * keeps date order.
+     */
+    private final class RowRun<T extends Transaction> extends TransactionCursor.Run<T> {
+        private final IntBuffer order;
+        private final int from;
+        private final int to;
+        private final IntPredicate filter;
+
+        RowRun(Object key, IntBuffer order, int from, int to, IntPredicate filter) {
+            super(key);
+            this.order = order;
+            this.from = from;
+            this.to = to;
+            this.filter = filter;
+        }
+
+        private int rowAt(int index) {
+            return order == null ? from + index : order.get(from + index);
+        }
+
+        @Override
+        int size() {
+            return to - from;
+        }
+
+        @Override
+        int lowerBound(LocalDateTime dateTime) {
+            long second = dateTime.toEpochSecond(ZoneOffset.UTC);
+            int nano = dateTime.getNano();
+            int lo = 0;
+            int hi = size();
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                int row = rowAt(mid);
+                long s = epochSeconds.get(row);
+                if (s < second || (s == second && nanos.get(row) < nano)) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            return lo;
+        }
+
+        @Override
+        boolean matches(int index) {
+            int row = rowAt(index);
+            return isVisible(row) && (filter == null || filter.test(row));
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        T get(int index) {
+            return (T) row(rowAt(index));
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,145 @@
+// Money.java
+package budgetapp;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Fixed-point money arithmetic. Amounts are plain longs holding cents (minor
+ * units), so sums are exact and nothing is allocated per operation.
+ */
+public final class Money {
+    /** Number of cents in one unit of currency. */
+    public static final long CENTS_PER_UNIT = 100;
+    /** Number of basis points in a whole (100%). */
+    public static final long BASIS_POINTS = 10_000;
+
+    private Money() {
+    }
+
+    /**
+     * Converts a decimal amount to cents, rounding half up to the nearest cent.
+     * @param amount the amount in currency units
+     * @return the amount in cents
+     * @throws IllegalArgumentException if amount is not finite
+     * @throws ArithmeticException if the amount does not fit in a long
+     */
+    public static long ofMajor(double amount) {
+        if (Double.isNaN(amount) || Double.isInfinite(amount)) {
+            throw new IllegalArgumentException("Amount must be a finite number");
+        }
+        // Going through the shortest decimal form means 1.005 rounds to 101, not 100.
+        return BigDecimal.valueOf(amount).setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    /**
+     * Converts cents to a decimal amount, for display or legacy callers.
+     * @param cents the amount in cents
+     * @return the amount in currency units
+     */
+    public static double toMajor(long cents) {
+        return cents / (double) CENTS_PER_UNIT;
+    }
+
+    /**
+     * Parses a decimal amount such as "1000", "12.5" or "-3.07" into cents.
+     * Every long is accepted, from "-92233720368547758.08" to "92233720368547758.07".
+     * @param text the amount text, with at most two decimal places
+     * @return the amount in cents
+     * @throws NumberFormatException if text is not a valid amount or does not fit in a long
+     */
+    public static long parse(CharSequence text) {
+        if (text == null) {
+            throw new NumberFormatException("Amount cannot be null");
+        }
+        int len = text.length();
+        int i = 0;
+        boolean negative = false;
+        if (len > 0 && (text.charAt(0) == '-' || text.charAt(0) == '+')) {
+            negative = text.charAt(0) == '-';
+            i++;
+        }
+        long units = 0;
+        int digits = 0;
+        for (; i < len && text.charAt(i) != '.'; i++) {
+            int d = text.charAt(i) - '0';
+            if (d < 0 || d > 9 || units > (Long.MAX_VALUE / CENTS_PER_UNIT - d) / 10) {
+                throw new NumberFormatException("Invalid amount: " + text);
+            }
+            units = units * 10 + d;
+            digits++;
+        }
+        long cents = 0;
+        int decimals = 0;
+        if (i < len) {
+            for (i++; i < len; i++) {
+                int d = text.charAt(i) - '0';
+                if (d < 0 || d > 9 || decimals == 2) {
+                    throw new NumberFormatException("Invalid amount: " + text);
+                }
+                cents = cents * 10 + d;
+                decimals++;
+            }
+        }
+        if (digits + decimals == 0) {
+            throw new NumberFormatException("Invalid amount: " + text);
+        }
+        if (decimals == 1) {
+            cents *= 10;
+        }
+        long whole = units * CENTS_PER_UNIT;
+        // A negative amount may go one cent further, down to Long.MIN_VALUE.
+        if (cents - (negative ? 1 : 0) > Long.MAX_VALUE - whole) {
+            throw new NumberFormatException("Invalid amount: " + text);
+        }
+        return negative ? -whole - cents : whole + cents;
+    }
+
+    /**
+     * Formats cents as a decimal amount with two decimal places, e.g. "12.30".
+     * @param cents the amount in cents
+     * @return the formatted amount
+     */
+    public static String format(long cents) {
+        return appendTo(new StringBuilder(24), cents).toString();
+    }
+
+    /**
+     * Appends cents as a decimal amount with two decimal places.
+     * @param sb the builder to append to
+     * @param cents the amount in cents
+     * @return the same builder
+     */
+    public static StringBuilder appendTo(StringBuilder sb, long cents) {
+        // Split before negating, since Long.MIN_VALUE has no positive counterpart.
+        long units = cents / CENTS_PER_UNIT;
+        long fraction = cents % CENTS_PER_UNIT;
+        if (cents < 0) {
+            sb.append('-');
+            units = -units;
+            fraction = -fraction;
+        }
+        sb.append(units).append('.');
+        if (fraction < 10) {
+            sb.append('0');
+        }
+        return sb.append(fraction);
+    }
+
+    /**
+     * Calculates a percentage fee on an amount. The fee is rounded half up
+     * (away from zero) to the nearest cent, so 0.5 cents becomes 1 cent.
+     * @param cents the amount in cents
+     * @param basisPoints the fee rate in basis points (1/100 of a percent)
+     * @return the fee in cents
+     * @throws IllegalArgumentException if basisPoints is negative
+     * @throws ArithmeticException if the calculation overflows, e.g. for Long.MIN_VALUE
+     */
+    public static long fee(long cents, int basisPoints) {
+        if (basisPoints < 0) throw new IllegalArgumentException("Basis points cannot be negative");
+        long scaled = Math.multiplyExact(Math.absExact(cents), (long) basisPoints);
+        // Rounding from the remainder cannot overflow, unlike adding half a unit first.
+        long fee = scaled / BASIS_POINTS + (scaled % BASIS_POINTS >= BASIS_POINTS / 2 ? 1 : 0);
+        return cents < 0 ? -fee : fee;
+    }
+}
\ No newline at end of file
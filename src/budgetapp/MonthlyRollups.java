@@ -0,0 +1,211 @@
+// MonthlyRollups.java
+package budgetapp;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Per-month totals kept up to date on every insert and delete: spend, count and fees per
+ * (category, month) and income per (source, month). Reports read these tables
+ * instead of scanning transactions, so their cost depends on the number of
+ * months, not on the number of transactions. Not thread-safe; BudgetManager
+ * guards it with its lock.
+ */
+final class MonthlyRollups {
+    private final Map<BudgetCategory, TreeMap<YearMonth, Totals>> expenses = new HashMap<>();
+    private final Map<String, TreeMap<YearMonth, Totals>> incomes = new HashMap<>();
+
+    void addExpense(BudgetCategory category, Expense expense) {
+        totals(expenses, category, YearMonth.from(expense.getDateTime()))
+                .add(-expense.getEffectiveAmountCents(), 1, expense.getFeeCents());
+    }
+
+    void addIncome(Income income) {
+        totals(incomes, income.getSource(), YearMonth.from(income.getDateTime()))
+                .add(income.getAmountCents(), 1, 0);
+    }
+
+    void removeExpense(BudgetCategory category, Expense expense) {
+        subtract(expenses, category, YearMonth.from(expense.getDateTime()),
+                -expense.getEffectiveAmountCents(), expense.getFeeCents());
+    }
+
+    void removeIncome(Income income) {
+        subtract(incomes, income.getSource(), YearMonth.from(income.getDateTime()), income.getAmountCents(), 0);
+    }
+
+    void removeCategory(BudgetCategory category) {
+        expenses.remove(category);
+    }
+
+    MonthlyTotal expenseTotal(BudgetCategory category, YearMonth month) {
+        return total(expenses.get(category), month);
+    }
+
+    List<MonthlyTotal> expenseTrend(BudgetCategory category, YearMonth from, YearMonth to) {
+        return trend(expenses.get(category), from, to);
+    }
+
+    List<MonthlyTotal> incomeTrend(String source, YearMonth from, YearMonth to) {
+        return trend(incomes.get(source), from, to);
+    }
+
+    /**
+     * Gets the spend of every category with expenses in a month.
+     */
+    Map<BudgetCategory, MonthlyTotal> expensesIn(YearMonth month) {
+        return in(expenses, month);
+    }
+
+    /**
+     * Gets the income of every source with income in a month.
+     */
+    Map<String, MonthlyTotal> incomeIn(YearMonth month) {
+        return in(incomes, month);
+    }
+
+    /**
+     * Writes the tables for a snapshot; categories are written as indexes.
+     * @param out the snapshot header
+     * @param categoryIndex the index of each category in the snapshot
+     */
+    void writeTo(DataOutputStream out, Map<BudgetCategory, Integer> categoryIndex) throws IOException {
+        out.writeInt(expenses.size());
+        for (Map.Entry<BudgetCategory, TreeMap<YearMonth, Totals>> entry : expenses.entrySet()) {
+            out.writeInt(categoryIndex.get(entry.getKey()));
+            writeMonths(out, entry.getValue());
+        }
+        out.writeInt(incomes.size());
+        for (Map.Entry<String, TreeMap<YearMonth, Totals>> entry : incomes.entrySet()) {
+            byte[] source = entry.getKey().getBytes(StandardCharsets.UTF_8);
+            out.writeShort(source.length);
+            out.write(source);
+            writeMonths(out, entry.getValue());
+        }
+    }
+
+    /**
+     * Reads tables written by {@link #writeTo}.
+     * @param in the snapshot header, positioned at the tables
+     * @param categories the snapshot's categories
+     * @return the tables
+     */
+    static MonthlyRollups readFrom(ByteBuffer in, BudgetCategory[] categories) {
+        MonthlyRollups rollups = new MonthlyRollups();
+        for (int n = in.getInt(); n > 0; n--) {
+            rollups.expenses.put(categories[in.getInt()], readMonths(in));
+        }
+        for (int n = in.getInt(); n > 0; n--) {
+            byte[] source = new byte[in.getShort() & 0xFFFF];
+            in.get(source);
+            rollups.incomes.put(new String(source, StandardCharsets.UTF_8), readMonths(in));
+        }
+        return rollups;
+    }
+
+    /**
+     * Encodes a month as a single int (months since year 0), for binary files.
+     */
+    static int encode(YearMonth month) {
+        return month.getYear() * 12 + month.getMonthValue() - 1;
+    }
+
+    static YearMonth decode(int month) {
+        return YearMonth.of(Math.floorDiv(month, 12), Math.floorMod(month, 12) + 1);
+    }
+
+    private static void writeMonths(DataOutputStream out, TreeMap<YearMonth, Totals> months) throws IOException {
+        out.writeInt(months.size());
+        for (Map.Entry<YearMonth, Totals> month : months.entrySet()) {
+            out.writeInt(encode(month.getKey()));
+            out.writeLong(month.getValue().amount);
+            out.writeLong(month.getValue().count);
+            out.writeLong(month.getValue().fees);
+        }
+    }
+
+    private static TreeMap<YearMonth, Totals> readMonths(ByteBuffer in) {
+        TreeMap<YearMonth, Totals> months = new TreeMap<>();
+        for (int n = in.getInt(); n > 0; n--) {
+            YearMonth month = decode(in.getInt());
+            Totals totals = new Totals();
+            totals.add(in.getLong(), in.getLong(), in.getLong());
+            months.put(month, totals);
+        }
+        return months;
+    }
+
+    private static <K> Totals totals(Map<K, TreeMap<YearMonth, Totals>> table, K key, YearMonth month) {
+        return table.computeIfAbsent(key, k -> new TreeMap<>()).computeIfAbsent(month, m -> new Totals());
+    }
+
+    // Takes one transaction out of a month, dropping months and keys left empty.
+    private static <K> void subtract(Map<K, TreeMap<YearMonth, Totals>> table, K key, YearMonth month,
+                                     long amount, long fees) {
+        TreeMap<YearMonth, Totals> months = table.get(key);
+        Totals totals = months == null ? null : months.get(month);
+        if (totals == null) {
+            return;
+        }
+        totals.add(-amount, -1, -fees);
+        if (totals.count <= 0) {
+            months.remove(month);
+            if (months.isEmpty()) {
+                table.remove(key);
+            }
+        }
+    }
+
+    private static MonthlyTotal total(TreeMap<YearMonth, Totals> months, YearMonth month) {
+        Totals totals = months == null ? null : months.get(month);
+        return totals == null ? new MonthlyTotal(month, 0, 0, 0) : totals.toTotal(month);
+    }
+
+    // One entry per month in [from, to], including months without transactions.
+    private static List<MonthlyTotal> trend(TreeMap<YearMonth, Totals> months, YearMonth from, YearMonth to) {
+        List<MonthlyTotal> result = new ArrayList<>();
+        for (YearMonth month = from; !month.isAfter(to); month = month.plusMonths(1)) {
+            result.add(total(months, month));
+        }
+        return result;
+    }
+
+    private static <K> Map<K, MonthlyTotal> in(Map<K, TreeMap<YearMonth, Totals>> table, YearMonth month) {
+        Map<K, MonthlyTotal> result = new LinkedHashMap<>();
+        for (Map.Entry<K, TreeMap<YearMonth, Totals>> entry : table.entrySet()) {
+            Totals totals = entry.getValue().get(month);
+            if (totals != null) {
+                result.put(entry.getKey(), totals.toTotal(month));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Running totals of one month.
+     */
+    private static final class Totals {
+        long amount;
+        long count;
+        long fees;
+
+        void add(long amount, long count, long fees) {
+            this.amount += amount;
+            this.count += count;
+            this.fees += fees;
+        }
+
+        MonthlyTotal toTotal(YearMonth month) {
+            return new MonthlyTotal(month, amount, count, fees);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,67 @@
+// MonthlyTotal.java
+package budgetapp;
+
+import java.time.YearMonth;
+
+/**
+ * Aggregated transactions of one month, for a category or an income source.
+ * Amounts are held in cents.
+ */
+public final class MonthlyTotal {
+    private final YearMonth month;
+    private final long amount;
+    private final long count;
+    private final long fees;
+
+    MonthlyTotal(YearMonth month, long amount, long count, long fees) {
+        this.month = month;
+        this.amount = amount;
+        this.count = count;
+        this.fees = fees;
+    }
+
+    /**
+     * Gets the month.
+     * @return the month
+     */
+    public YearMonth getMonth() {
+        return month;
+    }
+
+    /**
+     * Gets the total amount, including fees for expenses.
+     * @return the total amount
+     */
+    public double getAmount() {
+        return Money.toMajor(amount);
+    }
+
+    /**
+     * Gets the total amount in cents, including fees for expenses.
+     * @return the total amount in cents
+     */
+    public long getAmountCents() {
+        return amount;
+    }
+
+    /**
+     * Gets the number of transactions.
+     * @return the count
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Gets the total payment method fees in cents (zero for income).
+     * @return the fees in cents
+     */
+    public long getFeeCents() {
+        return fees;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s: $%s in %d transaction(s), fees $%s", month, Money.format(amount), count, Money.format(fees));
+    }
+}
\ No newline at end of file
@@ -0,0 +1,216 @@
+// QueryCache.java
+package budgetapp;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Bounded cache of expense query results for one BudgetManager, so that
+ * repeated category and threshold queries over unchanged data cost a lookup.
+ * <p>
+ * Every change to a category's expenses takes the next value of a change
+ * counter as that category's version. An entry remembers the counter value
+ * it was computed at: a category entry is valid while its category has not
+ * changed since, and a threshold entry while no expense has changed at all.
+ * Stale entries are dropped when they are next read. Entries are evicted in
+ * least-recently-used order once there are too many or they hold too many
+ * rows in total. Thread-safe.
+ */
+final class QueryCache {
+    /** Default maximum number of entries. */
+    static final int DEFAULT_MAX_ENTRIES = 256;
+    /** Default maximum number of rows held by all entries together. */
+    static final int DEFAULT_MAX_ROWS = 1_000_000;
+
+    private static final int BY_CATEGORY = 0;
+    private static final int ABOVE_AMOUNT = 1;
+
+    // In access order, so the first entry is the least recently used.
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    // Change counter value of each category's last change.
+    private final Map<BudgetCategory, Long> versions = new IdentityHashMap<>();
+    private int maxEntries = DEFAULT_MAX_ENTRIES;
+    private int maxRows = DEFAULT_MAX_ROWS;
+    private long changes;
+    private long rows;
+    private long hits;
+    private long misses;
+    private long invalidations;
+    private long evictions;
+
+    /**
+     * Changes the bounds, evicting entries that no longer fit.
+     * @param maxEntries the maximum number of entries; 0 disables caching
+     * @param maxRows the maximum number of rows held by all entries
+     */
+    synchronized void resize(int maxEntries, int maxRows) {
+        this.maxEntries = maxEntries;
+        this.maxRows = maxRows;
+        evict();
+    }
+
+    /**
+     * Gets the cached expenses of a category.
+     * @return the unmodifiable list, or null if it is not cached or stale
+     */
+    synchronized List<Expense> byCategory(BudgetCategory category) {
+        return get(new Key(BY_CATEGORY, category, 0));
+    }
+
+    /**
+     * Caches the expenses of a category.
+     * @return the result as an unmodifiable list
+     */
+    synchronized List<Expense> putByCategory(BudgetCategory category, List<Expense> result) {
+        return put(new Key(BY_CATEGORY, category, 0), result);
+    }
+
+    /**
+     * Gets the cached expenses above a threshold.
+     * @return the unmodifiable list, or null if it is not cached or stale
+     */
+    synchronized List<Expense> above(long threshold) {
+        return get(new Key(ABOVE_AMOUNT, null, threshold));
+    }
+
+    /**
+     * Caches the expenses above a threshold.
+     * @return the result as an unmodifiable list
+     */
+    synchronized List<Expense> putAbove(long threshold, List<Expense> result) {
+        return put(new Key(ABOVE_AMOUNT, null, threshold), result);
+    }
+
+    /**
+     * Records that expenses of a category were added or removed.
+     * @param category the category, or null for an expense outside any category
+     */
+    synchronized void changed(BudgetCategory category) {
+        changes++;
+        if (category != null) {
+            versions.put(category, changes);
+        }
+    }
+
+    /**
+     * Records that a category was deleted and drops its entries at once.
+     * @param category the category
+     */
+    synchronized void deleted(BudgetCategory category) {
+        changes++;
+        versions.remove(category);
+        for (Iterator<Entry> it = entries.values().iterator(); it.hasNext(); ) {
+            Entry entry = it.next();
+            if (entry.key.category == category) {
+                it.remove();
+                rows -= entry.result.size();
+                invalidations++;
+            }
+        }
+    }
+
+    /**
+     * Gets the hit, miss and eviction counts.
+     * @return the statistics
+     */
+    synchronized QueryCacheStats stats() {
+        return new QueryCacheStats(hits, misses, invalidations, evictions, entries.size(), rows);
+    }
+
+    private List<Expense> get(Key key) {
+        Entry entry = entries.get(key);
+        if (entry != null) {
+            if (isCurrent(entry)) {
+                hits++;
+                return entry.result;
+            }
+            entries.remove(key);
+            rows -= entry.result.size();
+            invalidations++;
+        }
+        misses++;
+        return null;
+    }
+
+    private List<Expense> put(Key key, List<Expense> result) {
+        List<Expense> shared = Collections.unmodifiableList(result);
+        // A result too big to share the cache with others would only push them out.
+        if (maxEntries == 0 || result.size() > maxRows / 4) {
+            return shared;
+        }
+        Entry previous = entries.put(key, new Entry(key, shared, changes));
+        if (previous != null) {
+            rows -= previous.result.size();
+        }
+        rows += result.size();
+        evict();
+        return shared;
+    }
+
+    private boolean isCurrent(Entry entry) {
+        if (entry.key.query == ABOVE_AMOUNT) {
+            return entry.version == changes;
+        }
+        Long version = versions.get(entry.key.category);
+        return version == null || version <= entry.version;
+    }
+
+    private void evict() {
+        Iterator<Entry> it = entries.values().iterator();
+        while ((entries.size() > maxEntries || rows > maxRows) && it.hasNext()) {
+            Entry eldest = it.next();
+            it.remove();
+            rows -= eldest.result.size();
+            evictions++;
+        }
+    }
+
+    /**
+     * A query and its parameters.
+     */
+    private static final class Key {
+        final int query;
+        // Compared by identity, as categories are.
+        final BudgetCategory category;
+        final long parameter;
+
+        Key(int query, BudgetCategory category, long parameter) {
+            this.query = query;
+            this.category = category;
+            this.parameter = parameter;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return query == other.query && category == other.category && parameter == other.parameter;
+        }
+
+        @Override
+        public int hashCode() {
+            return (31 * query + System.identityHashCode(category)) * 31 + Long.hashCode(parameter);
+        }
+    }
+
+    /**
+     * A cached result and the change counter value it was computed at.
+     */
+    private static final class Entry {
+        final Key key;
+        final List<Expense> result;
+        final long version;
+
+        Entry(Key key, List<Expense> result, long version) {
+            this.key = key;
+            this.result = result;
+            this.version = version;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,87 @@
+// QueryCacheStats.java
+package budgetapp;
+
+/**
+ * Counters of a BudgetManager's query result cache, as returned by
+ * {@link BudgetManager#getQueryCacheStats()}.
+ */
+public final class QueryCacheStats {
+    private final long hits;
+    private final long misses;
+    private final long invalidations;
+    private final long evictions;
+    private final int entries;
+    private final long rows;
+
+    QueryCacheStats(long hits, long misses, long invalidations, long evictions, int entries, long rows) {
+        this.hits = hits;
+        this.misses = misses;
+        this.invalidations = invalidations;
+        this.evictions = evictions;
+        this.entries = entries;
+        this.rows = rows;
+    }
+
+    /**
+     * Gets the number of queries answered from the cache.
+     * @return the hits
+     */
+    public long getHits() {
+        return hits;
+    }
+
+    /**
+     * Gets the number of cacheable queries that had to be computed.
+     * @return the misses
+     */
+    public long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Gets the number of entries dropped because their data changed.
+     * @return the invalidations
+     */
+    public long getInvalidations() {
+        return invalidations;
+    }
+
+    /**
+     * Gets the number of entries dropped to stay within the cache bounds.
+     * @return the evictions
+     */
+    public long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * Gets the number of cached results.
+     * @return the entries
+     */
+    public int getEntries() {
+        return entries;
+    }
+
+    /**
+     * Gets the number of expenses held by all cached results.
+     * @return the rows
+     */
+    public long getRows() {
+        return rows;
+    }
+
+    /**
+     * Gets the share of queries answered from the cache.
+     * @return hits divided by hits plus misses, or 0 before the first query
+     */
+    public double getHitRate() {
+        long total = hits + misses;
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Query cache: %d hits, %d misses (%.1f%% hit rate), %d invalidated, %d evicted, "
+                + "%d entries holding %d rows", hits, misses, getHitRate() * 100, invalidations, evictions, entries, rows);
+    }
+}
\ No newline at end of file
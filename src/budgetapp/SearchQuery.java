@@ -0,0 +1,197 @@
+// SearchQuery.java
+package budgetapp;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * A text search over income sources or expense categories, optionally
+ * narrowed to a date range and an amount range. Queries are immutable; the
+ * narrowing methods return a new query.
+ * <p>
+ * Matching ignores case. A prefix query matches names that start with the
+ * prefix ("Freel" matches "Freelance design"); a words query matches names
+ * containing every word of the text, in any order ("design freelance"
+ * matches it too). Words are runs of letters and digits.
+ *
+ * @see BudgetManager#searchIncomes(SearchQuery)
+ * @see BudgetManager#searchExpenses(SearchQuery)
+ */
+public final class SearchQuery {
+    private final String prefix;
+    private final List<String> words;
+    private final LocalDate from;
+    private final LocalDate to;
+    private final long minCents;
+    private final long maxCents;
+
+    private SearchQuery(String prefix, List<String> words, LocalDate from, LocalDate to, long minCents, long maxCents) {
+        this.prefix = prefix;
+        this.words = words;
+        this.from = from;
+        this.to = to;
+        this.minCents = minCents;
+        this.maxCents = maxCents;
+    }
+
+    /**
+     * Creates a query for names starting with a prefix.
+     * @param prefix the prefix; an empty prefix matches every name
+     * @return the query
+     * @throws IllegalArgumentException if prefix is null
+     */
+    public static SearchQuery prefix(String prefix) {
+        if (prefix == null) throw new IllegalArgumentException("Prefix cannot be null");
+        return new SearchQuery(normalize(prefix), null, null, null, 0, Long.MAX_VALUE);
+    }
+
+    /**
+     * Creates a query for names containing every word of a text.
+     * @param text the words to find
+     * @return the query
+     * @throws IllegalArgumentException if text is null or has no words
+     */
+    public static SearchQuery words(String text) {
+        if (text == null) throw new IllegalArgumentException("Text cannot be null");
+        List<String> words = tokenize(text);
+        if (words.isEmpty()) throw new IllegalArgumentException("Text must contain a word");
+        return new SearchQuery(null, words, null, null, 0, Long.MAX_VALUE);
+    }
+
+    /**
+     * Narrows the query to transactions dated within a range.
+     * @param startDate the start date (inclusive)
+     * @param endDate the end date (inclusive)
+     * @return the narrowed query
+     * @throws IllegalArgumentException if either date is null or startDate is after endDate
+     */
+    public SearchQuery between(LocalDate startDate, LocalDate endDate) {
+        if (startDate == null || endDate == null) throw new IllegalArgumentException("Dates cannot be null");
+        if (startDate.isAfter(endDate)) throw new IllegalArgumentException("Start date cannot be after end date");
+        return new SearchQuery(prefix, words, startDate, endDate, minCents, maxCents);
+    }
+
+    /**
+     * Narrows the query to transactions whose effective amount (including
+     * fees for expenses) is within a range.
+     * @param minAmount the minimum amount (inclusive), rounded to the nearest cent
+     * @param maxAmount the maximum amount (inclusive), rounded to the nearest cent
+     * @return the narrowed query
+     * @throws IllegalArgumentException if minAmount is negative or greater than maxAmount
+     */
+    public SearchQuery amountBetween(double minAmount, double maxAmount) {
+        return amountBetweenCents(Money.ofMajor(minAmount), Money.ofMajor(maxAmount));
+    }
+
+    /**
+     * Narrows the query to transactions whose effective amount in cents is within a range.
+     * @param minCents the minimum amount in cents (inclusive)
+     * @param maxCents the maximum amount in cents (inclusive)
+     * @return the narrowed query
+     * @throws IllegalArgumentException if minCents is negative or greater than maxCents
+     */
+    public SearchQuery amountBetweenCents(long minCents, long maxCents) {
+        if (minCents < 0) throw new IllegalArgumentException("Minimum amount cannot be negative");
+        if (minCents > maxCents) throw new IllegalArgumentException("Minimum amount cannot be greater than maximum");
+        return new SearchQuery(prefix, words, from, to, minCents, maxCents);
+    }
+
+    /**
+     * Gets the lower-case prefix of a prefix query.
+     * @return the prefix, or null for a words query
+     */
+    public String getPrefix() {
+        return prefix;
+    }
+
+    /**
+     * Gets the lower-case words of a words query.
+     * @return the words, or null for a prefix query
+     */
+    public List<String> getWords() {
+        return words == null ? null : List.copyOf(words);
+    }
+
+    /**
+     * Gets the first date matched.
+     * @return the start date, or null if dates are not restricted
+     */
+    public LocalDate getStartDate() {
+        return from;
+    }
+
+    /**
+     * Gets the last date matched.
+     * @return the end date, or null if dates are not restricted
+     */
+    public LocalDate getEndDate() {
+        return to;
+    }
+
+    /**
+     * Gets the smallest effective amount matched, in cents.
+     * @return the minimum in cents
+     */
+    public long getMinCents() {
+        return minCents;
+    }
+
+    /**
+     * Gets the largest effective amount matched, in cents.
+     * @return the maximum in cents
+     */
+    public long getMaxCents() {
+        return maxCents;
+    }
+
+    /**
+     * Checks a transaction against the date and amount ranges.
+     */
+    boolean accepts(Transaction transaction) {
+        if (from != null) {
+            LocalDate date = transaction.getDateTime().toLocalDate();
+            if (date.isBefore(from) || date.isAfter(to)) {
+                return false;
+            }
+        }
+        long amount = Math.abs(transaction.getEffectiveAmountCents());
+        return amount >= minCents && amount <= maxCents;
+    }
+
+    static String normalize(String text) {
+        return text.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Splits a text into its lower-case words.
+     */
+    static List<String> tokenize(String text) {
+        List<String> words = new ArrayList<>();
+        String normalized = normalize(text);
+        int start = -1;
+        for (int i = 0; i <= normalized.length(); i++) {
+            boolean wordChar = i < normalized.length() && Character.isLetterOrDigit(normalized.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                words.add(normalized.substring(start, i));
+                start = -1;
+            }
+        }
+        return words;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder(prefix != null ? "prefix \"" + prefix + "\"" : "words " + words);
+        if (from != null) {
+            sb.append(" from ").append(from).append(" to ").append(to);
+        }
+        if (minCents > 0 || maxCents < Long.MAX_VALUE) {
+            sb.append(" amount $").append(Money.format(minCents)).append(" to $").append(Money.format(maxCents));
+        }
+        return sb.toString();
+    }
+}
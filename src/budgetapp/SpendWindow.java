@@ -0,0 +1,166 @@
+// SpendWindow.java
+package budgetapp;
+
+import java.util.Arrays;
+
+/**
+ * The spend counted toward one {@link WindowLimit} of a category: a ring of
+ * day buckets ending on the latest day seen. The ring holds the window plus
+ * {@link WindowLimit#MAX_DAYS} days before it, so a back-dated expense can be
+ * checked against every window that contains its day, not just the latest
+ * one. A later day moves the ring forward and clears the buckets that fall
+ * out of it, so checking and adding an expense on the latest day costs O(1)
+ * amortised, a back-dated one O(window days), and at most one pass over the
+ * ring however far it jumps.
+ * <p>
+ * An expense dated too far back for all of its windows to be in the ring
+ * cannot be checked, and is rejected. Not thread safe; {@link BudgetCategory}
+ * guards its windows with one lock.
+ */
+final class SpendWindow {
+    // Far enough in the past that the first day seen always clears the ring.
+    private static final long NO_DAY = Long.MIN_VALUE / 4;
+
+    final WindowLimit limit;
+    private final int days;
+    // Spend of epoch day d at floorMod(d, span), for the span days ending on head.
+    private final long[] buckets;
+    private final int span;
+    // The latest day seen, as an epoch day.
+    private long head = NO_DAY;
+    // Sum of the buckets of the window ending on head.
+    private long total;
+
+    SpendWindow(WindowLimit limit) {
+        this.limit = limit;
+        this.days = limit.getDays();
+        this.span = span(limit);
+        this.buckets = new long[span];
+    }
+
+    /**
+     * Gets the number of days held for a limit: the most recent day seen and
+     * the days before it that a checkable expense's windows can reach.
+     */
+    static int span(WindowLimit limit) {
+        return limit.getDays() + WindowLimit.MAX_DAYS;
+    }
+
+    /**
+     * Checks whether every window containing a day is held, so that an amount
+     * dated that day can be checked.
+     */
+    boolean covers(long day) {
+        return head == NO_DAY || day >= head - WindowLimit.MAX_DAYS;
+    }
+
+    /**
+     * Gets the most that any window containing a day would hold if an amount
+     * dated that day were added, without changing it. Windows ending after
+     * the latest day seen hold no more than the one ending on it.
+     * @return the spend in cents, saturating at Long.MAX_VALUE, or
+     *         Long.MAX_VALUE if the day is not {@link #covers covered}
+     */
+    long spentWith(long day, long amountCents) {
+        long spent;
+        if (day >= head) {
+            spent = total;
+            if (day - head >= days) {
+                spent = 0;
+            } else {
+                for (long d = head - days + 1; d <= day - days; d++) {
+                    spent -= buckets[slot(d)];
+                }
+            }
+        } else if (!covers(day)) {
+            return Long.MAX_VALUE;
+        } else {
+            long window = 0;
+            for (long d = day - days + 1; d <= day; d++) {
+                window += buckets[slot(d)];
+            }
+            spent = window;
+            for (long end = day + 1; end <= Math.min(head, day + days - 1); end++) {
+                window += buckets[slot(end)] - buckets[slot(end - days)];
+                spent = Math.max(spent, window);
+            }
+        }
+        long next = spent + amountCents;
+        return next < spent ? Long.MAX_VALUE : next;
+    }
+
+    /**
+     * Checks whether an amount dated on a day keeps every window containing
+     * that day within its limit.
+     */
+    boolean fits(long day, long amountCents) {
+        return covers(day) && spentWith(day, amountCents) <= limit.getLimitCents();
+    }
+
+    /**
+     * Adds an amount dated on a day, moving the ring forward if the day is
+     * later than its end. Amounts before the ring are ignored.
+     */
+    void add(long day, long amountCents) {
+        if (day > head) {
+            if (day - head >= span) {
+                Arrays.fill(buckets, 0);
+                total = 0;
+            } else {
+                for (long d = head + 1; d <= day; d++) {
+                    total -= buckets[slot(d - days)];
+                    buckets[slot(d)] = 0;
+                }
+            }
+            head = day;
+        } else if (day <= head - span) {
+            return;
+        }
+        buckets[slot(day)] += amountCents;
+        if (day > head - days) {
+            total += amountCents;
+        }
+    }
+
+    /**
+     * Takes out an amount added earlier on a day. Amounts that have left the
+     * ring are already gone, and a bucket never drops below zero.
+     */
+    void subtract(long day, long amountCents) {
+        if (day > head || day <= head - span) {
+            return;
+        }
+        int slot = slot(day);
+        long taken = Math.min(amountCents, buckets[slot]);
+        buckets[slot] -= taken;
+        if (day > head - days) {
+            total -= taken;
+        }
+    }
+
+    /**
+     * Gets the spend in the window ending on the latest day seen.
+     */
+    long spent() {
+        return total;
+    }
+
+    /**
+     * Copies the window's state, so a batch can be undone with {@link #restore}.
+     */
+    SpendWindow copy() {
+        SpendWindow copy = new SpendWindow(limit);
+        copy.restore(this);
+        return copy;
+    }
+
+    void restore(SpendWindow saved) {
+        System.arraycopy(saved.buckets, 0, buckets, 0, span);
+        head = saved.head;
+        total = saved.total;
+    }
+
+    private int slot(long day) {
+        return (int) Math.floorMod(day, (long) span);
+    }
+}
@@ -0,0 +1,316 @@
+// SpendingAnalytics.java
+package budgetapp;
+
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Grouped reports over a {@link ColumnarTransactionStore}: count, total,
+ * average, minimum, maximum and percentiles of the amounts per category,
+ * payment method, month or income source, plus net cash flow.
+ * <p>
+ * The rows are split into ranges that are scanned in parallel on a
+ * ForkJoinPool. Each range accumulates into its own primitive arrays, indexed
+ * by group, which are merged pairwise as the tasks join; percentiles come from
+ * per-group HDR-style histograms. Scanning a row reads the primitive columns
+ * and allocates nothing.
+ */
+public final class SpendingAnalytics {
+    /**
+     * What a report groups by. Category, payment method and month reports
+     * cover expenses; the income source report covers income.
+     */
+    public enum GroupBy {
+        CATEGORY, PAYMENT_METHOD, MONTH, INCOME_SOURCE
+    }
+
+    // Ranges below this many rows are not split further.
+    private static final int MIN_SPLIT_ROWS = 1 << 16;
+    private static final Expense.PaymentMethod[] METHODS = Expense.PaymentMethod.values();
+
+    private final ColumnarTransactionStore store;
+    private final ForkJoinPool pool;
+
+    /**
+     * Creates analytics over a store, run on the common ForkJoinPool.
+     * @param store the transactions
+     * @throws IllegalArgumentException if store is null
+     */
+    public SpendingAnalytics(ColumnarTransactionStore store) {
+        this(store, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Creates analytics over a store.
+     * @param store the transactions; must not be modified while a report runs
+     * @param pool the pool that runs the scans
+     * @throws IllegalArgumentException if store or pool is null
+     */
+    public SpendingAnalytics(ColumnarTransactionStore store, ForkJoinPool pool) {
+        if (store == null) throw new IllegalArgumentException("Store cannot be null");
+        if (pool == null) throw new IllegalArgumentException("Pool cannot be null");
+        this.store = store;
+        this.pool = pool;
+    }
+
+    /**
+     * Creates analytics over a copy of a manager's transactions.
+     * @param manager the manager
+     * @return the analytics
+     */
+    public static SpendingAnalytics of(BudgetManager manager) {
+        return new SpendingAnalytics(manager.toColumnarStore());
+    }
+
+    /**
+     * Builds a report over every transaction.
+     * @param groupBy what to group by
+     * @return the report
+     * @throws IllegalArgumentException if groupBy is null
+     */
+    public SpendingReport report(GroupBy groupBy) {
+        return report(groupBy, Long.MIN_VALUE, Long.MAX_VALUE);
+    }
+
+    /**
+     * Builds a report over the transactions dated within a range.
+     * @param groupBy what to group by
+     * @param startDate the first date (inclusive)
+     * @param endDate the last date (inclusive)
+     * @return the report
+     * @throws IllegalArgumentException if an argument is null
+     */
+    public SpendingReport report(GroupBy groupBy, LocalDate startDate, LocalDate endDate) {
+        if (startDate == null || endDate == null) throw new IllegalArgumentException("Dates cannot be null");
+        return report(groupBy, startDate.atStartOfDay().toEpochSecond(ZoneOffset.UTC),
+                endDate.plusDays(1).atStartOfDay().toEpochSecond(ZoneOffset.UTC));
+    }
+
+    private SpendingReport report(GroupBy groupBy, long fromSecond, long toSecond) {
+        if (groupBy == null) throw new IllegalArgumentException("Group by cannot be null");
+        int size = store.size();
+        int firstMonth = 0;
+        int groupCount;
+        switch (groupBy) {
+            case PAYMENT_METHOD:
+                groupCount = METHODS.length;
+                break;
+            case MONTH: {
+                long[] seconds = store.epochSecondColumn();
+                long min = size == 0 ? 0 : pool.submit(() -> Arrays.stream(seconds, 0, size).parallel().min().getAsLong()).join();
+                long max = size == 0 ? 0 : pool.submit(() -> Arrays.stream(seconds, 0, size).parallel().max().getAsLong()).join();
+                firstMonth = monthKey(Math.max(min, fromSecond));
+                groupCount = Math.max(0, monthKey(Math.min(max, toSecond - 1)) - firstMonth + 1);
+                break;
+            }
+            default:
+                groupCount = store.labelCount();
+        }
+        int parallelism = pool.getParallelism();
+        int splitRows = Math.max(MIN_SPLIT_ROWS, size / (parallelism * 4) + 1);
+        Accumulator total = pool.invoke(new Scan(groupBy, groupCount, firstMonth, fromSecond, toSecond, 0, size, splitRows));
+
+        Map<String, SpendingReport.Group> groups = new TreeMap<>();
+        for (int g = 0; g < groupCount; g++) {
+            if (total.count[g] > 0) {
+                String key = keyOf(groupBy, g, firstMonth);
+                groups.put(key, new SpendingReport.Group(key, total.count[g], total.sum[g], total.fees[g],
+                        total.min[g], total.max[g], total.histograms[g]));
+            }
+        }
+        return new SpendingReport(groupBy, groups, total.income, total.expense, total.expenseFees);
+    }
+
+    private String keyOf(GroupBy groupBy, int group, int firstMonth) {
+        switch (groupBy) {
+            case PAYMENT_METHOD:
+                return METHODS[group].name();
+            case MONTH:
+                return MonthlyRollups.decode(firstMonth + group).toString();
+            default:
+                return store.labelName(group);
+        }
+    }
+
+    /**
+     * Converts epoch seconds (UTC) to year * 12 + month - 1, the encoding used
+     * by MonthlyRollups, without creating date objects.
+     * @param epochSecond the time
+     * @return the month key
+     */
+    static int monthKey(long epochSecond) {
+        // Civil-from-days conversion over 400-year eras, with years starting in March.
+        long days = Math.floorDiv(epochSecond, 86_400L) + 719_468;
+        long era = Math.floorDiv(days, 146_097);
+        long dayOfEra = days - era * 146_097;
+        long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36_524 - dayOfEra / 146_096) / 365;
+        long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        long shiftedMonth = (5 * dayOfYear + 2) / 153;
+        long month = shiftedMonth < 10 ? shiftedMonth + 3 : shiftedMonth - 9;
+        long year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+        return (int) (year * 12 + month - 1);
+    }
+
+    /**
+     * Scans a range of rows, splitting it while it is large.
+     */
+    private final class Scan extends RecursiveTask<Accumulator> {
+        private static final long serialVersionUID = 1L;
+
+        private final GroupBy groupBy;
+        private final int groupCount;
+        private final int firstMonth;
+        private final long fromSecond;
+        private final long toSecond;
+        private final int from;
+        private final int to;
+        private final int splitRows;
+
+        Scan(GroupBy groupBy, int groupCount, int firstMonth, long fromSecond, long toSecond, int from, int to,
+             int splitRows) {
+            this.groupBy = groupBy;
+            this.groupCount = groupCount;
+            this.firstMonth = firstMonth;
+            this.fromSecond = fromSecond;
+            this.toSecond = toSecond;
+            this.from = from;
+            this.to = to;
+            this.splitRows = splitRows;
+        }
+
+        @Override
+        protected Accumulator compute() {
+            if (to - from > splitRows) {
+                int mid = (from + to) >>> 1;
+                Scan left = new Scan(groupBy, groupCount, firstMonth, fromSecond, toSecond, from, mid, splitRows);
+                Scan right = new Scan(groupBy, groupCount, firstMonth, fromSecond, toSecond, mid, to, splitRows);
+                left.fork();
+                Accumulator result = right.compute();
+                result.merge(left.join());
+                return result;
+            }
+            Accumulator acc = new Accumulator(groupCount);
+            long[] seconds = store.epochSecondColumn();
+            long[] amounts = store.amountColumn();
+            int[] labels = store.labelColumn();
+            byte[] methods = store.methodColumn();
+            boolean incomeGroups = groupBy == GroupBy.INCOME_SOURCE;
+            for (int row = from; row < to; row++) {
+                long second = seconds[row];
+                if (second < fromSecond || second >= toSecond) {
+                    continue;
+                }
+                long amount = amounts[row];
+                byte method = methods[row];
+                boolean income = method == ColumnarTransactionStore.INCOME;
+                long fee = 0;
+                if (income) {
+                    acc.income += amount;
+                } else {
+                    fee = Money.fee(amount, METHODS[method].getFeeBasisPoints());
+                    acc.expense += amount;
+                    acc.expenseFees += fee;
+                }
+                if (income != incomeGroups) {
+                    continue;
+                }
+                int group;
+                switch (groupBy) {
+                    case PAYMENT_METHOD:
+                        group = method;
+                        break;
+                    case MONTH:
+                        group = monthKey(second) - firstMonth;
+                        break;
+                    default:
+                        group = labels[row];
+                }
+                acc.add(group, amount, fee);
+            }
+            return acc;
+        }
+    }
+
+    /**
+     * Per-group running totals of one range of rows.
+     */
+    private static final class Accumulator {
+        final long[] count;
+        final long[] sum;
+        final long[] fees;
+        final long[] min;
+        final long[] max;
+        // Allocated the first time a group is seen, only up to the largest amount's bucket.
+        final long[][] histograms;
+        long income;
+        long expense;
+        long expenseFees;
+
+        Accumulator(int groups) {
+            count = new long[groups];
+            sum = new long[groups];
+            fees = new long[groups];
+            min = new long[groups];
+            max = new long[groups];
+            histograms = new long[groups][];
+            Arrays.fill(min, Long.MAX_VALUE);
+        }
+
+        void add(int group, long amount, long fee) {
+            int index = LatencyHistogram.indexOf(amount);
+            long[] histogram = histograms[group];
+            if (histogram == null || index >= histogram.length) {
+                histogram = grow(histogram, index + 1);
+                histograms[group] = histogram;
+            }
+            histogram[index]++;
+            count[group]++;
+            sum[group] += amount;
+            fees[group] += fee;
+            min[group] = Math.min(min[group], amount);
+            max[group] = Math.max(max[group], amount);
+        }
+
+        void merge(Accumulator other) {
+            for (int g = 0; g < count.length; g++) {
+                if (other.count[g] == 0) {
+                    continue;
+                }
+                long[] histogram = histograms[g];
+                long[] otherHistogram = other.histograms[g];
+                if (histogram == null) {
+                    histograms[g] = otherHistogram;
+                } else {
+                    if (otherHistogram.length > histogram.length) {
+                        histogram = grow(histogram, otherHistogram.length);
+                        histograms[g] = histogram;
+                    }
+                    for (int i = 0; i < otherHistogram.length; i++) {
+                        histogram[i] += otherHistogram[i];
+                    }
+                }
+                count[g] += other.count[g];
+                sum[g] += other.sum[g];
+                fees[g] += other.fees[g];
+                min[g] = Math.min(min[g], other.min[g]);
+                max[g] = Math.max(max[g], other.max[g]);
+            }
+            income += other.income;
+            expense += other.expense;
+            expenseFees += other.expenseFees;
+        }
+
+        private static long[] grow(long[] histogram, int minLength) {
+            if (histogram == null) {
+                return new long[minLength];
+            }
+            int length = Math.min(LatencyHistogram.BUCKETS, Math.max(minLength, histogram.length * 2));
+            return Arrays.copyOf(histogram, length);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,201 @@
+// SpendingReport.java
+package budgetapp;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Result of a {@link SpendingAnalytics} query: per-group statistics of the
+ * transaction amounts plus overall income, spending and net cash flow.
+ */
+public final class SpendingReport {
+    private final SpendingAnalytics.GroupBy groupBy;
+    private final Map<String, Group> groups;
+    private final long incomeCents;
+    private final long expenseCents;
+    private final long feeCents;
+
+    SpendingReport(SpendingAnalytics.GroupBy groupBy, Map<String, Group> groups, long incomeCents,
+                   long expenseCents, long feeCents) {
+        this.groupBy = groupBy;
+        this.groups = Collections.unmodifiableMap(groups);
+        this.incomeCents = incomeCents;
+        this.expenseCents = expenseCents;
+        this.feeCents = feeCents;
+    }
+
+    /**
+     * Gets how the transactions were grouped.
+     * @return the grouping
+     */
+    public SpendingAnalytics.GroupBy getGroupBy() {
+        return groupBy;
+    }
+
+    /**
+     * Gets the groups, in key order.
+     * @return map of group key (category, payment method, yyyy-MM or source) to statistics
+     */
+    public Map<String, Group> getGroups() {
+        return groups;
+    }
+
+    /**
+     * Gets the total income in cents.
+     * @return the income
+     */
+    public long getIncomeCents() {
+        return incomeCents;
+    }
+
+    /**
+     * Gets the total of the expense amounts in cents, excluding fees.
+     * @return the spending
+     */
+    public long getExpenseCents() {
+        return expenseCents;
+    }
+
+    /**
+     * Gets the total payment method fees in cents.
+     * @return the fees
+     */
+    public long getFeeCents() {
+        return feeCents;
+    }
+
+    /**
+     * Gets income minus spending and fees, in cents.
+     * @return the net cash flow
+     */
+    public long getNetCashFlowCents() {
+        return incomeCents - expenseCents - feeCents;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder(128 + groups.size() * 96).append("By ").append(groupBy).append(":\n");
+        for (Group group : groups.values()) {
+            sb.append(group).append('\n');
+        }
+        Money.appendTo(sb.append("Income $"), incomeCents);
+        Money.appendTo(sb.append(", spending $"), expenseCents);
+        Money.appendTo(sb.append(", fees $"), feeCents);
+        return Money.appendTo(sb.append(", net $"), getNetCashFlowCents()).toString();
+    }
+
+    /**
+     * Statistics of the transactions in one group. Percentiles are read from
+     * an HDR-style histogram and are accurate to about 1.6%.
+     */
+    public static final class Group {
+        private final String key;
+        private final long count;
+        private final long totalCents;
+        private final long feeCents;
+        private final long minCents;
+        private final long maxCents;
+        private final long[] histogram;
+
+        Group(String key, long count, long totalCents, long feeCents, long minCents, long maxCents, long[] histogram) {
+            this.key = key;
+            this.count = count;
+            this.totalCents = totalCents;
+            this.feeCents = feeCents;
+            this.minCents = minCents;
+            this.maxCents = maxCents;
+            this.histogram = histogram;
+        }
+
+        /**
+         * Gets the group key.
+         * @return the category, payment method, month (yyyy-MM) or source
+         */
+        public String getKey() {
+            return key;
+        }
+
+        /**
+         * Gets the number of transactions.
+         * @return the count
+         */
+        public long getCount() {
+            return count;
+        }
+
+        /**
+         * Gets the sum of the amounts in cents, excluding fees.
+         * @return the total
+         */
+        public long getTotalCents() {
+            return totalCents;
+        }
+
+        /**
+         * Gets the sum of the payment method fees in cents (zero for income).
+         * @return the fees
+         */
+        public long getFeeCents() {
+            return feeCents;
+        }
+
+        /**
+         * Gets the mean amount in cents.
+         * @return the average
+         */
+        public double getAverageCents() {
+            return count == 0 ? 0 : (double) totalCents / count;
+        }
+
+        /**
+         * Gets the smallest amount in cents.
+         * @return the minimum
+         */
+        public long getMinCents() {
+            return minCents;
+        }
+
+        /**
+         * Gets the largest amount in cents.
+         * @return the maximum
+         */
+        public long getMaxCents() {
+            return maxCents;
+        }
+
+        /**
+         * Gets the amount at a percentile.
+         * @param percentile the percentile, from 0 to 100
+         * @return the amount in cents
+         * @throws IllegalArgumentException if percentile is out of range
+         */
+        public long getPercentileCents(double percentile) {
+            if (percentile < 0 || percentile > 100) {
+                throw new IllegalArgumentException("Percentile must be between 0 and 100");
+            }
+            if (count == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+            long seen = 0;
+            for (int i = 0; i < histogram.length; i++) {
+                seen += histogram[i];
+                if (seen >= rank) {
+                    return Math.min(LatencyHistogram.highestValueIn(i), maxCents);
+                }
+            }
+            return maxCents;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder(96).append(key).append(": ").append(count).append(" for $");
+            Money.appendTo(sb, totalCents);
+            Money.appendTo(sb.append(", avg $"), Math.round(getAverageCents()));
+            Money.appendTo(sb.append(", p50 $"), getPercentileCents(50));
+            Money.appendTo(sb.append(", p90 $"), getPercentileCents(90));
+            Money.appendTo(sb.append(", p99 $"), getPercentileCents(99));
+            return Money.appendTo(sb.append(", max $"), maxCents).toString();
+        }
+    }
+}
\ No newline at end of file
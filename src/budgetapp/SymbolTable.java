@@ -0,0 +1,182 @@
+// SymbolTable.java
+package budgetapp;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Process-wide dictionary of category names and income sources. Each distinct
+ * name is stored once as a {@link Symbol} with a small int id (0, 1, 2, ...),
+ * which transactions and categories hold instead of their own copy of the text.
+ * <p>
+ * The table holds its symbols weakly: once no transaction, category, snapshot,
+ * segment or search index refers to a name, the garbage collector reclaims it
+ * and its id is reused for the next new name. The table therefore never holds
+ * more names, and ids never go higher, than were in use at one time. An id is
+ * stable, and can be compared and used as an array index, for as long as
+ * something holds its symbol. Thread-safe; lookups of known names do not lock.
+ */
+public final class SymbolTable {
+    private static final ConcurrentHashMap<String, Entry> ENTRIES = new ConcurrentHashMap<>();
+    private static final ReferenceQueue<Symbol> RECLAIMED = new ReferenceQueue<>();
+    // Entries by id; replaced by a larger copy when full. Written under the class lock.
+    private static volatile Entry[] byId = new Entry[64];
+    // Ids of reclaimed names, to hand out again before new ones.
+    private static int[] freeIds = new int[16];
+    private static int freeCount;
+    private static int nextId;
+
+    private SymbolTable() {
+    }
+
+    /**
+     * Gets the symbol of a name, adding the name if it is new or was reclaimed.
+     * @param name the name
+     * @return the symbol
+     * @throws IllegalArgumentException if name is null
+     */
+    static Symbol symbol(String name) {
+        if (name == null) throw new IllegalArgumentException("Name cannot be null");
+        Entry entry = ENTRIES.get(name);
+        Symbol symbol = entry == null ? null : entry.get();
+        if (symbol != null) {
+            return symbol;
+        }
+        synchronized (SymbolTable.class) {
+            reclaim();
+            entry = ENTRIES.get(name);
+            symbol = entry == null ? null : entry.get();
+            if (symbol != null) {
+                return symbol;
+            }
+            if (entry != null) {
+                // Collected but not yet queued; free it now so the name can be added again.
+                free(entry);
+            }
+            int id = freeCount > 0 ? freeIds[--freeCount] : nextId++;
+            symbol = new Symbol(id, name);
+            entry = new Entry(symbol);
+            Entry[] current = byId;
+            if (id >= current.length) {
+                current = Arrays.copyOf(current, current.length * 2);
+            }
+            current[id] = entry;
+            // Publish the array before the name, so whoever finds the id can read the name.
+            byId = current;
+            ENTRIES.put(name, entry);
+            return symbol;
+        }
+    }
+
+    /**
+     * Gets the id of a name without adding it.
+     * @param name the name
+     * @return the id, or -1 if the name is not in use
+     */
+    public static int find(String name) {
+        Entry entry = name == null ? null : ENTRIES.get(name);
+        Symbol symbol = entry == null ? null : entry.get();
+        return symbol == null ? -1 : symbol.id;
+    }
+
+    /**
+     * Gets the name of an id in use.
+     * @param id the id of a symbol that is still held
+     * @return the name
+     * @throws IllegalArgumentException if id is unknown or its name was reclaimed
+     */
+    public static String name(int id) {
+        Entry[] current = byId;
+        Symbol symbol = id < 0 || id >= current.length || current[id] == null ? null : current[id].get();
+        if (symbol == null) {
+            throw new IllegalArgumentException("Unknown symbol id: " + id);
+        }
+        return symbol.name;
+    }
+
+    /**
+     * Gets the number of names in use.
+     * @return the count
+     */
+    public static int size() {
+        synchronized (SymbolTable.class) {
+            reclaim();
+            return ENTRIES.size();
+        }
+    }
+
+    /**
+     * Does what the garbage collector does once nothing holds a name's symbol:
+     * clears the table's reference, queues it and frees the id. Lets tests
+     * reclaim names without depending on when the collector runs; the caller
+     * must not hold the symbol.
+     * @param name the name to reclaim
+     */
+    static void reclaim(String name) {
+        synchronized (SymbolTable.class) {
+            Entry entry = ENTRIES.get(name);
+            if (entry != null) {
+                entry.enqueue();
+            }
+            reclaim();
+        }
+    }
+
+    // Frees the entries of collected symbols. Caller holds the class lock.
+    private static void reclaim() {
+        Entry entry;
+        while ((entry = (Entry) RECLAIMED.poll()) != null) {
+            free(entry);
+        }
+    }
+
+    // Caller holds the class lock.
+    private static void free(Entry entry) {
+        if (entry.freed) {
+            return;
+        }
+        entry.freed = true;
+        ENTRIES.remove(entry.name, entry);
+        if (byId[entry.id] == entry) {
+            byId[entry.id] = null;
+        }
+        if (freeCount == freeIds.length) {
+            freeIds = Arrays.copyOf(freeIds, freeCount * 2);
+        }
+        freeIds[freeCount++] = entry.id;
+    }
+
+    /**
+     * An interned name and its id. Holding the symbol keeps the id assigned to
+     * the name.
+     */
+    static final class Symbol {
+        final int id;
+        final String name;
+
+        private Symbol(int id, String name) {
+            this.id = id;
+            this.name = name;
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+
+    private static final class Entry extends WeakReference<Symbol> {
+        final int id;
+        final String name;
+        // Set once the id is back on the free list.
+        boolean freed;
+
+        Entry(Symbol symbol) {
+            super(symbol, RECLAIMED);
+            this.id = symbol.id;
+            this.name = symbol.name;
+        }
+    }
+}
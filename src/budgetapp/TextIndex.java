@@ -0,0 +1,311 @@
+// TextIndex.java
+package budgetapp;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Search index over the names of income sources and expense categories,
+ * used by {@link BudgetManager#searchIncomes} and
+ * {@link BudgetManager#searchExpenses}.
+ * <p>
+ * Names are few, so they are matched first: a trie of the lower-case names
+ * answers prefixes, and a map from word to names answers word queries. Each
+ * name then has a posting list of the ids of its incomes and of its
+ * expenses, and there are posting lists per month and per power-of-two
+ * amount range. A query unions the postings of its names and intersects
+ * them with the postings of its months and amount ranges, so only
+ * transactions in the result (and at the edges of the ranges) are looked at.
+ * Posting lists are {@link IdBitmap}s.
+ * <p>
+ * Not thread safe; the manager updates it under its write lock.
+ */
+final class TextIndex {
+    private static final int[] NO_NAMES = new int[0];
+
+    private final TrieNode root = new TrieNode();
+    // Ids of the names containing each word, ascending.
+    private final Map<String, int[]> namesByWord = new HashMap<>();
+    // Names already in the trie and word map, by SymbolTable id. Holding the
+    // symbols keeps their ids assigned while the postings below use them.
+    private SymbolTable.Symbol[] named = new SymbolTable.Symbol[64];
+    // Ids of the incomes and of the expenses of each name, by SymbolTable id.
+    private IdBitmap[] incomesByName = new IdBitmap[64];
+    private IdBitmap[] expensesByName = new IdBitmap[64];
+    // Ids by month, keyed by MonthlyRollups.encode.
+    private final TreeMap<Integer, IdBitmap> byMonth = new TreeMap<>();
+    // Ids by the bit length of the absolute effective amount.
+    private final IdBitmap[] byAmount = new IdBitmap[64];
+    private long size;
+
+    /**
+     * Adds an in-memory or sealed transaction.
+     */
+    void add(Transaction transaction) {
+        add(transaction.getId(), transaction instanceof Expense, nameOf(transaction),
+                monthOf(transaction.getDateTime()), Math.abs(transaction.getEffectiveAmountCents()));
+    }
+
+    /**
+     * Adds a transaction by its indexed fields.
+     * @param month the month as encoded by MonthlyRollups
+     * @param amountCents the absolute effective amount
+     */
+    void add(long id, boolean expense, SymbolTable.Symbol symbol, int month, long amountCents) {
+        int name = symbol.id;
+        if (name >= named.length || named[name] != symbol) {
+            addName(symbol);
+        }
+        IdBitmap[] byName = expense ? expensesByName : incomesByName;
+        if (name >= byName.length) {
+            byName = Arrays.copyOf(byName, Math.max(name + 1, byName.length * 2));
+            if (expense) {
+                expensesByName = byName;
+            } else {
+                incomesByName = byName;
+            }
+        }
+        if (byName[name] == null) {
+            byName[name] = new IdBitmap();
+        }
+        if (byName[name].add(id)) {
+            byMonth.computeIfAbsent(month, m -> new IdBitmap()).add(id);
+            int bucket = bucketOf(amountCents);
+            if (byAmount[bucket] == null) {
+                byAmount[bucket] = new IdBitmap();
+            }
+            byAmount[bucket].add(id);
+            size++;
+        }
+    }
+
+    /**
+     * Removes a deleted or replaced transaction.
+     */
+    void remove(Transaction transaction) {
+        IdBitmap[] byName = transaction instanceof Expense ? expensesByName : incomesByName;
+        int name = nameOf(transaction).id;
+        long id = transaction.getId();
+        if (name >= byName.length || byName[name] == null || !byName[name].remove(id)) {
+            return;
+        }
+        int month = monthOf(transaction.getDateTime());
+        IdBitmap ids = byMonth.get(month);
+        if (ids != null && ids.remove(id) && ids.isEmpty()) {
+            byMonth.remove(month);
+        }
+        IdBitmap amounts = byAmount[bucketOf(Math.abs(transaction.getEffectiveAmountCents()))];
+        if (amounts != null) {
+            amounts.remove(id);
+        }
+        size--;
+    }
+
+    /**
+     * Gets the number of transactions indexed.
+     */
+    long size() {
+        return size;
+    }
+
+    /**
+     * Gets the approximate memory held by the posting lists, in bytes.
+     */
+    long postingBytes() {
+        long bytes = 0;
+        for (IdBitmap[] byName : new IdBitmap[][] {incomesByName, expensesByName, byAmount}) {
+            for (IdBitmap ids : byName) {
+                bytes += ids == null ? 0 : ids.sizeInBytes();
+            }
+        }
+        for (IdBitmap ids : byMonth.values()) {
+            bytes += ids.sizeInBytes();
+        }
+        return bytes;
+    }
+
+    /**
+     * Gets the ids of the incomes or expenses whose name matches a query and
+     * whose month and amount range may match it. Callers still check the
+     * exact dates and amounts of the transactions returned. The result may
+     * be one of the index's own posting lists and must not be changed.
+     */
+    IdBitmap match(SearchQuery query, boolean expenses) {
+        int[] names = query.getPrefix() != null ? namesWithPrefix(query.getPrefix()) : namesWithWords(query.getWords());
+        IdBitmap[] byName = expenses ? expensesByName : incomesByName;
+        IdBitmap[] months = null;
+        if (query.getStartDate() != null) {
+            months = byMonth.subMap(monthOf(query.getStartDate()), true, monthOf(query.getEndDate()), true)
+                    .values().toArray(new IdBitmap[0]);
+        }
+        List<IdBitmap> lists = new ArrayList<>(names.length);
+        for (int name : names) {
+            IdBitmap ids = name < byName.length ? byName[name] : null;
+            if (ids != null && !ids.isEmpty()) {
+                // Narrow each name to the months first, so the union is only as large as the result.
+                lists.add(months == null ? ids : intersect(ids, months));
+            }
+        }
+        IdBitmap result;
+        if (lists.size() == 1) {
+            result = lists.get(0);
+        } else {
+            result = new IdBitmap();
+            for (IdBitmap ids : lists) {
+                result.addAll(ids);
+            }
+        }
+        if (query.getMinCents() > 0 || query.getMaxCents() < Long.MAX_VALUE) {
+            int first = bucketOf(query.getMinCents());
+            int last = bucketOf(query.getMaxCents());
+            result = intersect(result, Arrays.copyOfRange(byAmount, first, last + 1));
+        }
+        return result;
+    }
+
+    // The ids of a bitmap that are in any of a set of posting lists, intersecting
+    // with each list so the union stays as small as the result.
+    private static IdBitmap intersect(IdBitmap ids, IdBitmap[] postings) {
+        IdBitmap result = new IdBitmap();
+        for (IdBitmap posting : postings) {
+            if (posting != null && !posting.isEmpty()) {
+                result.addAll(ids.and(posting));
+            }
+        }
+        return result;
+    }
+
+    private int[] namesWithPrefix(String prefix) {
+        TrieNode node = root;
+        for (int i = 0; i < prefix.length() && node != null; i++) {
+            node = node.child(prefix.charAt(i));
+        }
+        if (node == null) {
+            return NO_NAMES;
+        }
+        BitSet names = new BitSet();
+        node.collect(names);
+        return names.stream().toArray();
+    }
+
+    private int[] namesWithWords(List<String> words) {
+        int[] result = null;
+        for (String word : words) {
+            int[] names = namesByWord.getOrDefault(word, NO_NAMES);
+            result = result == null ? names : intersect(result, names);
+            if (result.length == 0) {
+                break;
+            }
+        }
+        return result == null ? NO_NAMES : result;
+    }
+
+    private static int[] intersect(int[] a, int[] b) {
+        int[] result = new int[Math.min(a.length, b.length)];
+        int n = 0;
+        int i = 0;
+        int j = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) {
+                i++;
+            } else if (a[i] > b[j]) {
+                j++;
+            } else {
+                result[n++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(result, n);
+    }
+
+    private void addName(SymbolTable.Symbol symbol) {
+        int name = symbol.id;
+        if (name >= named.length) {
+            named = Arrays.copyOf(named, Math.max(name + 1, named.length * 2));
+        }
+        named[name] = symbol;
+        String text = symbol.name;
+        TrieNode node = root;
+        String normalized = SearchQuery.normalize(text);
+        for (int i = 0; i < normalized.length(); i++) {
+            node = node.childOrAdd(normalized.charAt(i));
+        }
+        node.names.set(name);
+        for (String word : SearchQuery.tokenize(text)) {
+            int[] names = namesByWord.getOrDefault(word, NO_NAMES);
+            if (Arrays.binarySearch(names, name) < 0) {
+                int[] grown = Arrays.copyOf(names, names.length + 1);
+                grown[names.length] = name;
+                Arrays.sort(grown);
+                namesByWord.put(word, grown);
+            }
+        }
+    }
+
+    private static SymbolTable.Symbol nameOf(Transaction transaction) {
+        return transaction instanceof Expense ? ((Expense) transaction).getCategorySymbol()
+                : ((Income) transaction).getSourceSymbol();
+    }
+
+    static int monthOf(LocalDateTime dateTime) {
+        return dateTime.getYear() * 12 + dateTime.getMonthValue() - 1;
+    }
+
+    static int monthOf(LocalDate date) {
+        return date.getYear() * 12 + date.getMonthValue() - 1;
+    }
+
+    // 0 for 0, otherwise b for amounts in [2^(b-1), 2^b).
+    private static int bucketOf(long amountCents) {
+        return 64 - Long.numberOfLeadingZeros(amountCents);
+    }
+
+    /**
+     * Trie node; children are kept in parallel arrays sorted by character.
+     */
+    private static final class TrieNode {
+        private char[] labels = new char[0];
+        private TrieNode[] children = new TrieNode[0];
+        // Names that end at this node.
+        private final BitSet names = new BitSet();
+
+        TrieNode child(char c) {
+            int index = Arrays.binarySearch(labels, c);
+            return index < 0 ? null : children[index];
+        }
+
+        TrieNode childOrAdd(char c) {
+            int index = Arrays.binarySearch(labels, c);
+            if (index >= 0) {
+                return children[index];
+            }
+            index = -index - 1;
+            char[] newLabels = new char[labels.length + 1];
+            TrieNode[] newChildren = new TrieNode[children.length + 1];
+            System.arraycopy(labels, 0, newLabels, 0, index);
+            System.arraycopy(children, 0, newChildren, 0, index);
+            newLabels[index] = c;
+            newChildren[index] = new TrieNode();
+            System.arraycopy(labels, index, newLabels, index + 1, labels.length - index);
+            System.arraycopy(children, index, newChildren, index + 1, children.length - index);
+            labels = newLabels;
+            children = newChildren;
+            return newChildren[index];
+        }
+
+        void collect(BitSet out) {
+            out.or(names);
+            for (TrieNode child : children) {
+                child.collect(out);
+            }
+        }
+    }
+}
@@ -0,0 +1,709 @@
+// TieredStore.java
+package budgetapp;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+
+/**
+ * Transactions of closed months, sealed into immutable segment files (one per
+ * month) so that they no longer take heap space.
+ * <p>
+ * A segment stores its rows in date order. Timestamps are delta-encoded,
+ * amounts, ids and codes are varints, and category names and income sources
+ * are replaced by codes into a per-segment dictionary, so a row takes 6 to
+ * 15 bytes (more when ids are far from date order). Each segment keeps its date, amount and id range and the set of
+ * categories it holds in memory, so queries skip segments that cannot match
+ * without reading them. Segments that are read are decoded into Income and
+ * Expense objects and kept in a least-recently-used cache bounded by rows.
+ * <p>
+ * Segments are immutable; rows deleted or replaced after sealing, and the
+ * rows of deleted categories, are hidden in memory. Sealing a month that
+ * already has a segment rewrites it with the old and new rows together.
+ * Segment files are a spill area, not a persistence format: the journal and
+ * snapshots still hold every transaction. The caller (BudgetManager) guards
+ * the store with its lock; the decoded cache is thread-safe on its own.
+ */
+final class TieredStore {
+    private static final int MAGIC = 0x42534547; // "BSEG"
+    private static final int VERSION = 1;
+    private static final String PREFIX = "budget-";
+    private static final String SUFFIX = ".seg";
+
+    private final Path directory;
+    // Categories of sealed expenses; rows hold an index into this list.
+    private final List<BudgetCategory> categories = new ArrayList<>();
+    private final Map<BudgetCategory, Integer> categoryIndex = new IdentityHashMap<>();
+    // Indexes of deleted categories, whose rows are hidden.
+    private final BitSet hidden = new BitSet();
+    private final TreeMap<YearMonth, Segment> segments = new TreeMap<>();
+    // Decoded segments, least recently used first.
+    private final LinkedHashMap<Segment, Decoded> cache = new LinkedHashMap<>(16, 0.75f, true);
+    private final int maxCachedRows;
+    private long cachedRows;
+    private long decodes;
+
+    /**
+     * Opens a store, deleting segment files left in the directory by an earlier run.
+     * @param directory the directory for segment files
+     * @param maxCachedRows the maximum number of decoded rows kept in memory
+     * @throws IOException if the directory cannot be created or cleaned
+     */
+    TieredStore(Path directory, int maxCachedRows) throws IOException {
+        this.directory = directory;
+        this.maxCachedRows = maxCachedRows;
+        Files.createDirectories(directory);
+        try (DirectoryStream<Path> stale = Files.newDirectoryStream(directory, PREFIX + "*" + SUFFIX)) {
+            for (Path file : stale) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    /**
+     * Gets the sealed months, in order.
+     */
+    List<YearMonth> months() {
+        return new ArrayList<>(segments.keySet());
+    }
+
+    /**
+     * Gets the number of rows in all segments, including hidden ones.
+     */
+    long rowCount() {
+        long rows = 0;
+        for (Segment segment : segments.values()) {
+            rows += segment.rowCount;
+        }
+        return rows;
+    }
+
+    /**
+     * Gets the total size of the segment files in bytes.
+     */
+    long byteCount() {
+        long bytes = 0;
+        for (Segment segment : segments.values()) {
+            bytes += segment.bytes;
+        }
+        return bytes;
+    }
+
+    /**
+     * Gets the number of times a segment was read and decoded.
+     */
+    synchronized long decodeCount() {
+        return decodes;
+    }
+
+    /**
+     * Seals the transactions of one month, together with the month's
+     * existing segment if there is one. Nothing changes if writing fails.
+     * @param month the month
+     * @param transactions the month's new transactions, in date order
+     * @param expenseCategories the category of each expense
+     * @throws IOException if the segment cannot be written
+     */
+    void seal(YearMonth month, List<Transaction> transactions, Map<Expense, BudgetCategory> expenseCategories)
+            throws IOException {
+        List<Transaction> rows = new ArrayList<>(transactions.size());
+        List<BudgetCategory> rowCategories = new ArrayList<>(transactions.size());
+        Segment old = segments.get(month);
+        List<Transaction> merged = transactions;
+        if (old != null) {
+            Decoded decoded = decoded(old);
+            List<Transaction> visible = new ArrayList<>();
+            for (int row = 0; row < decoded.rows.length; row++) {
+                if (isVisible(old, decoded, row)) {
+                    visible.add(decoded.rows[row]);
+                    if (decoded.codes[row] >= 0) {
+                        expenseCategories.put((Expense) decoded.rows[row], categories.get(decoded.codes[row]));
+                    }
+                }
+            }
+            merged = new ArrayList<>(visible.size() + transactions.size());
+            merged.addAll(visible);
+            merged.addAll(transactions);
+            // Stable, so the old rows stay first among transactions at the same instant.
+            merged.sort(Comparator.comparing(Transaction::getDateTime));
+        }
+        for (Transaction t : merged) {
+            rows.add(t);
+            rowCategories.add(t instanceof Expense ? expenseCategories.get(t) : null);
+        }
+        Segment segment = write(month, rows, rowCategories);
+        if (old != null) {
+            evict(old);
+        }
+        segments.put(month, segment);
+    }
+
+    /**
+     * Hides the sealed expenses of a deleted category.
+     */
+    void hide(BudgetCategory category) {
+        Integer index = categoryIndex.remove(category);
+        if (index != null) {
+            hidden.set(index);
+        }
+    }
+
+    /**
+     * Hides one sealed row, after its transaction was deleted or replaced.
+     */
+    void delete(Location location) {
+        location.segment.deleted.set(location.row);
+    }
+
+    /**
+     * Finds the visible sealed row of a transaction id, reading only the
+     * segments whose id range holds it.
+     * @return the location, or null if no visible sealed row has the id
+     */
+    Location find(long id) {
+        for (Segment segment : segments.values()) {
+            if (id < segment.minId || id > segment.maxId) {
+                continue;
+            }
+            Decoded decoded = decoded(segment);
+            for (int row = 0; row < decoded.rows.length; row++) {
+                if (decoded.rows[row].getId() == id && isVisible(segment, decoded, row)) {
+                    int code = decoded.codes[row];
+                    return new Location(segment, row, decoded.rows[row], code < 0 ? null : categories.get(code));
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Adds the visible transactions between two instants (inclusive) in date order.
+     */
+    void collectRange(LocalDateTime from, LocalDateTime to, List<Transaction> out) {
+        long fromSecond = from.toEpochSecond(ZoneOffset.UTC);
+        long toSecond = to.toEpochSecond(ZoneOffset.UTC);
+        for (Segment segment : segments.values()) {
+            if (segment.maxEpochSecond < fromSecond || segment.minEpochSecond > toSecond) {
+                continue;
+            }
+            Decoded decoded = decoded(segment);
+            List<Transaction> rows = Arrays.asList(decoded.rows);
+            for (int row = TransactionCursor.ListRun.lowerBound(rows, from);
+                 row < rows.size() && !rows.get(row).getDateTime().isAfter(to); row++) {
+                if (isVisible(segment, decoded, row)) {
+                    out.add(rows.get(row));
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds every visible sealed transaction in date order, and the category of each expense.
+     */
+    void collectAll(List<Transaction> out, Map<Expense, BudgetCategory> expenseCategories) {
+        for (Segment segment : segments.values()) {
+            Decoded decoded = decoded(segment);
+            for (int row = 0; row < decoded.rows.length; row++) {
+                if (isVisible(segment, decoded, row)) {
+                    out.add(decoded.rows[row]);
+                    if (decoded.codes[row] >= 0) {
+                        expenseCategories.put((Expense) decoded.rows[row], categories.get(decoded.codes[row]));
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds the visible sealed transactions whose ids are in a set, reading
+     * only the segments whose id range overlaps the set's.
+     */
+    void collectIds(IdBitmap ids, List<Transaction> out) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        long first = ids.first();
+        long last = ids.last();
+        for (Segment segment : segments.values()) {
+            if (segment.maxId < first || segment.minId > last) {
+                continue;
+            }
+            Decoded decoded = decoded(segment);
+            for (int row = 0; row < decoded.rows.length; row++) {
+                if (ids.contains(decoded.rows[row].getId()) && isVisible(segment, decoded, row)) {
+                    out.add(decoded.rows[row]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds every visible sealed transaction to a search index.
+     */
+    void indexText(TextIndex index) {
+        for (Segment segment : segments.values()) {
+            Decoded decoded = decoded(segment);
+            for (int row = 0; row < decoded.rows.length; row++) {
+                if (isVisible(segment, decoded, row)) {
+                    index.add(decoded.rows[row]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds the visible expenses whose effective amount is in [min, max], in date order.
+     */
+    void collectAmountRange(long min, long max, List<Expense> out) {
+        for (Segment segment : segments.values()) {
+            if (segment.expenseCount == 0 || segment.maxCost < min || segment.minCost > max) {
+                continue;
+            }
+            Decoded decoded = decoded(segment);
+            for (int row = 0; row < decoded.rows.length; row++) {
+                long cost = -decoded.rows[row].getEffectiveAmountCents();
+                if (decoded.codes[row] >= 0 && cost >= min && cost <= max && isVisible(segment, decoded, row)) {
+                    out.add((Expense) decoded.rows[row]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds up to n visible expenses with the largest effective amounts,
+     * largest first, reading segments in order of their largest amount until
+     * no other segment can hold a larger one.
+     */
+    void collectTop(int n, List<Expense> out) {
+        if (n == 0) {
+            return;
+        }
+        List<Segment> byMaxCost = new ArrayList<>(segments.values());
+        byMaxCost.sort(Comparator.comparingLong((Segment s) -> s.maxCost).reversed());
+        // The n largest so far, smallest first.
+        PriorityQueue<Expense> top = new PriorityQueue<>(Comparator.comparingLong(e -> -e.getEffectiveAmountCents()));
+        for (Segment segment : byMaxCost) {
+            if (segment.expenseCount == 0
+                    || (top.size() == n && segment.maxCost <= -top.peek().getEffectiveAmountCents())) {
+                break;
+            }
+            Decoded decoded = decoded(segment);
+            for (int row = 0; row < decoded.rows.length; row++) {
+                if (decoded.codes[row] >= 0 && isVisible(segment, decoded, row)) {
+                    top.add((Expense) decoded.rows[row]);
+                    if (top.size() > n) {
+                        top.poll();
+                    }
+                }
+            }
+        }
+        Expense[] largestFirst = top.toArray(new Expense[0]);
+        Arrays.sort(largestFirst, Comparator.comparingLong(Expense::getEffectiveAmountCents));
+        out.addAll(Arrays.asList(largestFirst));
+    }
+
+    /**
+     * Adds the visible expenses of a category in date order.
+     */
+    void collectCategory(BudgetCategory category, List<Expense> out) {
+        Integer index = categoryIndex.get(category);
+        if (index == null) {
+            return;
+        }
+        for (Segment segment : segments.values()) {
+            if (!segment.categories.get(index)) {
+                continue;
+            }
+            Decoded decoded = decoded(segment);
+            for (int row = 0; row < decoded.rows.length; row++) {
+                if (decoded.codes[row] == index && !segment.deleted.get(row)) {
+                    out.add((Expense) decoded.rows[row]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Creates a date-ordered run over the visible sealed rows.
+     * @param key identifies the run in a cursor
+     * @param expensesOnly whether to leave out incomes
+     * @param minCost the smallest effective amount of an expense to include
+     */
+    <T extends Transaction> TransactionCursor.Run<T> run(Object key, boolean expensesOnly, long minCost) {
+        List<Segment> selected = new ArrayList<>();
+        for (Segment segment : segments.values()) {
+            if (!expensesOnly || (segment.expenseCount > 0 && segment.maxCost >= minCost)) {
+                selected.add(segment);
+            }
+        }
+        return new SealedRun<>(key, selected, -1, expensesOnly, minCost);
+    }
+
+    /**
+     * Creates a date-ordered run over the visible sealed expenses of a category.
+     */
+    TransactionCursor.Run<Expense> categoryRun(Object key, BudgetCategory category) {
+        Integer index = categoryIndex.get(category);
+        List<Segment> selected = new ArrayList<>();
+        if (index != null) {
+            for (Segment segment : segments.values()) {
+                if (segment.categories.get(index)) {
+                    selected.add(segment);
+                }
+            }
+        }
+        return new SealedRun<>(key, selected, index == null ? -1 : index, true, Long.MIN_VALUE);
+    }
+
+    private boolean isVisible(Segment segment, Decoded decoded, int row) {
+        int code = decoded.codes[row];
+        return (code < 0 || !hidden.get(code)) && !segment.deleted.get(row);
+    }
+
+    private int categoryCode(BudgetCategory category) {
+        Integer index = categoryIndex.get(category);
+        if (index == null) {
+            index = categories.size();
+            categories.add(category);
+            categoryIndex.put(category, index);
+        }
+        return index;
+    }
+
+    // Encodes and writes a segment file, replacing any earlier file of the month.
+    private Segment write(YearMonth month, List<Transaction> rows, List<BudgetCategory> rowCategories) throws IOException {
+        Segment segment = new Segment(month, directory.resolve(PREFIX + month + SUFFIX));
+        // Dictionary of (label, category) pairs; incomes have category -1.
+        List<String> labels = new ArrayList<>();
+        List<Integer> labelCategories = new ArrayList<>();
+        Map<String, Integer> dictionary = new HashMap<>();
+        int[] codes = new int[rows.size()];
+        for (int i = 0; i < rows.size(); i++) {
+            Transaction t = rows.get(i);
+            int category = -1;
+            String label;
+            if (t instanceof Expense) {
+                category = categoryCode(rowCategories.get(i));
+                segment.categories.set(category);
+                label = ((Expense) t).getCategory();
+                long cost = -t.getEffectiveAmountCents();
+                segment.minCost = Math.min(segment.minCost, cost);
+                segment.maxCost = Math.max(segment.maxCost, cost);
+                segment.expenseCount++;
+            } else {
+                label = ((Income) t).getSource();
+            }
+            String key = category + ":" + label;
+            Integer code = dictionary.get(key);
+            if (code == null) {
+                code = labels.size();
+                labels.add(label);
+                labelCategories.add(category);
+                dictionary.put(key, code);
+            }
+            codes[i] = code;
+            segment.minId = Math.min(segment.minId, t.getId());
+            segment.maxId = Math.max(segment.maxId, t.getId());
+        }
+        segment.rowCount = rows.size();
+        segment.minEpochSecond = rows.isEmpty() ? 0 : epochSecond(rows.get(0));
+        segment.maxEpochSecond = rows.isEmpty() ? 0 : epochSecond(rows.get(rows.size() - 1));
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 + rows.size() * 12);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(MonthlyRollups.encode(month));
+        out.writeInt(rows.size());
+        out.writeLong(segment.minEpochSecond);
+        out.writeLong(segment.minId);
+        out.writeInt(labels.size());
+        for (int i = 0; i < labels.size(); i++) {
+            byte[] label = labels.get(i).getBytes(StandardCharsets.UTF_8);
+            out.writeShort(label.length);
+            out.write(label);
+            out.writeInt(labelCategories.get(i));
+        }
+        long previousSecond = segment.minEpochSecond;
+        long previousId = segment.minId;
+        for (int i = 0; i < rows.size(); i++) {
+            Transaction t = rows.get(i);
+            long second = epochSecond(t);
+            putVarLong(out, second - previousSecond);
+            putVarLong(out, t.getDateTime().getNano());
+            // 0 for an income, otherwise the payment method ordinal plus one.
+            out.writeByte(t instanceof Expense ? ((Expense) t).getPaymentMethod().ordinal() + 1 : 0);
+            putVarLong(out, t.getAmountCents());
+            putVarLong(out, codes[i]);
+            putVarLong(out, zigZag(t.getId() - previousId));
+            previousSecond = second;
+            previousId = t.getId();
+        }
+        out.flush();
+        Path tmp = segment.path.resolveSibling(segment.path.getFileName() + ".tmp");
+        Files.write(tmp, bytes.toByteArray());
+        Files.move(tmp, segment.path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        segment.bytes = bytes.size();
+        return segment;
+    }
+
+    // Gets a segment's rows from the cache, reading and decoding the file on a miss.
+    private synchronized Decoded decoded(Segment segment) {
+        Decoded decoded = cache.get(segment);
+        if (decoded != null) {
+            return decoded;
+        }
+        try {
+            decoded = read(segment);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read segment " + segment.path, e);
+        }
+        decodes++;
+        if (decoded.rows.length <= maxCachedRows) {
+            cache.put(segment, decoded);
+            cachedRows += decoded.rows.length;
+            Iterator<Map.Entry<Segment, Decoded>> eldest = cache.entrySet().iterator();
+            while (cachedRows > maxCachedRows && eldest.hasNext()) {
+                Map.Entry<Segment, Decoded> entry = eldest.next();
+                if (entry.getKey() != segment) {
+                    cachedRows -= entry.getValue().rows.length;
+                    eldest.remove();
+                }
+            }
+        }
+        return decoded;
+    }
+
+    private synchronized void evict(Segment segment) {
+        Decoded decoded = cache.remove(segment);
+        if (decoded != null) {
+            cachedRows -= decoded.rows.length;
+        }
+    }
+
+    private static Decoded read(Segment segment) throws IOException {
+        ByteBuffer in = ByteBuffer.wrap(Files.readAllBytes(segment.path));
+        if (in.getInt() != MAGIC || in.getInt() != VERSION) {
+            throw new IOException("Not a segment file: " + segment.path);
+        }
+        in.getInt();
+        int rowCount = in.getInt();
+        long second = in.getLong();
+        long id = in.getLong();
+        int labelCount = in.getInt();
+        SymbolTable.Symbol[] labelSymbols = new SymbolTable.Symbol[labelCount];
+        int[] labelCategories = new int[labelCount];
+        for (int i = 0; i < labelCount; i++) {
+            byte[] label = new byte[in.getShort() & 0xFFFF];
+            in.get(label);
+            labelSymbols[i] = SymbolTable.symbol(new String(label, StandardCharsets.UTF_8));
+            labelCategories[i] = in.getInt();
+        }
+        Expense.PaymentMethod[] methods = Expense.PaymentMethod.values();
+        Transaction[] rows = new Transaction[rowCount];
+        int[] codes = new int[rowCount];
+        for (int row = 0; row < rowCount; row++) {
+            second += getVarLong(in);
+            int nano = (int) getVarLong(in);
+            int method = in.get();
+            long amount = getVarLong(in);
+            int label = (int) getVarLong(in);
+            id += unZigZag(getVarLong(in));
+            LocalDateTime dateTime = LocalDateTime.ofEpochSecond(second, nano, ZoneOffset.UTC);
+            Transaction t = method == 0 ? Income.ofSymbol(id, amount, dateTime, labelSymbols[label])
+                    : Expense.ofSymbol(id, amount, dateTime, labelSymbols[label], methods[method - 1]);
+            rows[row] = t;
+            codes[row] = method == 0 ? -1 : labelCategories[label];
+        }
+        return new Decoded(rows, codes);
+    }
+
+    private static long epochSecond(Transaction t) {
+        return t.getDateTime().toEpochSecond(ZoneOffset.UTC);
+    }
+
+    private static void putVarLong(DataOutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) (value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    private static long getVarLong(ByteBuffer in) {
+        long value = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+    }
+
+    private static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    /**
+     * Where a sealed transaction was found.
+     */
+    static final class Location {
+        final Segment segment;
+        final int row;
+        final Transaction transaction;
+        // The expense's category, or null for an income.
+        final BudgetCategory category;
+
+        Location(Segment segment, int row, Transaction transaction, BudgetCategory category) {
+            this.segment = segment;
+            this.row = row;
+            this.transaction = transaction;
+            this.category = category;
+        }
+    }
+
+    /**
+     * In-memory metadata of one segment file.
+     */
+    static final class Segment {
+        final YearMonth month;
+        final Path path;
+        // Store indexes of the categories with expenses in the segment.
+        final BitSet categories = new BitSet();
+        // Rows deleted or replaced since sealing.
+        final BitSet deleted = new BitSet();
+        int rowCount;
+        int expenseCount;
+        long bytes;
+        long minEpochSecond;
+        long maxEpochSecond;
+        long minCost = Long.MAX_VALUE;
+        long maxCost = Long.MIN_VALUE;
+        long minId = Long.MAX_VALUE;
+        long maxId = Long.MIN_VALUE;
+
+        Segment(YearMonth month, Path path) {
+            this.month = month;
+            this.path = path;
+        }
+    }
+
+    /**
+     * A segment's rows as objects, with each row's store category index (-1 for incomes).
+     */
+    private static final class Decoded {
+        final Transaction[] rows;
+        final int[] codes;
+
+        Decoded(Transaction[] rows, int[] codes) {
+            this.rows = rows;
+            this.codes = codes;
+        }
+    }
+
+    /**
+     * Run over the rows of several segments in month order, decoding each
+     * segment as the cursor reaches it.
+     */
+    private final class SealedRun<T extends Transaction> extends TransactionCursor.Run<T> {
+        private final Segment[] selected;
+        // Index of the first row of each selected segment, plus the total.
+        private final int[] offsets;
+        private final int category;
+        private final boolean expensesOnly;
+        private final long minCost;
+
+        SealedRun(Object key, List<Segment> selected, int category, boolean expensesOnly, long minCost) {
+            super(key);
+            this.selected = selected.toArray(new Segment[0]);
+            this.offsets = new int[this.selected.length + 1];
+            for (int i = 0; i < this.selected.length; i++) {
+                offsets[i + 1] = offsets[i] + this.selected[i].rowCount;
+            }
+            this.category = category;
+            this.expensesOnly = expensesOnly;
+            this.minCost = minCost;
+        }
+
+        private int segmentOf(int index) {
+            int s = Arrays.binarySearch(offsets, index);
+            // Segments can be empty, so take the last one starting at index.
+            if (s >= 0) {
+                while (s + 1 < selected.length && offsets[s + 1] == index) {
+                    s++;
+                }
+                return s;
+            }
+            return -s - 2;
+        }
+
+        @Override
+        int size() {
+            return offsets[selected.length];
+        }
+
+        @Override
+        int lowerBound(LocalDateTime dateTime) {
+            long second = dateTime.toEpochSecond(ZoneOffset.UTC);
+            for (int s = 0; s < selected.length; s++) {
+                if (selected[s].rowCount > 0 && selected[s].maxEpochSecond >= second) {
+                    Decoded decoded = decoded(selected[s]);
+                    int row = TransactionCursor.ListRun.lowerBound(Arrays.asList(decoded.rows), dateTime);
+                    if (row < decoded.rows.length) {
+                        return offsets[s] + row;
+                    }
+                }
+            }
+            return size();
+        }
+
+        @Override
+        boolean matches(int index) {
+            int s = segmentOf(index);
+            int row = index - offsets[s];
+            Decoded decoded = decoded(selected[s]);
+            int code = decoded.codes[row];
+            if (!isVisible(selected[s], decoded, row)) {
+                return false;
+            }
+            if (category >= 0) {
+                return code == category;
+            }
+            return !expensesOnly || (code >= 0 && -decoded.rows[row].getEffectiveAmountCents() >= minCost);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        T get(int index) {
+            int s = segmentOf(index);
+            return (T) decoded(selected[s]).rows[index - offsets[s]];
+        }
+    }
+}
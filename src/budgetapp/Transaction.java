@@ -2,38 +2,70 @@
 package budgetapp;
 
 import java.time.LocalDateTime;
-import java.util.UUID;
 
 /**
  * Abstract base class for all transactions (income or expense).
  */
 public abstract class Transaction implements Comparable<Transaction> {
-    protected UUID id;
+    // Unique id from TransactionIds.
+    protected long id;
     protected LocalDateTime dateTime;
-    protected double amount;
+    // Amount in cents; see Money.
+    protected long amount;
 
     /**
      * Constructs a Transaction with the specified amount and date/time.
-     * @param amount the transaction amount (must be positive)
+     * @param amount the transaction amount (must be positive), rounded to the nearest cent
      * @param dateTime the date and time of the transaction (must not be null)
      * @throws IllegalArgumentException if amount is not positive or dateTime is null
      */
     public Transaction(double amount, LocalDateTime dateTime) {
-        if (amount <= 0) throw new IllegalArgumentException("Amount must be positive");
+        this(Money.ofMajor(amount), dateTime);
+    }
+
+    /**
+     * Constructs a Transaction with an amount in cents.
+     * @param amountCents the transaction amount in cents (must be positive)
+     * @param dateTime the date and time of the transaction (must not be null)
+     * @throws IllegalArgumentException if amount is not positive or dateTime is null
+     */
+    protected Transaction(long amountCents, LocalDateTime dateTime) {
+        this(TransactionIds.next(), amountCents, dateTime);
+    }
+
+    /**
+     * Constructs a Transaction with an id issued earlier, e.g. when a stored row
+     * is read back, without drawing a new one.
+     * @param id the id
+     * @param amountCents the transaction amount in cents (must be positive)
+     * @param dateTime the date and time of the transaction (must not be null)
+     * @throws IllegalArgumentException if amount is not positive or dateTime is null
+     */
+    Transaction(long id, long amountCents, LocalDateTime dateTime) {
+        if (amountCents <= 0) throw new IllegalArgumentException("Amount must be positive");
         if (dateTime == null) throw new IllegalArgumentException("DateTime cannot be null");
-        this.id = UUID.randomUUID();
-        this.amount = amount;
+        this.id = id;
+        this.amount = amountCents;
         this.dateTime = dateTime;
     }
 
     /**
      * Gets the unique identifier of the transaction.
-     * @return the UUID
+     * @return the id, issued by {@link TransactionIds}
      */
-    public UUID getId() {
+    public long getId() {
         return id;
     }
 
+    /**
+     * Gives the transaction an id issued earlier, e.g. when it is read back
+     * from a journal or snapshot. Call before the transaction is shared.
+     * @param id the id
+     */
+    void assignId(long id) {
+        this.id = id;
+    }
+
     /**
      * Gets the date and time of the transaction.
      * @return the LocalDateTime
@@ -47,6 +79,14 @@ public abstract class Transaction implements Comparable<Transaction> {
      * @return the amount
      */
     public double getAmount() {
+        return Money.toMajor(amount);
+    }
+
+    /**
+     * Gets the transaction amount in cents.
+     * @return the amount in cents
+     */
+    public long getAmountCents() {
         return amount;
     }
 
@@ -54,7 +94,15 @@ public abstract class Transaction implements Comparable<Transaction> {
      * Gets the effective amount of the transaction (positive for income, negative for expense).
      * @return the effective amount
      */
-    public abstract double getEffectiveAmount();
+    public double getEffectiveAmount() {
+        return Money.toMajor(getEffectiveAmountCents());
+    }
+
+    /**
+     * Gets the effective amount in cents (positive for income, negative for expense).
+     * @return the effective amount in cents
+     */
+    public abstract long getEffectiveAmountCents();
 
     /**
      * Compares transactions by date and time for sorting.
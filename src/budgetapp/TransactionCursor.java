@@ -0,0 +1,234 @@
+// TransactionCursor.java
+package budgetapp;
+
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.locks.Lock;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Lazy, date-ordered iterator over several date-ordered runs of transactions,
+ * merged k ways.
+ * <p>
+ * Transactions are fetched in small chunks. Each chunk takes the read lock,
+ * seeks every run to the last position returned (by date and time, then by
+ * how many transactions at that instant were already returned from the run)
+ * and merges forward. Between chunks the lock is released, so a cursor never
+ * blocks writers for long; it is weakly consistent and sees transactions
+ * added or removed after it was created only beyond its current position.
+ * @param <T> the transaction type
+ */
+final class TransactionCursor<T extends Transaction> implements Iterator<T> {
+    private static final int CHUNK_SIZE = 256;
+
+    private final Lock readLock;
+    private final Supplier<List<Run<? extends T>>> runs;
+    private final LocalDateTime to;
+    private final ArrayDeque<T> buffer = new ArrayDeque<>();
+    // Date and time of the last transaction returned, and how many were returned at it per run.
+    private LocalDateTime position;
+    private final Map<Object, Integer> returnedAtPosition = new HashMap<>();
+    private boolean exhausted;
+
+    /**
+     * Creates a cursor.
+     * @param readLock the lock guarding the runs
+     * @param runs supplies the current runs; called with the lock held
+     * @param from the earliest date and time (inclusive)
+     * @param to the latest date and time (inclusive)
+     */
+    TransactionCursor(Lock readLock, Supplier<List<Run<? extends T>>> runs, LocalDateTime from, LocalDateTime to) {
+        this.readLock = readLock;
+        this.runs = runs;
+        this.position = from;
+        this.to = to;
+        this.exhausted = from.isAfter(to);
+    }
+
+    /**
+     * Wraps the cursor in a sequential, ordered stream.
+     * @return the stream
+     */
+    Stream<T> stream() {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(this,
+                Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (buffer.isEmpty() && !exhausted) {
+            fill();
+        }
+        return !buffer.isEmpty();
+    }
+
+    @Override
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return buffer.poll();
+    }
+
+    private void fill() {
+        readLock.lock();
+        try {
+            PriorityQueue<Head<T>> heads = new PriorityQueue<>();
+            int order = 0;
+            for (Run<? extends T> run : runs.get()) {
+                Head<T> head = new Head<>(run, order++);
+                head.index = run.lowerBound(position);
+                int skip = returnedAtPosition.getOrDefault(run.key(), 0);
+                head.advance();
+                while (skip-- > 0 && head.current != null && head.current.getDateTime().equals(position)) {
+                    head.index++;
+                    head.advance();
+                }
+                if (head.current != null && !head.current.getDateTime().isAfter(to)) {
+                    heads.add(head);
+                }
+            }
+            while (buffer.size() < CHUNK_SIZE && !heads.isEmpty()) {
+                Head<T> head = heads.poll();
+                T t = head.current;
+                buffer.add(t);
+                if (!t.getDateTime().equals(position)) {
+                    position = t.getDateTime();
+                    returnedAtPosition.clear();
+                }
+                returnedAtPosition.merge(head.run.key(), 1, Integer::sum);
+                head.index++;
+                head.advance();
+                if (head.current != null && !head.current.getDateTime().isAfter(to)) {
+                    heads.add(head);
+                }
+            }
+            exhausted = heads.isEmpty();
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    /**
+     * A date-ordered sequence of transactions, some of which may be filtered out.
+     * @param <T> the transaction type
+     */
+    abstract static class Run<T extends Transaction> {
+        private final Object key;
+
+        /**
+         * @param key identifies the run across chunks (e.g. its category)
+         */
+        Run(Object key) {
+            this.key = key;
+        }
+
+        final Object key() {
+            return key;
+        }
+
+        abstract int size();
+
+        /** First index whose date and time is not before the given one. */
+        abstract int lowerBound(LocalDateTime dateTime);
+
+        abstract boolean matches(int index);
+
+        abstract T get(int index);
+    }
+
+    /**
+     * Run over a list kept in date order.
+     * @param <T> the transaction type
+     */
+    static final class ListRun<T extends Transaction> extends Run<T> {
+        private final List<T> list;
+        private final Predicate<? super T> filter;
+
+        ListRun(Object key, List<T> list, Predicate<? super T> filter) {
+            super(key);
+            this.list = list;
+            this.filter = filter;
+        }
+
+        @Override
+        int size() {
+            return list.size();
+        }
+
+        @Override
+        int lowerBound(LocalDateTime dateTime) {
+            return lowerBound(list, dateTime);
+        }
+
+        @Override
+        boolean matches(int index) {
+            return filter == null || filter.test(list.get(index));
+        }
+
+        @Override
+        T get(int index) {
+            return list.get(index);
+        }
+
+        /**
+         * Gets the first index whose date and time is not before the given one.
+         * @param list a list in date order
+         * @param dateTime the date and time to seek to
+         * @return the index, or list.size() if every element is earlier
+         */
+        static int lowerBound(List<? extends Transaction> list, LocalDateTime dateTime) {
+            int lo = 0;
+            int hi = list.size();
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (list.get(mid).getDateTime().isBefore(dateTime)) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            return lo;
+        }
+    }
+
+    /**
+     * Current element of a run during a merge.
+     */
+    private static final class Head<T extends Transaction> implements Comparable<Head<T>> {
+        final Run<? extends T> run;
+        final int order;
+        int index;
+        T current;
+
+        Head(Run<? extends T> run, int order) {
+            this.run = run;
+            this.order = order;
+        }
+
+        // Moves to the first matching element at or after index.
+        void advance() {
+            while (index < run.size() && !run.matches(index)) {
+                index++;
+            }
+            current = index < run.size() ? run.get(index) : null;
+        }
+
+        @Override
+        public int compareTo(Head<T> other) {
+            int c = current.getDateTime().compareTo(other.current.getDateTime());
+            return c != 0 ? c : Integer.compare(order, other.order);
+        }
+    }
+}
\ No newline at end of file
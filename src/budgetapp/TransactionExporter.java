@@ -0,0 +1,576 @@
+// TransactionExporter.java
+package budgetapp;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Streams transactions and reports to a CSV or JSON file, optionally gzipped.
+ * <p>
+ * CSV output uses the format read by {@link TransactionImporter}, with a
+ * header line, so an exported ledger can be imported again:
+ * <pre>
+ * type,date,amount,name,method
+ * INCOME,2025-03-03 12:12:00,1000.00,Salary
+ * EXPENSE,2025-03-03 12:12:00,50.00,Food,CARD
+ * </pre>
+ * Names containing a comma, quote or line break are quoted as in RFC 4180,
+ * and times keep their fraction of a second, so the importer reads back the
+ * same rows. JSON output is
+ * one array of objects, which also carry the id and, for expenses, the fee:
+ * <pre>
+ * {"id":2,"type":"EXPENSE","dateTime":"2025-03-03T12:12:00","amount":50.00,"fee":0.50,"category":"Food","method":"CARD"}
+ * </pre>
+ * Rows are encoded straight into bytes: digits, dates and amounts are
+ * written by hand, and each source or category name is encoded once per
+ * exporter and cached by its symbol id, so no String is built per row. The
+ * bytes go through one direct buffer to a FileChannel (and through a
+ * Deflater at its fastest level on the way when gzipping), so memory stays
+ * flat however many rows are written. An exporter reuses its buffers between exports and writes one
+ * file at a time.
+ */
+public class TransactionExporter {
+    /** Supported output formats. */
+    public enum Format { CSV, JSON }
+
+    /** Default size of the write buffer in bytes. */
+    public static final int DEFAULT_BUFFER_SIZE = 1 << 18;
+    private static final int MIN_BUFFER_SIZE = 1 << 12;
+    // Longest encoding of a row apart from its name.
+    private static final int MAX_ROW_BYTES = 192;
+    private static final byte[] CSV_HEADER = ascii("type,date,amount,name,method\n");
+    private static final byte[] REPORT_CSV_HEADER = ascii("key,count,total,fees,min,max,p50,p95,p99\n");
+    private static final String[] REPORT_JSON_FIELDS = {
+            ",\"total\":", ",\"fees\":", ",\"min\":", ",\"max\":", ",\"p50\":", ",\"p95\":", ",\"p99\":"};
+    private static final byte[][] METHODS = new byte[Expense.PaymentMethod.values().length][];
+    private static final byte[] NO_BYTES = new byte[0];
+    private static final byte[] DIGITS = ascii("0123456789");
+    private static final byte[] HEX = ascii("0123456789abcdef");
+
+    static {
+        for (Expense.PaymentMethod method : Expense.PaymentMethod.values()) {
+            METHODS[method.ordinal()] = ascii(method.name());
+        }
+    }
+
+    private final Format format;
+    private final boolean gzip;
+    private final int bufferSize;
+    private ByteBuffer out;
+    private ByteBuffer deflated;
+    private Deflater deflater;
+    private final CRC32 crc = new CRC32();
+    // Encoded rows are assembled here and copied to the buffer in one put.
+    private byte[] row = new byte[MAX_ROW_BYTES * 2];
+    // Encoded (escaped, and quoted as needed) names by SymbolTable id, and the
+    // symbols they were encoded from during this export, since a reclaimed id can be reused.
+    private byte[][] names = new byte[64][];
+    private SymbolTable.Symbol[] nameSymbols = new SymbolTable.Symbol[64];
+    private FileChannel channel;
+    private long uncompressed;
+
+    /**
+     * Constructs an uncompressed TransactionExporter.
+     * @param format the output format
+     * @throws IllegalArgumentException if format is null
+     */
+    public TransactionExporter(Format format) {
+        this(format, false, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Constructs a TransactionExporter.
+     * @param format the output format
+     * @param gzip whether to gzip the output
+     * @throws IllegalArgumentException if format is null
+     */
+    public TransactionExporter(Format format, boolean gzip) {
+        this(format, gzip, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Constructs a TransactionExporter.
+     * @param format the output format
+     * @param gzip whether to gzip the output
+     * @param bufferSize the size of the write buffer in bytes, at least 4096
+     * @throws IllegalArgumentException if format is null or bufferSize is too small
+     */
+    public TransactionExporter(Format format, boolean gzip, int bufferSize) {
+        if (format == null) throw new IllegalArgumentException("Format cannot be null");
+        if (bufferSize < MIN_BUFFER_SIZE) throw new IllegalArgumentException("Buffer size must be at least " + MIN_BUFFER_SIZE);
+        this.format = format;
+        this.gzip = gzip;
+        this.bufferSize = bufferSize;
+    }
+
+    /**
+     * Creates an exporter for a file name: JSON for names ending in .json
+     * (or .json.gz), CSV otherwise, and gzipped for names ending in .gz.
+     * @param path the file to export to
+     * @return the exporter
+     * @throws IllegalArgumentException if path is null
+     */
+    public static TransactionExporter forPath(Path path) {
+        if (path == null) throw new IllegalArgumentException("Path cannot be null");
+        String name = path.getFileName().toString().toLowerCase(Locale.ROOT);
+        boolean gzip = name.endsWith(".gz");
+        if (gzip) {
+            name = name.substring(0, name.length() - 3);
+        }
+        return new TransactionExporter(name.endsWith(".json") ? Format.JSON : Format.CSV, gzip);
+    }
+
+    /**
+     * Gets the output format.
+     * @return the format
+     */
+    public Format getFormat() {
+        return format;
+    }
+
+    /**
+     * Checks whether output is gzipped.
+     * @return true if gzipped
+     */
+    public boolean isGzip() {
+        return gzip;
+    }
+
+    /**
+     * Exports the whole ledger (every income and expense, including any
+     * loaded from a snapshot or sealed to disk) in date order. Rows are read
+     * from the manager a page at a time; see
+     * {@link BudgetManager#streamTransactionsByDateRange}.
+     * @param manager the manager to export
+     * @param path the file to write, replaced if it exists
+     * @return the number of transactions written
+     * @throws IOException if the file cannot be written
+     * @throws IllegalArgumentException if manager or path is null
+     */
+    public long exportLedger(BudgetManager manager, Path path) throws IOException {
+        if (manager == null) throw new IllegalArgumentException("Manager cannot be null");
+        return export(manager.streamTransactionsByDateRange(LocalDate.MIN, LocalDate.MAX), path);
+    }
+
+    /**
+     * Exports a stream of transactions, such as a query result, in stream
+     * order. The stream is consumed and closed.
+     * @param transactions the transactions to write
+     * @param path the file to write, replaced if it exists
+     * @return the number of transactions written
+     * @throws IOException if the file cannot be written
+     * @throws IllegalArgumentException if transactions or path is null
+     */
+    public long export(Stream<? extends Transaction> transactions, Path path) throws IOException {
+        if (transactions == null) throw new IllegalArgumentException("Transactions cannot be null");
+        try (Stream<? extends Transaction> stream = transactions) {
+            return export(stream.iterator(), path);
+        }
+    }
+
+    /**
+     * Exports a collection of transactions, such as a query result, in iteration order.
+     * @param transactions the transactions to write
+     * @param path the file to write, replaced if it exists
+     * @return the number of transactions written
+     * @throws IOException if the file cannot be written
+     * @throws IllegalArgumentException if transactions or path is null
+     */
+    public long export(Iterable<? extends Transaction> transactions, Path path) throws IOException {
+        if (transactions == null) throw new IllegalArgumentException("Transactions cannot be null");
+        return export(transactions.iterator(), path);
+    }
+
+    /**
+     * Exports the groups of a spending report, one row or object per group
+     * with its count, totals, extremes and percentiles. In JSON the overall
+     * income, spending, fees and net cash flow are written too.
+     * @param report the report to write
+     * @param path the file to write, replaced if it exists
+     * @return the number of groups written
+     * @throws IOException if the file cannot be written
+     * @throws IllegalArgumentException if report or path is null
+     */
+    public synchronized long export(SpendingReport report, Path path) throws IOException {
+        if (report == null) throw new IllegalArgumentException("Report cannot be null");
+        open(path);
+        try {
+            if (format == Format.CSV) {
+                put(REPORT_CSV_HEADER, REPORT_CSV_HEADER.length);
+            } else {
+                ensureRow(MAX_ROW_BYTES);
+                int n = putAscii(0, "{\"groupBy\":\"");
+                n = putAscii(n, report.getGroupBy().name());
+                put(row, putAscii(n, "\",\"groups\":["));
+            }
+            long count = 0;
+            for (SpendingReport.Group group : report.getGroups().values()) {
+                int n = 0;
+                byte[] key = encode(group.getKey());
+                ensureRow(key.length + 2 * MAX_ROW_BYTES);
+                if (format == Format.CSV) {
+                    n = putBytes(n, key);
+                    row[n++] = ',';
+                    n = putLong(n, group.getCount());
+                    for (long cents : groupAmounts(group)) {
+                        row[n++] = ',';
+                        n = putCents(n, cents);
+                    }
+                    row[n++] = '\n';
+                } else {
+                    n = putAscii(n, count == 0 ? "\n{\"key\":" : ",\n{\"key\":");
+                    n = putBytes(n, key);
+                    n = putAscii(n, ",\"count\":");
+                    n = putLong(n, group.getCount());
+                    long[] amounts = groupAmounts(group);
+                    for (int i = 0; i < amounts.length; i++) {
+                        n = putAscii(n, REPORT_JSON_FIELDS[i]);
+                        n = putCents(n, amounts[i]);
+                    }
+                    row[n++] = '}';
+                }
+                put(row, n);
+                count++;
+            }
+            if (format == Format.JSON) {
+                int n = putAscii(0, count == 0 ? "],\"income\":" : "\n],\"income\":");
+                n = putCents(n, report.getIncomeCents());
+                n = putAscii(n, ",\"spending\":");
+                n = putCents(n, report.getExpenseCents());
+                n = putAscii(n, ",\"fees\":");
+                n = putCents(n, report.getFeeCents());
+                n = putAscii(n, ",\"net\":");
+                n = putCents(n, report.getNetCashFlowCents());
+                n = putAscii(n, "}\n");
+                put(row, n);
+            }
+            close();
+            return count;
+        } finally {
+            abandon();
+        }
+    }
+
+    // Total, fees, min, max and percentiles, in the order of the report header.
+    private static long[] groupAmounts(SpendingReport.Group group) {
+        return new long[] {group.getTotalCents(), group.getFeeCents(), group.getMinCents(), group.getMaxCents(),
+                group.getPercentileCents(50), group.getPercentileCents(95), group.getPercentileCents(99)};
+    }
+
+    private synchronized long export(Iterator<? extends Transaction> transactions, Path path) throws IOException {
+        open(path);
+        try {
+            if (format == Format.CSV) {
+                put(CSV_HEADER, CSV_HEADER.length);
+            } else {
+                put(row, putAscii(0, "["));
+            }
+            long count = 0;
+            while (transactions.hasNext()) {
+                Transaction transaction = transactions.next();
+                int n = format == Format.CSV ? encodeCsv(transaction) : encodeJson(transaction, count == 0);
+                put(row, n);
+                count++;
+            }
+            if (format == Format.JSON) {
+                put(row, putAscii(0, "\n]\n"));
+            }
+            close();
+            return count;
+        } finally {
+            abandon();
+        }
+    }
+
+    private int encodeCsv(Transaction transaction) {
+        boolean expense = transaction instanceof Expense;
+        byte[] name = name(expense ? ((Expense) transaction).getCategorySymbol() : ((Income) transaction).getSourceSymbol());
+        ensureRow(name.length + MAX_ROW_BYTES);
+        int n = putAscii(0, expense ? "EXPENSE," : "INCOME,");
+        n = putDateTime(n, transaction.getDateTime(), ' ');
+        row[n++] = ',';
+        n = putCents(n, transaction.getAmountCents());
+        row[n++] = ',';
+        n = putBytes(n, name);
+        if (expense) {
+            row[n++] = ',';
+            n = putBytes(n, METHODS[((Expense) transaction).getPaymentMethod().ordinal()]);
+        }
+        row[n++] = '\n';
+        return n;
+    }
+
+    private int encodeJson(Transaction transaction, boolean first) {
+        boolean expense = transaction instanceof Expense;
+        byte[] name = name(expense ? ((Expense) transaction).getCategorySymbol() : ((Income) transaction).getSourceSymbol());
+        ensureRow(name.length + MAX_ROW_BYTES);
+        int n = putAscii(0, first ? "\n{\"id\":" : ",\n{\"id\":");
+        n = putLong(n, transaction.getId());
+        n = putAscii(n, expense ? ",\"type\":\"EXPENSE\",\"dateTime\":\"" : ",\"type\":\"INCOME\",\"dateTime\":\"");
+        n = putDateTime(n, transaction.getDateTime(), 'T');
+        n = putAscii(n, "\",\"amount\":");
+        n = putCents(n, transaction.getAmountCents());
+        if (expense) {
+            Expense e = (Expense) transaction;
+            n = putAscii(n, ",\"fee\":");
+            n = putCents(n, e.getFeeCents());
+            n = putAscii(n, ",\"category\":");
+            n = putBytes(n, name);
+            n = putAscii(n, ",\"method\":\"");
+            n = putBytes(n, METHODS[e.getPaymentMethod().ordinal()]);
+            row[n++] = '"';
+        } else {
+            n = putAscii(n, ",\"source\":");
+            n = putBytes(n, name);
+        }
+        row[n++] = '}';
+        return n;
+    }
+
+    private byte[] name(SymbolTable.Symbol symbol) {
+        int id = symbol.id;
+        if (id >= names.length) {
+            names = Arrays.copyOf(names, Math.max(id + 1, names.length * 2));
+            nameSymbols = Arrays.copyOf(nameSymbols, names.length);
+        }
+        if (nameSymbols[id] != symbol) {
+            names[id] = encode(symbol.name);
+            nameSymbols[id] = symbol;
+        }
+        return names[id];
+    }
+
+    // A name as a CSV field (quoted only when needed) or a JSON string, in UTF-8.
+    private byte[] encode(String text) {
+        byte[] utf8 = text.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer encoded = ByteBuffer.allocate(utf8.length * 6 + 2);
+        if (format == Format.CSV) {
+            boolean quote = false;
+            for (byte b : utf8) {
+                quote |= b == ',' || b == '"' || b == '\n' || b == '\r';
+            }
+            if (!quote) {
+                return utf8;
+            }
+            encoded.put((byte) '"');
+            for (byte b : utf8) {
+                if (b == '"') {
+                    encoded.put((byte) '"');
+                }
+                encoded.put(b);
+            }
+            encoded.put((byte) '"');
+        } else {
+            encoded.put((byte) '"');
+            for (byte b : utf8) {
+                if (b == '"' || b == '\\') {
+                    encoded.put((byte) '\\').put(b);
+                } else if (b >= 0 && b < 0x20) {
+                    encoded.put(ascii("\\u00")).put(HEX[b >> 4]).put(HEX[b & 0xf]);
+                } else {
+                    encoded.put(b);
+                }
+            }
+            encoded.put((byte) '"');
+        }
+        return Arrays.copyOf(encoded.array(), encoded.position());
+    }
+
+    private void ensureRow(int length) {
+        if (row.length < length) {
+            row = new byte[Math.max(length, row.length * 2)];
+        }
+    }
+
+    private int putBytes(int n, byte[] bytes) {
+        System.arraycopy(bytes, 0, row, n, bytes.length);
+        return n + bytes.length;
+    }
+
+    // Only for ASCII text such as constants and enum names.
+    private int putAscii(int n, String text) {
+        for (int i = 0; i < text.length(); i++) {
+            row[n++] = (byte) text.charAt(i);
+        }
+        return n;
+    }
+
+    private int putLong(int n, long value) {
+        if (value < 0) {
+            row[n++] = '-';
+            if (value == Long.MIN_VALUE) {
+                return putAscii(n, "9223372036854775808");
+            }
+            value = -value;
+        }
+        int end = n + digits(value);
+        for (int i = end - 1; i >= n; i--) {
+            row[i] = DIGITS[(int) (value % 10)];
+            value /= 10;
+        }
+        return end;
+    }
+
+    // Cents as a decimal with two places, like Money.format.
+    private int putCents(int n, long cents) {
+        if (cents < 0) {
+            row[n++] = '-';
+        }
+        long abs = Math.abs(cents);
+        long fraction = abs % Money.CENTS_PER_UNIT;
+        n = putLong(n, abs / Money.CENTS_PER_UNIT);
+        row[n++] = '.';
+        row[n++] = DIGITS[(int) (fraction / 10)];
+        row[n++] = DIGITS[(int) (fraction % 10)];
+        return n;
+    }
+
+    private int putDateTime(int n, LocalDateTime dateTime, char separator) {
+        int year = dateTime.getYear();
+        if (year >= 0 && year <= 9999) {
+            n = putPadded(n, year, 4);
+        } else {
+            n = putLong(n, year);
+        }
+        row[n++] = '-';
+        n = putPadded(n, dateTime.getMonthValue(), 2);
+        row[n++] = '-';
+        n = putPadded(n, dateTime.getDayOfMonth(), 2);
+        row[n++] = (byte) separator;
+        n = putPadded(n, dateTime.getHour(), 2);
+        row[n++] = ':';
+        n = putPadded(n, dateTime.getMinute(), 2);
+        row[n++] = ':';
+        n = putPadded(n, dateTime.getSecond(), 2);
+        if (dateTime.getNano() != 0) {
+            row[n++] = '.';
+            n = putPadded(n, dateTime.getNano(), 9);
+        }
+        return n;
+    }
+
+    private int putPadded(int n, int value, int width) {
+        for (int i = n + width - 1; i >= n; i--) {
+            row[i] = DIGITS[value % 10];
+            value /= 10;
+        }
+        return n + width;
+    }
+
+    private static int digits(long value) {
+        int digits = 1;
+        for (long bound = 10; digits < 19 && value >= bound; bound *= 10) {
+            digits++;
+        }
+        return digits;
+    }
+
+    private void open(Path path) throws IOException {
+        if (path == null) throw new IllegalArgumentException("Path cannot be null");
+        if (out == null) {
+            out = ByteBuffer.allocateDirect(bufferSize);
+        }
+        out.clear();
+        uncompressed = 0;
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        if (gzip) {
+            if (deflated == null) {
+                deflated = ByteBuffer.allocateDirect(bufferSize).order(ByteOrder.LITTLE_ENDIAN);
+                deflater = new Deflater(Deflater.BEST_SPEED, true);
+            }
+            deflater.reset();
+            crc.reset();
+            // Gzip member header: deflate, no flags, no mtime, unknown OS.
+            deflated.clear();
+            deflated.put(new byte[] {0x1f, (byte) 0x8b, 8, 0, 0, 0, 0, 0, 0, (byte) 0xff}).flip();
+            write(deflated);
+        }
+    }
+
+    private void put(byte[] bytes, int length) throws IOException {
+        int offset = 0;
+        while (length - offset > out.remaining()) {
+            int chunk = out.remaining();
+            out.put(bytes, offset, chunk);
+            offset += chunk;
+            flush();
+        }
+        out.put(bytes, offset, length - offset);
+    }
+
+    private void flush() throws IOException {
+        out.flip();
+        uncompressed += out.remaining();
+        if (gzip) {
+            out.mark();
+            crc.update(out);
+            out.reset();
+            deflater.setInput(out);
+            while (!deflater.needsInput()) {
+                drain();
+            }
+            // The deflater holds on to its input; detach it before the buffer is refilled.
+            deflater.setInput(NO_BYTES);
+        } else {
+            write(out);
+        }
+        out.clear();
+    }
+
+    private void close() throws IOException {
+        flush();
+        if (gzip) {
+            deflater.finish();
+            while (!deflater.finished()) {
+                drain();
+            }
+            deflated.clear();
+            deflated.putInt((int) crc.getValue()).putInt((int) uncompressed).flip();
+            write(deflated);
+        }
+        channel.close();
+        channel = null;
+    }
+
+    private void drain() throws IOException {
+        deflated.clear();
+        deflater.deflate(deflated);
+        deflated.flip();
+        write(deflated);
+    }
+
+    private void write(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    // Closes the file after a failed export; a finished export has already closed it.
+    private void abandon() throws IOException {
+        // Lets the names be reclaimed between exports; their encodings are checked against the symbol on reuse.
+        Arrays.fill(nameSymbols, null);
+        if (channel != null) {
+            FileChannel open = channel;
+            channel = null;
+            open.close();
+        }
+    }
+
+    private static byte[] ascii(String text) {
+        return text.getBytes(StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,118 @@
+// TransactionIdIndex.java
+package budgetapp;
+
+/**
+ * Map from transaction id to transaction, keyed by the primitive id so that
+ * no Long is boxed per entry. Open addressing with linear probing; removal
+ * shifts later entries back instead of leaving tombstones. Not thread-safe;
+ * BudgetManager guards it with its lock.
+ */
+final class TransactionIdIndex {
+    private static final int INITIAL_CAPACITY = 16;
+
+    // 0 marks an empty slot; TransactionIds never issues it.
+    private long[] keys = new long[INITIAL_CAPACITY];
+    private Transaction[] values = new Transaction[INITIAL_CAPACITY];
+    private int size;
+
+    /**
+     * Adds a transaction under its id, replacing any transaction with the same id.
+     * @param transaction the transaction
+     */
+    void put(Transaction transaction) {
+        if (size * 2 >= keys.length) {
+            resize(keys.length * 2);
+        }
+        long id = transaction.getId();
+        int mask = keys.length - 1;
+        int slot = slotOf(id, mask);
+        while (keys[slot] != 0) {
+            if (keys[slot] == id) {
+                values[slot] = transaction;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = id;
+        values[slot] = transaction;
+        size++;
+    }
+
+    /**
+     * Gets the transaction with an id.
+     * @param id the id
+     * @return the transaction, or null if none is indexed
+     */
+    Transaction get(long id) {
+        int mask = keys.length - 1;
+        for (int slot = slotOf(id, mask); keys[slot] != 0; slot = (slot + 1) & mask) {
+            if (keys[slot] == id) {
+                return values[slot];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Removes the transaction with an id.
+     * @param id the id
+     * @return the removed transaction, or null if none was indexed
+     */
+    Transaction remove(long id) {
+        int mask = keys.length - 1;
+        int slot = slotOf(id, mask);
+        while (keys[slot] != id) {
+            if (keys[slot] == 0) {
+                return null;
+            }
+            slot = (slot + 1) & mask;
+        }
+        Transaction removed = values[slot];
+        // Move back every later entry of the run that would no longer be reachable.
+        int hole = slot;
+        for (int next = (hole + 1) & mask; keys[next] != 0; next = (next + 1) & mask) {
+            int home = slotOf(keys[next], mask);
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                keys[hole] = keys[next];
+                values[hole] = values[next];
+                hole = next;
+            }
+        }
+        keys[hole] = 0;
+        values[hole] = null;
+        size--;
+        return removed;
+    }
+
+    /**
+     * Gets the number of indexed transactions.
+     * @return the size
+     */
+    int size() {
+        return size;
+    }
+
+    private void resize(int capacity) {
+        long[] oldKeys = keys;
+        Transaction[] oldValues = values;
+        keys = new long[capacity];
+        values = new Transaction[capacity];
+        int mask = capacity - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != 0) {
+                int slot = slotOf(oldKeys[i], mask);
+                while (keys[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    // Sequential ids differ in their low bits, so mix before masking.
+    private static int slotOf(long id, int mask) {
+        long h = id * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+}
\ No newline at end of file
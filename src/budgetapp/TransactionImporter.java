@@ -0,0 +1,554 @@
+// TransactionImporter.java
+package budgetapp;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Streams transactions from a CSV file into a BudgetManager.
+ * <p>
+ * Each line is either an income or an expense:
+ * <pre>
+ * INCOME,2025-03-03 12:12,1000.00,Salary
+ * EXPENSE,2025-03-03 12:12,50.00,Food,CARD
+ * </pre>
+ * The date may also be given as {@code yyyy-MM-dd}, or with seconds and a
+ * fraction of a second. A header line and blank lines are skipped. Expense
+ * categories must already exist in the manager. A field may be quoted as in
+ * RFC 4180, so a name can hold commas, quotes ({@code ""}) and line breaks;
+ * {@link TransactionExporter} writes names that way. Line numbers count
+ * records, so a quoted line break does not start a new one.
+ * <p>
+ * The file is read through a FileChannel and split into batches of lines.
+ * Batches are parsed in parallel but applied to the manager strictly in file
+ * order. Each batch is applied with one limit check per category; if that
+ * check fails the batch falls back to row-by-row adds, and rows that would
+ * exceed a limit are reported as rejected.
+ */
+public class TransactionImporter {
+    /** Default number of lines per batch. */
+    public static final int DEFAULT_BATCH_SIZE = 8192;
+    private static final int READ_BUFFER_SIZE = 1 << 20;
+
+    private final BudgetManager manager;
+    private final int batchSize;
+    private final int parallelism;
+
+    /**
+     * Constructs a TransactionImporter using all available cores.
+     * @param manager the manager to import into
+     * @throws IllegalArgumentException if manager is null
+     */
+    public TransactionImporter(BudgetManager manager) {
+        this(manager, DEFAULT_BATCH_SIZE, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Constructs a TransactionImporter.
+     * @param manager the manager to import into
+     * @param batchSize the number of lines per batch
+     * @param parallelism the number of parser threads
+     * @throws IllegalArgumentException if manager is null or batchSize/parallelism is not positive
+     */
+    public TransactionImporter(BudgetManager manager, int batchSize, int parallelism) {
+        if (manager == null) throw new IllegalArgumentException("Manager cannot be null");
+        if (batchSize <= 0) throw new IllegalArgumentException("Batch size must be positive");
+        if (parallelism <= 0) throw new IllegalArgumentException("Parallelism must be positive");
+        this.manager = manager;
+        this.batchSize = batchSize;
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Imports every line of a file.
+     * @param path the CSV file
+     * @return the number of imported rows and the rejected rows
+     * @throws IOException if the file cannot be read
+     */
+    public ImportResult importFile(Path path) throws IOException {
+        if (path == null) throw new IllegalArgumentException("Path cannot be null");
+        ImportResult result = new ImportResult();
+        ExecutorService pool = Executors.newFixedThreadPool(parallelism);
+        Deque<Future<ParsedBatch>> inFlight = new ArrayDeque<>();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(READ_BUFFER_SIZE);
+            RawBatch batch = new RawBatch(1);
+            // A quote opens a quoted field only at the start of a field; inside one,
+            // line breaks are data and "" is a quote.
+            boolean quoted = false;
+            boolean fieldStart = true;
+            boolean closed = false;
+            while (channel.read(buffer) >= 0) {
+                buffer.flip();
+                while (buffer.hasRemaining()) {
+                    byte b = buffer.get();
+                    if (quoted) {
+                        if (b == '"') {
+                            quoted = false;
+                            closed = true;
+                        }
+                        batch.append(b);
+                        continue;
+                    }
+                    if (b == '"' && (fieldStart || closed)) {
+                        quoted = true;
+                        closed = false;
+                        batch.append(b);
+                        continue;
+                    }
+                    closed = false;
+                    if (b == '\n') {
+                        fieldStart = true;
+                        batch.endLine();
+                        if (batch.lineCount == batchSize) {
+                            submit(pool, inFlight, batch, result);
+                            batch = new RawBatch(batch.firstLine + batchSize);
+                        }
+                    } else if (b != '\r') {
+                        fieldStart = b == ',' || (fieldStart && b == ' ');
+                        batch.append(b);
+                    }
+                }
+                buffer.clear();
+            }
+            if (batch.hasPartialLine()) {
+                batch.endLine();
+            }
+            if (batch.lineCount > 0) {
+                submit(pool, inFlight, batch, result);
+            }
+            while (!inFlight.isEmpty()) {
+                apply(await(inFlight.poll()), result);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        return result;
+    }
+
+    private void submit(ExecutorService pool, Deque<Future<ParsedBatch>> inFlight, RawBatch batch,
+                        ImportResult result) {
+        inFlight.add(pool.submit(() -> parse(batch)));
+        // Bound memory: never more than two batches per parser thread in flight.
+        while (inFlight.size() > parallelism * 2) {
+            apply(await(inFlight.poll()), result);
+        }
+    }
+
+    private static ParsedBatch await(Future<ParsedBatch> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Import interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Import failed: " + e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    private void apply(ParsedBatch batch, ImportResult result) {
+        List<Income> incomes = new ArrayList<>();
+        Map<BudgetCategory, List<Integer>> expenseRows = new LinkedHashMap<>();
+        for (int i = 0; i < batch.rows.length; i++) {
+            Transaction row = batch.rows[i];
+            if (row == null) {
+                if (batch.errors[i] != null) {
+                    result.addRejected(new ImportResult.RejectedRow(batch.lineNumbers[i], batch.line(i), batch.errors[i]));
+                }
+            } else if (row instanceof Income) {
+                incomes.add((Income) row);
+            } else {
+                BudgetCategory category = manager.getCategory(((Expense) row).getCategoryId());
+                if (category == null) {
+                    String name = ((Expense) row).getCategory();
+                    result.addRejected(new ImportResult.RejectedRow(batch.lineNumbers[i], batch.line(i), "Unknown category: " + name));
+                } else {
+                    expenseRows.computeIfAbsent(category, k -> new ArrayList<>()).add(i);
+                }
+            }
+        }
+        manager.addIncomes(incomes);
+        result.addImported(incomes.size());
+        for (Map.Entry<BudgetCategory, List<Integer>> entry : expenseRows.entrySet()) {
+            BudgetCategory category = entry.getKey();
+            List<Expense> group = new ArrayList<>(entry.getValue().size());
+            for (int i : entry.getValue()) {
+                group.add((Expense) batch.rows[i]);
+            }
+            try {
+                manager.addExpenses(group, category);
+                result.addImported(group.size());
+            } catch (MonthlyLimitException | ArithmeticException batchRejected) {
+                // Some rows fit and some do not, or the batch total overflows: fall back to one check per row.
+                for (int i : entry.getValue()) {
+                    try {
+                        manager.addExpense((Expense) batch.rows[i], category);
+                        result.addImported(1);
+                    } catch (MonthlyLimitException e) {
+                        result.addRejected(new ImportResult.RejectedRow(batch.lineNumbers[i], batch.line(i), e.getMessage()));
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Parses a batch of raw lines. Runs on a parser thread.
+     */
+    private static ParsedBatch parse(RawBatch raw) {
+        ParsedBatch parsed = new ParsedBatch(raw);
+        ByteSlice slice = new ByteSlice(raw.data);
+        LabelTable labels = new LabelTable();
+        int[] fieldStart = new int[6];
+        int[] fieldEnd = new int[6];
+        boolean[] quoted = new boolean[6];
+        int lineStart = 0;
+        for (int n = 0; n < raw.lineCount; n++) {
+            int lineEnd = raw.lineEnds[n];
+            long lineNumber = raw.firstLine + n;
+            parsed.lineNumbers[n] = lineNumber;
+            int fields = split(raw.data, lineStart, lineEnd, fieldStart, fieldEnd, quoted);
+            if (fields == 1 && fieldStart[0] == fieldEnd[0] && !quoted[0]) {
+                lineStart = lineEnd; // blank line
+                continue;
+            }
+            String error;
+            try {
+                error = parseRow(raw.data, fields, fieldStart, fieldEnd, quoted, slice, labels, parsed, n);
+            } catch (IllegalArgumentException | DateTimeException | ArithmeticException e) {
+                // One bad row is rejected on its own; it must not fail the import.
+                error = e.getMessage();
+            }
+            if (error != null && !(lineNumber == 1 && isHeader(raw.data, fieldStart[0], fieldEnd[0]))) {
+                parsed.errors[n] = error;
+            }
+            lineStart = lineEnd;
+        }
+        return parsed;
+    }
+
+    private static String parseRow(byte[] data, int fields, int[] start, int[] end, boolean[] quoted,
+                                   ByteSlice slice, LabelTable labels, ParsedBatch parsed, int n) {
+        boolean income = equalsIgnoreCase(data, start[0], end[0], "INCOME");
+        if (!income && !equalsIgnoreCase(data, start[0], end[0], "EXPENSE")) {
+            return "Unknown transaction type";
+        }
+        if (fields != (income ? 4 : 5)) {
+            return income ? "Expected INCOME,date,amount,source" : "Expected EXPENSE,date,amount,category,method";
+        }
+        LocalDateTime dateTime = parseDateTime(data, start[1], end[1]);
+        if (dateTime == null) {
+            return "Invalid date/time";
+        }
+        long amount = Money.parse(slice.of(start[2], end[2]));
+        String label = quoted[3] ? unquote(data, start[3], end[3]) : labels.get(data, start[3], end[3]);
+        if (income) {
+            parsed.rows[n] = Income.ofCents(amount, dateTime, label);
+        } else {
+            Expense.PaymentMethod method = parseMethod(data, start[4], end[4]);
+            if (method == null) {
+                return "Unknown payment method";
+            }
+            parsed.rows[n] = Expense.ofCents(amount, dateTime, label, method);
+        }
+        return null;
+    }
+
+    // Splits a record on commas, trimming spaces around fields. A quoted field's range is the text
+    // between its quotes, still with "" for each quote. Returns the number of fields found (at most six).
+    private static int split(byte[] data, int from, int to, int[] start, int[] end, boolean[] quoted) {
+        int fields = 0;
+        int i = from;
+        while (fields < start.length) {
+            int s = i;
+            while (s < to && data[s] == ' ') s++;
+            int e;
+            if (s < to && data[s] == '"') {
+                e = s + 1;
+                while (e < to && (data[e] != '"' || (e + 1 < to && data[e + 1] == '"'))) {
+                    e += data[e] == '"' ? 2 : 1;
+                }
+                quoted[fields] = true;
+                start[fields] = s + 1;
+                end[fields] = e;
+                // Anything between the closing quote and the comma is ignored.
+                i = e;
+                while (i < to && data[i] != ',') i++;
+            } else {
+                e = s;
+                while (e < to && data[e] != ',') e++;
+                i = e;
+                while (e > s && data[e - 1] == ' ') e--;
+                quoted[fields] = false;
+                start[fields] = s;
+                end[fields] = e;
+            }
+            fields++;
+            if (i >= to) {
+                break;
+            }
+            i++;
+        }
+        return fields;
+    }
+
+    private static String unquote(byte[] data, int from, int to) {
+        return new String(data, from, to - from, StandardCharsets.UTF_8).replace("\"\"", "\"");
+    }
+
+    private static boolean isHeader(byte[] data, int from, int to) {
+        return equalsIgnoreCase(data, from, to, "type");
+    }
+
+    private static boolean equalsIgnoreCase(byte[] data, int from, int to, String text) {
+        if (to - from != text.length()) {
+            return false;
+        }
+        for (int i = 0; i < text.length(); i++) {
+            if (Character.toUpperCase((char) data[from + i]) != Character.toUpperCase(text.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static Expense.PaymentMethod parseMethod(byte[] data, int from, int to) {
+        for (Expense.PaymentMethod method : Expense.PaymentMethod.values()) {
+            if (equalsIgnoreCase(data, from, to, method.name())) {
+                return method;
+            }
+        }
+        return null;
+    }
+
+    // Accepts yyyy-MM-dd, yyyy-MM-dd HH:mm and yyyy-MM-dd HH:mm:ss ('T' may replace the space).
+    private static LocalDateTime parseDateTime(byte[] data, int from, int to) {
+        int len = to - from;
+        int nano = 0;
+        if (len > 20 && len <= 29 && data[from + 19] == '.') {
+            // Up to nine fraction digits, scaled to nanoseconds.
+            nano = digits(data, from + 20, len - 20);
+            for (int i = len; i < 29; i++) {
+                nano *= 10;
+            }
+            len = 19;
+        }
+        if (len != 10 && len != 16 && len != 19) {
+            return null;
+        }
+        if (data[from + 4] != '-' || data[from + 7] != '-') {
+            return null;
+        }
+        int year = digits(data, from, 4);
+        int month = digits(data, from + 5, 2);
+        int day = digits(data, from + 8, 2);
+        int hour = 0;
+        int minute = 0;
+        int second = 0;
+        if (len >= 16) {
+            byte sep = data[from + 10];
+            if ((sep != ' ' && sep != 'T') || data[from + 13] != ':') {
+                return null;
+            }
+            hour = digits(data, from + 11, 2);
+            minute = digits(data, from + 14, 2);
+        }
+        if (len == 19) {
+            if (data[from + 16] != ':') {
+                return null;
+            }
+            second = digits(data, from + 17, 2);
+        }
+        if (year < 0 || month < 0 || day < 0 || hour < 0 || minute < 0 || second < 0 || nano < 0) {
+            return null;
+        }
+        return LocalDateTime.of(year, month, day, hour, minute, second, nano);
+    }
+
+    private static int digits(byte[] data, int from, int count) {
+        int value = 0;
+        for (int i = from; i < from + count; i++) {
+            int d = data[i] - '0';
+            if (d < 0 || d > 9) {
+                return -1;
+            }
+            value = value * 10 + d;
+        }
+        return value;
+    }
+
+    /**
+     * Lines read from the file but not yet parsed, stored back to back.
+     */
+    private static final class RawBatch {
+        final long firstLine;
+        byte[] data = new byte[64 * 1024];
+        int length;
+        int[] lineEnds = new int[256];
+        int lineCount;
+
+        RawBatch(long firstLine) {
+            this.firstLine = firstLine;
+        }
+
+        void append(byte b) {
+            if (length == data.length) {
+                data = Arrays.copyOf(data, data.length * 2);
+            }
+            data[length++] = b;
+        }
+
+        void endLine() {
+            if (lineCount == lineEnds.length) {
+                lineEnds = Arrays.copyOf(lineEnds, lineEnds.length * 2);
+            }
+            lineEnds[lineCount++] = length;
+        }
+
+        boolean hasPartialLine() {
+            return length > (lineCount == 0 ? 0 : lineEnds[lineCount - 1]);
+        }
+    }
+
+    /**
+     * Parser output for one batch; rows[i] is null for blank or rejected lines.
+     */
+    private static final class ParsedBatch {
+        final RawBatch raw;
+        final Transaction[] rows;
+        final String[] errors;
+        final long[] lineNumbers;
+
+        ParsedBatch(RawBatch raw) {
+            this.raw = raw;
+            rows = new Transaction[raw.lineCount];
+            errors = new String[raw.lineCount];
+            lineNumbers = new long[raw.lineCount];
+        }
+
+        // Line text is only decoded for rejected rows.
+        String line(int n) {
+            int from = n == 0 ? 0 : raw.lineEnds[n - 1];
+            return new String(raw.data, from, raw.lineEnds[n] - from, StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Reusable CharSequence view over part of a byte array, so amounts can be
+     * parsed by Money without creating a String per field.
+     */
+    private static final class ByteSlice implements CharSequence {
+        private final byte[] data;
+        private int from;
+        private int to;
+
+        ByteSlice(byte[] data) {
+            this.data = data;
+        }
+
+        ByteSlice of(int from, int to) {
+            this.from = from;
+            this.to = to;
+            return this;
+        }
+
+        @Override
+        public int length() {
+            return to - from;
+        }
+
+        @Override
+        public char charAt(int index) {
+            return (char) (data[from + index] & 0xFF);
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return new String(data, from + start, end - start, StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public String toString() {
+            return new String(data, from, to - from, StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Small open-addressing table that turns repeated category and source
+     * names into one shared String, without allocating on a hit.
+     */
+    private static final class LabelTable {
+        private String[] table = new String[64];
+        private int count;
+
+        String get(byte[] data, int from, int to) {
+            int hash = 0;
+            for (int i = from; i < to; i++) {
+                if (data[i] < 0) {
+                    // Non-ASCII text: decode without caching.
+                    return new String(data, from, to - from, StandardCharsets.UTF_8);
+                }
+                hash = 31 * hash + data[i];
+            }
+            int mask = table.length - 1;
+            for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+                String label = table[slot];
+                if (label == null) {
+                    label = new String(data, from, to - from, StandardCharsets.US_ASCII);
+                    table[slot] = label;
+                    if (++count * 2 > table.length) {
+                        grow();
+                    }
+                    return label;
+                }
+                if (label.hashCode() == hash && sameText(label, data, from, to)) {
+                    return label;
+                }
+            }
+        }
+
+        private static boolean sameText(String label, byte[] data, int from, int to) {
+            if (label.length() != to - from) {
+                return false;
+            }
+            for (int i = 0; i < label.length(); i++) {
+                if (label.charAt(i) != data[from + i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private void grow() {
+            String[] old = table;
+            table = new String[old.length * 2];
+            int mask = table.length - 1;
+            for (String label : old) {
+                if (label != null) {
+                    int slot = label.hashCode() & mask;
+                    while (table[slot] != null) {
+                        slot = (slot + 1) & mask;
+                    }
+                    table[slot] = label;
+                }
+            }
+        }
+    }
+}
\ No newline at end of file
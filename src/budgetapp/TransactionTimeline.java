@@ -0,0 +1,94 @@
+// TransactionTimeline.java
+package budgetapp;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Time-ordered index of transactions used to answer date range queries
+ * without scanning every transaction.
+ */
+class TransactionTimeline {
+    // Transactions sharing the same date and time are kept in insertion order.
+    private final NavigableMap<LocalDateTime, List<Transaction>> byDateTime;
+    private int size;
+
+    /**
+     * Constructs an empty timeline.
+     */
+    TransactionTimeline() {
+        byDateTime = new TreeMap<>();
+        size = 0;
+    }
+
+    /**
+     * Adds a transaction to the timeline.
+     * @param transaction the transaction to index
+     */
+    void add(Transaction transaction) {
+        byDateTime.computeIfAbsent(transaction.getDateTime(), k -> new ArrayList<>(1)).add(transaction);
+        size++;
+    }
+
+    /**
+     * Removes a transaction (by identity) from the timeline.
+     * @param transaction the transaction to remove
+     * @return true if the transaction was indexed
+     */
+    boolean remove(Transaction transaction) {
+        List<Transaction> bucket = byDateTime.get(transaction.getDateTime());
+        if (bucket == null) {
+            return false;
+        }
+        for (int i = 0; i < bucket.size(); i++) {
+            if (bucket.get(i) == transaction) {
+                bucket.remove(i);
+                if (bucket.isEmpty()) {
+                    byDateTime.remove(transaction.getDateTime());
+                }
+                size--;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Removes a group of transactions from the timeline.
+     * @param transactions the transactions to remove
+     */
+    void removeAll(Collection<? extends Transaction> transactions) {
+        for (Transaction t : transactions) {
+            remove(t);
+        }
+    }
+
+    /**
+     * Gets the transactions between two instants, both inclusive, in date order.
+     * @param from the earliest date and time
+     * @param to the latest date and time
+     * @return list of transactions sorted by date and time
+     */
+    List<Transaction> between(LocalDateTime from, LocalDateTime to) {
+        List<Transaction> result = new ArrayList<>();
+        if (from.isAfter(to)) {
+            return result;
+        }
+        for (List<Transaction> bucket : byDateTime.subMap(from, true, to, true).values()) {
+            result.addAll(bucket);
+        }
+        return result;
+    }
+
+    /**
+     * Gets the number of indexed transactions.
+     * @return the size
+     */
+    int size() {
+        return size;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,125 @@
+// WindowLimit.java
+package budgetapp;
+
+import java.util.Objects;
+
+/**
+ * A rolling spending limit for a category: no more than a given amount in any
+ * window of a number of consecutive days, optionally counting only expenses
+ * paid with one payment method. Amounts are held in cents.
+ * <p>
+ * Limits are added to a category with {@link BudgetManager#addWindowLimit}
+ * and checked on every expense alongside the monthly limit.
+ */
+public final class WindowLimit {
+    /**
+     * The longest window allowed, in days.
+     */
+    public static final int MAX_DAYS = 366;
+
+    private final int days;
+    private final long limitCents;
+    private final Expense.PaymentMethod paymentMethod;
+
+    private WindowLimit(int days, long limitCents, Expense.PaymentMethod paymentMethod) {
+        if (days < 1 || days > MAX_DAYS) {
+            throw new IllegalArgumentException("Window must be between 1 and " + MAX_DAYS + " days");
+        }
+        if (limitCents < 0) {
+            throw new IllegalArgumentException("Limit cannot be negative");
+        }
+        this.days = days;
+        this.limitCents = limitCents;
+        this.paymentMethod = paymentMethod;
+    }
+
+    /**
+     * Creates a limit on all expenses in any window of a number of days.
+     * @param days the window length in days
+     * @param limitCents the most that may be spent in any window, in cents
+     * @return the limit
+     * @throws IllegalArgumentException if days is out of range or limit is negative
+     */
+    public static WindowLimit rolling(int days, long limitCents) {
+        return new WindowLimit(days, limitCents, null);
+    }
+
+    /**
+     * Creates a limit on the expenses paid with one method in any window of a number of days.
+     * @param days the window length in days
+     * @param limitCents the most that may be spent in any window, in cents
+     * @param paymentMethod the payment method counted
+     * @return the limit
+     * @throws IllegalArgumentException if days is out of range, limit is negative or payment method is null
+     */
+    public static WindowLimit rolling(int days, long limitCents, Expense.PaymentMethod paymentMethod) {
+        if (paymentMethod == null) throw new IllegalArgumentException("Payment method cannot be null");
+        return new WindowLimit(days, limitCents, paymentMethod);
+    }
+
+    /**
+     * Creates a cap on the expenses paid with one method on any calendar day.
+     * @param paymentMethod the payment method counted
+     * @param limitCents the most that may be spent in a day, in cents
+     * @return the limit
+     * @throws IllegalArgumentException if limit is negative or payment method is null
+     */
+    public static WindowLimit daily(Expense.PaymentMethod paymentMethod, long limitCents) {
+        return rolling(1, limitCents, paymentMethod);
+    }
+
+    /**
+     * Gets the window length.
+     * @return the number of days
+     */
+    public int getDays() {
+        return days;
+    }
+
+    /**
+     * Gets the most that may be spent in any window, in cents.
+     * @return the limit in cents
+     */
+    public long getLimitCents() {
+        return limitCents;
+    }
+
+    /**
+     * Gets the payment method counted.
+     * @return the method, or null if every expense counts
+     */
+    public Expense.PaymentMethod getPaymentMethod() {
+        return paymentMethod;
+    }
+
+    /**
+     * Checks whether an expense paid with a method counts toward this limit.
+     * @param method the expense's payment method
+     * @return true if it counts
+     */
+    boolean counts(Expense.PaymentMethod method) {
+        return paymentMethod == null || paymentMethod == method;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof WindowLimit)) return false;
+        WindowLimit other = (WindowLimit) o;
+        return days == other.days && limitCents == other.limitCents && paymentMethod == other.paymentMethod;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(days, limitCents, paymentMethod);
+    }
+
+    @Override
+    public String toString() {
+        String scope = paymentMethod == null ? "" : " " + paymentMethod;
+        if (days == 1) {
+            return String.format("$%s%s per day", Money.format(limitCents), scope);
+        }
+        return String.format("$%s%s in any %d days", Money.format(limitCents), scope, days);
+    }
+}
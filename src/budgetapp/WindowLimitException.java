@@ -0,0 +1,41 @@
+// WindowLimitException.java
+package budgetapp;
+
+/**
+ * Exception thrown when an expense exceeds one of a budget category's
+ * rolling {@link WindowLimit}s.
+ */
+public class WindowLimitException extends MonthlyLimitException {
+    private static final long serialVersionUID = 1L;
+
+    private final transient WindowLimit limit;
+    private final long spentCents;
+
+    /**
+     * Constructs a WindowLimitException.
+     * @param message the error message
+     * @param limit the limit exceeded
+     * @param spentCents the window's expenditure in cents before the rejected amount
+     */
+    public WindowLimitException(String message, WindowLimit limit, long spentCents) {
+        super(message);
+        this.limit = limit;
+        this.spentCents = spentCents;
+    }
+
+    /**
+     * Gets the limit exceeded.
+     * @return the limit
+     */
+    public WindowLimit getLimit() {
+        return limit;
+    }
+
+    /**
+     * Gets the window's expenditure before the rejected amount.
+     * @return the expenditure in cents
+     */
+    public long getSpentCents() {
+        return spentCents;
+    }
+}
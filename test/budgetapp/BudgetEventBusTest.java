@@ -0,0 +1,158 @@
+// BudgetEventBusTest.java
+package budgetapp;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+class BudgetEventBusTest {
+    private static final YearMonth MONTH = YearMonth.of(2025, 1);
+    private static final LocalDateTime NOON = MONTH.atDay(1).atTime(12, 0);
+    private static final int CAPACITY = 4;
+    private static final int EVENTS = 20;
+
+    // A listener that holds up the first event until released, so its subscription falls behind.
+    private static final class SlowListener implements BudgetEventListener {
+        final CountDownLatch entered = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final List<Long> amounts = new ArrayList<>();
+
+        @Override
+        public void onEvent(BudgetEvent event) {
+            amounts.add(event.getAmountCents());
+            entered.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private static void addIncomes(BudgetManager manager, int from, int to) {
+        for (int i = from; i < to; i++) {
+            manager.addIncome(Income.ofCents(i + 1, NOON, "Salary"));
+        }
+    }
+
+    // Publishes the first event, waits until the listener is stuck in it, then publishes the rest.
+    private static void overrun(BudgetManager manager, SlowListener listener) throws InterruptedException {
+        addIncomes(manager, 0, 1);
+        assertTrue(listener.entered.await(10, TimeUnit.SECONDS));
+        addIncomes(manager, 1, EVENTS);
+    }
+
+    @Test
+    void dropNewestKeepsTheFirstRingfulAndCountsTheRest() throws Exception {
+        BudgetManager manager = new BudgetManager();
+        BudgetEventBus bus = BudgetEventBus.attach(manager, CAPACITY, BudgetEventBus.Backpressure.DROP_NEWEST);
+        SlowListener listener = new SlowListener();
+        BudgetEventBus.Subscription subscription = bus.subscribe(listener);
+        overrun(manager, listener);
+
+        assertEquals(CAPACITY, bus.getPublishedCount());
+        assertEquals(EVENTS - CAPACITY, bus.getDroppedCount());
+        listener.release.countDown();
+        bus.close();
+        assertEquals(List.of(1L, 2L, 3L, 4L), listener.amounts);
+        assertEquals(CAPACITY, subscription.getDeliveredCount());
+        assertEquals(0, subscription.getMissedCount());
+    }
+
+    @Test
+    void overwriteOldestSkipsALappedSubscriptionAhead() throws Exception {
+        BudgetManager manager = new BudgetManager();
+        BudgetEventBus bus = BudgetEventBus.attach(manager, CAPACITY, BudgetEventBus.Backpressure.OVERWRITE_OLDEST);
+        SlowListener listener = new SlowListener();
+        BudgetEventBus.Subscription subscription = bus.subscribe(listener);
+        overrun(manager, listener);
+
+        assertEquals(EVENTS, bus.getPublishedCount());
+        assertEquals(0, bus.getDroppedCount());
+        listener.release.countDown();
+        bus.close();
+        // The first event was copied out before it was overwritten; then only the last ringful is left.
+        assertEquals(List.of(1L, 17L, 18L, 19L, 20L), listener.amounts);
+        assertEquals(EVENTS - 5, subscription.getMissedCount());
+        assertEquals(5, subscription.getDeliveredCount());
+    }
+
+    @Test
+    void blockStallsTheProducerUntilTheSubscriptionCatchesUp() throws Exception {
+        BudgetManager manager = new BudgetManager();
+        BudgetEventBus bus = BudgetEventBus.attach(manager, CAPACITY, BudgetEventBus.Backpressure.BLOCK);
+        SlowListener listener = new SlowListener();
+        BudgetEventBus.Subscription subscription = bus.subscribe(listener);
+        Thread producer = new Thread(() -> {
+            try {
+                overrun(manager, listener);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        producer.start();
+
+        assertTrue(listener.entered.await(10, TimeUnit.SECONDS));
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (bus.getPublishedCount() < CAPACITY && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        // The ring is full and the subscription is still on its first event.
+        producer.join(100);
+        assertTrue(producer.isAlive());
+        assertEquals(CAPACITY, bus.getPublishedCount());
+
+        listener.release.countDown();
+        producer.join();
+        bus.close();
+        List<Long> expected = new ArrayList<>();
+        for (long i = 1; i <= EVENTS; i++) {
+            expected.add(i);
+        }
+        assertEquals(expected, listener.amounts);
+        assertEquals(0, bus.getDroppedCount());
+        assertEquals(0, subscription.getMissedCount());
+    }
+
+    @Test
+    void thresholdsFireOnceAndRearmWhenSpendFallsBack() throws Exception {
+        BudgetManager manager = new BudgetManager();
+        BudgetCategory category = BudgetCategory.ofCents("Food", 10_000);
+        manager.addCategory(category);
+        BudgetEventBus bus = BudgetEventBus.attach(manager);
+        List<String> events = new ArrayList<>();
+        bus.subscribe(event -> events.add(event.getType() == BudgetEvent.Type.THRESHOLD_CROSSED
+                ? event.getThresholdPercent() + "% at " + event.getSpentCents()
+                : event.getType().toString()));
+
+        Expense last = null;
+        for (long cents : new long[] {7_000, 1_000, 500, 1_500}) {
+            last = Expense.ofCents(cents, NOON, "Food", Expense.PaymentMethod.CASH);
+            manager.addExpense(last, category);
+        }
+        // Falling below 100% re-arms that threshold but not 80%.
+        manager.deleteTransaction(last.getId());
+        manager.addExpense(Expense.ofCents(1_500, NOON, "Food", Expense.PaymentMethod.CASH), category);
+        // A reset re-arms both.
+        manager.resetExpenditure(category, MONTH);
+        manager.addExpense(Expense.ofCents(10_000, NOON, "Food", Expense.PaymentMethod.CASH), category);
+        bus.close();
+
+        assertEquals(List.of(
+                "TRANSACTION_ADDED",
+                "80% at 8000", "TRANSACTION_ADDED",
+                "TRANSACTION_ADDED",
+                "100% at 10000", "TRANSACTION_ADDED",
+                "TRANSACTION_DELETED",
+                "100% at 10000", "TRANSACTION_ADDED",
+                "EXPENDITURE_RESET",
+                "80% at 10000", "100% at 10000", "TRANSACTION_ADDED"), events);
+    }
+}
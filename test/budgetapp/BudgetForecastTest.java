@@ -0,0 +1,96 @@
+// BudgetForecastTest.java
+package budgetapp;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDateTime;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import org.junit.jupiter.api.Test;
+
+class BudgetForecastTest {
+    private static void spend(BudgetManager manager, BudgetCategory category, long cents, LocalDateTime at)
+            throws MonthlyLimitException {
+        manager.addExpense(Expense.ofCents(cents, at, category.getName(), Expense.PaymentMethod.CASH), category);
+    }
+
+    @Test
+    void historicalForecastCountsOnlySpendBeforeAsOf() throws Exception {
+        BudgetManager manager = new BudgetManager();
+        BudgetCategory food = BudgetCategory.ofCents("Food", 10_000);
+        manager.addCategory(food);
+        spend(manager, food, 100, LocalDateTime.of(2025, 3, 1, 10, 0));
+        spend(manager, food, 9_500, LocalDateTime.of(2025, 3, 25, 10, 0));
+
+        ForecastReport report = new BudgetForecast(manager).forecast(LocalDateTime.of(2025, 3, 2, 0, 0), 2_000, 7);
+        ForecastReport.CategoryForecast forecast = report.getCategories().get("Food");
+        assertEquals(100, forecast.getSpentCents());
+        assertTrue(forecast.getExceedProbability() < 1, forecast.toString());
+        // With no income, the expected net is exactly the expected spend, negated.
+        assertEquals(-forecast.getExpectedCents(), report.getExpectedNetCashFlowCents(), 1e-6);
+        assertEquals(0, report.getIncomeSoFarCents());
+    }
+
+    @Test
+    void onlyTheForecastMonthCounts() throws Exception {
+        BudgetManager manager = new BudgetManager();
+        BudgetCategory rent = BudgetCategory.ofCents("Rent", 100_000);
+        BudgetCategory gifts = BudgetCategory.ofCents("Gifts", 5_000);
+        manager.addCategory(rent);
+        manager.addCategory(gifts);
+        // Rent is paid once, early in the month; a later month must not count.
+        spend(manager, rent, 100_000, LocalDateTime.of(2025, 3, 1, 9, 0));
+        spend(manager, rent, 100_000, LocalDateTime.of(2025, 4, 1, 9, 0));
+        manager.addIncome(Income.ofCents(300_000, LocalDateTime.of(2025, 3, 5, 9, 0), "Salary"));
+
+        ForecastReport report = new BudgetForecast(manager).forecast(LocalDateTime.of(2025, 3, 10, 0, 0), 1_000, 3);
+        assertEquals(100_000, report.getCategories().get("Rent").getSpentCents());
+        assertEquals(0, report.getCategories().get("Gifts").getSpentCents());
+        assertEquals(0, report.getCategories().get("Gifts").getExpectedCents(), 1e-9);
+        assertEquals(0, report.getCategories().get("Gifts").getExceedProbability());
+        assertEquals(300_000, report.getIncomeSoFarCents());
+    }
+
+    @Test
+    void sameSeedGivesTheSameForecastOnAnyPool() throws Exception {
+        BudgetManager manager = new BudgetManager();
+        BudgetCategory[] categories = new BudgetCategory[5];
+        for (int c = 0; c < categories.length; c++) {
+            categories[c] = BudgetCategory.ofCents("Forecast " + c, 60_000 + 20_000 * c);
+            manager.addCategory(categories[c]);
+        }
+        Random random = new Random(5);
+        LocalDateTime start = LocalDateTime.of(2025, 1, 1, 0, 0);
+        for (int i = 0; i < 3_000; i++) {
+            LocalDateTime at = start.plusMinutes(random.nextInt(80 * 24 * 60));
+            if (random.nextInt(10) == 0) {
+                manager.addIncome(Income.ofCents(1 + random.nextInt(200_000), at, "Salary"));
+            } else {
+                BudgetCategory category = categories[random.nextInt(categories.length)];
+                spend(manager, category, 1 + random.nextInt(600), at);
+            }
+        }
+        LocalDateTime asOf = LocalDateTime.of(2025, 3, 12, 8, 30);
+        ForkJoinPool one = new ForkJoinPool(1);
+        ForkJoinPool four = new ForkJoinPool(4);
+        try {
+            String single = new BudgetForecast(manager, 60, one).forecast(asOf, 5_000, 42).toString();
+            assertEquals(single, new BudgetForecast(manager, 60, four).forecast(asOf, 5_000, 42).toString());
+        } finally {
+            one.shutdown();
+            four.shutdown();
+        }
+    }
+
+    @Test
+    void argumentsAreChecked() {
+        BudgetManager manager = new BudgetManager();
+        assertThrows(IllegalArgumentException.class, () -> new BudgetForecast(null));
+        assertThrows(IllegalArgumentException.class, () -> new BudgetForecast(manager, 0, ForkJoinPool.commonPool()));
+        assertThrows(IllegalArgumentException.class, () -> new BudgetForecast(manager).forecast(null));
+        assertThrows(IllegalArgumentException.class,
+                () -> new BudgetForecast(manager).forecast(LocalDateTime.of(2025, 3, 1, 0, 0), 0, 1));
+    }
+}
@@ -0,0 +1,200 @@
+// BudgetJournalTest.java
+package budgetapp;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+class BudgetJournalTest {
+    private static final LocalDateTime START = LocalDateTime.of(2025, 5, 30, 18, 0, 1, 500);
+    private static final YearMonth MAY = YearMonth.of(2025, 5);
+    private static final YearMonth JUNE = YearMonth.of(2025, 6);
+
+    @TempDir
+    Path dir;
+
+    private static List<String> describe(BudgetManager manager) {
+        List<String> rows = new ArrayList<>();
+        for (BudgetCategory category : manager.getCategories()) {
+            rows.add(category.getName() + " " + category.getLimitCents() + " " + category.getSpentCents(MAY)
+                    + " " + category.getSpentCents(JUNE));
+        }
+        rows.sort(null);
+        for (Transaction t : manager.getTransactionsByDateRange(LocalDate.MIN, LocalDate.MAX)) {
+            String label = t instanceof Expense
+                    ? ((Expense) t).getCategory() + " " + ((Expense) t).getPaymentMethod()
+                    : ((Income) t).getSource();
+            rows.add(t.getId() + " " + t.getDateTime() + " " + t.getAmountCents() + " " + label);
+        }
+        return rows;
+    }
+
+    // Every kind of record: category add and delete, income, expense, delete, update and reset.
+    private static void record(BudgetManager manager) throws MonthlyLimitException {
+        BudgetCategory food = BudgetCategory.ofCents("Food", 100_000);
+        BudgetCategory rent = BudgetCategory.ofCents("Rent", 200_000);
+        BudgetCategory gone = BudgetCategory.ofCents("Gone", 5_000);
+        manager.addCategory(food);
+        manager.addCategory(rent);
+        manager.addCategory(gone);
+        Expense.PaymentMethod[] methods = Expense.PaymentMethod.values();
+        List<Expense> food1 = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            Expense expense = Expense.ofCents(500 + i, START.plusHours(3L * i), "Food", methods[i % methods.length]);
+            manager.addExpense(expense, food);
+            food1.add(expense);
+        }
+        manager.addExpenses(List.of(Expense.ofCents(150_000, START, "Rent", Expense.PaymentMethod.CARD)), rent);
+        manager.addExpense(Expense.ofCents(1_000, START, "Gone", Expense.PaymentMethod.CASH), gone);
+        manager.addIncome(Income.ofCents(300_000, START.plusDays(1), "Salary"));
+        manager.addIncomes(List.of(Income.ofCents(1_234, START.plusDays(2), "Gift")));
+        manager.deleteTransaction(food1.get(5).getId());
+        manager.updateTransaction(food1.get(6).getId(),
+                Expense.ofCents(99, START.plusDays(5), "Food", Expense.PaymentMethod.ALIPAY));
+        manager.resetExpenditure(food, MAY);
+        manager.deleteCategory(gone);
+    }
+
+    @ParameterizedTest
+    @EnumSource(BudgetJournal.SyncMode.class)
+    void replayRebuildsTheManager(BudgetJournal.SyncMode mode) throws Exception {
+        Path path = dir.resolve("budget.journal");
+        BudgetManager manager = new BudgetManager();
+        try (BudgetJournal journal = BudgetJournal.open(path, manager, mode, 5)) {
+            record(manager);
+        }
+
+        BudgetManager replayed = new BudgetManager();
+        try (BudgetJournal journal = BudgetJournal.open(path, replayed, mode, 5)) {
+            assertEquals(describe(manager), describe(replayed));
+            assertEquals(0, replayed.getCategory("Food").getSpentCents(MAY));
+            assertNull(replayed.getCategory("Gone"));
+            // A later record refers to a category by its id in this file.
+            replayed.addExpense(Expense.ofCents(7, START, "Rent", Expense.PaymentMethod.CASH), replayed.getCategory("Rent"));
+        }
+        BudgetManager again = new BudgetManager();
+        try (BudgetJournal journal = BudgetJournal.open(path, again)) {
+            assertEquals(describe(replayed), describe(again));
+        }
+    }
+
+    @Test
+    void tornTailIsDroppedAndTruncated() throws Exception {
+        Path path = dir.resolve("budget.journal");
+        BudgetManager manager = new BudgetManager();
+        try (BudgetJournal journal = BudgetJournal.open(path, manager)) {
+            record(manager);
+        }
+        long length = Files.size(path);
+        // A record header promising more bytes than were written.
+        Files.write(path, new byte[] {0, 0, 0, 40, 1, 2, 3, 4, 4, 0, 0}, StandardOpenOption.APPEND);
+
+        BudgetManager replayed = new BudgetManager();
+        try (BudgetJournal journal = BudgetJournal.open(path, replayed)) {
+            assertEquals(describe(manager), describe(replayed));
+            assertEquals(length, Files.size(path));
+        }
+    }
+
+    @Test
+    void replayStopsAtACorruptRecord() throws Exception {
+        Path path = dir.resolve("budget.journal");
+        BudgetManager manager = new BudgetManager();
+        try (BudgetJournal journal = BudgetJournal.open(path, manager, BudgetJournal.SyncMode.EVERY_OPERATION, 5)) {
+            BudgetCategory food = BudgetCategory.ofCents("Food", 100_000);
+            manager.addCategory(food);
+            manager.addIncome(Income.ofCents(1, START, "First"));
+        }
+        long valid = Files.size(path);
+        BudgetManager more = new BudgetManager();
+        try (BudgetJournal journal = BudgetJournal.open(path, more, BudgetJournal.SyncMode.EVERY_OPERATION, 5)) {
+            more.addIncome(Income.ofCents(2, START, "Second"));
+            more.addIncome(Income.ofCents(3, START, "Third"));
+        }
+        byte[] bytes = Files.readAllBytes(path);
+        // Flip a payload byte of the first record appended after "First".
+        bytes[(int) valid + 12] ^= 0x55;
+        Files.write(path, bytes);
+
+        BudgetManager replayed = new BudgetManager();
+        try (BudgetJournal journal = BudgetJournal.open(path, replayed)) {
+            List<Transaction> rows = replayed.getTransactionsByDateRange(LocalDate.MIN, LocalDate.MAX);
+            assertEquals(1, rows.size());
+            assertEquals(1, rows.get(0).getAmountCents());
+        }
+        assertEquals(valid, Files.size(path));
+    }
+
+    @Test
+    void checkpointStartsANewGeneration() throws Exception {
+        Path path = dir.resolve("budget.journal");
+        Path snapshot = dir.resolve("budget.snapshot");
+        BudgetManager manager = new BudgetManager();
+        try (BudgetJournal journal = BudgetJournal.open(path, manager)) {
+            record(manager);
+            long generation = journal.getGeneration();
+            manager.checkpoint(snapshot);
+            assertEquals(generation + 1, journal.getGeneration());
+            manager.addIncome(Income.ofCents(42, START.plusDays(9), "After"));
+        }
+
+        BudgetManager restored = BudgetSnapshot.load(snapshot);
+        try (BudgetJournal journal = BudgetJournal.open(path, restored)) {
+            assertEquals(describe(manager), describe(restored));
+        }
+    }
+
+    @Test
+    void journalCoveredBySnapshotIsDiscarded() throws Exception {
+        Path path = dir.resolve("budget.journal");
+        Path snapshot = dir.resolve("budget.snapshot");
+        BudgetManager manager = new BudgetManager();
+        byte[] beforeRotate;
+        try (BudgetJournal journal = BudgetJournal.open(path, manager)) {
+            record(manager);
+            journal.commit();
+            beforeRotate = Files.readAllBytes(path);
+            manager.checkpoint(snapshot);
+        }
+        // A crash between writing the snapshot and rotating the journal leaves the old generation.
+        Files.write(path, beforeRotate);
+
+        BudgetManager restored = BudgetSnapshot.load(snapshot);
+        try (BudgetJournal journal = BudgetJournal.open(path, restored)) {
+            assertEquals(describe(manager), describe(restored));
+            assertTrue(journal.getGeneration() > ByteBuffer.wrap(beforeRotate).getLong(8));
+        }
+    }
+
+    @Test
+    void rejectsOtherVersionsAndFiles() throws Exception {
+        Path path = dir.resolve("budget.journal");
+        try (BudgetJournal journal = BudgetJournal.open(path, new BudgetManager())) {
+            journal.commit();
+        }
+        byte[] bytes = Files.readAllBytes(path);
+        ByteBuffer.wrap(bytes).putInt(4, 1);
+        Files.write(path, bytes);
+        IOException e = assertThrows(IOException.class, () -> BudgetJournal.open(path, new BudgetManager()));
+        assertEquals("Unsupported journal version 1", e.getMessage());
+
+        Files.writeString(path, "definitely not a journal");
+        assertThrows(IOException.class, () -> BudgetJournal.open(path, new BudgetManager()));
+    }
+}
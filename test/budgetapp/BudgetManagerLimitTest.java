@@ -0,0 +1,192 @@
+// BudgetManagerLimitTest.java
+package budgetapp;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.RepeatedTest;
+import org.junit.jupiter.api.Test;
+
+class BudgetManagerLimitTest {
+    private static final YearMonth MONTH = YearMonth.of(2025, 1);
+    private static final LocalDateTime NOON = MONTH.atDay(1).atTime(12, 0);
+
+    @RepeatedTest(5)
+    void concurrentAddsNeverExceedTheLimit() throws InterruptedException {
+        int categoryCount = 4;
+        long limitCents = 200_000;
+        BudgetManager manager = new BudgetManager();
+        BudgetCategory[] categories = new BudgetCategory[categoryCount];
+        AtomicLong[] accepted = new AtomicLong[categoryCount];
+        for (int c = 0; c < categoryCount; c++) {
+            categories[c] = BudgetCategory.ofCents("Limit" + c, limitCents);
+            accepted[c] = new AtomicLong();
+            manager.addCategory(categories[c]);
+        }
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            Thread worker = new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                Expense.PaymentMethod[] methods = Expense.PaymentMethod.values();
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                for (int i = 0; i < 5_000; i++) {
+                    int c = random.nextInt(categoryCount);
+                    Expense expense = Expense.ofCents(1 + random.nextInt(5_000), NOON.plusSeconds(i),
+                            categories[c].getName(), methods[random.nextInt(methods.length)]);
+                    try {
+                        manager.addExpense(expense, categories[c]);
+                        accepted[c].addAndGet(-expense.getEffectiveAmountCents());
+                    } catch (MonthlyLimitException e) {
+                        // Expected once the category is nearly full.
+                    }
+                }
+            });
+            workers.add(worker);
+            worker.start();
+        }
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+
+        for (int c = 0; c < categoryCount; c++) {
+            BudgetCategory category = categories[c];
+            long listed = 0;
+            for (Expense e : manager.getExpensesByCategory(category)) {
+                listed -= e.getEffectiveAmountCents();
+            }
+            assertTrue(category.getSpentCents(MONTH) <= limitCents, category.toString());
+            assertEquals(accepted[c].get(), category.getSpentCents(MONTH), category.toString());
+            assertEquals(accepted[c].get(), listed, category.toString());
+        }
+    }
+
+    @Test
+    void rejectedExpenseLeavesTheMonthUnchanged() throws MonthlyLimitException {
+        BudgetManager manager = new BudgetManager();
+        BudgetCategory category = BudgetCategory.ofCents("Rejected", 10_000);
+        manager.addCategory(category);
+        manager.addExpense(Expense.ofCents(9_000, NOON, "Rejected", Expense.PaymentMethod.CASH), category);
+
+        assertThrows(MonthlyLimitException.class, () ->
+                manager.addExpense(Expense.ofCents(1_001, NOON, "Rejected", Expense.PaymentMethod.CASH), category));
+        assertEquals(9_000, category.getSpentCents(MONTH));
+        assertEquals(1, manager.getExpensesByCategory(category).size());
+        manager.addExpense(Expense.ofCents(1_000, NOON, "Rejected", Expense.PaymentMethod.CASH), category);
+        assertEquals(10_000, category.getSpentCents(MONTH));
+    }
+
+    @Test
+    void batchIsAddedWhollyOrNotAtAll() {
+        BudgetManager manager = new BudgetManager();
+        BudgetCategory category = BudgetCategory.ofCents("Batch", 10_000);
+        manager.addCategory(category);
+        List<Expense> batch = List.of(
+                Expense.ofCents(6_000, NOON, "Batch", Expense.PaymentMethod.CASH),
+                Expense.ofCents(6_000, NOON.plusHours(1), "Batch", Expense.PaymentMethod.CASH));
+
+        assertThrows(MonthlyLimitException.class, () -> manager.addExpenses(batch, category));
+        assertEquals(0, category.getSpentCents(MONTH));
+        assertTrue(manager.getExpensesByCategory(category).isEmpty());
+    }
+
+    @Test
+    void resetKeepsCountingTheMonth() throws MonthlyLimitException {
+        BudgetManager manager = new BudgetManager();
+        BudgetCategory category = BudgetCategory.ofCents("Reset", 10_000);
+        manager.addCategory(category);
+        manager.addExpense(Expense.ofCents(10_000, NOON, "Reset", Expense.PaymentMethod.CASH), category);
+
+        manager.resetExpenditure(category, MONTH);
+        assertEquals(0, category.getSpentCents(MONTH));
+        manager.addExpense(Expense.ofCents(7_000, NOON, "Reset", Expense.PaymentMethod.CASH), category);
+        assertEquals(7_000, category.getSpentCents(MONTH));
+        assertThrows(MonthlyLimitException.class, () ->
+                manager.addExpense(Expense.ofCents(3_001, NOON, "Reset", Expense.PaymentMethod.CASH), category));
+        assertEquals(7_000, category.getSpentCents(MONTH));
+    }
+
+    @Test
+    void deletedCategoryIsNotBroughtBackByAnAdd() {
+        BudgetManager manager = new BudgetManager();
+        BudgetCategory category = BudgetCategory.ofCents("Deleted", 10_000);
+        manager.addCategory(category);
+        manager.deleteCategory(category);
+
+        assertThrows(IllegalArgumentException.class, () ->
+                manager.addExpense(Expense.ofCents(500, NOON, "Deleted", Expense.PaymentMethod.CASH), category));
+        assertThrows(IllegalArgumentException.class, () -> manager.addExpenses(
+                List.of(Expense.ofCents(500, NOON, "Deleted", Expense.PaymentMethod.CASH)), category));
+        assertFalse(manager.getCategories().contains(category));
+        assertEquals(0, category.getSpentCents(MONTH));
+    }
+
+    @Test
+    void firstExpenseAddsACategoryThatWasNeverAdded() throws MonthlyLimitException {
+        BudgetManager manager = new BudgetManager();
+        BudgetCategory single = BudgetCategory.ofCents("Implicit", 10_000);
+        BudgetCategory batch = BudgetCategory.ofCents("Implicit batch", 10_000);
+        manager.addExpense(Expense.ofCents(500, NOON, "Implicit", Expense.PaymentMethod.CASH), single);
+        manager.addExpenses(List.of(Expense.ofCents(700, NOON, "Implicit batch", Expense.PaymentMethod.CASH)), batch);
+
+        assertTrue(manager.getCategories().contains(single));
+        assertEquals(single, manager.getCategory("Implicit"));
+        assertEquals(1, manager.getExpensesByCategory(single).size());
+        assertEquals(700, batch.getSpentCents(MONTH));
+
+        // A deleted category stays deleted until it is added again.
+        manager.deleteCategory(single);
+        assertThrows(IllegalArgumentException.class, () ->
+                manager.addExpense(Expense.ofCents(500, NOON, "Implicit", Expense.PaymentMethod.CASH), single));
+        manager.addCategory(single);
+        manager.addExpense(Expense.ofCents(500, NOON, "Implicit", Expense.PaymentMethod.CASH), single);
+        assertEquals(1, manager.getExpensesByCategory(single).size());
+    }
+
+    @Test
+    void addRacingDeleteNeverLeavesAnOrphanedCategory() throws InterruptedException {
+        for (int round = 0; round < 200; round++) {
+            BudgetManager manager = new BudgetManager();
+            BudgetCategory category = BudgetCategory.ofCents("Race" + round, 1_000_000);
+            manager.addCategory(category);
+            CountDownLatch start = new CountDownLatch(1);
+            Thread adder = new Thread(() -> {
+                try {
+                    start.await();
+                    for (int i = 0; i < 50; i++) {
+                        manager.addExpense(Expense.ofCents(100, NOON, category.getName(),
+                                Expense.PaymentMethod.CASH), category);
+                    }
+                } catch (IllegalArgumentException e) {
+                    // Lost the race to the delete.
+                } catch (MonthlyLimitException e) {
+                    throw new AssertionError(e);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            adder.start();
+            start.countDown();
+            manager.deleteCategory(category);
+            adder.join();
+
+            assertFalse(manager.getCategories().contains(category));
+            assertTrue(manager.getTransactionsByDateRange(MONTH.atDay(1), MONTH.atEndOfMonth()).isEmpty());
+        }
+    }
+}
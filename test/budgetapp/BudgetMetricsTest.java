@@ -0,0 +1,61 @@
+// BudgetMetricsTest.java
+package budgetapp;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+class BudgetMetricsTest {
+    private static final LocalDateTime AT = LocalDateTime.of(2025, 3, 3, 9, 0);
+
+    private static Expense cash(long cents, LocalDateTime at) {
+        return Expense.ofCents(cents, at, "Food", Expense.PaymentMethod.CASH);
+    }
+
+    private static long count(BudgetManager manager, BudgetMetrics.Operation operation) {
+        return manager.getMetrics().getLatency(operation).getCount();
+    }
+
+    @Test
+    void batchAddsRecordLatencyOnEveryPath() throws Exception {
+        BudgetManager manager = new BudgetManager();
+        BudgetCategory food = BudgetCategory.ofCents("Food", 10_000);
+        manager.addCategory(food);
+        manager.addWindowLimit(food, WindowLimit.rolling(7, 6_000));
+
+        manager.addExpenses(List.of(cash(1_000, AT), cash(2_000, AT.plusDays(1))), food);
+        manager.addIncomes(List.of(Income.ofCents(50_000, AT, "Salary"), Income.ofCents(1, AT, "Gifts")));
+        assertEquals(1, count(manager, BudgetMetrics.Operation.ADD_EXPENSES));
+        assertEquals(1, count(manager, BudgetMetrics.Operation.ADD_INCOMES));
+
+        // Over the monthly limit, then over the rolling limit only.
+        assertThrows(MonthlyLimitException.class,
+                () -> manager.addExpenses(List.of(cash(4_000, AT.plusDays(20)), cash(4_000, AT.plusDays(21))), food));
+        assertThrows(WindowLimitException.class,
+                () -> manager.addExpenses(List.of(cash(2_000, AT.plusDays(2)), cash(2_000, AT.plusDays(3))), food));
+        assertEquals(3, count(manager, BudgetMetrics.Operation.ADD_EXPENSES));
+        assertEquals(Map.of("Food", 2L), manager.getMetrics().getRejectionsByCategory());
+
+        manager.deleteCategory(food);
+        assertThrows(IllegalArgumentException.class, () -> manager.addExpenses(List.of(cash(1, AT)), food));
+        assertEquals(4, count(manager, BudgetMetrics.Operation.ADD_EXPENSES));
+        assertEquals(0, count(manager, BudgetMetrics.Operation.ADD_EXPENSE));
+        assertEquals(0, count(manager, BudgetMetrics.Operation.ADD_INCOME));
+    }
+
+    @Test
+    void singleAndBatchRejectionsCountAlike() throws Exception {
+        BudgetManager manager = new BudgetManager();
+        BudgetCategory food = BudgetCategory.ofCents("Food", 1_000);
+        manager.addCategory(food);
+        assertThrows(MonthlyLimitException.class, () -> manager.addExpense(cash(1_001, AT), food));
+        assertThrows(MonthlyLimitException.class, () -> manager.addExpenses(List.of(cash(600, AT), cash(600, AT)), food));
+        assertEquals(Map.of("Food", 2L), manager.getMetrics().getRejectionsByCategory());
+        assertEquals(1, count(manager, BudgetMetrics.Operation.ADD_EXPENSE));
+        assertEquals(1, count(manager, BudgetMetrics.Operation.ADD_EXPENSES));
+    }
+}
@@ -0,0 +1,135 @@
+// BudgetSnapshotTest.java
+package budgetapp;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class BudgetSnapshotTest {
+    private static final LocalDateTime START = LocalDateTime.of(2025, 3, 1, 9, 30, 15, 123_456_789);
+
+    @TempDir
+    Path dir;
+
+    private static List<String> describe(BudgetManager manager) {
+        List<String> rows = new ArrayList<>();
+        for (Transaction t : manager.getTransactionsByDateRange(LocalDate.MIN, LocalDate.MAX)) {
+            String label = t instanceof Expense
+                    ? ((Expense) t).getCategory() + " " + ((Expense) t).getPaymentMethod()
+                    : ((Income) t).getSource();
+            rows.add(t.getId() + " " + t.getDateTime() + " " + t.getAmountCents() + " " + label);
+        }
+        return rows;
+    }
+
+    private static BudgetManager populated() throws MonthlyLimitException {
+        BudgetManager manager = new BudgetManager();
+        BudgetCategory food = BudgetCategory.ofCents("Food", 500_000);
+        BudgetCategory travel = BudgetCategory.ofCents("Travel, \"abroad\" é", 1_000_000);
+        manager.addCategory(food);
+        manager.addCategory(travel);
+        Expense.PaymentMethod[] methods = Expense.PaymentMethod.values();
+        for (int i = 0; i < 200; i++) {
+            LocalDateTime at = START.plusHours(7L * i).plusNanos(i);
+            BudgetCategory category = i % 3 == 0 ? travel : food;
+            manager.addExpense(Expense.ofCents(100 + i * 13, at, category.getName(), methods[i % methods.length]),
+                    category);
+            if (i % 10 == 0) {
+                manager.addIncome(Income.ofCents(250_000 + i, at.plusMinutes(1), i % 20 == 0 ? "Salary" : "Gift"));
+            }
+        }
+        return manager;
+    }
+
+    @Test
+    void roundTripKeepsCategoriesAndTransactions() throws Exception {
+        BudgetManager manager = populated();
+        Path path = dir.resolve("budget.snapshot");
+        manager.checkpoint(path);
+
+        BudgetManager loaded = BudgetSnapshot.load(path);
+        assertEquals(describe(manager), describe(loaded));
+        for (BudgetCategory category : manager.getCategories()) {
+            BudgetCategory copy = loaded.getCategory(category.getName());
+            assertNotNull(copy, category.getName());
+            assertEquals(category.getLimitCents(), copy.getLimitCents());
+            for (YearMonth month = YearMonth.of(2025, 3); month.isBefore(YearMonth.of(2025, 6)); month = month.plusMonths(1)) {
+                assertEquals(category.getSpentCents(month), copy.getSpentCents(month), month.toString());
+                assertEquals(manager.getMonthlySpending(category, month).getAmountCents(),
+                        loaded.getMonthlySpending(copy, month).getAmountCents(), month.toString());
+            }
+            assertEquals(manager.getExpensesByCategory(category).size(), loaded.getExpensesByCategory(copy).size());
+        }
+        Transaction any = manager.getTransactionsByDateRange(LocalDate.MIN, LocalDate.MAX).get(57);
+        assertEquals(any.getAmountCents(), loaded.getById(any.getId()).getAmountCents());
+    }
+
+    @Test
+    void secondCheckpointMergesSnapshotRowsWithLaterChanges() throws Exception {
+        Path path = dir.resolve("budget.snapshot");
+        populated().checkpoint(path);
+        BudgetManager loaded = BudgetSnapshot.load(path);
+        List<Transaction> rows = loaded.getTransactionsByDateRange(LocalDate.MIN, LocalDate.MAX);
+        long deleted = rows.get(3).getId();
+        loaded.deleteTransaction(deleted);
+        BudgetCategory food = loaded.getCategory("Food");
+        loaded.addExpense(Expense.ofCents(777, START.plusDays(1), "Food", Expense.PaymentMethod.CARD), food);
+        loaded.addIncome(Income.ofCents(1, START.minusDays(1), "Refund"));
+
+        Path next = dir.resolve("next.snapshot");
+        loaded.checkpoint(next);
+        BudgetManager reloaded = BudgetSnapshot.load(next);
+        assertEquals(describe(loaded), describe(reloaded));
+        assertNull(reloaded.getById(deleted));
+        assertEquals(food.getSpentCents(YearMonth.from(START)),
+                reloaded.getCategory("Food").getSpentCents(YearMonth.from(START)));
+    }
+
+    @Test
+    void checkpointReplacesTheFileAndLeavesNoTemporary() throws Exception {
+        Path path = dir.resolve("budget.snapshot");
+        Files.writeString(path, "old");
+        populated().checkpoint(path);
+        assertFalse(Files.exists(dir.resolve("budget.snapshot.tmp")));
+        assertEquals(220, describe(BudgetSnapshot.load(path)).size());
+        BudgetSnapshot.syncDirectory(dir);
+    }
+
+    @Test
+    void rejectsFilesThatAreNotSnapshots() throws Exception {
+        Path path = dir.resolve("budget.snapshot");
+        Files.writeString(path, "not a snapshot at all");
+        assertThrows(IOException.class, () -> BudgetSnapshot.load(path));
+
+        new BudgetManager().checkpoint(path);
+        byte[] bytes = Files.readAllBytes(path);
+        ByteBuffer.wrap(bytes).putInt(4, 99);
+        Files.write(path, bytes);
+        IOException e = assertThrows(IOException.class, () -> BudgetSnapshot.load(path));
+        assertEquals("Unsupported snapshot version 99", e.getMessage());
+    }
+
+    @Test
+    void rejectsTruncatedSnapshot() throws Exception {
+        Path path = dir.resolve("budget.snapshot");
+        populated().checkpoint(path);
+        byte[] bytes = Files.readAllBytes(path);
+        Files.write(path, Arrays.copyOf(bytes, bytes.length - 100));
+        assertThrows(IOException.class, () -> BudgetSnapshot.load(path));
+    }
+}
@@ -0,0 +1,43 @@
+// CategoryLookupTest.java
+package budgetapp;
+
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import org.junit.jupiter.api.Test;
+
+class CategoryLookupTest {
+    @Test
+    void findsCategoriesOfThisManagerOnly() {
+        BudgetManager manager = new BudgetManager();
+        BudgetManager other = new BudgetManager();
+        BudgetCategory food = BudgetCategory.ofCents("Lookup food", 1_000);
+        manager.addCategory(food);
+        other.addCategory(BudgetCategory.ofCents("Lookup rent", 1_000));
+        for (int i = 0; i < 10_000; i++) {
+            BudgetCategory.ofCents("Lookup unrelated " + i, 1);
+        }
+
+        assertSame(food, manager.getCategory("Lookup food"));
+        assertSame(food, manager.getCategory(new String("Lookup food".toCharArray())));
+        assertNull(manager.getCategory("Lookup rent"));
+        assertNull(manager.getCategory("Lookup unrelated 7"));
+        assertNull(manager.getCategory("Never interned anywhere"));
+        assertNull(manager.getCategory((String) null));
+    }
+
+    @Test
+    void deletingACategoryFallsBackToAnotherOfTheSameName() {
+        BudgetManager manager = new BudgetManager();
+        BudgetCategory first = BudgetCategory.ofCents("Lookup shared", 1_000);
+        BudgetCategory second = BudgetCategory.ofCents("Lookup shared", 2_000);
+        manager.addCategory(first);
+        manager.addCategory(second);
+
+        assertSame(first, manager.getCategory("Lookup shared"));
+        manager.deleteCategory(first);
+        assertSame(second, manager.getCategory("Lookup shared"));
+        manager.deleteCategory(second);
+        assertNull(manager.getCategory("Lookup shared"));
+    }
+}
@@ -0,0 +1,49 @@
+// ColumnarTransactionStoreTest.java
+package budgetapp;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class ColumnarTransactionStoreTest {
+    private static final LocalDateTime AT = LocalDateTime.of(2025, 5, 6, 7, 8, 9, 123_456_789);
+
+    private static String describe(Transaction t) {
+        String label = t instanceof Expense
+                ? ((Expense) t).getCategory() + " " + ((Expense) t).getPaymentMethod() + " " + ((Expense) t).getFeeCents()
+                : ((Income) t).getSource();
+        return t.getClass().getSimpleName() + " " + t.getId() + " " + t.getDateTime() + " " + t.getAmountCents()
+                + " " + label;
+    }
+
+    @Test
+    void rowsReadBackWithTheirIdsAndTimes() throws Exception {
+        BudgetManager manager = new BudgetManager();
+        BudgetCategory food = BudgetCategory.ofCents("Food", 1_000_000);
+        manager.addCategory(food);
+        manager.addExpense(Expense.ofCents(1_999, AT, "Food", Expense.PaymentMethod.CARD), food);
+        manager.addExpense(Expense.ofCents(50, AT.plusNanos(1), "Food", Expense.PaymentMethod.WECHAT), food);
+        manager.addIncome(Income.ofCents(300_000, AT.minusDays(1).withNano(999_999_999), "Salary"));
+        List<Transaction> all = manager.getTransactionsByDateRange(LocalDate.MIN, LocalDate.MAX);
+
+        ColumnarTransactionStore store = manager.toColumnarStore();
+        assertEquals(all.size(), store.size());
+        long idBefore = TransactionIds.next();
+        for (int row = 0; row < store.size(); row++) {
+            Transaction original = all.get(row);
+            assertEquals(describe(original), describe(store.get(row)));
+            assertEquals(original.getId(), store.getId(row));
+            assertEquals(original.getDateTime().getNano(), store.getNano(row));
+            assertEquals(original instanceof Income, store.isIncome(row));
+        }
+        // Reading rows back draws no new ids.
+        assertEquals(idBefore + 1, TransactionIds.next());
+        assertTrue(store.estimateHeapBytes() >= 33L * store.size());
+        assertThrows(IndexOutOfBoundsException.class, () -> store.get(store.size()));
+    }
+}
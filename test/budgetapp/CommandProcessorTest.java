@@ -0,0 +1,52 @@
+// CommandProcessorTest.java
+package budgetapp;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.StringWriter;
+import java.time.LocalDateTime;
+import org.junit.jupiter.api.Test;
+
+class CommandProcessorTest {
+    private static String run(CommandProcessor processor, String line) throws Exception {
+        StringWriter out = new StringWriter();
+        assertTrue(processor.execute(line, out));
+        return out.toString();
+    }
+
+    @Test
+    void badLinesAnswerErrAndTheSessionGoesOn() throws Exception {
+        BudgetManager manager = new BudgetManager();
+        CommandProcessor processor = new CommandProcessor(manager);
+        assertEquals("OK\n", run(processor, "ADD_CATEGORY,Food,10000000000000000.00"));
+
+        // The CARD fee on this amount does not fit in a long.
+        assertTrue(run(processor, "EXPENSE,2025-03-03 12:12,90000000000000000.00,Food,CARD").startsWith("ERR "));
+        assertTrue(run(processor, "EXPENSE,2025-03-03 12:12,12.50,Food").startsWith("ERR Missing field"));
+        assertTrue(run(processor, "EXPENSE,2025-03-32 12:12,12.50,Food,CASH").startsWith("ERR "));
+        assertTrue(run(processor, "EXPENSE,2025-03-03 12:12,12.5x,Food,CASH").startsWith("ERR "));
+        assertTrue(run(processor, "EXPENSE,2025-03-03 12:12,12.50,Food,CHEQUE").startsWith("ERR "));
+        assertTrue(run(processor, "EXPENSE,2025-03-03 12:12,12.50,Toys,CASH").startsWith("ERR Unknown category"));
+        assertTrue(run(processor, "INCOME,2025-03-03 12:12,-5.00,Salary").startsWith("ERR "));
+        assertTrue(run(processor, "FROBNICATE").startsWith("ERR Unknown command"));
+        assertEquals("", run(processor, "   "));
+
+        assertEquals("OK\n", run(processor, "EXPENSE,2025-03-03 12:12,12.50,Food,CARD"));
+        assertEquals("EXPENSE,2025-03-03 12:12:00,12.50,Food,CARD\nOK 1\n", run(processor, "EXPENSES_BY_CATEGORY,Food"));
+        StringWriter out = new StringWriter();
+        assertFalse(processor.execute("quit", out));
+        assertEquals("OK\n", out.toString());
+    }
+
+    @Test
+    void expenseRejectsAnAmountWhoseFeeOverflows() {
+        LocalDateTime at = LocalDateTime.of(2025, 3, 3, 12, 12);
+        assertThrows(IllegalArgumentException.class,
+                () -> Expense.ofCents(Long.MAX_VALUE / 50, at, "Food", Expense.PaymentMethod.CARD));
+        assertEquals(Long.MAX_VALUE, Expense.ofCents(Long.MAX_VALUE, at, "Food", Expense.PaymentMethod.CASH)
+                .getAmountCents());
+    }
+}
@@ -0,0 +1,68 @@
+// ExpenseAmountIndexTest.java
+package budgetapp;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class ExpenseAmountIndexTest {
+    private static final LocalDateTime START = LocalDateTime.of(2025, 1, 1, 0, 0);
+
+    // The order the index returned before it merged its buckets: by date, then by amount, then insertion order.
+    private static List<Expense> expected(List<Expense> added, long min, long max) {
+        List<Expense> matches = new ArrayList<>();
+        for (Expense e : added) {
+            long amount = -e.getEffectiveAmountCents();
+            if (amount >= min && amount <= max) {
+                matches.add(e);
+            }
+        }
+        matches.sort(Comparator.comparing(Expense::getDateTime).thenComparingLong(e -> -e.getEffectiveAmountCents()));
+        return matches;
+    }
+
+    private static void assertSameList(List<Expense> expected, List<Expense> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertSame(expected.get(i), actual.get(i), "row " + i);
+        }
+    }
+
+    @Test
+    void rangesComeBackInDateOrder() {
+        Random random = new Random(2);
+        ExpenseAmountIndex index = new ExpenseAmountIndex();
+        List<Expense> added = new ArrayList<>();
+        for (int i = 0; i < 20_000; i++) {
+            // Mostly in date order, with some back-dated rows and many equal dates and amounts.
+            int minutes = random.nextInt(10) == 0 ? random.nextInt(i + 1) : i;
+            Expense e = Expense.ofCents(100 * (1 + random.nextInt(40)), START.plusMinutes(minutes / 3),
+                    "Amount index", Expense.PaymentMethod.CASH);
+            index.add(e);
+            added.add(e);
+        }
+        for (int i = 0; i < 3_000; i++) {
+            Expense e = added.remove(random.nextInt(added.size()));
+            assertTrue(index.remove(e));
+            assertFalse(index.remove(e));
+        }
+        assertEquals(added.size(), index.size());
+
+        for (int i = 0; i < 50; i++) {
+            long min = random.nextInt(4_500);
+            long max = min + random.nextInt(2_000);
+            assertSameList(expected(added, min, max), index.between(min, max));
+            assertSameList(expected(added, min + 1, Long.MAX_VALUE), index.above(min));
+        }
+        assertSameList(expected(added, 0, Long.MAX_VALUE), index.above(-1));
+        assertTrue(index.between(5, 4).isEmpty());
+    }
+}
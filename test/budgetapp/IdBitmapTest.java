@@ -0,0 +1,79 @@
+// IdBitmapTest.java
+package budgetapp;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+import org.junit.jupiter.api.Test;
+
+class IdBitmapTest {
+    private static List<Long> toList(IdBitmap bitmap) {
+        List<Long> ids = new ArrayList<>();
+        bitmap.forEach(ids::add);
+        return ids;
+    }
+
+    // Ids clustered in a few chunks, so some chunks turn dense and back to sparse.
+    private static long randomId(Random random) {
+        return (random.nextInt(4) * 65_536L) + (random.nextInt(3) == 0 ? random.nextInt(65_536) : random.nextInt(9_000));
+    }
+
+    @Test
+    void behavesLikeASortedSet() {
+        Random random = new Random(11);
+        IdBitmap bitmap = new IdBitmap();
+        TreeSet<Long> expected = new TreeSet<>();
+        for (int i = 0; i < 60_000; i++) {
+            long id = randomId(random);
+            if (random.nextInt(4) == 0) {
+                assertEquals(expected.remove(id), bitmap.remove(id));
+            } else {
+                assertEquals(expected.add(id), bitmap.add(id));
+            }
+        }
+        assertEquals(new ArrayList<>(expected), toList(bitmap));
+        assertEquals(expected.size(), bitmap.cardinality());
+        assertEquals((long) expected.first(), bitmap.first());
+        assertEquals((long) expected.last(), bitmap.last());
+        for (int i = 0; i < 1_000; i++) {
+            long id = randomId(random);
+            assertEquals(expected.contains(id), bitmap.contains(id));
+        }
+
+        for (Long id : new ArrayList<>(expected)) {
+            bitmap.remove(id);
+        }
+        assertTrue(bitmap.isEmpty());
+        assertEquals(0, bitmap.cardinality());
+    }
+
+    @Test
+    void andOrAndAddAllMatchSetOperations() {
+        Random random = new Random(12);
+        IdBitmap a = new IdBitmap();
+        IdBitmap b = new IdBitmap();
+        TreeSet<Long> setA = new TreeSet<>();
+        TreeSet<Long> setB = new TreeSet<>();
+        for (int i = 0; i < 30_000; i++) {
+            long id = randomId(random);
+            a.add(id);
+            setA.add(id);
+            long other = randomId(random) + (random.nextBoolean() ? 0 : 65_536L * 2);
+            b.add(other);
+            setB.add(other);
+        }
+        TreeSet<Long> both = new TreeSet<>(setA);
+        both.retainAll(setB);
+        TreeSet<Long> either = new TreeSet<>(setA);
+        either.addAll(setB);
+        assertEquals(new ArrayList<>(both), toList(a.and(b)));
+        assertEquals(new ArrayList<>(either), toList(a.or(b)));
+        a.addAll(b);
+        assertEquals(new ArrayList<>(either), toList(a));
+        assertEquals(new ArrayList<>(setB), toList(b));
+    }
+}
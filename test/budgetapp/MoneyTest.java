@@ -0,0 +1,99 @@
+// MoneyTest.java
+package budgetapp;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+class MoneyTest {
+    @Test
+    void parsesWholeAndFractionalAmounts() {
+        assertEquals(100_000, Money.parse("1000"));
+        assertEquals(1_250, Money.parse("12.5"));
+        assertEquals(-307, Money.parse("-3.07"));
+        assertEquals(5, Money.parse("+0.05"));
+        assertEquals(100, Money.parse("1."));
+        assertEquals(50, Money.parse(".5"));
+        assertEquals(0, Money.parse("-0"));
+        assertEquals(1_234, Money.parse(new StringBuilder("12.34")));
+    }
+
+    @Test
+    void parsesTheWholeLongRange() {
+        assertEquals(Long.MAX_VALUE, Money.parse("92233720368547758.07"));
+        assertEquals(Long.MIN_VALUE, Money.parse("-92233720368547758.08"));
+        assertEquals(Long.MIN_VALUE + 1, Money.parse("-92233720368547758.07"));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"", "-", "+", ".", "-.", "1.234", "12a", "1,5", " 1", "1 ", "--1", "1.-5",
+            "92233720368547758.08", "-92233720368547758.09", "92233720368547759", "100000000000000000000"})
+    void rejectsInvalidAmounts(String text) {
+        assertThrows(NumberFormatException.class, () -> Money.parse(text));
+    }
+
+    @Test
+    void rejectsNull() {
+        assertThrows(NumberFormatException.class, () -> Money.parse(null));
+    }
+
+    @Test
+    void formatsWithTwoDecimals() {
+        assertEquals("0.00", Money.format(0));
+        assertEquals("0.05", Money.format(5));
+        assertEquals("-0.05", Money.format(-5));
+        assertEquals("12.30", Money.format(1_230));
+        assertEquals("-1000.01", Money.format(-100_001));
+        assertEquals("92233720368547758.07", Money.format(Long.MAX_VALUE));
+        assertEquals("-92233720368547758.08", Money.format(Long.MIN_VALUE));
+        assertEquals("x=-92233720368547758.08", Money.appendTo(new StringBuilder("x="), Long.MIN_VALUE).toString());
+    }
+
+    @Test
+    void formatAndParseRoundTrip() {
+        long[] samples = {0, 1, -1, 99, -99, 100, -100, 123_456_789, Long.MAX_VALUE, Long.MIN_VALUE,
+                Long.MAX_VALUE - 1, Long.MIN_VALUE + 1};
+        for (long cents : samples) {
+            assertEquals(cents, Money.parse(Money.format(cents)), Money.format(cents));
+        }
+    }
+
+    @Test
+    void feeRoundsHalfAwayFromZero() {
+        assertEquals(0, Money.fee(1_000, 0));
+        assertEquals(10, Money.fee(1_000, 100));
+        // 49 cents at 1% is 0.49 cents, 50 cents is 0.5 cents.
+        assertEquals(0, Money.fee(49, 100));
+        assertEquals(1, Money.fee(50, 100));
+        assertEquals(-1, Money.fee(-50, 100));
+        assertEquals(0, Money.fee(-49, 100));
+        assertEquals(5, Money.fee(999, 50));
+        assertEquals(1_000, Money.fee(1_000, 10_000));
+    }
+
+    @Test
+    void feeOnExtremeAmounts() {
+        // Rounding up must not overflow when the scaled amount is close to Long.MAX_VALUE.
+        assertEquals(922_337_203_685_478L, Money.fee(Long.MAX_VALUE, 1));
+        assertEquals(-922_337_203_685_478L, Money.fee(Long.MIN_VALUE + 1, 1));
+        assertEquals(0, Money.fee(Long.MAX_VALUE, 0));
+        assertThrows(ArithmeticException.class, () -> Money.fee(Long.MIN_VALUE, 1));
+        assertThrows(ArithmeticException.class, () -> Money.fee(Long.MIN_VALUE, 0));
+        assertThrows(ArithmeticException.class, () -> Money.fee(Long.MAX_VALUE, 2));
+        assertThrows(IllegalArgumentException.class, () -> Money.fee(100, -1));
+    }
+
+    @Test
+    void convertsFromMajorUnitsHalfUp() {
+        assertEquals(101, Money.ofMajor(1.005));
+        assertEquals(-101, Money.ofMajor(-1.005));
+        assertEquals(1_999, Money.ofMajor(19.99));
+        assertEquals(0, Money.ofMajor(0.004));
+        assertThrows(IllegalArgumentException.class, () -> Money.ofMajor(Double.NaN));
+        assertThrows(IllegalArgumentException.class, () -> Money.ofMajor(Double.POSITIVE_INFINITY));
+        assertThrows(ArithmeticException.class, () -> Money.ofMajor(1e18));
+    }
+}
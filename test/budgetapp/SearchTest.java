@@ -0,0 +1,190 @@
+// SearchTest.java
+package budgetapp;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class SearchTest {
+    private static final String[] CATEGORIES = {"Food", "Fast food", "Food delivery", "Freelance tools", "Rent",
+            "Car: fuel & repairs", "FUEL", "Café 2"};
+    private static final String[] SOURCES = {"Salary", "Freelance design", "Design freelance work", "Gifts"};
+    private static final LocalDateTime START = LocalDateTime.of(2025, 1, 1, 0, 0);
+
+    @TempDir
+    Path dir;
+
+    private static BudgetManager populated(long seed) throws MonthlyLimitException {
+        BudgetManager manager = new BudgetManager();
+        BudgetCategory[] categories = new BudgetCategory[CATEGORIES.length];
+        for (int c = 0; c < CATEGORIES.length; c++) {
+            categories[c] = BudgetCategory.ofCents(CATEGORIES[c], Long.MAX_VALUE / 4);
+            manager.addCategory(categories[c]);
+        }
+        Random random = new Random(seed);
+        Expense.PaymentMethod[] methods = Expense.PaymentMethod.values();
+        for (int i = 0; i < 3_000; i++) {
+            LocalDateTime at = START.plusMinutes(random.nextInt(200 * 24 * 60));
+            if (random.nextInt(5) == 0) {
+                manager.addIncome(Income.ofCents(1 + random.nextInt(500_000), at,
+                        SOURCES[random.nextInt(SOURCES.length)]));
+            } else {
+                int c = random.nextInt(categories.length);
+                manager.addExpense(Expense.ofCents(1 + random.nextInt(100_000), at, CATEGORIES[c],
+                        methods[random.nextInt(methods.length)]), categories[c]);
+            }
+        }
+        return manager;
+    }
+
+    private static List<String> words(String text) {
+        List<String> words = new ArrayList<>();
+        for (String word : text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{Nd}]+")) {
+            if (!word.isEmpty()) {
+                words.add(word);
+            }
+        }
+        return words;
+    }
+
+    // Checks every transaction against the query, without the index.
+    private static List<Long> scan(BudgetManager manager, boolean expenses, String prefix, String text,
+                                   LocalDate from, LocalDate to, long minCents, long maxCents) {
+        List<Long> ids = new ArrayList<>();
+        for (Transaction t : manager.getTransactionsByDateRange(LocalDate.MIN, LocalDate.MAX)) {
+            if ((t instanceof Expense) != expenses) {
+                continue;
+            }
+            String name = t instanceof Expense ? ((Expense) t).getCategory() : ((Income) t).getSource();
+            boolean nameMatches = prefix != null
+                    ? name.toLowerCase(Locale.ROOT).startsWith(prefix.toLowerCase(Locale.ROOT))
+                    : words(name).containsAll(words(text));
+            LocalDate date = t.getDateTime().toLocalDate();
+            long amount = Math.abs(t.getEffectiveAmountCents());
+            if (nameMatches && (from == null || (!date.isBefore(from) && !date.isAfter(to)))
+                    && amount >= minCents && amount <= maxCents) {
+                ids.add(t.getId());
+            }
+        }
+        ids.sort(null);
+        return ids;
+    }
+
+    private static List<Long> search(BudgetManager manager, boolean expenses, SearchQuery query) {
+        List<? extends Transaction> found = expenses ? manager.searchExpenses(query) : manager.searchIncomes(query);
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < found.size(); i++) {
+            if (i > 0) {
+                assertFalse(found.get(i).getDateTime().isBefore(found.get(i - 1).getDateTime()), "date order");
+            }
+            ids.add(found.get(i).getId());
+        }
+        ids.sort(null);
+        return ids;
+    }
+
+    // Random prefix and words queries, some narrowed by dates and amounts, against a full scan.
+    private static void assertMatchesScan(BudgetManager manager, long seed) {
+        Random random = new Random(seed);
+        String[] prefixes = {"", "f", "F", "fo", "food", "Food ", "fa", "fre", "car:", "café", "x", "Sal", "de", "g"};
+        String[] texts = {"food", "FOOD fast", "fuel", "repairs car", "freelance", "design freelance", "work",
+                "2", "nothing here"};
+        for (int i = 0; i < 200; i++) {
+            boolean expenses = random.nextBoolean();
+            boolean byPrefix = random.nextBoolean();
+            String prefix = byPrefix ? prefixes[random.nextInt(prefixes.length)] : null;
+            String text = byPrefix ? null : texts[random.nextInt(texts.length)];
+            SearchQuery query = byPrefix ? SearchQuery.prefix(prefix) : SearchQuery.words(text);
+            LocalDate from = null;
+            LocalDate to = null;
+            if (random.nextBoolean()) {
+                from = START.toLocalDate().plusDays(random.nextInt(220) - 10);
+                to = from.plusDays(random.nextInt(60));
+                query = query.between(from, to);
+            }
+            long minCents = 0;
+            long maxCents = Long.MAX_VALUE;
+            if (random.nextBoolean()) {
+                minCents = random.nextInt(120_000);
+                maxCents = minCents + random.nextInt(200_000);
+                query = query.amountBetweenCents(minCents, maxCents);
+            }
+            assertEquals(scan(manager, expenses, prefix, text, from, to, minCents, maxCents),
+                    search(manager, expenses, query), query.toString());
+        }
+    }
+
+    @Test
+    void matchesAFullScan() throws Exception {
+        BudgetManager manager = populated(23);
+        assertMatchesScan(manager, 1);
+        assertEquals(manager.searchExpenses(SearchQuery.prefix("")).size()
+                + manager.searchIncomes(SearchQuery.prefix("")).size(),
+                manager.getTransactionsByDateRange(LocalDate.MIN, LocalDate.MAX).size());
+    }
+
+    @Test
+    void indexFollowsAddsUpdatesAndDeletes() throws Exception {
+        BudgetManager manager = populated(24);
+        // Builds the index, which later changes must then keep up to date.
+        manager.searchExpenses(SearchQuery.prefix("f"));
+        List<Transaction> rows = manager.getTransactionsByDateRange(LocalDate.MIN, LocalDate.MAX);
+        for (int i = 0; i < 100; i++) {
+            manager.deleteTransaction(rows.get(i * 7).getId());
+        }
+        Transaction updated = rows.get(1);
+        Transaction replacement = updated instanceof Expense
+                ? Expense.ofCents(12_345, START.plusDays(3), ((Expense) updated).getCategory(), Expense.PaymentMethod.CARD)
+                : Income.ofCents(12_345, START.plusDays(3), "Gifts");
+        manager.updateTransaction(updated.getId(), replacement);
+        BudgetCategory tools = manager.getCategory("Freelance tools");
+        manager.addExpense(Expense.ofCents(999, START.plusDays(150), "Freelance tools", Expense.PaymentMethod.CASH),
+                tools);
+        manager.addIncome(Income.ofCents(5, START.plusDays(4), "Freelance design"));
+        assertMatchesScan(manager, 2);
+
+        manager.deleteCategory(manager.getCategory("Fast food"));
+        assertTrue(manager.searchExpenses(SearchQuery.words("fast")).isEmpty());
+        assertMatchesScan(manager, 3);
+    }
+
+    @Test
+    void coversSnapshotRowsAndSealedMonths() throws Exception {
+        BudgetManager original = populated(25);
+        Path snapshot = dir.resolve("budget.snapshot");
+        original.checkpoint(snapshot);
+        BudgetManager loaded = BudgetSnapshot.load(snapshot);
+        BudgetCategory rent = loaded.getCategory("Rent");
+        loaded.addExpense(Expense.ofCents(70_000, START.plusDays(40), "Rent", Expense.PaymentMethod.CASH), rent);
+        assertMatchesScan(loaded, 4);
+
+        BudgetManager sealed = populated(26);
+        sealed.enableTieredStorage(dir.resolve("segments"), 200);
+        assertFalse(sealed.getSealedMonths().isEmpty());
+        assertMatchesScan(sealed, 5);
+    }
+
+    @Test
+    void queryValidation() {
+        assertThrows(IllegalArgumentException.class, () -> SearchQuery.prefix(null));
+        assertThrows(IllegalArgumentException.class, () -> SearchQuery.words(" ,; "));
+        assertThrows(IllegalArgumentException.class,
+                () -> SearchQuery.prefix("a").between(LocalDate.of(2025, 2, 1), LocalDate.of(2025, 1, 1)));
+        assertThrows(IllegalArgumentException.class, () -> SearchQuery.prefix("a").amountBetweenCents(-1, 5));
+        assertThrows(IllegalArgumentException.class, () -> SearchQuery.prefix("a").amountBetweenCents(6, 5));
+        assertEquals(Arrays.asList("design", "freelance"), SearchQuery.words("Design, FREELANCE!").getWords());
+        assertEquals("café", SearchQuery.prefix("CAFÉ").getPrefix());
+    }
+}
@@ -0,0 +1,105 @@
+// SymbolTableTest.java
+package budgetapp;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class SymbolTableTest {
+    private static final LocalDateTime AT = LocalDateTime.of(2025, 1, 1, 12, 0);
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void sameNameSharesOneSymbol() {
+        Expense a = Expense.ofCents(100, AT, new String("Symbol test food"), Expense.PaymentMethod.CASH);
+        Income b = Income.ofCents(100, AT, new String("Symbol test food"));
+        assertSame(a.getCategorySymbol(), b.getSourceSymbol());
+        assertEquals(a.getCategoryId(), SymbolTable.find("Symbol test food"));
+        assertEquals("Symbol test food", SymbolTable.name(b.getSourceId()));
+        assertEquals(-1, SymbolTable.find("Symbol test never added"));
+        assertThrows(IllegalArgumentException.class, () -> SymbolTable.symbol(null));
+        assertThrows(IllegalArgumentException.class, () -> SymbolTable.name(-1));
+    }
+
+    // Interns the given number of new names and drops all but one, returning the one kept.
+    private static Income addAndDrop(int count, Set<Integer> ids) {
+        Income kept = null;
+        for (int i = 0; i < count; i++) {
+            Income income = Income.ofCents(1, AT, "Reclaimed source " + i);
+            ids.add(income.getSourceId());
+            if (i == 17) {
+                kept = income;
+            }
+        }
+        return kept;
+    }
+
+    @Test
+    void unusedNamesAreReclaimedAndTheirIdsReused() {
+        Set<Integer> ids = new HashSet<>();
+        Income kept = addAndDrop(100, ids);
+        int before = SymbolTable.size();
+        for (int i = 0; i < 100; i++) {
+            if (i != 17) {
+                SymbolTable.reclaim("Reclaimed source " + i);
+            }
+        }
+        assertTrue(SymbolTable.size() <= before - 99, "names were not reclaimed");
+        assertEquals(-1, SymbolTable.find("Reclaimed source 3"));
+        assertEquals(kept.getSourceId(), SymbolTable.find("Reclaimed source 17"));
+        assertEquals("Reclaimed source 17", kept.getSource());
+
+        // New names take the freed ids rather than growing the table.
+        Income fresh = Income.ofCents(1, AT, "Reclaimed source fresh");
+        assertTrue(ids.contains(fresh.getSourceId()), "id was not reused");
+        assertNotEquals(kept.getSourceId(), fresh.getSourceId());
+        // A reclaimed name comes back under a new symbol.
+        assertEquals(-1, SymbolTable.find("Reclaimed source 5"));
+        assertNotNull(Income.ofCents(1, AT, "Reclaimed source 5").getSourceSymbol());
+    }
+
+    @Test
+    void exporterDoesNotReuseTheEncodingOfAReclaimedName() throws Exception {
+        TransactionExporter exporter = new TransactionExporter(TransactionExporter.Format.CSV);
+        List<Income> incomes = new ArrayList<>();
+        Set<Integer> exported = new HashSet<>();
+        for (int i = 0; i < 20; i++) {
+            incomes.add(Income.ofCents(1, AT, "Exported source " + i));
+            exported.add(incomes.get(i).getSourceId());
+        }
+        exporter.export(incomes, dir.resolve("first.csv"));
+        incomes.clear();
+        for (int i = 0; i < 20; i++) {
+            SymbolTable.reclaim("Exported source " + i);
+        }
+
+        // Adds names until one takes an id the exporter has already encoded a name for.
+        List<Income> fresh = new ArrayList<>();
+        Income reused = null;
+        for (int i = 0; reused == null && i < 1_000; i++) {
+            Income income = Income.ofCents(250, AT, "Exported source again " + i);
+            fresh.add(income);
+            reused = exported.contains(income.getSourceId()) ? income : null;
+        }
+        assertNotNull(reused, "no exported id was reused");
+        Path second = dir.resolve("second.csv");
+        exporter.export(List.of(reused), second);
+        String csv = Files.readString(second);
+        assertTrue(csv.contains(",2.50," + reused.getSource() + "\n"), csv);
+    }
+}
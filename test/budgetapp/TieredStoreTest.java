@@ -0,0 +1,174 @@
+// TieredStoreTest.java
+package budgetapp;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class TieredStoreTest {
+    private static final LocalDateTime START = LocalDateTime.of(2025, 1, 1, 0, 0);
+
+    @TempDir
+    Path dir;
+
+    private static String describe(Transaction t) {
+        String label = t instanceof Expense
+                ? ((Expense) t).getCategory() + " " + ((Expense) t).getPaymentMethod()
+                : ((Income) t).getSource();
+        return t.getId() + " " + t.getDateTime() + " " + t.getAmountCents() + " " + label;
+    }
+
+    private static List<String> describe(List<? extends Transaction> transactions) {
+        List<String> rows = new ArrayList<>();
+        for (Transaction t : transactions) {
+            rows.add(describe(t));
+        }
+        return rows;
+    }
+
+    private static List<String> everything(BudgetManager manager) {
+        List<String> rows = describe(manager.getTransactionsByDateRange(LocalDate.MIN, LocalDate.MAX));
+        for (BudgetCategory category : manager.getCategories()) {
+            rows.add(category.getName());
+            rows.addAll(describe(manager.getExpensesByCategory(category)));
+        }
+        rows.addAll(describe(manager.getExpensesAboveAmount(40.0)));
+        rows.addAll(describe(manager.getTopExpenses(7)));
+        rows.addAll(describe(manager.getTransactionsByDateRange(LocalDate.of(2025, 2, 10), LocalDate.of(2025, 3, 5))));
+        return rows;
+    }
+
+    // Four months of expenses in three categories and a monthly income, with odd labels and sub-second times.
+    private static BudgetManager populated() throws MonthlyLimitException {
+        BudgetManager manager = new BudgetManager();
+        String[] names = {"Food", "Rent", "Café, \"late\""};
+        BudgetCategory[] categories = new BudgetCategory[names.length];
+        for (int c = 0; c < names.length; c++) {
+            categories[c] = BudgetCategory.ofCents(names[c], 100_000_000);
+            manager.addCategory(categories[c]);
+        }
+        Random random = new Random(21);
+        Expense.PaymentMethod[] methods = Expense.PaymentMethod.values();
+        for (int i = 0; i < 600; i++) {
+            LocalDateTime at = START.plusMinutes(random.nextInt(120 * 24 * 60)).plusNanos(random.nextInt(1_000_000_000));
+            int c = random.nextInt(categories.length);
+            manager.addExpense(Expense.ofCents(1 + random.nextInt(10_000), at, names[c],
+                    methods[random.nextInt(methods.length)]), categories[c]);
+        }
+        for (int month = 0; month < 4; month++) {
+            manager.addIncome(Income.ofCents(500_000 + month, START.plusMonths(month).plusDays(24), "Salary"));
+        }
+        return manager;
+    }
+
+    @Test
+    void sealedRowsReadBackUnchanged() throws Exception {
+        BudgetManager manager = populated();
+        List<String> before = everything(manager);
+        Transaction probe = manager.getTransactionsByDateRange(LocalDate.MIN, LocalDate.MAX).get(123);
+
+        // A small cache makes the queries decode segments again.
+        manager.enableTieredStorage(dir.resolve("segments"), 50);
+        assertEquals(List.of(YearMonth.of(2025, 1), YearMonth.of(2025, 2), YearMonth.of(2025, 3),
+                YearMonth.of(2025, 4)), manager.getSealedMonths());
+        assertTrue(manager.getSealedBytes() > 0);
+        assertEquals(before, everything(manager));
+        assertEquals(describe(probe), describe(manager.getById(probe.getId())));
+    }
+
+    @Test
+    void sealedRowsCanBeDeletedUpdatedAndBackDatedInto() throws Exception {
+        BudgetManager manager = populated();
+        manager.enableTieredStorage(dir.resolve("segments"), 1_000);
+        List<Transaction> rows = manager.getTransactionsByDateRange(LocalDate.MIN, LocalDate.MAX);
+        Expense deleted = null;
+        Expense updated = null;
+        for (Transaction t : rows) {
+            if (t instanceof Expense) {
+                if (deleted == null) {
+                    deleted = (Expense) t;
+                } else {
+                    updated = (Expense) t;
+                    break;
+                }
+            }
+        }
+        assertTrue(manager.deleteTransaction(deleted.getId()));
+        assertNull(manager.getById(deleted.getId()));
+        Expense replacement = Expense.ofCents(4_242, updated.getDateTime(), updated.getCategory(),
+                Expense.PaymentMethod.CARD);
+        assertTrue(manager.updateTransaction(updated.getId(), replacement));
+        assertEquals(4_242, manager.getById(updated.getId()).getAmountCents());
+
+        BudgetCategory food = manager.getCategory("Food");
+        Expense backDated = Expense.ofCents(777, LocalDateTime.of(2025, 2, 14, 12, 0), "Food",
+                Expense.PaymentMethod.CASH);
+        manager.addExpense(backDated, food);
+        List<String> before = everything(manager);
+        // One row deleted, one added.
+        assertEquals(rows.size(), manager.getTransactionsByDateRange(LocalDate.MIN, LocalDate.MAX).size());
+
+        // The replacement and the back-dated expense wait in memory until their months are sealed again.
+        assertEquals(2, manager.sealClosedMonths());
+        assertEquals(before, everything(manager));
+        assertNotNull(manager.getById(backDated.getId()));
+    }
+
+    @Test
+    void batchAddsSealOnceTheMonthHasEnded() throws Exception {
+        BudgetManager manager = new BudgetManager();
+        BudgetCategory food = BudgetCategory.ofCents("Food", 100_000);
+        manager.addCategory(food);
+        manager.enableTieredStorage(dir.resolve("segments"), 100);
+
+        manager.expireSealTimer();
+        manager.addExpenses(List.of(Expense.ofCents(500, START, "Food", Expense.PaymentMethod.CASH),
+                Expense.ofCents(700, START.plusDays(1), "Food", Expense.PaymentMethod.CARD)), food);
+        assertEquals(List.of(YearMonth.of(2025, 1)), manager.getSealedMonths());
+        manager.expireSealTimer();
+        manager.addIncomes(List.of(Income.ofCents(900, START.plusMonths(1), "Salary")));
+        assertEquals(List.of(YearMonth.of(2025, 1), YearMonth.of(2025, 2)), manager.getSealedMonths());
+        // Nothing was left in memory for a later seal.
+        assertEquals(0, manager.sealClosedMonths());
+        assertEquals(3, manager.getTransactionsByDateRange(LocalDate.MIN, LocalDate.MAX).size());
+    }
+
+    @Test
+    void failedAutomaticSealIsReportedAndRetried() throws Exception {
+        Path segments = dir.resolve("segments");
+        BudgetManager manager = new BudgetManager();
+        BudgetCategory food = BudgetCategory.ofCents("Food", 100_000);
+        manager.addCategory(food);
+        manager.enableTieredStorage(segments, 100);
+        Expense expense = Expense.ofCents(500, START, "Food", Expense.PaymentMethod.CASH);
+        manager.addExpense(expense, food);
+
+        // Segments cannot be written while the directory is a plain file.
+        Files.delete(segments);
+        Files.writeString(segments, "in the way");
+        assertFalse(manager.trySealClosedMonths(System.currentTimeMillis()));
+        assertNotNull(manager.getSealFailure());
+        assertEquals(describe(expense), describe(manager.getById(expense.getId())));
+        assertTrue(manager.getSealedMonths().isEmpty());
+
+        Files.delete(segments);
+        Files.createDirectory(segments);
+        assertTrue(manager.trySealClosedMonths(System.currentTimeMillis()));
+        assertNull(manager.getSealFailure());
+        assertEquals(List.of(YearMonth.of(2025, 1)), manager.getSealedMonths());
+        assertEquals(describe(expense), describe(manager.getById(expense.getId())));
+    }
+}
@@ -0,0 +1,167 @@
+// TransactionImporterTest.java
+package budgetapp;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class TransactionImporterTest {
+    @TempDir
+    Path dir;
+
+    private Path file(String name, String... lines) throws Exception {
+        Path path = dir.resolve(name);
+        Files.writeString(path, String.join("\n", lines));
+        return path;
+    }
+
+    private static List<Long> rejectedLines(ImportResult result) {
+        List<Long> lines = new ArrayList<>();
+        for (ImportResult.RejectedRow row : result.getRejectedRows()) {
+            lines.add(row.getLineNumber());
+        }
+        return lines;
+    }
+
+    @Test
+    void badRowsAreRejectedOneByOne() throws Exception {
+        BudgetManager manager = new BudgetManager();
+        manager.addCategory(BudgetCategory.ofCents("Food", 10_000_000));
+        Path path = file("bad.csv",
+                "INCOME,2025-03-01 09:00,1000.00,Salary",
+                "TRANSFER,2025-03-01 09:00,1.00,Food",
+                "EXPENSE,2025-03-01 09:00,1.00,Food",
+                "EXPENSE,2025-02-30 09:00,1.00,Food,CASH",
+                "EXPENSE,2025-03-01 09:00,1.0.0,Food,CASH",
+                "EXPENSE,2025-03-01 09:00,1.00,Food,CHEQUE",
+                "EXPENSE,2025-03-01 09:00,1.00,Toys,CASH",
+                "EXPENSE,2025-03-01 09:00,-1.00,Food,CASH",
+                // The CARD fee on this amount does not fit in a long.
+                "EXPENSE,2025-03-01 09:00,90000000000000000.00,Food,CARD",
+                "expense , 2025-03-02 , 12.34 , Food , card");
+        ImportResult result = new TransactionImporter(manager, 4, 2).importFile(path);
+
+        assertEquals(2, result.getImportedCount());
+        assertEquals(List.of(2L, 3L, 4L, 5L, 6L, 7L, 8L, 9L), rejectedLines(result));
+        assertEquals("EXPENSE,2025-03-01 09:00,1.00,Toys,CASH", result.getRejectedRows().get(5).getLine());
+        assertEquals("Unknown category: Toys", result.getRejectedRows().get(5).getReason());
+        List<Transaction> all = manager.getTransactionsByDateRange(LocalDate.MIN, LocalDate.MAX);
+        assertEquals(2, all.size());
+        Expense expense = (Expense) all.get(1);
+        assertEquals(LocalDateTime.of(2025, 3, 2, 0, 0), expense.getDateTime());
+        assertEquals(1_234, expense.getAmountCents());
+        assertEquals(Expense.PaymentMethod.CARD, expense.getPaymentMethod());
+    }
+
+    @Test
+    void headerAndBlankLinesAreSkipped() throws Exception {
+        BudgetManager manager = new BudgetManager();
+        Path path = file("header.csv",
+                "type,date,amount,label,method",
+                "",
+                "INCOME,2025-03-01T09:00:30,1.00,Salary\r",
+                "   ",
+                "INCOME,2025-03-02,2.00,Gifts",
+                "type,date,amount,label,method",
+                "");
+        ImportResult result = new TransactionImporter(manager, 2, 3).importFile(path);
+
+        assertEquals(2, result.getImportedCount());
+        // Only the header on the first line is skipped.
+        assertEquals(List.of(6L), rejectedLines(result));
+        assertEquals(LocalDateTime.of(2025, 3, 1, 9, 0, 30),
+                manager.getTransactionsByDateRange(LocalDate.MIN, LocalDate.MAX).get(0).getDateTime());
+    }
+
+    @Test
+    void quotedFieldsAndFractionsAreRead() throws Exception {
+        BudgetManager manager = new BudgetManager();
+        manager.addCategory(BudgetCategory.ofCents("Food, Drinks", 10_000));
+        Path path = file("quoted.csv",
+                "EXPENSE,2025-03-01 09:00:00.5,1.00, \"Food, Drinks\" ,CASH",
+                "INCOME,2025-03-01 09:00:01.000000007,2.00,\"Job \"\"A\"\"\"",
+                "INCOME,2025-03-01 09:00:02,3.00,\"Two",
+                "lines\"",
+                "INCOME,2025-03-01 09:00:03,4.00,Job \"B\"",
+                "INCOME,2025-03-01 09:00:04.1234567890,5.00,Salary");
+        ImportResult result = new TransactionImporter(manager, 2, 2).importFile(path);
+
+        assertEquals(4, result.getImportedCount());
+        // The quoted line break keeps the record on one line number.
+        assertEquals(List.of(5L), rejectedLines(result));
+        List<Transaction> all = manager.getTransactionsByDateRange(LocalDate.MIN, LocalDate.MAX);
+        assertEquals("Food, Drinks", ((Expense) all.get(0)).getCategory());
+        assertEquals(500_000_000, all.get(0).getDateTime().getNano());
+        assertEquals("Job \"A\"", ((Income) all.get(1)).getSource());
+        assertEquals(7, all.get(1).getDateTime().getNano());
+        assertEquals("Two\nlines", ((Income) all.get(2)).getSource());
+        assertEquals("Job \"B\"", ((Income) all.get(3)).getSource());
+    }
+
+    @Test
+    void exportedLedgerImportsBackUnchanged() throws Exception {
+        BudgetManager manager = new BudgetManager();
+        manager.addCategory(BudgetCategory.ofCents("Food, Drinks", 100_000));
+        manager.addCategory(BudgetCategory.ofCents("Rent", 100_000));
+        LocalDateTime at = LocalDateTime.of(2025, 3, 1, 9, 30, 15, 123_456_789);
+        manager.addExpense(Expense.ofCents(1_250, at, "Food, Drinks", Expense.PaymentMethod.CARD),
+                manager.getCategory("Food, Drinks"));
+        manager.addExpense(Expense.ofCents(90_000, at.plusDays(1), "Rent", Expense.PaymentMethod.WECHAT),
+                manager.getCategory("Rent"));
+        manager.addIncome(Income.ofCents(300_000, at.plusNanos(1), "Job \"A\""));
+        manager.addIncome(Income.ofCents(7, at.withNano(0), "Two\r\nlines"));
+        Path path = dir.resolve("ledger.csv");
+        new TransactionExporter(TransactionExporter.Format.CSV).exportLedger(manager, path);
+
+        BudgetManager copy = new BudgetManager();
+        copy.addCategory(BudgetCategory.ofCents("Food, Drinks", 100_000));
+        copy.addCategory(BudgetCategory.ofCents("Rent", 100_000));
+        ImportResult result = new TransactionImporter(copy, 3, 2).importFile(path);
+
+        assertEquals(List.of(), rejectedLines(result));
+        assertEquals(describe(manager), describe(copy));
+    }
+
+    private static List<String> describe(BudgetManager manager) {
+        List<String> rows = new ArrayList<>();
+        for (Transaction t : manager.getTransactionsByDateRange(LocalDate.MIN, LocalDate.MAX)) {
+            String label = t instanceof Expense
+                    ? ((Expense) t).getCategory() + " " + ((Expense) t).getPaymentMethod()
+                    : ((Income) t).getSource();
+            rows.add(t.getDateTime() + " " + t.getAmountCents() + " " + label);
+        }
+        return rows;
+    }
+
+    @Test
+    void batchesAreAppliedInFileOrder() throws Exception {
+        BudgetManager manager = new BudgetManager();
+        // Room for exactly 25 of the 100 expenses below.
+        manager.addCategory(BudgetCategory.ofCents("Food", 25_000));
+        String[] lines = new String[100];
+        for (int i = 0; i < lines.length; i++) {
+            lines[i] = "EXPENSE,2025-03-" + String.format("%02d", 1 + i % 28) + " 10:00,10.00,Food,CASH";
+        }
+        ImportResult result = new TransactionImporter(manager, 7, 4).importFile(file("order.csv", lines));
+
+        assertEquals(25, result.getImportedCount());
+        List<Long> expected = new ArrayList<>();
+        for (long line = 26; line <= 100; line++) {
+            expected.add(line);
+        }
+        assertEquals(expected, rejectedLines(result));
+        for (ImportResult.RejectedRow row : result.getRejectedRows()) {
+            assertTrue(row.getReason().startsWith("Expense exceeds monthly limit"), row.getReason());
+        }
+        assertEquals(25_000, manager.getCategory("Food").getSpentCents(YearMonth.of(2025, 3)));
+    }
+}
@@ -0,0 +1,154 @@
+// TransactionUpdateTest.java
+package budgetapp;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+class TransactionUpdateTest {
+    private static final YearMonth JANUARY = YearMonth.of(2025, 1);
+    private static final WindowLimit WEEK = WindowLimit.rolling(7, 8_000);
+
+    /** Where the transactions live when they are looked up, deleted or replaced. */
+    enum Tier { MEMORY, SNAPSHOT, SEALED }
+
+    @TempDir
+    Path dir;
+
+    private long first;
+    private long second;
+    private long salary;
+
+    private static LocalDateTime day(int n) {
+        return JANUARY.atDay(n).atTime(12, 0, 0, n);
+    }
+
+    private static Expense food(long cents, int day) {
+        return Expense.ofCents(cents, day(day), "Food", Expense.PaymentMethod.CASH);
+    }
+
+    private static String describe(Transaction t) {
+        String label = t instanceof Expense
+                ? ((Expense) t).getCategory() + " " + ((Expense) t).getPaymentMethod()
+                : ((Income) t).getSource();
+        return t.getId() + " " + t.getDateTime() + " " + t.getAmountCents() + " " + label;
+    }
+
+    // Two expenses of 30.00 and 40.00 in a week of a month limited to 100.00, and one income,
+    // held in the given tier. The week is limited to 80.00.
+    private BudgetManager managerIn(Tier tier) throws Exception {
+        BudgetManager manager = new BudgetManager();
+        BudgetCategory category = BudgetCategory.ofCents("Food", 10_000);
+        manager.addCategory(category);
+        Expense a = food(3_000, 10);
+        Expense b = food(4_000, 12);
+        Income income = Income.ofCents(50_000, day(15), "Salary");
+        manager.addExpense(a, category);
+        manager.addExpense(b, category);
+        manager.addIncome(income);
+        first = a.getId();
+        second = b.getId();
+        salary = income.getId();
+        if (tier == Tier.SNAPSHOT) {
+            Path path = dir.resolve("budget.snapshot");
+            manager.checkpoint(path);
+            manager = BudgetSnapshot.load(path);
+        } else if (tier == Tier.SEALED) {
+            manager.enableTieredStorage(dir.resolve("segments"), 10);
+            assertEquals(1, manager.getSealedMonths().size());
+        }
+        manager.addWindowLimit(manager.getCategory("Food"), WEEK);
+        return manager;
+    }
+
+    private static long count(BudgetManager manager, BudgetMetrics.Operation operation) {
+        return manager.getMetrics().getLatency(operation).getCount();
+    }
+
+    @ParameterizedTest
+    @EnumSource(Tier.class)
+    void transactionsAreFoundAndDeletedById(Tier tier) throws Exception {
+        BudgetManager manager = managerIn(tier);
+        BudgetCategory category = manager.getCategory("Food");
+        assertEquals(3_000, manager.getById(first).getAmountCents());
+        assertEquals(4_000, manager.getById(second).getAmountCents());
+        assertEquals("Salary", ((Income) manager.getById(salary)).getSource());
+        assertNull(manager.getById(Long.MAX_VALUE));
+
+        assertTrue(manager.deleteTransaction(first));
+        assertFalse(manager.deleteTransaction(first));
+        assertTrue(manager.deleteTransaction(salary));
+        assertNull(manager.getById(first));
+        assertNull(manager.getById(salary));
+        assertEquals(4_000, category.getSpentCents(JANUARY));
+        assertEquals(1, manager.getExpensesByCategory(category).size());
+        assertEquals(3, count(manager, BudgetMetrics.Operation.DELETE_TRANSACTION));
+
+        // The freed room in the month and the week can be spent again.
+        manager.addExpense(food(4_000, 11), category);
+        assertEquals(8_000, category.getSpentCents(JANUARY));
+    }
+
+    @ParameterizedTest
+    @EnumSource(Tier.class)
+    void updateKeepsTheIdAndMovesTheSpend(Tier tier) throws Exception {
+        BudgetManager manager = managerIn(tier);
+        BudgetCategory category = manager.getCategory("Food");
+
+        assertTrue(manager.updateTransaction(second, food(3_500, 13)));
+        Transaction replaced = manager.getById(second);
+        assertEquals(second, replaced.getId());
+        assertEquals(3_500, replaced.getAmountCents());
+        assertEquals(day(13), replaced.getDateTime());
+        assertEquals(6_500, category.getSpentCents(JANUARY));
+
+        // Moving an expense into another month frees its old month.
+        Expense february = Expense.ofCents(7_000, JANUARY.plusMonths(1).atDay(1).atTime(9, 0), "Food",
+                Expense.PaymentMethod.CASH);
+        assertTrue(manager.updateTransaction(first, february));
+        assertEquals(3_500, category.getSpentCents(JANUARY));
+        assertEquals(7_000, category.getSpentCents(JANUARY.plusMonths(1)));
+
+        assertTrue(manager.updateTransaction(salary, Income.ofCents(1, day(20), "Refund")));
+        assertEquals("Refund", ((Income) manager.getById(salary)).getSource());
+        assertFalse(manager.updateTransaction(Long.MAX_VALUE, food(1, 1)));
+        assertEquals(4, count(manager, BudgetMetrics.Operation.UPDATE_TRANSACTION));
+    }
+
+    @ParameterizedTest
+    @EnumSource(Tier.class)
+    void rejectedUpdateLeavesTheOriginalInPlace(Tier tier) throws Exception {
+        BudgetManager manager = managerIn(tier);
+        BudgetCategory category = manager.getCategory("Food");
+        String original = describe(manager.getById(first));
+
+        // 80.00 + 40.00 is over the month's 100.00.
+        assertThrows(MonthlyLimitException.class, () -> manager.updateTransaction(first, food(8_000, 10)));
+        assertEquals(original, describe(manager.getById(first)));
+        assertEquals(7_000, category.getSpentCents(JANUARY));
+
+        // 50.00 + 40.00 fits the month but not the week's 80.00.
+        WindowLimitException e = assertThrows(WindowLimitException.class,
+                () -> manager.updateTransaction(first, food(5_000, 10)));
+        assertEquals(WEEK, e.getLimit());
+        assertEquals(original, describe(manager.getById(first)));
+        assertEquals(7_000, category.getSpentCents(JANUARY));
+        assertEquals(2, manager.getExpensesByCategory(category).size());
+
+        // With the original's spend still counted, a replacement that fits is accepted.
+        assertTrue(manager.updateTransaction(first, food(4_000, 10)));
+        assertEquals(8_000, category.getSpentCents(JANUARY));
+        assertThrows(WindowLimitException.class, () -> manager.addExpense(food(1, 11), category));
+        assertEquals(3, count(manager, BudgetMetrics.Operation.UPDATE_TRANSACTION));
+        assertEquals(3L, manager.getMetrics().getRejectionsByCategory().get("Food"));
+    }
+}
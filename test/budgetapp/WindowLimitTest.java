@@ -0,0 +1,135 @@
+// WindowLimitTest.java
+package budgetapp;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import org.junit.jupiter.api.Test;
+
+class WindowLimitTest {
+    private static final LocalDate DAY_ZERO = LocalDate.of(2025, 1, 1);
+    private static final WindowLimit WEEK = WindowLimit.rolling(7, 10_000);
+
+    private static LocalDateTime day(int n) {
+        return DAY_ZERO.plusDays(n).atTime(12, 0);
+    }
+
+    private static Expense cash(long cents, int day) {
+        return Expense.ofCents(cents, day(day), "Window", Expense.PaymentMethod.CASH);
+    }
+
+    private static BudgetManager managerWith(BudgetCategory category) {
+        BudgetManager manager = new BudgetManager();
+        manager.addCategory(category);
+        manager.addWindowLimit(category, WEEK);
+        return manager;
+    }
+
+    @Test
+    void backDatedExpenseIsCheckedAgainstEveryWindowContainingItsDay() throws MonthlyLimitException {
+        BudgetCategory category = BudgetCategory.ofCents("Window", 10_000_000);
+        BudgetManager manager = managerWith(category);
+        manager.addExpense(cash(6_000, 13), category);
+        manager.addExpense(cash(5_000, 20), category);
+
+        // Days 13 to 19 would hold 105.00.
+        WindowLimitException e = assertThrows(WindowLimitException.class,
+                () -> manager.addExpense(cash(4_500, 14), category));
+        assertEquals(6_000, e.getSpentCents());
+        assertEquals(5_000, category.getWindowSpentCents(WEEK));
+        manager.addExpense(cash(4_000, 14), category);
+        assertEquals(3, manager.getExpensesByCategory(category).size());
+    }
+
+    @Test
+    void expensesDatedBeforeTheLatestWindowStillShareALimit() throws MonthlyLimitException {
+        BudgetCategory category = BudgetCategory.ofCents("Window", 10_000_000);
+        BudgetManager manager = managerWith(category);
+        manager.addExpense(cash(100, 40), category);
+
+        manager.addExpense(cash(9_900, 10), category);
+        for (int i = 0; i < 4; i++) {
+            assertThrows(WindowLimitException.class, () -> manager.addExpense(cash(9_900, 10), category));
+        }
+        assertThrows(WindowLimitException.class, () -> manager.addExpenses(
+                List.of(cash(100, 8), cash(100, 12)), category));
+        assertEquals(2, manager.getExpensesByCategory(category).size());
+        assertEquals(100, category.getWindowSpentCents(WEEK));
+    }
+
+    @Test
+    void expenseOlderThanTheRingIsRejected() throws MonthlyLimitException {
+        BudgetCategory category = BudgetCategory.ofCents("Window", 10_000_000);
+        BudgetManager manager = managerWith(category);
+        manager.addExpense(cash(100, 400), category);
+
+        assertThrows(WindowLimitException.class, () -> manager.addExpense(cash(100, 400 - 367), category));
+        manager.addExpense(cash(100, 400 - 366), category);
+    }
+
+    @Test
+    void limitIsNeverExceededByAnyWindow() {
+        BudgetCategory category = BudgetCategory.ofCents("Window", Long.MAX_VALUE / 4);
+        BudgetManager manager = managerWith(category);
+        Random random = new Random(7);
+        long[] spentByDay = new long[120];
+        for (int i = 0; i < 2_000; i++) {
+            int day = random.nextInt(spentByDay.length);
+            long cents = 1 + random.nextInt(3_000);
+            try {
+                manager.addExpense(cash(cents, day), category);
+                spentByDay[day] += cents;
+            } catch (MonthlyLimitException e) {
+                // Rejected by the rolling limit.
+            }
+        }
+        for (int end = 0; end < spentByDay.length; end++) {
+            long window = 0;
+            for (int d = Math.max(0, end - 6); d <= end; d++) {
+                window += spentByDay[d];
+            }
+            assertEquals(true, window <= WEEK.getLimitCents(), "window ending on day " + end + " holds " + window);
+        }
+    }
+
+    @Test
+    void limitAddedDuringIngestCountsEveryExpenseOnce() throws InterruptedException {
+        WindowLimit roomy = WindowLimit.rolling(7, Long.MAX_VALUE / 4);
+        for (int round = 0; round < 100; round++) {
+            BudgetCategory category = BudgetCategory.ofCents("Window", Long.MAX_VALUE / 4);
+            BudgetManager manager = new BudgetManager();
+            manager.addCategory(category);
+            CountDownLatch start = new CountDownLatch(1);
+            Thread[] adders = new Thread[3];
+            for (int t = 0; t < adders.length; t++) {
+                adders[t] = new Thread(() -> {
+                    try {
+                        start.await();
+                        for (int i = 0; i < 200; i++) {
+                            manager.addExpense(cash(1, 3), category);
+                        }
+                    } catch (MonthlyLimitException e) {
+                        throw new AssertionError(e);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                });
+                adders[t].start();
+            }
+            start.countDown();
+            Thread.yield();
+            manager.addWindowLimit(category, roomy);
+            for (Thread adder : adders) {
+                adder.join();
+            }
+
+            // Every expense is on one day, so the window holds all of them, whenever it was added.
+            assertEquals(600, category.getWindowSpentCents(roomy));
+        }
+    }
+}